@@ -1,11 +1,14 @@
 package com.nelani.demo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @EnableAsync
 @Configuration
@@ -22,4 +25,68 @@ public class AsyncConfig {
         return executor;
     }
 
+    // Bounds how many provider calls a batch initialization runs at once.
+    // When the queue is full the calling request thread runs the call itself,
+    // which throttles new batches instead of rejecting them.
+    @Bean(name = "paymentBatchExecutor")
+    public Executor paymentBatchExecutor(
+            @Value("${payments.batch.parallelism:8}") int parallelism,
+            @Value("${payments.batch.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payment-batch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs reconciliation lookups against the providers. Kept apart from the
+    // batch executor so a long reconciliation pass never delays checkouts.
+    @Bean(name = "paymentReconciliationExecutor")
+    public Executor paymentReconciliationExecutor(
+            @Value("${payments.reconciliation.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("payment-reconciliation-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Applies accepted webhooks. A single thread keeps one inbox drain running
+    // at a time, so events are applied in arrival order.
+    @Bean(name = "webhookExecutor")
+    public Executor webhookExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("webhook-inbox-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Queries the payment shards in parallel for listings and aggregates.
+    // Only used when payments are sharded.
+    @Bean(name = "shardQueryExecutor")
+    public Executor shardQueryExecutor(
+            @Value("${payments.sharding.query-parallelism:8}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("payment-shard-query-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Pushes payment events to SSE clients. A blocked write to a slow client
+    // parks a cheap virtual thread instead of tying up a pooled one.
+    @Bean(name = "paymentEventExecutor")
+    public Executor paymentEventExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-events-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
 }
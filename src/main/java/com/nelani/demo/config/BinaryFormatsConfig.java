@@ -0,0 +1,44 @@
+package com.nelani.demo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Smile (application/x-jackson-smile) and CBOR (application/cbor) bodies for internal clients that ask for
+// them in Accept or send them as Content-Type, when payments.http.binary-formats.enabled is on. Spring MVC
+// registers both as soon as their Jackson modules are on the class path, with unconfigured mappers; they are
+// replaced by ones built like the JSON mapper, or removed when the formats are off. They stay after the JSON
+// converter, so requests without an explicit Accept still get JSON.
+@Configuration
+public class BinaryFormatsConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder;
+    private final boolean enabled;
+
+    public BinaryFormatsConfig(ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder,
+            @Value("${payments.http.binary-formats.enabled:false}") boolean enabled) {
+        this.mapperBuilder = mapperBuilder;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        if (enabled) {
+            converters.add(new MappingJackson2SmileHttpMessageConverter(
+                    mapperBuilder.getObject().factory(new SmileFactory()).build()));
+            converters.add(new MappingJackson2CborHttpMessageConverter(
+                    mapperBuilder.getObject().factory(new CBORFactory()).build()));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.nelani.demo.config;
+
+import com.nelani.demo.coordination.ClusterProperties;
+import com.nelani.demo.coordination.DatabaseJobCoordinator;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.outbox.OutboxRecorder;
+import com.nelani.demo.outbox.OutboxTail;
+import com.nelani.demo.repository.ClusterNodeRepository;
+import com.nelani.demo.repository.JobLeaseRepository;
+import com.nelani.demo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// Background jobs run once in the cluster, coordinated through leases in the database,
+// unless payments.cluster.enabled is off
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterConfig {
+
+    @Bean
+    public JobCoordinator jobCoordinator(ClusterProperties properties, JobLeaseRepository leaseRepository,
+            ClusterNodeRepository nodeRepository, PlatformTransactionManager transactionManager,
+            PaymentShards shards, MeterRegistry meterRegistry) {
+        if (!properties.enabled()) {
+            return JobCoordinator.SINGLE_NODE;
+        }
+        return new DatabaseJobCoordinator(leaseRepository, nodeRepository, transactionManager, shards, properties,
+                Clock.systemUTC(), meterRegistry);
+    }
+
+    // Jobs run on one node but their status changes must reach listeners on all of them
+    @Bean
+    @ConditionalOnProperty(prefix = "payments.cluster", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxTail outboxTail(OutboxEventRepository outboxEventRepository, ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager, PaymentShards shards, OutboxRecorder recorder,
+            @Value("${payments.events.tail-batch-size:500}") int batchSize,
+            @Value("${payments.events.tail-gap-timeout:PT1M}") Duration gapTimeout) {
+        return new OutboxTail(outboxEventRepository, publisher, transactionManager, shards, recorder.origin(),
+                batchSize, gapTimeout, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,96 @@
+package com.nelani.demo.config;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Compact payments schema (schema-compact profile).
+ * <p>
+ * The conversion, {@code db/compact/V8_1}, rebuilds the payment tables with
+ * the columns they had at V8. On a database already migrated past V8 it would
+ * drop every later column, {@code tenant_id} included, so such a database is
+ * refused before anything is validated or migrated. Switch a database to the
+ * compact schema while it is at V8 or below.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "payments.storage", name = "schema", havingValue = "compact")
+public class CompactSchemaConfig {
+
+    @Bean
+    Callback compactConversionGuard() {
+        return new CompactConversionGuard();
+    }
+
+    /**
+     * Fails Flyway when the compact conversion is pending on a database that
+     * is beyond V8.
+     */
+    public static class CompactConversionGuard implements Callback {
+
+        static final MigrationVersion CONVERSION = MigrationVersion.fromVersion("8.1");
+        private static final MigrationVersion LAST_BEFORE_CONVERSION = MigrationVersion.fromVersion("8");
+
+        @Override
+        public boolean supports(Event event, Context context) {
+            return event == Event.BEFORE_VALIDATE || event == Event.BEFORE_MIGRATE;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context context) {
+            String table = context.getConfiguration().getTable();
+            MigrationVersion current = null;
+            try {
+                Connection connection = context.getConnection();
+                try (ResultSet tables = connection.getMetaData().getTables(null, null, table, null)) {
+                    if (!tables.next()) {
+                        return; // New database, the conversion runs right after V8
+                    }
+                }
+                try (Statement statement = connection.createStatement();
+                        ResultSet versions = statement.executeQuery(
+                                "SELECT \"version\" FROM \"" + table + "\" WHERE \"success\"")) {
+                    while (versions.next()) {
+                        if (versions.getString(1) == null) {
+                            continue;
+                        }
+                        MigrationVersion version = MigrationVersion.fromVersion(versions.getString(1));
+                        if (version.equals(CONVERSION)) {
+                            return; // Already compact
+                        }
+                        if (current == null || version.isNewerThan(current.getVersion())) {
+                            current = version;
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new FlywayException("Unable to read the schema history before the compact conversion", e);
+            }
+            if (current != null && current.isNewerThan(LAST_BEFORE_CONVERSION.getVersion())) {
+                throw new FlywayException("The compact schema conversion (V" + CONVERSION
+                        + ") only runs on a database at V" + LAST_BEFORE_CONVERSION + " or below, this one is at V"
+                        + current + ". Keep it on the standard schema, or start the compact schema on a new database.");
+            }
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "compactConversionGuard";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.nelani.demo.config;
+
+import com.nelani.demo.datasource.ReadFromPrimary;
+import com.nelani.demo.datasource.ReadFromPrimaryInterceptor;
+import com.nelani.demo.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.log4j.Log4j2;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write splitting between a primary and a replica database.
+ * <p>
+ * Enabled with {@code payments.datasource.replica.enabled=true}. Read-only
+ * transactions (e.g. the payments listing) go to the replica pool, everything
+ * else to the primary. Methods annotated with {@link ReadFromPrimary} always
+ * use the primary.
+ */
+@Log4j2
+@Configuration
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor readFromPrimaryAdvisor() {
+        return new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(ReadFromPrimary.class),
+                new ReadFromPrimaryInterceptor());
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "payments.datasource.replica", name = "enabled", havingValue = "true")
+    static class RoutingConfiguration {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        HikariDataSource primaryDataSource(DataSourceProperties properties) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        // Not an autowire candidate so Boot's own DataSourceProperties stays unambiguous
+        @Bean(autowireCandidate = false)
+        @ConfigurationProperties("payments.datasource.replica")
+        DataSourceProperties replicaDataSourceProperties() {
+            return new DataSourceProperties();
+        }
+
+        @Bean
+        @ConfigurationProperties("payments.datasource.replica.hikari")
+        HikariDataSource replicaDataSource() {
+            return replicaDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(
+                @Qualifier("primaryDataSource") DataSource primary,
+                @Qualifier("replicaDataSource") DataSource replica,
+                @Value("${payments.datasource.replica.migrate:false}") boolean migrateReplica,
+                @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations) {
+
+            // Real replicas get their schema through replication. Local embedded
+            // replicas are migrated directly so the routing can be exercised end to end.
+            if (migrateReplica) {
+                log.info("Migrating replica datasource schema");
+                Flyway.configure().dataSource(replica).locations(locations).load().migrate();
+            }
+
+            return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+        }
+    }
+}
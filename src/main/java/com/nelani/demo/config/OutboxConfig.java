@@ -0,0 +1,65 @@
+package com.nelani.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.outbox.ApplicationEventOutboxSink;
+import com.nelani.demo.outbox.FileOutboxSink;
+import com.nelani.demo.outbox.HttpCallbackOutboxSink;
+import com.nelani.demo.outbox.OutboxRelay;
+import com.nelani.demo.outbox.OutboxSink;
+import com.nelani.demo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClient;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Outbox relay and its sinks. Each sink is switched on by its own property;
+// the in-process listener sink is on by default.
+@Configuration
+@ConditionalOnProperty(prefix = "payments.outbox.relay", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxConfig {
+
+    @Bean
+    public OutboxRelay outboxRelay(OutboxEventRepository outboxEventRepository, ObjectProvider<OutboxSink> sinks,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, JobCoordinator coordinator,
+            PaymentShards shards, @Value("${payments.outbox.relay.batch-size:200}") int batchSize,
+            @Value("${payments.outbox.retention:P7D}") Duration retention) {
+        return new OutboxRelay(outboxEventRepository, sinks.orderedStream().toList(), transactionManager,
+                meterRegistry, coordinator, shards, batchSize, retention);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "payments.outbox.sink.listener", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxSink applicationEventOutboxSink(ApplicationEventPublisher publisher) {
+        return new ApplicationEventOutboxSink(publisher);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "payments.outbox.sink.http", name = "enabled", havingValue = "true")
+    public OutboxSink httpCallbackOutboxSink(RestClient.Builder builder,
+            @Value("${payments.outbox.sink.http.url}") URI url,
+            @Value("${payments.outbox.sink.http.timeout:PT5S}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        return new HttpCallbackOutboxSink(builder.requestFactory(requestFactory).build(), url);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "payments.outbox.sink.file", name = "enabled", havingValue = "true")
+    public OutboxSink fileOutboxSink(ObjectMapper objectMapper,
+            @Value("${payments.outbox.sink.file.path:./data/outbox/payment-events.ndjson}") Path path) {
+        return new FileOutboxSink(path, objectMapper);
+    }
+}
@@ -0,0 +1,44 @@
+package com.nelani.demo.config;
+
+import com.nelani.demo.quota.DatabaseProviderQuota;
+import com.nelani.demo.quota.ProviderQuota;
+import com.nelani.demo.quota.ProviderQuotaProperties;
+import com.nelani.demo.repository.ProviderQuotaBucketRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Clock;
+
+// Provider call quotas, shared by all nodes through the database unless payments.quota.enabled is off
+@Configuration
+@EnableConfigurationProperties(ProviderQuotaProperties.class)
+public class QuotaConfig {
+
+    // Hikari's lowest connection timeout
+    private static final long MIN_CONNECTION_TIMEOUT_MILLIS = 250;
+
+    @Bean
+    public ProviderQuota providerQuota(ProviderQuotaProperties properties, DataSourceProperties dataSourceProperties,
+            MeterRegistry meterRegistry) {
+        if (!properties.enabled()) {
+            return ProviderQuota.UNLIMITED;
+        }
+        // Not a DataSource bean, so Spring Boot's own dataSource is still auto-configured; the quota closes it
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("payments-quota-pool");
+        dataSource.setMaximumPoolSize(properties.poolSize());
+        dataSource.setMinimumIdle(0);
+        // A call never waits longer for a connection than it would for a permit
+        dataSource.setConnectionTimeout(Math.max(MIN_CONNECTION_TIMEOUT_MILLIS, properties.maxWait().toMillis()));
+        return new DatabaseProviderQuota(new ProviderQuotaBucketRepository(new JdbcTemplate(dataSource)),
+                new DataSourceTransactionManager(dataSource), properties, Clock.systemUTC(), meterRegistry,
+                dataSource);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nelani.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs (outbox relay, SSE heartbeats) run on Spring's task scheduler,
+// sized by spring.task.scheduling.pool.size.
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
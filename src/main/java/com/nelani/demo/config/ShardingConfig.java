@@ -0,0 +1,91 @@
+package com.nelani.demo.config;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ShardRoutingDataSource;
+import com.nelani.demo.datasource.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.log4j.Log4j2;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.callback.Callback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Horizontal sharding of payments over several databases.
+ * <p>
+ * Enabled with {@code payments.sharding.enabled=true}. {@code spring.datasource}
+ * is shard 0 and the shards listed under {@code payments.sharding.shards}
+ * follow it; see {@link PaymentShards} for how payments are placed. Every
+ * shard gets the full schema. Cannot be combined with a read replica: both
+ * define the {@code dataSource} bean.
+ */
+@Log4j2
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public PaymentShards paymentShards(ShardingProperties properties, PlatformTransactionManager transactionManager,
+            @Qualifier("shardQueryExecutor") Executor shardQueryExecutor) {
+        if (properties.count() == 1) {
+            return PaymentShards.SINGLE;
+        }
+        log.info("Sharding payments [shards={}]", properties.count());
+        return new PaymentShards(properties.count(), transactionManager, shardQueryExecutor);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "payments.sharding", name = "enabled", havingValue = "true")
+    static class ShardRoutingConfiguration {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        HikariDataSource homeShardDataSource(DataSourceProperties properties) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        ShardRoutingDataSource shardRoutingDataSource(@Qualifier("homeShardDataSource") DataSource home,
+                ShardingProperties properties,
+                @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations,
+                ObjectProvider<Callback> callbacks) {
+            List<DataSource> shards = new ArrayList<>(List.of(home));
+            for (ShardingProperties.Shard shard : properties.shards()) {
+                HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                        .url(shard.url()).username(shard.username()).password(shard.password()).build();
+                dataSource.setPoolName("payments-shard-" + shards.size() + "-pool");
+                dataSource.setMaximumPoolSize(properties.poolSize());
+                // Spring Boot's Flyway only migrates the home shard
+                if (properties.migrate()) {
+                    log.info("Migrating payment shard schema [shard={}]", shards.size());
+                    Flyway.configure().dataSource(dataSource).locations(locations)
+                            .callbacks(callbacks.orderedStream().toArray(Callback[]::new)).load().migrate();
+                }
+                shards.add(dataSource);
+            }
+            return new ShardRoutingDataSource(shards);
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+        }
+    }
+}
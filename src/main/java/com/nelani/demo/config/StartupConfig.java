@@ -0,0 +1,100 @@
+package com.nelani.demo.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+/**
+ * Defers beans that no request needs at startup.
+ * <p>
+ * Beans whose class, or the configuration class declaring them, lies in one of
+ * the packages or classes listed in {@code payments.startup.lazy-beans} are
+ * created on first use instead of during startup, like
+ * {@code spring.main.lazy-initialization} but limited to the listed ones: a
+ * global switch would also defer the scheduled jobs, which only start once
+ * their bean exists. A deferred bean that an eager bean depends on is still
+ * created at startup, and beans with an explicit {@code @Lazy} setting or a
+ * {@link SmartInitializingSingleton} callback are left alone.
+ */
+@Log4j2
+@Configuration
+public class StartupConfig {
+
+    // Static, so it runs before any other bean of this class is created
+    @Bean
+    static BeanFactoryPostProcessor lazyBeansPostProcessor(Environment environment) {
+        List<String> lazyBeans = Binder.get(environment)
+                .bind("payments.startup.lazy-beans", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return beanFactory -> deferBeans(beanFactory, lazyBeans);
+    }
+
+    private static void deferBeans(ConfigurableListableBeanFactory beanFactory, List<String> lazyBeans) {
+        if (lazyBeans.isEmpty()) {
+            return;
+        }
+        int deferred = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE
+                    || (definition instanceof AbstractBeanDefinition bean && bean.getLazyInit() != null)) {
+                continue;
+            }
+            if (!matches(lazyBeans, definition.getBeanClassName())
+                    && !matches(lazyBeans, returnType(definition))
+                    && !matches(lazyBeans, declaringClass(beanFactory, definition))) {
+                continue;
+            }
+            Class<?> type = beanFactory.getType(name, false);
+            if (type != null && SmartInitializingSingleton.class.isAssignableFrom(type)) {
+                continue;
+            }
+            definition.setLazyInit(true);
+            deferred++;
+        }
+        log.info("Deferring beans to first use [beans={}, lazyBeans={}]", deferred, lazyBeans);
+    }
+
+    // The configuration class of a @Bean method
+    private static String declaringClass(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        String factoryBean = definition.getFactoryBeanName();
+        if (factoryBean == null || !beanFactory.containsBeanDefinition(factoryBean)) {
+            return null;
+        }
+        return beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+    }
+
+    private static String returnType(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            return factoryMethod != null ? factoryMethod.getReturnTypeName() : null;
+        }
+        return null;
+    }
+
+    // A package covers its subpackages, a class its nested classes
+    private static boolean matches(List<String> lazyBeans, String className) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : lazyBeans) {
+            if (className.equals(prefix) || className.startsWith(prefix + ".")
+                    || className.startsWith(prefix + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
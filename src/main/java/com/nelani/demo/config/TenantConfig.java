@@ -0,0 +1,29 @@
+package com.nelani.demo.config;
+
+import com.nelani.demo.tenant.TenantProperties;
+import com.nelani.demo.tenant.TenantRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Merchant accounts. The default account keeps using the stripe.* and paypal.* keys,
+// further ones are configured under payments.tenants.accounts.
+@Configuration
+@EnableConfigurationProperties(TenantProperties.class)
+public class TenantConfig {
+
+    @Bean
+    public TenantRegistry tenantRegistry(TenantProperties properties,
+            @Value("${stripe.secret-key}") String stripeSecretKey,
+            @Value("${stripe.secret-webhook}") List<String> stripeWebhookSecrets,
+            @Value("${paypal.client-id}") String paypalClientId,
+            @Value("${paypal.client-secret}") String paypalClientSecret,
+            @Value("${paypal.webhook-id:}") String paypalWebhookId) {
+        return new TenantRegistry(properties, new TenantProperties.Account(
+                new TenantProperties.Stripe(stripeSecretKey, stripeWebhookSecrets),
+                new TenantProperties.PayPal(paypalClientId, paypalClientSecret, paypalWebhookId)));
+    }
+}
@@ -0,0 +1,29 @@
+package com.nelani.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentProviderFactory;
+import com.nelani.demo.warmup.PaymentWarmUp;
+import com.nelani.demo.warmup.WarmUpProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Warms up provider connections, hot code paths and recent orders before the node reports ready,
+// unless payments.warmup.enabled is off
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class WarmUpConfig {
+
+    @Bean
+    public PaymentWarmUp paymentWarmUp(PaymentProviderFactory providers, PaymentRepository paymentRepository,
+            PaymentShards shards, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            Validator validator, WarmUpProperties properties, MeterRegistry meterRegistry) {
+        return new PaymentWarmUp(providers, paymentRepository, shards, transactionManager, objectMapper, validator,
+                properties, meterRegistry);
+    }
+}
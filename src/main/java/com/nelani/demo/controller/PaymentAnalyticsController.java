@@ -0,0 +1,55 @@
+package com.nelani.demo.controller;
+
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.RollupGranularity;
+import com.nelani.demo.service.PaymentRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/payments")
+public class PaymentAnalyticsController {
+
+        private final PaymentRollupService paymentRollupService;
+
+        public PaymentAnalyticsController(PaymentRollupService paymentRollupService) {
+                this.paymentRollupService = paymentRollupService;
+        }
+
+        @Operation(summary = "Get payment rollups", description = """
+                        Returns volume, success rate and average time to completion per provider, currency and UTC hour or day.
+                        Served from pre-aggregated rollup tables that trail live data by about a minute.
+                        Defaults to the last 24 hours (HOURLY) or 30 days (DAILY).
+                        """)
+        @ApiResponse(responseCode = "200", description = "Rollups retrieved successfully", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PaymentRollupDTO.class))))
+        @ApiResponse(responseCode = "400", description = "from is after to")
+        @GetMapping("/rollups")
+        public ResponseEntity<List<PaymentRollupDTO>> getRollups(
+
+                        @Parameter(description = "Bucket size", schema = @Schema(implementation = RollupGranularity.class, defaultValue = "DAILY")) @RequestParam(defaultValue = "DAILY") RollupGranularity granularity,
+
+                        @Parameter(description = "Include buckets starting at or after this instant", example = "2025-01-01T00:00:00Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+
+                        @Parameter(description = "Include buckets starting before this instant", example = "2025-02-01T00:00:00Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+
+                        @Parameter(description = "Only this provider", schema = @Schema(implementation = PaymentProviderType.class)) @RequestParam(required = false) PaymentProviderType provider
+
+        ) {
+                var result = paymentRollupService.getRollups(granularity, from, to, provider);
+                return ResponseEntity.ok(result);
+        }
+}
@@ -1,47 +1,130 @@
 package com.nelani.demo.controller;
 
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.BatchPaymentResponseDTO;
+import com.nelani.demo.dto.PageResponseDTO;
 import com.nelani.demo.dto.PaymentRequestDTO;
 import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.dto.PaymentStatsDTO;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.service.PaymentBatchService;
+import com.nelani.demo.service.PaymentEventStreamService;
 import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.PaymentStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.Page;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 @Validated
 @RestController
 @RequestMapping("/api/payments")
 public class PaymentController {
 
+        private static final int MAX_PAGE_SIZE = 100;
+
         private final PaymentService paymentService;
+        private final PaymentBatchService paymentBatchService;
+        private final PaymentEventStreamService paymentEventStreamService;
+        private final PaymentStatsService paymentStatsService;
 
-        public PaymentController(PaymentService paymentService) {
+        public PaymentController(PaymentService paymentService, PaymentBatchService paymentBatchService,
+                        PaymentEventStreamService paymentEventStreamService, PaymentStatsService paymentStatsService) {
                 this.paymentService = paymentService;
+                this.paymentBatchService = paymentBatchService;
+                this.paymentEventStreamService = paymentEventStreamService;
+                this.paymentStatsService = paymentStatsService;
         }
 
         @Operation(summary = "Get all payments", description = "Returns a paginated and sorted list of payments.")
         @ApiResponse(responseCode = "200", description = "Payments retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentResponseDTO.class)))
         @GetMapping
-        public ResponseEntity<Page<PaymentResponseDTO>> getAllPayments(
+        public ResponseEntity<PageResponseDTO<PaymentResponseDTO>> getAllPayments(
 
                         @Parameter(description = "Field to sort by", schema = @Schema(implementation = PaymentSortField.class, defaultValue = "CREATED_AT")) @RequestParam(defaultValue = "CREATED_AT") PaymentSortField sortBy,
 
                         @Parameter(description = "Sort direction", schema = @Schema(implementation = Sort.Direction.class, defaultValue = "DESC")) @RequestParam(defaultValue = "DESC") Sort.Direction direction,
 
-                        @Parameter(description = "Page number (0-based)", example = "0") @RequestParam(defaultValue = "0") int page,
+                        @Parameter(description = "Page number (0-based)", example = "0") @RequestParam(defaultValue = "0") @Min(0) int page,
 
-                        @Parameter(description = "Number of records per page", example = "10") @RequestParam(defaultValue = "10") int size
+                        @Parameter(description = "Number of records per page", example = "10") @RequestParam(defaultValue = "10") @Min(1) @Max(MAX_PAGE_SIZE) int size
 
         ) {
                 var result = paymentService.getAllPayments(sortBy, direction, page, size);
+                return ResponseEntity.ok(PageResponseDTO.of(result));
+        }
+
+        @Operation(summary = "Search payments", description = """
+                        Returns a paginated and sorted list of payments matching the given filters.
+                        Every filter is optional; ranges are inclusive and timestamps are ISO-8601.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Payments retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentResponseDTO.class)))
+        @GetMapping("/search")
+        public ResponseEntity<PageResponseDTO<PaymentResponseDTO>> searchPayments(
+
+                        @Parameter(description = "Only payments in this status", schema = @Schema(implementation = PaymentStatus.class)) @RequestParam(required = false) PaymentStatus status,
+
+                        @Parameter(description = "Only payments with this provider", schema = @Schema(implementation = PaymentProviderType.class)) @RequestParam(required = false) PaymentProviderType provider,
+
+                        @Parameter(description = "Created at or after", example = "2025-01-01T00:00:00Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+
+                        @Parameter(description = "Created at or before", example = "2025-01-31T23:59:59Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+
+                        @Parameter(description = "Completed at or after", example = "2025-01-01T00:00:00Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime completedFrom,
+
+                        @Parameter(description = "Completed at or before", example = "2025-01-31T23:59:59Z") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime completedTo,
+
+                        @Parameter(description = "Minimum amount", example = "10.00") @RequestParam(required = false) BigDecimal minAmount,
+
+                        @Parameter(description = "Maximum amount", example = "500.00") @RequestParam(required = false) BigDecimal maxAmount,
+
+                        @Parameter(description = "Field to sort by", schema = @Schema(implementation = PaymentSortField.class, defaultValue = "CREATED_AT")) @RequestParam(defaultValue = "CREATED_AT") PaymentSortField sortBy,
+
+                        @Parameter(description = "Sort direction", schema = @Schema(implementation = Sort.Direction.class, defaultValue = "DESC")) @RequestParam(defaultValue = "DESC") Sort.Direction direction,
+
+                        @Parameter(description = "Page number (0-based)", example = "0") @RequestParam(defaultValue = "0") @Min(0) int page,
+
+                        @Parameter(description = "Number of records per page", example = "10") @RequestParam(defaultValue = "10") @Min(1) @Max(MAX_PAGE_SIZE) int size
+
+        ) {
+                var criteria = new PaymentSearchCriteria(status, provider, createdFrom, createdTo, completedFrom,
+                                completedTo, minAmount, maxAmount);
+                var result = paymentService.searchPayments(criteria, sortBy, direction, page, size);
+                return ResponseEntity.ok(PageResponseDTO.of(result));
+        }
+
+        @Operation(summary = "Get payment statistics", description = """
+                        Returns payment counts and amounts per status, provider and UTC creation day.
+                        Served from in-memory counters; the payments table is never scanned on read.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatsDTO.class)))
+        @GetMapping("/stats")
+        public ResponseEntity<PaymentStatsDTO> getStats(
+
+                        @Parameter(description = "First UTC creation day to include", example = "2025-01-01") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+
+                        @Parameter(description = "Last UTC creation day to include", example = "2025-01-31") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+
+        ) {
+                var result = paymentStatsService.getStats(from, to);
                 return ResponseEntity.ok(result);
         }
 
@@ -54,6 +137,19 @@ public class PaymentController {
                 return ResponseEntity.ok(result);
         }
 
+        @Operation(summary = "Initialize payments in bulk", description = """
+                        Creates up to 500 payments in one call, e.g. for marketplace orders.
+                        Rows are persisted with JDBC batching and providers are called concurrently.
+                        Every item is reported individually; one failing item does not fail the batch.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchPaymentResponseDTO.class)))
+        @PostMapping("/batch")
+        public ResponseEntity<BatchPaymentResponseDTO> initializePayments(
+                        @Valid @RequestBody BatchPaymentRequestDTO request) {
+                var result = paymentBatchService.initializePayments(request);
+                return ResponseEntity.ok(result);
+        }
+
         @Operation(summary = "Resume an existing payment", description = """
                         Resumes a previously created payment session using the order ID.
                         If the payment is still valid and not completed, the existing
@@ -67,4 +163,16 @@ public class PaymentController {
                 return ResponseEntity.ok(result);
         }
 
+        @Operation(summary = "Stream payment status changes", description = """
+                        Opens a Server-Sent Events stream for the payment. The current status is sent first,
+                        followed by every committed status change as a `status` event. The stream ends once the
+                        payment is SUCCESS, FAILED or EXPIRED; heartbeat comments keep idle streams open.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Event stream opened", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE))
+        @GetMapping(path = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public SseEmitter streamPaymentEvents(
+                        @Parameter(description = "Order ID of the payment to follow", example = "ORD-2026-000123", required = true) @PathVariable String orderId) {
+                return paymentEventStreamService.subscribe(orderId);
+        }
+
 }
@@ -1,11 +1,14 @@
 package com.nelani.demo.controller;
 
+import com.nelani.demo.model.PaymentProviderType;
 import com.nelani.demo.service.PaymentWebhookService;
+import com.nelani.demo.tenant.TenantRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,17 +25,46 @@ public class WebhookController {
 
         @Operation(summary = "Handle Stripe webhook events", description = """
                         Receives and processes webhook events sent by Stripe.
-                        The request signature is verified to ensure authenticity.
+                        The request signature is verified with the merchant account's endpoint secrets
+                        to ensure authenticity; without a merchant account in the path the default one is used.
+                        The payment is updated asynchronously after the event is accepted.
                         This endpoint is intended for internal provider communication only.
                         """)
         @ApiResponse(responseCode = "200", description = "Webhook event processed successfully")
-        @PostMapping("/stripe")
+        @ApiResponse(responseCode = "400", description = "Missing or invalid signature, or unknown merchant account")
+        @Parameter(description = "Stripe webhook signature used to verify request authenticity", required = true, in = ParameterIn.HEADER, name = "Stripe-Signature")
+        @PostMapping({ "/stripe", "/stripe/{tenantId}" })
         public ResponseEntity<Void> handleWebhook(
 
+                        @Parameter(description = "Merchant account whose Stripe endpoint this is", example = "default") @PathVariable(required = false) String tenantId,
+
                         @Parameter(description = "Raw webhook payload sent by Stripe", required = true) @RequestBody String payload,
 
-                        @Parameter(description = "Stripe webhook signature used to verify request authenticity", required = true, in = ParameterIn.HEADER, name = "Stripe-Signature") @RequestHeader("Stripe-Signature") String signature) {
-                paymentWebhookService.handleStripeWebhook(payload, signature);
+                        @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+                paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, TenantRegistry.resolve(tenantId),
+                                payload, headers);
+                return ResponseEntity.ok().build();
+        }
+
+        @Operation(summary = "Handle PayPal webhook events", description = """
+                        Receives webhook events sent by PayPal.
+                        The transmission signature is verified locally against PayPal's cached signing certificate
+                        and the merchant account's webhook id; without a merchant account in the path the default one is used.
+                        Approved orders are captured; the payment is updated asynchronously after the event is accepted.
+                        This endpoint is intended for internal provider communication only.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Webhook event accepted")
+        @ApiResponse(responseCode = "400", description = "Missing or invalid transmission signature, or unknown merchant account")
+        @PostMapping({ "/paypal", "/paypal/{tenantId}" })
+        public ResponseEntity<Void> handlePayPalWebhook(
+
+                        @Parameter(description = "Merchant account whose PayPal webhook this is", example = "default") @PathVariable(required = false) String tenantId,
+
+                        @Parameter(description = "Raw webhook payload sent by PayPal", required = true) @RequestBody String payload,
+
+                        @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+                paymentWebhookService.handleWebhook(PaymentProviderType.PAYPAL, TenantRegistry.resolve(tenantId),
+                                payload, headers);
                 return ResponseEntity.ok().build();
         }
 }
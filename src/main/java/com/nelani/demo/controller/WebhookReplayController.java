@@ -0,0 +1,57 @@
+package com.nelani.demo.controller;
+
+import com.nelani.demo.dto.WebhookReplayResult;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.service.WebhookReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.OffsetDateTime;
+
+@RestController
+@RequestMapping("/api/webhooks")
+@Tag(name = "Webhook replay", description = "Operational endpoints for reprocessing archived webhooks")
+public class WebhookReplayController {
+
+        private final WebhookReplayService webhookReplayService;
+
+        public WebhookReplayController(WebhookReplayService webhookReplayService) {
+                this.webhookReplayService = webhookReplayService;
+        }
+
+        @Operation(summary = "Replay archived webhooks", description = """
+                        Feeds webhooks archived in the given time range back through webhook processing.
+                        Events that were already accepted are skipped, so a range can safely be replayed again.
+                        Responds when the replay has finished.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Replay finished", content = @Content(mediaType = "application/json", schema = @Schema(implementation = WebhookReplayResult.class)))
+        @ApiResponse(responseCode = "400", description = "Invalid range, rate or worker count")
+        @ApiResponse(responseCode = "409", description = "The webhook archive is disabled")
+        @PostMapping("/replay")
+        public ResponseEntity<WebhookReplayResult> replay(
+
+                        @Parameter(description = "Replay webhooks received at or after this instant", example = "2025-01-01T10:00:00Z", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+
+                        @Parameter(description = "Replay webhooks received before this instant", example = "2025-01-01T14:00:00Z", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+
+                        @Parameter(description = "Only this provider", schema = @Schema(implementation = PaymentProviderType.class)) @RequestParam(required = false) PaymentProviderType provider,
+
+                        @Parameter(description = "Maximum webhooks replayed per second") @RequestParam(defaultValue = "50") int rate,
+
+                        @Parameter(description = "Parallel replay workers") @RequestParam(defaultValue = "4") int workers
+
+        ) {
+                var result = webhookReplayService.replay(from, to, provider, rate, workers);
+                return ResponseEntity.ok(result);
+        }
+}
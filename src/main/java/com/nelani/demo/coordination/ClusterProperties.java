@@ -0,0 +1,36 @@
+package com.nelani.demo.coordination;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Background job coordination between nodes, bound from
+ * {@code payments.cluster}.
+ *
+ * @param enabled           off to run every job on every node, for
+ *                          single-node deployments
+ * @param nodeId            prefix of this node's id, such as its host name; a
+ *                          random suffix keeps a restarted node apart from
+ *                          its previous run
+ * @param leaseTtl          how long a lease lasts without renewal, so how
+ *                          long a failed node's jobs wait before another
+ *                          node takes them over
+ * @param heartbeatInterval how often a node renews its leases and rebalances
+ *                          partitions; well below the lease TTL
+ */
+@ConfigurationProperties("payments.cluster")
+public record ClusterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("node") String nodeId,
+        @DefaultValue("PT30S") Duration leaseTtl,
+        @DefaultValue("PT10S") Duration heartbeatInterval) {
+
+    public ClusterProperties {
+        if (heartbeatInterval.compareTo(leaseTtl) >= 0) {
+            throw new IllegalArgumentException("payments.cluster.heartbeat-interval must be shorter than "
+                    + "payments.cluster.lease-ttl");
+        }
+    }
+}
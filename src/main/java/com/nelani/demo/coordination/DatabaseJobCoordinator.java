@@ -0,0 +1,370 @@
+package com.nelani.demo.coordination;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ShardContext;
+import com.nelani.demo.exception.LeaseLostException;
+import com.nelani.demo.model.ClusterNode;
+import com.nelani.demo.model.JobLease;
+import com.nelani.demo.repository.ClusterNodeRepository;
+import com.nelani.demo.repository.JobLeaseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * {@link JobCoordinator} using leases in the {@code job_lease} table, shared
+ * by all nodes through the database.
+ * <p>
+ * A node takes a free or expired lease in a short transaction that locks its
+ * row, and renews every lease it holds on each heartbeat. A node that stops
+ * beating loses its leases after the lease TTL, and the next node to ask
+ * takes them over with a higher fencing token. Leases are kept between runs,
+ * so a job stays on one node while that node is healthy, and only a node's
+ * own state is checked on the hot path: {@link #lead} goes to the database
+ * only to take a lease, or at most once per heartbeat interval while another
+ * node holds it.
+ * <p>
+ * Partitions are shared out by counting the nodes that beat within the lease
+ * TTL: each node holds at most its share, rounded up, taking free partitions
+ * up to it and releasing any above it. A node that joins gets partitions as
+ * soon as the others give theirs up, on their next heartbeat; those of a node
+ * that stops are taken over once they expire.
+ * <p>
+ * With sharded payments, a job runs once per shard, and its leases live in
+ * the {@code job_lease} table of the shard it works on, so fencing checks
+ * the lease in the same database transaction as the job's writes. Nodes
+ * register and are counted on the home shard.
+ * <p>
+ * Heartbeats run on a thread of their own, so jobs keeping the shared task
+ * scheduler busy cannot hold up lease renewal. Leases are released on
+ * shutdown, so a graceful restart hands jobs over without waiting for the
+ * TTL.
+ * <p>
+ * Metrics:
+ * <ul>
+ * <li>{@code payments.cluster.leases}: leases this node holds</li>
+ * <li>{@code payments.cluster.takeovers}: leases taken from a node whose lease
+ * had expired, tagged by job</li>
+ * <li>{@code payments.cluster.lost}: leases this node lost to another node,
+ * tagged by job</li>
+ * </ul>
+ */
+@Log4j2
+public class DatabaseJobCoordinator implements JobCoordinator {
+
+    private final JobLeaseRepository leaseRepository;
+    private final ClusterNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentShards shards;
+    private final ClusterProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+
+    // Leases this node holds
+    private final Map<Key, Held> held = new ConcurrentHashMap<>();
+    // Leases another node held when last checked, with when to check again
+    private final Map<Key, Instant> busy = new ConcurrentHashMap<>();
+    // Partitioned jobs this node runs, by shard and job, with their partition count
+    private final Map<Key, Integer> partitionedJobs = new ConcurrentHashMap<>();
+
+    private volatile long liveNodes = 1;
+    private ScheduledExecutorService heartbeats;
+
+    private record Held(Lease lease, Instant expiresAt) {
+    }
+
+    // A lease or job name on the shard whose job_lease table holds it
+    private record Key(int shard, String name) {
+
+        static Key current(String name) {
+            return new Key(ShardContext.current(), name);
+        }
+    }
+
+    public DatabaseJobCoordinator(JobLeaseRepository leaseRepository, ClusterNodeRepository nodeRepository,
+            PlatformTransactionManager transactionManager, PaymentShards shards, ClusterProperties properties,
+            Clock clock, MeterRegistry meterRegistry) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        // Independent of the caller's transaction, so lease rows are locked only briefly
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shards = shards;
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        String prefix = properties.nodeId() == null || properties.nodeId().isBlank() ? "node" : properties.nodeId();
+        this.nodeId = prefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        Gauge.builder("payments.cluster.leases", held, Map::size)
+                .description("Job leases this node holds")
+                .register(meterRegistry);
+        log.info("Joining job coordination [node={}, leaseTtl={}]", nodeId, properties.leaseTtl());
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeats = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("job-coordination").daemon().factory());
+        heartbeats.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat();
+            } catch (RuntimeException e) {
+                log.warn("Job coordination heartbeat failed [node={}]", nodeId, e);
+            }
+        }, 0, properties.heartbeatInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Lease> lead(String job) {
+        return claim(job, 0, 1);
+    }
+
+    @Override
+    public List<Lease> partitions(String job, int count) {
+        partitionedJobs.put(Key.current(job), count);
+        rebalance(job, count);
+        return owned(job, count);
+    }
+
+    @Override
+    public void fence(Lease lease) {
+        JobLease row = leaseRepository.findForUpdate(lease.name()).orElse(null);
+        if (row == null || !row.isHeldBy(nodeId, OffsetDateTime.now(clock)) || row.getToken() != lease.token()) {
+            lost(Key.current(lease.name()), lease);
+            throw new LeaseLostException("Lease " + lease.name() + " (token " + lease.token()
+                    + ") has been taken over by another node");
+        }
+    }
+
+    /**
+     * Registers this node as alive, renews the leases it holds and rebalances
+     * the partitions of its partitioned jobs.
+     */
+    public void heartbeat() {
+        Long alive;
+        try {
+            alive = shards.on(PaymentShards.HOME, () -> transactionTemplate.execute(status -> {
+                OffsetDateTime now = OffsetDateTime.now(clock);
+                nodeRepository.findById(nodeId).ifPresentOrElse(node -> node.beat(now),
+                        () -> nodeRepository.save(new ClusterNode(nodeId, now)));
+                nodeRepository.deleteSilentSince(now.minus(properties.leaseTtl().multipliedBy(10)));
+                return nodeRepository.countAlive(now.minus(properties.leaseTtl()));
+            }));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Job coordination heartbeat failed, leases lapse unless a later one succeeds [node={}]",
+                    nodeId, e);
+            return;
+        }
+        liveNodes = Math.max(1, alive);
+
+        Map<Key, Instant> renewed = new HashMap<>();
+        shards.forEach(shard -> renew(shard, renewed));
+        held.forEach((key, current) -> {
+            Instant expiresAt = renewed.get(key);
+            if (expiresAt != null) {
+                held.replace(key, current, new Held(current.lease(), expiresAt));
+            } else if (!clock.instant().isBefore(current.expiresAt())) {
+                lost(key, current.lease());
+            }
+        });
+        partitionedJobs.forEach((job, count) -> shards.on(job.shard(), () -> {
+            rebalance(job.name(), count);
+            return null;
+        }));
+    }
+
+    /**
+     * Gives up this node's leases so other nodes take them over right away.
+     */
+    @PreDestroy
+    public void leave() {
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+        held.clear();
+        partitionedJobs.clear();
+        shards.forEach(shard -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    OffsetDateTime now = OffsetDateTime.now(clock);
+                    leaseRepository.findForUpdateByOwner(nodeId).forEach(row -> row.release(now));
+                    if (shard == PaymentShards.HOME) {
+                        nodeRepository.deleteById(nodeId);
+                    }
+                });
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Could not release job leases, they expire after the lease TTL [node={}, shard={}]",
+                        nodeId, shard, e);
+            }
+        });
+        log.info("Left job coordination [node={}]", nodeId);
+    }
+
+    // Renews the leases this node holds on the shard, recording their new expiry
+    private void renew(int shard, Map<Key, Instant> renewed) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                OffsetDateTime now = OffsetDateTime.now(clock);
+                for (JobLease row : leaseRepository.findForUpdateByOwner(nodeId)) {
+                    Key key = new Key(shard, row.getName());
+                    Held current = held.get(key);
+                    if (current != null && row.isHeldBy(nodeId, now) && row.getToken() == current.lease().token()) {
+                        row.renew(now, properties.leaseTtl());
+                        renewed.put(key, row.getExpiresAt().toInstant());
+                    }
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Job lease renewal failed, leases lapse unless a later one succeeds [node={}, shard={}]",
+                    nodeId, shard, e);
+        }
+    }
+
+    private Optional<Lease> claim(String job, int partition, int partitions) {
+        String name = Lease.name(job, partition, partitions);
+        Key key = Key.current(name);
+        Instant now = clock.instant();
+        Held current = held.get(key);
+        if (current != null && now.isBefore(current.expiresAt())) {
+            return Optional.of(current.lease());
+        }
+        Instant checkAgain = busy.get(key);
+        if (checkAgain != null && now.isBefore(checkAgain)) {
+            return Optional.empty();
+        }
+
+        JobLease row = inLease(name, lease -> {
+            OffsetDateTime at = OffsetDateTime.now(clock);
+            if (lease.isHeldBy(nodeId, at)) {
+                lease.renew(at, properties.leaseTtl());
+            } else if (lease.isFree(at)) {
+                if (lease.getOwner() != null && !lease.getOwner().equals(nodeId)) {
+                    meterRegistry.counter("payments.cluster.takeovers", "job", job).increment();
+                    log.info("Taking over expired job lease [lease={}, from={}, node={}]", name, lease.getOwner(),
+                            nodeId);
+                }
+                lease.take(nodeId, at, properties.leaseTtl());
+            }
+            return lease;
+        });
+        if (row == null || !nodeId.equals(row.getOwner())) {
+            // Held elsewhere: look again once it expires, or sooner in case it is released
+            Instant heldUntil = row != null ? row.getExpiresAt().toInstant() : now;
+            Instant nextBeat = now.plus(properties.heartbeatInterval());
+            busy.put(key, heldUntil.isBefore(nextBeat) ? heldUntil : nextBeat);
+            return Optional.empty();
+        }
+        busy.remove(key);
+        Lease lease = new Lease(job, partition, partitions, row.getToken());
+        held.put(key, new Held(lease, row.getExpiresAt().toInstant()));
+        return Optional.of(lease);
+    }
+
+    private void rebalance(String job, int count) {
+        int share = (int) Math.min(count, (count + liveNodes - 1) / liveNodes);
+        List<Lease> owned = owned(job, count);
+        for (Lease extra : owned.subList(Math.min(share, owned.size()), owned.size())) {
+            release(extra);
+        }
+        Set<Integer> ownedPartitions = owned.stream().map(Lease::partition).collect(Collectors.toSet());
+        int missing = share - owned.size();
+        // Nodes start looking at different partitions, so they rarely race for the same one
+        int offset = Math.floorMod(nodeId.hashCode(), count);
+        for (int i = 0; i < count && missing > 0; i++) {
+            int partition = (offset + i) % count;
+            if (!ownedPartitions.contains(partition) && claim(job, partition, count).isPresent()) {
+                missing--;
+            }
+        }
+    }
+
+    private List<Lease> owned(String job, int count) {
+        Instant now = clock.instant();
+        List<Lease> owned = new ArrayList<>();
+        for (int partition = 0; partition < count; partition++) {
+            Held current = held.get(Key.current(Lease.name(job, partition, count)));
+            if (current != null && now.isBefore(current.expiresAt())) {
+                owned.add(current.lease());
+            }
+        }
+        owned.sort(Comparator.comparingInt(Lease::partition));
+        return owned;
+    }
+
+    private void release(Lease lease) {
+        held.remove(Key.current(lease.name()));
+        inLease(lease.name(), row -> {
+            if (row.isHeldBy(nodeId, OffsetDateTime.now(clock)) && row.getToken() == lease.token()) {
+                row.release(OffsetDateTime.now(clock));
+            }
+            return row;
+        });
+        log.info("Released job lease for rebalancing [lease={}, node={}]", lease.name(), nodeId);
+    }
+
+    private void lost(Key key, Lease lease) {
+        if (held.remove(key) != null) {
+            meterRegistry.counter("payments.cluster.lost", "job", lease.job()).increment();
+            log.warn("Lost job lease to another node [lease={}, token={}, node={}]", lease.name(), lease.token(),
+                    nodeId);
+        }
+    }
+
+    /**
+     * Runs the action on the locked lease row, creating the row first if
+     * needed.
+     *
+     * @return the row after the action, or null if the database could not be
+     *         reached
+     */
+    private JobLease inLease(String name, UnaryOperator<JobLease> action) {
+        try {
+            try {
+                return transactionTemplate.execute(status -> action.apply(lockLease(name)));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the row at the same time; it exists now
+                return transactionTemplate.execute(status -> action.apply(lockLease(name)));
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Job lease unavailable [lease={}, node={}]", name, nodeId, e);
+            return null;
+        }
+    }
+
+    private JobLease lockLease(String name) {
+        return leaseRepository.findForUpdate(name)
+                .orElseGet(() -> leaseRepository.saveAndFlush(new JobLease(name, OffsetDateTime.now(clock))));
+    }
+}
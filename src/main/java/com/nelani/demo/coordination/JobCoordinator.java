@@ -0,0 +1,66 @@
+package com.nelani.demo.coordination;
+
+import com.nelani.demo.exception.LeaseLostException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Decides which node runs each background job, so scheduled work runs once
+ * in the cluster rather than once per node.
+ * <p>
+ * A singleton job runs on the node holding its lease. A partitioned job is
+ * split into a fixed number of partitions whose leases are shared among the
+ * live nodes, and rebalanced as nodes come and go.
+ */
+public interface JobCoordinator {
+
+    /**
+     * Coordinator of a single node, which runs every job and partition, used
+     * when {@code payments.cluster.enabled} is off.
+     */
+    JobCoordinator SINGLE_NODE = new JobCoordinator() {
+
+        @Override
+        public Optional<Lease> lead(String job) {
+            return Optional.of(new Lease(job, 0, 1, 0));
+        }
+
+        @Override
+        public List<Lease> partitions(String job, int count) {
+            return IntStream.range(0, count).mapToObj(partition -> new Lease(job, partition, count, 0)).toList();
+        }
+
+        @Override
+        public void fence(Lease lease) {
+        }
+    };
+
+    /**
+     * Returns the job's lease if this node holds it, taking it first if it
+     * is free.
+     *
+     * @return empty if another node runs the job
+     */
+    Optional<Lease> lead(String job);
+
+    /**
+     * Returns the partitions of the job this node holds, after taking or
+     * giving up partitions towards an even share among the live nodes.
+     *
+     * @param count how many partitions the job is split into; must be the
+     *              same on every node
+     */
+    List<Lease> partitions(String job, int count);
+
+    /**
+     * Checks, in the caller's transaction, that this node still holds the
+     * lease, and keeps other nodes from taking it over until that
+     * transaction ends. Call it in every transaction whose writes must not
+     * come from a node that lost the lease, right before committing.
+     *
+     * @throws LeaseLostException if the lease has been taken over
+     */
+    void fence(Lease lease);
+}
@@ -0,0 +1,53 @@
+package com.nelani.demo.coordination;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+/**
+ * A job lease this node holds: the whole job, or one of its partitions.
+ *
+ * @param job        the job's name
+ * @param partition  the partition held, 0 for a singleton job
+ * @param partitions how many partitions the job is split into, 1 for a
+ *                   singleton job
+ * @param token      fencing token, see {@link JobCoordinator#fence}
+ */
+public record Lease(String job, int partition, int partitions, long token) {
+
+    private static final BigInteger ID_SPACE = BigInteger.ONE.shiftLeft(64);
+
+    /**
+     * The lease's row name: the job's for a singleton, the job's and the
+     * partition's otherwise.
+     */
+    public String name() {
+        return name(job, partition, partitions);
+    }
+
+    static String name(String job, int partition, int partitions) {
+        return partitions == 1 ? job : job + "#" + partition;
+    }
+
+    /**
+     * Lowest UUID of the partition's share of the id space. Random UUIDs are
+     * spread evenly, so equal ranges of them are partitions of equal size.
+     */
+    public UUID firstId() {
+        return new UUID(rangeStart(partition), 0L);
+    }
+
+    /**
+     * Highest UUID of the partition's share of the id space, inclusive.
+     */
+    public UUID lastId() {
+        if (partition == partitions - 1) {
+            return new UUID(-1L, -1L);
+        }
+        return new UUID(rangeStart(partition + 1) - 1, -1L);
+    }
+
+    // Unsigned start of the partition's range of most significant bits
+    private long rangeStart(int index) {
+        return ID_SPACE.multiply(BigInteger.valueOf(index)).divide(BigInteger.valueOf(partitions)).longValue();
+    }
+}
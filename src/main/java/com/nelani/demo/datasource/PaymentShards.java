@@ -0,0 +1,231 @@
+package com.nelani.demo.datasource;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Places payments on shards and runs work on them.
+ * <p>
+ * A payment lives on the shard its order id hashes to, by jump consistent
+ * hash, so lookups by order id go straight to one shard. Its id carries the
+ * same shard (see {@link #newId}), so lookups by payment id, such as webhooks,
+ * do too. Everything a payment writes (outbox events, inbox events, its
+ * archived copy) lives on its shard.
+ * <p>
+ * Listings and aggregates run on every shard in parallel, each in a read-only
+ * transaction of its own, and are merged by the caller. With a single shard
+ * everything runs inline in the caller's transaction, exactly as without
+ * sharding.
+ * <p>
+ * Changing the number of shards, or turning sharding on over existing
+ * payments, moves about 1/n of the order ids to another shard; their
+ * payments must be moved along to their order's shard before the change.
+ * Their ids still name the old shard, or none for ids from before sharding,
+ * so lookups by payment id go through {@link #locatePayment}, which asks the
+ * other shards when the named one does not hold the payment.
+ */
+public class PaymentShards {
+
+    /**
+     * The shard of {@code spring.datasource}, which also holds the tables
+     * shared by the cluster (provider quotas, cluster nodes).
+     */
+    public static final int HOME = 0;
+
+    /**
+     * Maximum number of shards, as the shard is stored in one byte of the id.
+     */
+    public static final int MAX_SHARDS = 256;
+
+    /**
+     * A single unsharded database.
+     */
+    public static final PaymentShards SINGLE = new PaymentShards(1, null, Runnable::run);
+
+    private static final long VERSION_MASK = 0xF000L;
+    private static final long SHARDED_VERSION = 0x8000L;
+
+    private final int count;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor executor;
+
+    /**
+     * @param executor runs the per-shard queries of {@link #gather}
+     */
+    public PaymentShards(int count, PlatformTransactionManager transactionManager, Executor executor) {
+        if (count < 1 || count > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS + ": " + count);
+        }
+        this.count = count;
+        if (transactionManager != null) {
+            this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+            this.readOnlyTransaction.setReadOnly(true);
+        } else {
+            this.readOnlyTransaction = null;
+        }
+        this.executor = executor;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * The shard of the order's payment.
+     */
+    public int forOrder(String orderId) {
+        return jumpHash(fingerprint(orderId), count);
+    }
+
+    /**
+     * The shard embedded in the payment id, the one the payment was created
+     * on. Ids generated before sharding belong to the home shard.
+     */
+    public int forPayment(UUID paymentId) {
+        int shard = shardOf(paymentId);
+        return shard < count ? shard : HOME;
+    }
+
+    /**
+     * The shard holding the payment. That is the one its id names unless a
+     * resharding moved the payment to its order's new shard; the other shards
+     * are then asked in turn, so only moved payments cost more than one
+     * lookup. A single shard is never asked.
+     *
+     * @param holds whether the current shard holds the payment
+     * @return the payment's shard, {@link #forPayment} when no shard holds it
+     */
+    public int locatePayment(UUID paymentId, Predicate<UUID> holds) {
+        int named = forPayment(paymentId);
+        if (count == 1 || paymentId == null || on(named, () -> holds.test(paymentId))) {
+            return named;
+        }
+        for (int shard = 0; shard < count; shard++) {
+            if (shard != named && on(shard, () -> holds.test(paymentId))) {
+                return shard;
+            }
+        }
+        return named;
+    }
+
+    public <T> T onOrder(String orderId, Supplier<T> action) {
+        return on(forOrder(orderId), action);
+    }
+
+    public <T> T on(int shard, Supplier<T> action) {
+        return ShardContext.call(shard, action);
+    }
+
+    /**
+     * Runs the action once per shard, one after the other, with the shard as
+     * the current one.
+     */
+    public void forEach(IntConsumer action) {
+        for (int shard = 0; shard < count; shard++) {
+            int current = shard;
+            ShardContext.call(shard, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs the action once per shard, one after the other, and adds up what
+     * it returns.
+     */
+    public int sum(IntSupplier action) {
+        int sum = 0;
+        for (int shard = 0; shard < count; shard++) {
+            sum += ShardContext.call(shard, action::getAsInt);
+        }
+        return sum;
+    }
+
+    /**
+     * Runs the query on every shard and returns the results in shard order.
+     * Shards are queried in parallel, each in a read-only transaction of its
+     * own; a single shard is queried inline.
+     */
+    public <T> List<T> gather(Supplier<T> query) {
+        if (count == 1) {
+            return List.of(query.get());
+        }
+        List<CompletableFuture<T>> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int current = shard;
+            results.add(CompletableFuture.supplyAsync(() -> ShardContext.call(current,
+                    () -> readOnlyTransaction.execute(status -> query.get())), executor));
+        }
+        List<T> gathered = new ArrayList<>(count);
+        try {
+            for (CompletableFuture<T> result : results) {
+                gathered.add(result.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return gathered;
+    }
+
+    /**
+     * A random version 8 UUID carrying the shard in its last byte. The high
+     * 64 bits stay fully random, so id ranges split the payments evenly.
+     */
+    public static UUID newId(int shard) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~VERSION_MASK) | SHARDED_VERSION;
+        // IETF variant, then random bits, then the shard
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFF00L) | 0x8000000000000000L | shard;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * The shard stored in an id made by {@link #newId}, {@link #HOME} for any
+     * other id.
+     */
+    public static int shardOf(UUID paymentId) {
+        if (paymentId == null || paymentId.version() != 8) {
+            return HOME;
+        }
+        return (int) (paymentId.getLeastSignificantBits() & 0xFF);
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes; similar order ids still spread over the whole key space
+    private static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm"
+    private static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
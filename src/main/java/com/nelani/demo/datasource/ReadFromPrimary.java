@@ -0,0 +1,16 @@
+package com.nelani.demo.datasource;
+
+import java.lang.annotation.*;
+
+/**
+ * Forces every query issued inside the annotated method onto the primary
+ * datasource, even within a read-only transaction.
+ * <p>
+ * Use it for freshness-sensitive reads that must not observe replica lag.
+ * Has no effect when read/write routing is disabled.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,28 @@
+package com.nelani.demo.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Marks the current thread as pinned to the primary datasource for the
+ * duration of a {@link ReadFromPrimary} method.
+ */
+public class ReadFromPrimaryInterceptor implements MethodInterceptor {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            PRIMARY_FORCED.set(previous);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nelani.demo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The payment shard the current thread works on, read by
+ * {@link ShardRoutingDataSource} when a connection is first used and by
+ * {@link ShardedUuidGenerator} when a payment id is generated.
+ * <p>
+ * Threads that never set a shard use {@link PaymentShards#HOME}. The shard
+ * must be set before the transaction's first statement: once a connection is
+ * bound, every statement of the transaction runs on it.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = ThreadLocal.withInitial(() -> PaymentShards.HOME);
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the action with the given shard as the current one, then restores
+     * the previous shard.
+     */
+    public static <T> T call(int shard, Supplier<T> action) {
+        int previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nelani.demo.datasource;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates the entity's UUID id with the current {@link ShardContext} shard
+ * embedded, see {@link PaymentShards#newId}.
+ */
+@IdGeneratorType(ShardedUuidGenerator.class)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ShardedUuid {
+}
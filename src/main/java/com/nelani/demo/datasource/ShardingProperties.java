@@ -0,0 +1,42 @@
+package com.nelani.demo.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Horizontal sharding of payments, bound from {@code payments.sharding}.
+ * Shard 0 is {@code spring.datasource}; the listed shards follow it.
+ *
+ * @param enabled  on to spread payments over the home database and the
+ *                 listed shards
+ * @param shards   the databases after the home one; their order is part of
+ *                 the placement and must not change
+ * @param poolSize connection pool size of each listed shard
+ * @param migrate  off when the listed shards get their schema some other way
+ */
+@ConfigurationProperties("payments.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Shard> shards,
+        @DefaultValue("10") int poolSize,
+        @DefaultValue("true") boolean migrate) {
+
+    public record Shard(String url, @DefaultValue("sa") String username, @DefaultValue("") String password) {
+    }
+
+    public ShardingProperties {
+        if (shards.size() + 1 > PaymentShards.MAX_SHARDS) {
+            throw new IllegalArgumentException("payments.sharding.shards allows at most "
+                    + (PaymentShards.MAX_SHARDS - 1) + " shards besides spring.datasource");
+        }
+    }
+
+    /**
+     * Number of shards in use, 1 when sharding is off.
+     */
+    public int count() {
+        return enabled ? shards.size() + 1 : 1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.nelani.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a single payment within a batch initialization")
+public record BatchPaymentItemResult(
+
+        @Schema(description = "Order identifier of the batch item", example = "ORD-2025-0001") String orderId,
+
+        @Schema(description = "Indicates whether the payment was initialized with the provider", example = "true") boolean success,
+
+        @Schema(description = "Provider session details. Null if the item failed.", nullable = true) PaymentResponseDTO payment,
+
+        @Schema(description = "Reason the item failed. Null if the item succeeded.", example = "Order already paid.", nullable = true) String error) {
+
+    public static BatchPaymentItemResult succeeded(String orderId, PaymentResponseDTO payment) {
+        return new BatchPaymentItemResult(orderId, true, payment, null);
+    }
+
+    public static BatchPaymentItemResult failed(String orderId, String error) {
+        return new BatchPaymentItemResult(orderId, false, null, error);
+    }
+}
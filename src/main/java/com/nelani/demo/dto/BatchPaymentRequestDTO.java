@@ -0,0 +1,17 @@
+package com.nelani.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Request payload used to initialize several payments in one call")
+public record BatchPaymentRequestDTO(
+
+        @Schema(description = "Payments to initialize. Each order ID may appear only once per batch.") @NotEmpty(message = "At least one payment is required") @Size(max = BatchPaymentRequestDTO.MAX_BATCH_SIZE, message = "A batch must not exceed "
+                + BatchPaymentRequestDTO.MAX_BATCH_SIZE + " payments") List<@Valid PaymentRequestDTO> payments) {
+
+    public static final int MAX_BATCH_SIZE = 500;
+}
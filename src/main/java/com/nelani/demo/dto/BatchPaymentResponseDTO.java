@@ -0,0 +1,20 @@
+package com.nelani.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Response returned after a batch of payments is initialized")
+public record BatchPaymentResponseDTO(
+
+        @Schema(description = "Number of payments initialized successfully", example = "98") int succeeded,
+
+        @Schema(description = "Number of payments that could not be initialized", example = "2") int failed,
+
+        @Schema(description = "Per-item results, in the same order as the request") List<BatchPaymentItemResult> results) {
+
+    public static BatchPaymentResponseDTO of(List<BatchPaymentItemResult> results) {
+        int succeeded = (int) results.stream().filter(BatchPaymentItemResult::success).count();
+        return new BatchPaymentResponseDTO(succeeded, results.size() - succeeded, results);
+    }
+}
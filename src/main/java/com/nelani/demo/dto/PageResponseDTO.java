@@ -0,0 +1,36 @@
+package com.nelani.demo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * One page of a listing. Only the page's rows and its position are sent, in
+ * the shape of Spring Data's {@code PagedModel}; the request's
+ * {@code Pageable} and {@code Sort} are not echoed back.
+ */
+@Schema(description = "One page of results")
+public record PageResponseDTO<T>(
+
+        @Schema(description = "Rows of this page") List<T> content,
+
+        @Schema(description = "Position of this page") PageMetadata page) {
+
+    @Schema(description = "Position of a page within the results")
+    public record PageMetadata(
+
+            @Schema(description = "Requested page size", example = "10") int size,
+
+            @Schema(description = "Page number (0-based)", example = "0") int number,
+
+            @Schema(description = "Number of results over all pages", example = "42") long totalElements,
+
+            @Schema(description = "Number of pages", example = "5") int totalPages) {
+    }
+
+    public static <T> PageResponseDTO<T> of(Page<T> page) {
+        return new PageResponseDTO<>(page.getContent(), new PageMetadata(page.getSize(), page.getNumber(),
+                page.getTotalElements(), page.getTotalPages()));
+    }
+}
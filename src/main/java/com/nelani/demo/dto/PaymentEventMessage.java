@@ -0,0 +1,24 @@
+package com.nelani.demo.dto;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Schema(description = "Payment status change delivered by the outbox relay")
+public record PaymentEventMessage(
+
+        @Schema(description = "Outbox sequence number in delivery order. Consumers can use it to drop redelivered events.", example = "1051") long id,
+
+        @Schema(description = "Order identifier of the payment", example = "ORD-2025-0001") String orderId,
+
+        @Schema(description = "Status the payment moved to", example = "SUCCESS") PaymentStatus status,
+
+        @Schema(description = "Payment provider", example = "STRIPE") PaymentProviderType provider,
+
+        @Schema(description = "Payment amount", example = "199.99") BigDecimal amount,
+
+        @Schema(description = "Timestamp of the status change", example = "2025-01-06T10:16:42+02:00") OffsetDateTime occurredAt) {
+}
@@ -1,10 +1,13 @@
 package com.nelani.demo.dto;
 
+import com.nelani.demo.model.CurrencyCode;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.tenant.TenantRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 
 import java.math.BigDecimal;
 
@@ -15,5 +18,34 @@ public record PaymentRequestDTO(
 
         @Schema(description = "Amount to be charged for the payment", example = "150.00", minimum = "0.01") @NotNull(message = "Amount is required") @DecimalMin(value = "0.01", message = "Amount must be greater than zero") BigDecimal amount,
 
-        @Schema(description = "Payment provider to process the transaction", example = "STRIPE") @NotNull(message = "Provider is required") PaymentProviderType provider) {
+        @Schema(description = "Payment provider to process the transaction", example = "STRIPE") @NotNull(message = "Provider is required") PaymentProviderType provider,
+
+        @Schema(description = "ISO 4217 currency of the amount. Defaults to the provider's currency: USD for PayPal, ZAR for Stripe. PayPal does not take ZAR or KRW", example = "ZAR", nullable = true) CurrencyCode currency,
+
+        @Schema(description = "Merchant account whose provider credentials are used. Defaults to the default account", example = "default", nullable = true) @Pattern(regexp = "[A-Za-z0-9_-]{1,64}", message = "Tenant ID must be 1 to 64 letters, digits, '-' or '_'") String tenantId) {
+
+    public PaymentRequestDTO(String orderId, BigDecimal amount, PaymentProviderType provider) {
+        this(orderId, amount, provider, null);
+    }
+
+    public PaymentRequestDTO(String orderId, BigDecimal amount, PaymentProviderType provider,
+            CurrencyCode currency) {
+        this(orderId, amount, provider, currency, null);
+    }
+
+    /**
+     * Returns the requested currency, or the provider's default when none was
+     * given.
+     */
+    public CurrencyCode resolvedCurrency() {
+        return currency != null ? currency : provider.defaultCurrency();
+    }
+
+    /**
+     * Returns the requested merchant account, or the default one when none
+     * was given.
+     */
+    public String resolvedTenantId() {
+        return TenantRegistry.resolve(tenantId);
+    }
 }
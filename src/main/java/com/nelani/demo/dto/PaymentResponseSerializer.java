@@ -0,0 +1,90 @@
+package com.nelani.demo.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+
+/**
+ * Writes {@link PaymentResponseDTO}, the body of every checkout, resume and
+ * listing row, field by field.
+ * <p>
+ * The bean serializer Jackson would build instead looks the record's
+ * accessors up reflectively, calls each through a method handle and checks
+ * the inclusion rule per property. Here the fields are written in
+ * declaration order from pre-encoded names, null fields are left out as
+ * {@code NON_NULL} requires, and enums are written by name, as Jackson does
+ * by default. Timestamps go through the mapper's own {@link OffsetDateTime}
+ * serializer, resolved once, so {@code spring.jackson.*} date settings still
+ * apply. The output is identical to the bean serializer's.
+ */
+final class PaymentResponseSerializer extends StdSerializer<PaymentResponseDTO> implements ResolvableSerializer {
+
+    private static final SerializableString ORDER_ID = new SerializedString("orderId");
+    private static final SerializableString CLIENT_ID = new SerializedString("clientId");
+    private static final SerializableString CLIENT_SECRET = new SerializedString("clientSecret");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+    private static final SerializableString PROVIDER = new SerializedString("provider");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString EXPIRES_AT = new SerializedString("expiresAt");
+    private static final SerializableString COMPLETED_AT = new SerializedString("completedAt");
+
+    private JsonSerializer<Object> timestamps;
+
+    PaymentResponseSerializer() {
+        super(PaymentResponseDTO.class);
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        timestamps = provider.findValueSerializer(OffsetDateTime.class);
+    }
+
+    @Override
+    public void serialize(PaymentResponseDTO value, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject(value);
+        writeString(gen, ORDER_ID, value.orderId());
+        writeString(gen, CLIENT_ID, value.clientId());
+        writeString(gen, CLIENT_SECRET, value.clientSecret());
+        if (value.amount() != null) {
+            gen.writeFieldName(AMOUNT);
+            gen.writeNumber(value.amount());
+        }
+        if (value.currency() != null) {
+            writeString(gen, CURRENCY, value.currency().name());
+        }
+        if (value.provider() != null) {
+            writeString(gen, PROVIDER, value.provider().name());
+        }
+        writeString(gen, STATUS, value.status());
+        writeTimestamp(gen, provider, CREATED_AT, value.createdAt());
+        writeTimestamp(gen, provider, EXPIRES_AT, value.expiresAt());
+        writeTimestamp(gen, provider, COMPLETED_AT, value.completedAt());
+        gen.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+
+    private void writeTimestamp(JsonGenerator gen, SerializerProvider provider, SerializableString name,
+            OffsetDateTime value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            timestamps.serialize(value, gen, provider);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.nelani.demo.dto;
+
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Schema(description = "Aggregated payment volume for one time bucket, provider and currency")
+public record PaymentRollupDTO(
+
+        @Schema(description = "Start of the UTC bucket the payments were created in", example = "2025-01-06T10:00:00Z") OffsetDateTime bucketStart,
+
+        @Schema(description = "Payment provider", example = "STRIPE") PaymentProviderType provider,
+
+        @Schema(description = "ISO 4217 currency of the payments and amounts", example = "ZAR") CurrencyCode currency,
+
+        @Schema(description = "Number of payments created in the bucket", example = "1200") long payments,
+
+        @Schema(description = "Payments that are now SUCCESS", example = "1104") long succeeded,
+
+        @Schema(description = "Payments that are now FAILED", example = "60") long failed,
+
+        @Schema(description = "Payments that are now EXPIRED", example = "36") long expired,
+
+        @Schema(description = "Share of payments that succeeded, between 0 and 1", example = "0.92") double successRate,
+
+        @Schema(description = "Sum of all payment amounts", example = "240000.00") BigDecimal amount,
+
+        @Schema(description = "Sum of the successful payment amounts", example = "220800.00") BigDecimal succeededAmount,
+
+        @Schema(description = "Average seconds from creation to completion. Null if none completed.", example = "42.5", nullable = true) Double averageCompletionSeconds) {
+}
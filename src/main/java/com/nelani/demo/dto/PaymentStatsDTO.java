@@ -0,0 +1,23 @@
+package com.nelani.demo.dto;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Payment statistics served from in-memory counters")
+public record PaymentStatsDTO(
+
+        @Schema(description = "Totals over the selected days") PaymentStatsTotal total,
+
+        @Schema(description = "Totals per current payment status") Map<PaymentStatus, PaymentStatsTotal> byStatus,
+
+        @Schema(description = "Totals per payment provider") Map<PaymentProviderType, PaymentStatsTotal> byProvider,
+
+        @Schema(description = "Breakdown per UTC creation day, status, provider and currency, ordered by day") List<PaymentStatsEntry> entries,
+
+        @Schema(description = "When the counters were last reconciled with the database. Null before the first run.", nullable = true) OffsetDateTime reconciledAt) {
+}
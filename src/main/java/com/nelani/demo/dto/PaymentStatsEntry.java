@@ -0,0 +1,25 @@
+package com.nelani.demo.dto;
+
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Schema(description = "Payment count and amount for one day, status, provider and currency")
+public record PaymentStatsEntry(
+
+        @Schema(description = "UTC day the payments were created", example = "2025-01-06") LocalDate day,
+
+        @Schema(description = "Current status of the payments", example = "SUCCESS") PaymentStatus status,
+
+        @Schema(description = "Payment provider", example = "STRIPE") PaymentProviderType provider,
+
+        @Schema(description = "ISO 4217 currency of the payments and their amount", example = "ZAR") CurrencyCode currency,
+
+        @Schema(description = "Number of payments", example = "42") long count,
+
+        @Schema(description = "Sum of the payment amounts", example = "8399.58") BigDecimal amount) {
+}
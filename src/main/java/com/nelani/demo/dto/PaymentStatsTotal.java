@@ -0,0 +1,15 @@
+package com.nelani.demo.dto;
+
+import com.nelani.demo.model.CurrencyCode;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Schema(description = "Payment count and amounts for one group")
+public record PaymentStatsTotal(
+
+        @Schema(description = "Number of payments", example = "42") long count,
+
+        @Schema(description = "Sum of the payment amounts per currency, amounts in different currencies are never added", example = "{\"ZAR\": 8399.58, \"USD\": 120.00}") Map<CurrencyCode, BigDecimal> amounts) {
+}
@@ -0,0 +1,12 @@
+package com.nelani.demo.dto;
+
+/**
+ * Outcome of one reconciliation run.
+ *
+ * @param checked        stale payments looked up at their provider
+ * @param corrected      payments moved to the status reported by the provider
+ * @param lookupFailures payments whose lookup failed; they are retried on the
+ *                       next pass
+ */
+public record ReconciliationResult(int checked, int corrected, int lookupFailures) {
+}
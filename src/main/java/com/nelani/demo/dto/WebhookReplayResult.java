@@ -0,0 +1,12 @@
+package com.nelani.demo.dto;
+
+/**
+ * Outcome of one webhook replay.
+ *
+ * @param read    archived webhooks in the requested range
+ * @param queued  webhooks queued for processing
+ * @param skipped webhooks that were irrelevant or had been accepted before
+ * @param failed  webhooks that could not be replayed
+ */
+public record WebhookReplayResult(int read, int queued, int skipped, int failed) {
+}
@@ -14,5 +14,12 @@ public record WebhookResult(
                                 "False for failed or cancelled payments.", example = "true") boolean success,
 
                 @Schema(description = "Indicates whether the webhook event was relevant and processed by the system. " +
-                                "False for ignored or unsupported event types.", example = "true") boolean relevant) {
+                                "False for ignored or unsupported event types.", example = "true") boolean relevant,
+
+                @Schema(description = "Provider event identifier, used to drop redelivered events. " +
+                                "Null if the provider did not supply one.", example = "evt_1NQxYkLkdIwHu7ix", nullable = true) String eventId) {
+
+        public WebhookResult(UUID paymentId, boolean success, boolean relevant) {
+                this(paymentId, success, relevant, null);
+        }
 }
@@ -0,0 +1,66 @@
+package com.nelani.demo.exception;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.grpc.server.exception.GrpcExceptionHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The gRPC counterpart of {@link GlobalExceptionHandler}: turns what the
+ * services throw into the status a gRPC call fails with, using the status
+ * codes that match the HTTP statuses the REST API answers with.
+ */
+@Component
+@Log4j2
+public class GrpcExceptionTranslator implements GrpcExceptionHandler {
+
+    /**
+     * Seconds the client should wait before retrying, as the REST API's
+     * {@code Retry-After} header.
+     */
+    public static final Metadata.Key<String> RETRY_AFTER = Metadata.Key.of("retry-after",
+            Metadata.ASCII_STRING_MARSHALLER);
+
+    @Override
+    public StatusException handleException(Throwable exception) {
+        return translate(exception);
+    }
+
+    public StatusException translate(Throwable exception) {
+        if (exception instanceof IllegalArgumentException ex) {
+            log.warn("IllegalArgumentException: {}", ex.getMessage());
+            return Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asException();
+        }
+        if (exception instanceof ResponseStatusException ex) {
+            log.warn("ResponseStatusException: {}", ex.getMessage());
+            return codeOf(ex.getStatusCode().value()).withDescription(ex.getReason()).asException();
+        }
+        if (exception instanceof ProviderQuotaExceededException ex) {
+            log.warn("ProviderQuotaExceededException: {}", ex.getMessage());
+            Metadata trailers = new Metadata();
+            if (ex.getRetryAfter() != null) {
+                // Whole seconds, rounded up
+                long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+                trailers.put(RETRY_AFTER, String.valueOf(seconds));
+            }
+            return Status.RESOURCE_EXHAUSTED.withDescription(ex.getMessage()).asException(trailers);
+        }
+        log.error("Unhandled Exception: {}", exception.getMessage(), exception);
+        return Status.INTERNAL.withDescription("An unexpected error occurred. Please try again later.")
+                .asException();
+    }
+
+    private static Status codeOf(int httpStatus) {
+        return switch (httpStatus) {
+            case 400 -> Status.INVALID_ARGUMENT;
+            case 404 -> Status.NOT_FOUND;
+            case 409 -> Status.FAILED_PRECONDITION;
+            case 429 -> Status.RESOURCE_EXHAUSTED;
+            case 503 -> Status.UNAVAILABLE;
+            default -> httpStatus >= 500 ? Status.INTERNAL : Status.FAILED_PRECONDITION;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.nelani.demo.exception;
+
+/**
+ * Indicates that a node no longer holds the job lease it was working under,
+ * because it expired and another node took it over. Thrown from the fenced
+ * write, so the stale node's transaction rolls back.
+ */
+public class LeaseLostException extends RuntimeException {
+
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.nelani.demo.exception;
+
+import java.time.Duration;
+
+/**
+ * Indicates that a merchant account has used up its call quota with a
+ * payment provider, either the one configured for the cluster or because
+ * the provider answered 429.
+ *
+ * <p>
+ * Unlike {@link PaymentProviderTemporaryException} this is not retried
+ * locally: every node retrying on its own is what makes rate limiting
+ * worse. Callers get a 429 with {@code Retry-After} instead.
+ * </p>
+ */
+public class ProviderQuotaExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ProviderQuotaExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
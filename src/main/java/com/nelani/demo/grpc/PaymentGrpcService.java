@@ -0,0 +1,215 @@
+package com.nelani.demo.grpc;
+
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.exception.GrpcExceptionTranslator;
+import com.nelani.demo.grpc.v1.Failure;
+import com.nelani.demo.grpc.v1.GetPaymentRequest;
+import com.nelani.demo.grpc.v1.InitializePaymentRequest;
+import com.nelani.demo.grpc.v1.InitializePaymentResult;
+import com.nelani.demo.grpc.v1.Payment;
+import com.nelani.demo.grpc.v1.PaymentStatusUpdate;
+import com.nelani.demo.grpc.v1.PaymentsGrpc;
+import com.nelani.demo.grpc.v1.ResumePaymentRequest;
+import com.nelani.demo.grpc.v1.WatchPaymentRequest;
+import com.nelani.demo.mapper.PaymentGrpcMapper;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.service.PaymentEventStreamService;
+import com.nelani.demo.service.PaymentService;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.grpc.server.service.GrpcService;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code Payments} gRPC service of {@code payments.proto}, for internal
+ * callers that would otherwise make one JSON request per order.
+ * <p>
+ * Backed by the same services as the REST API. Exceptions of the unary calls
+ * are turned into gRPC statuses by {@link GrpcExceptionTranslator}; the
+ * streaming initialization reports them per payment instead, so one failure
+ * does not end the stream.
+ * <p>
+ * {@code InitializePayments} runs up to {@code payments.grpc.max-in-flight}
+ * payments of a stream at once, on the batch executor that also bounds the
+ * provider calls of batch initializations. Further requests are only read
+ * from the client as results go out, so a fast client is held back by flow
+ * control instead of queueing work.
+ */
+@Log4j2
+@GrpcService
+public class PaymentGrpcService extends PaymentsGrpc.PaymentsImplBase {
+
+    private final PaymentService paymentService;
+    private final PaymentEventStreamService paymentEventStreamService;
+    private final GrpcExceptionTranslator exceptionTranslator;
+    private final Validator validator;
+    private final Executor batchExecutor;
+    private final int maxInFlight;
+
+    public PaymentGrpcService(PaymentService paymentService, PaymentEventStreamService paymentEventStreamService,
+            GrpcExceptionTranslator exceptionTranslator, Validator validator,
+            @Qualifier("paymentBatchExecutor") Executor batchExecutor,
+            @Value("${payments.grpc.max-in-flight:16}") int maxInFlight) {
+        this.paymentService = paymentService;
+        this.paymentEventStreamService = paymentEventStreamService;
+        this.exceptionTranslator = exceptionTranslator;
+        this.validator = validator;
+        this.batchExecutor = batchExecutor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void initializePayment(InitializePaymentRequest request, StreamObserver<Payment> responseObserver) {
+        var result = paymentService.initializePayment(validated(request));
+        responseObserver.onNext(PaymentGrpcMapper.toPayment(result));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void resumePayment(ResumePaymentRequest request, StreamObserver<Payment> responseObserver) {
+        var result = paymentService.resumePayment(requireOrderId(request.getOrderId()));
+        responseObserver.onNext(PaymentGrpcMapper.toPayment(result));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getPayment(GetPaymentRequest request, StreamObserver<Payment> responseObserver) {
+        var result = paymentService.getPayment(requireOrderId(request.getOrderId()));
+        responseObserver.onNext(PaymentGrpcMapper.toPayment(result));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<InitializePaymentRequest> initializePayments(
+            StreamObserver<InitializePaymentResult> responseObserver) {
+        return new PipelinedInitialization((ServerCallStreamObserver<InitializePaymentResult>) responseObserver);
+    }
+
+    @Override
+    public void watchPayment(WatchPaymentRequest request, StreamObserver<PaymentStatusUpdate> responseObserver) {
+        var call = (ServerCallStreamObserver<PaymentStatusUpdate>) responseObserver;
+        // Set before subscribing: the snapshot may already be sent while this method runs
+        AtomicReference<Runnable> unsubscribe = new AtomicReference<>();
+        Runnable cancel = () -> Optional.ofNullable(unsubscribe.getAndSet(null)).ifPresent(Runnable::run);
+        call.setOnCancelHandler(cancel);
+        unsubscribe.set(paymentEventStreamService.subscribe(requireOrderId(request.getOrderId()),
+                new PaymentEventStreamService.StatusSink() {
+
+                    @Override
+                    public void send(PaymentStatusChangedEvent event) {
+                        call.onNext(PaymentGrpcMapper.toStatusUpdate(event));
+                    }
+
+                    @Override
+                    public void complete() {
+                        call.onCompleted();
+                    }
+                }));
+        if (call.isCancelled()) {
+            cancel.run();
+        }
+    }
+
+    private PaymentRequestDTO validated(InitializePaymentRequest request) {
+        PaymentRequestDTO dto = PaymentGrpcMapper.toRequestDTO(request);
+        Set<ConstraintViolation<PaymentRequestDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return dto;
+    }
+
+    private static String requireOrderId(String orderId) {
+        if (orderId.isBlank()) {
+            throw new IllegalArgumentException("Order ID is required");
+        }
+        return orderId;
+    }
+
+    private InitializePaymentResult initialize(InitializePaymentRequest request) {
+        InitializePaymentResult.Builder result = InitializePaymentResult.newBuilder()
+                .setOrderId(request.getOrderId());
+        try {
+            result.setPayment(PaymentGrpcMapper.toPayment(paymentService.initializePayment(validated(request))));
+        } catch (RuntimeException e) {
+            var status = exceptionTranslator.translate(e).getStatus();
+            result.setFailure(Failure.newBuilder()
+                    .setCode(status.getCode().name())
+                    .setMessage(Objects.toString(status.getDescription(), "")));
+        }
+        return result.build();
+    }
+
+    /**
+     * One {@code InitializePayments} call. Results are written under a lock,
+     * as they complete on different threads; the call is completed once the
+     * client has closed its side and no payment is left in flight.
+     */
+    private final class PipelinedInitialization implements StreamObserver<InitializePaymentRequest> {
+
+        private final ServerCallStreamObserver<InitializePaymentResult> responses;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean halfClosed;
+
+        private PipelinedInitialization(ServerCallStreamObserver<InitializePaymentResult> responses) {
+            this.responses = responses;
+            // Payments already started still complete when the client cancels, their results are dropped
+            responses.setOnCancelHandler(() -> log.debug("Payment initialization stream cancelled by client"));
+            responses.disableAutoRequest();
+            responses.request(maxInFlight);
+        }
+
+        @Override
+        public void onNext(InitializePaymentRequest request) {
+            inFlight.incrementAndGet();
+            batchExecutor.execute(() -> {
+                InitializePaymentResult result = initialize(request);
+                synchronized (responses) {
+                    responses.onNext(result);
+                }
+                responses.request(1);
+                if (inFlight.decrementAndGet() == 0 && halfClosed) {
+                    complete();
+                }
+            });
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            log.debug("Payment initialization stream failed: {}", error.getMessage());
+        }
+
+        @Override
+        public void onCompleted() {
+            halfClosed = true;
+            if (inFlight.get() == 0) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                synchronized (responses) {
+                    responses.onCompleted();
+                }
+            }
+        }
+    }
+}
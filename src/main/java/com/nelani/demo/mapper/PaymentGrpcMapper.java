@@ -0,0 +1,152 @@
+package com.nelani.demo.mapper;
+
+import com.google.protobuf.Timestamp;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.grpc.v1.InitializePaymentRequest;
+import com.nelani.demo.grpc.v1.Payment;
+import com.nelani.demo.grpc.v1.PaymentStatusUpdate;
+import com.nelani.demo.grpc.v1.Provider;
+import com.nelani.demo.grpc.v1.Status;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Maps between the messages of {@code payments.proto} and the DTOs the
+ * services work with. Proto fields left empty map to {@code null} and back;
+ * enum values are matched by name after their {@code PROVIDER_} or
+ * {@code STATUS_} prefix.
+ */
+public final class PaymentGrpcMapper {
+
+    private static final String PROVIDER_PREFIX = "PROVIDER_";
+    private static final String STATUS_PREFIX = "STATUS_";
+
+    private PaymentGrpcMapper() {
+    }
+
+    public static PaymentRequestDTO toRequestDTO(InitializePaymentRequest request) {
+        return new PaymentRequestDTO(
+                emptyToNull(request.getOrderId()),
+                toAmount(request.getAmount()),
+                toProviderType(request.getProvider()),
+                toCurrency(request.getCurrency()),
+                emptyToNull(request.getTenantId()));
+    }
+
+    public static Payment toPayment(PaymentResponseDTO response) {
+        Payment.Builder payment = Payment.newBuilder()
+                .setOrderId(response.orderId());
+        if (response.clientId() != null) {
+            payment.setClientId(response.clientId());
+        }
+        if (response.clientSecret() != null) {
+            payment.setClientSecret(response.clientSecret());
+        }
+        if (response.amount() != null) {
+            payment.setAmount(response.amount().toPlainString());
+        }
+        if (response.currency() != null) {
+            payment.setCurrency(response.currency().name());
+        }
+        if (response.provider() != null) {
+            payment.setProvider(toProvider(response.provider()));
+        }
+        if (response.status() != null) {
+            payment.setStatus(toStatus(PaymentStatus.valueOf(response.status())));
+        }
+        if (response.createdAt() != null) {
+            payment.setCreatedAt(toTimestamp(response.createdAt()));
+        }
+        if (response.expiresAt() != null) {
+            payment.setExpiresAt(toTimestamp(response.expiresAt()));
+        }
+        if (response.completedAt() != null) {
+            payment.setCompletedAt(toTimestamp(response.completedAt()));
+        }
+        return payment.build();
+    }
+
+    public static PaymentStatusUpdate toStatusUpdate(PaymentStatusChangedEvent event) {
+        PaymentStatusUpdate.Builder update = PaymentStatusUpdate.newBuilder()
+                .setOrderId(event.orderId())
+                .setStatus(toStatus(event.status()))
+                .setProvider(toProvider(event.provider()));
+        if (event.previousStatus() != null) {
+            update.setPreviousStatus(toStatus(event.previousStatus()));
+        }
+        if (event.previousProvider() != null) {
+            update.setPreviousProvider(toProvider(event.previousProvider()));
+        }
+        if (event.amount() != null) {
+            update.setAmount(event.amount().toPlainString());
+        }
+        if (event.createdAt() != null) {
+            update.setCreatedAt(toTimestamp(event.createdAt()));
+        }
+        if (event.occurredAt() != null) {
+            update.setOccurredAt(toTimestamp(event.occurredAt()));
+        }
+        return update.build();
+    }
+
+    public static Provider toProvider(PaymentProviderType type) {
+        return Provider.valueOf(PROVIDER_PREFIX + type.name());
+    }
+
+    public static Status toStatus(PaymentStatus status) {
+        return Status.valueOf(STATUS_PREFIX + status.name());
+    }
+
+    /**
+     * Returns {@code null} when no provider was given, so validation reports
+     * it as missing.
+     */
+    public static PaymentProviderType toProviderType(Provider provider) {
+        if (provider == Provider.PROVIDER_UNSPECIFIED) {
+            return null;
+        }
+        if (provider == Provider.UNRECOGNIZED) {
+            throw new IllegalArgumentException("Unsupported provider.");
+        }
+        return PaymentProviderType.valueOf(provider.name().substring(PROVIDER_PREFIX.length()));
+    }
+
+    private static BigDecimal toAmount(String amount) {
+        if (amount.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Amount must be a decimal number, e.g. \"150.00\".");
+        }
+    }
+
+    private static CurrencyCode toCurrency(String currency) {
+        if (currency.isEmpty()) {
+            return null;
+        }
+        try {
+            return CurrencyCode.valueOf(currency);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+    }
+
+    private static Timestamp toTimestamp(OffsetDateTime timestamp) {
+        return Timestamp.newBuilder()
+                .setSeconds(timestamp.toEpochSecond())
+                .setNanos(timestamp.getNano())
+                .build();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -1,7 +1,9 @@
 package com.nelani.demo.mapper;
 
 import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.ArchivedPayment;
 import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentSummary;
 
 public final class PaymentMapper {
 
@@ -14,6 +16,35 @@ public final class PaymentMapper {
                 clientId,
                 secretId,
                 payment.getAmount(),
+                payment.getCurrency(),
+                payment.getProvider(),
+                payment.getStatus().name(),
+                payment.getCreatedAt(),
+                payment.getExpiresAt(),
+                payment.getCompletedAt());
+    }
+
+    public static PaymentResponseDTO toResponseDTO(PaymentSummary summary) {
+        return new PaymentResponseDTO(
+                summary.orderId(),
+                null,
+                null,
+                summary.amount(),
+                summary.currency(),
+                summary.provider(),
+                summary.status().name(),
+                summary.createdAt(),
+                summary.expiresAt(),
+                summary.completedAt());
+    }
+
+    public static PaymentResponseDTO toResponseDTO(ArchivedPayment payment) {
+        return new PaymentResponseDTO(
+                payment.getOrderId(),
+                null,
+                null,
+                payment.getAmount(),
+                payment.getCurrency(),
                 payment.getProvider(),
                 payment.getStatus().name(),
                 payment.getCreatedAt(),
@@ -0,0 +1,67 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A terminal {@link Payment} moved to the archive tier.
+ * <p>
+ * Rows are only written by the archiver's set-based moves and are never
+ * changed in place: a payment that has to change again is restored to
+ * {@code payments} first. Properties carry the same names as on
+ * {@link Payment}, so queries can be built for either tier.
+ */
+@Entity
+@Table(name = "payments_archive", indexes = {
+        @Index(name = "idx_payments_archive_created", columnList = "createdAt")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedPayment {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false, length = 64)
+    private String tenantId;
+
+    @Column(nullable = false, unique = true, length = 100)
+    private String orderId;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 3)
+    private CurrencyCode currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentProviderType provider;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false)
+    private OffsetDateTime expiresAt;
+
+    private OffsetDateTime completedAt;
+
+    private String providerReference;
+
+    @Column(length = 2048)
+    private String checkoutUrl;
+
+    @Column(nullable = false)
+    private OffsetDateTime archivedAt;
+}
@@ -0,0 +1,34 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A node taking part in job coordination, alive while it keeps beating.
+ */
+@Entity
+@Table(name = "cluster_node")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ClusterNode {
+
+    @Id
+    @Column(length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private OffsetDateTime heartbeatAt;
+
+    public ClusterNode(String nodeId, OffsetDateTime now) {
+        this.nodeId = nodeId;
+        this.heartbeatAt = now;
+    }
+
+    public void beat(OffsetDateTime now) {
+        this.heartbeatAt = now;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nelani.demo.model;
+
+/**
+ * ISO 4217 currencies accepted for payments, with their minor unit exponent:
+ * the number of decimal places of the currency (2 for cents, 0 for JPY).
+ * <p>
+ * Limited to currencies with at most two decimal places, which is what the
+ * amount columns ({@code NUMERIC(12, 2)}) hold and what both providers take
+ * in minor units without special rounding rules.
+ */
+public enum CurrencyCode {
+
+    AUD(2),
+    CAD(2),
+    CHF(2),
+    EUR(2),
+    GBP(2),
+    JPY(0),
+    KRW(0),
+    NZD(2),
+    SEK(2),
+    USD(2),
+    ZAR(2);
+
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100 };
+
+    private final int exponent;
+
+    CurrencyCode(int exponent) {
+        this.exponent = exponent;
+    }
+
+    /**
+     * Number of decimal places of the currency.
+     */
+    public int exponent() {
+        return exponent;
+    }
+
+    /**
+     * Minor units in one major unit, e.g. 100 cents in a dollar.
+     */
+    public long minorUnitsPerMajor() {
+        return POWERS_OF_TEN[exponent];
+    }
+}
@@ -0,0 +1,43 @@
+package com.nelani.demo.model;
+
+import java.lang.reflect.Array;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lookup tables for enums stored as small integer codes.
+ */
+final class EnumCodes {
+
+    private EnumCodes() {
+    }
+
+    /**
+     * Builds an array indexed by code.
+     *
+     * @throws IllegalStateException if two constants share a code
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>> E[] index(E[] values, ToIntFunction<E> code) {
+        int max = 0;
+        for (E value : values) {
+            max = Math.max(max, code.applyAsInt(value));
+        }
+        E[] byCode = (E[]) Array.newInstance(values.getClass().getComponentType(), max + 1);
+        for (E value : values) {
+            int c = code.applyAsInt(value);
+            if (byCode[c] != null) {
+                throw new IllegalStateException("Duplicate code " + c + " for " + byCode[c] + " and " + value);
+            }
+            byCode[c] = value;
+        }
+        return byCode;
+    }
+
+    static <E extends Enum<E>> E lookup(E[] byCode, int code, Class<E> type) {
+        E value = code >= 0 && code < byCode.length ? byCode[code] : null;
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " code: " + code);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Lease on a singleton background job, or on one partition of a job, held by
+ * one node at a time.
+ * <p>
+ * The holder renews the lease before it expires; once it has expired or been
+ * released any node may take it. Every take increments the fencing
+ * {@code token}, so writes checked against the token a node was given are
+ * refused once another node has taken over.
+ */
+@Entity
+@Table(name = "job_lease")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class JobLease {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    // Null once released
+    @Column(length = 100)
+    private String owner;
+
+    @Column(nullable = false)
+    private long token;
+
+    @Column(nullable = false)
+    private OffsetDateTime expiresAt;
+
+    /**
+     * A new lease, free.
+     */
+    public JobLease(String name, OffsetDateTime now) {
+        this.name = name;
+        this.expiresAt = now;
+    }
+
+    public boolean isHeldBy(String node, OffsetDateTime now) {
+        return node.equals(owner) && expiresAt.isAfter(now);
+    }
+
+    public boolean isFree(OffsetDateTime now) {
+        return owner == null || !expiresAt.isAfter(now);
+    }
+
+    public void take(String node, OffsetDateTime now, Duration ttl) {
+        this.owner = node;
+        this.token++;
+        this.expiresAt = now.plus(ttl);
+    }
+
+    public void renew(OffsetDateTime now, Duration ttl) {
+        this.expiresAt = now.plus(ttl);
+    }
+
+    public void release(OffsetDateTime now) {
+        this.owner = null;
+        this.expiresAt = now;
+    }
+}
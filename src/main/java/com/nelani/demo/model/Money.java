@@ -0,0 +1,98 @@
+package com.nelani.demo.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * An amount in a currency, held as a whole number of minor units (cents for
+ * USD, yen for JPY).
+ * <p>
+ * {@link BigDecimal} is only used at the edges: to parse request amounts and
+ * to read and write the decimal amount columns. Comparing and adding are
+ * plain {@code long} operations, and {@link #toPlainString()} formats the
+ * decimal without an intermediate {@link BigDecimal}.
+ *
+ * @param minorUnits amount in minor units of {@code currency}
+ * @param currency   currency of the amount
+ */
+public record Money(long minorUnits, CurrencyCode currency) implements Comparable<Money> {
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code amount} has more decimal
+     *                                  places than {@code currency} or does
+     *                                  not fit in a {@code long}
+     */
+    public static Money of(BigDecimal amount, CurrencyCode currency) {
+        try {
+            return new Money(amount.movePointRight(currency.exponent()).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString() + " is not a valid " + currency
+                    + " amount, it allows " + currency.exponent() + " decimal places");
+        }
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.exponent());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException      if the sum overflows
+     */
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currencies differ
+     */
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    /**
+     * The amount as a decimal string with exactly the currency's number of
+     * decimal places, e.g. {@code 150.00} or {@code 1500} for JPY.
+     */
+    public String toPlainString() {
+        int exponent = currency.exponent();
+        if (exponent == 0) {
+            return Long.toString(minorUnits);
+        }
+        long factor = currency.minorUnitsPerMajor();
+        long major = Math.abs(minorUnits / factor);
+        long minor = Math.abs(minorUnits % factor);
+
+        StringBuilder text = new StringBuilder(20 + exponent);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        text.append(major).append('.');
+        // Leading zeros of the fraction, e.g. the 0 in 1.05
+        for (long digit = factor / 10; digit > 0 && minor < digit; digit /= 10) {
+            text.append('0');
+        }
+        if (minor > 0) {
+            text.append(minor);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency;
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * A payment status change waiting to be relayed to other systems.
+ * <p>
+ * Rows are inserted in the same transaction as the change itself, so an event
+ * exists if and only if the change was committed. The id defines the
+ * delivery order. It is drawn from the sequence one value at a time rather
+ * than from a block held by each node, so the ids of an order's changes
+ * follow the order they were made in, whichever node made them.
+ * <p>
+ * Rows also carry the rest of the {@link PaymentStatusChangedEvent} and the
+ * process that recorded it, so other nodes can replay the change on their own
+ * event bus; see {@link com.nelani.demo.outbox.OutboxTail}. Rows recorded
+ * before V15 have none of these.
+ */
+@Entity
+@Table(name = "payment_outbox", indexes = {
+        @Index(name = "idx_outbox_unpublished", columnList = "publishedAt, id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_outbox_seq")
+    @SequenceGenerator(name = "payment_outbox_seq", sequenceName = "payment_outbox_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentProviderType provider;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private OffsetDateTime occurredAt;
+
+    private OffsetDateTime publishedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private PaymentStatus previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private PaymentProviderType previousProvider;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 3)
+    private CurrencyCode currency;
+
+    private OffsetDateTime createdAt;
+
+    @Column(length = 36)
+    private String origin;
+
+    /**
+     * @param origin id of the recording process, see
+     *               {@link com.nelani.demo.outbox.OutboxRecorder#origin()}
+     */
+    public OutboxEvent(PaymentStatusChangedEvent event, String origin) {
+        this.orderId = event.orderId();
+        this.status = event.status();
+        this.previousStatus = event.previousStatus();
+        this.provider = event.provider();
+        this.previousProvider = event.previousProvider();
+        this.amount = event.amount();
+        this.currency = event.currency();
+        this.createdAt = event.createdAt();
+        this.occurredAt = event.occurredAt();
+        this.origin = origin;
+    }
+
+    public PaymentStatusChangedEvent toStatusChangedEvent() {
+        return new PaymentStatusChangedEvent(orderId, status, previousStatus, provider, previousProvider, amount,
+                currency, createdAt, occurredAt);
+    }
+}
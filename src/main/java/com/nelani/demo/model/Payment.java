@@ -1,11 +1,14 @@
 package com.nelani.demo.model;
 
+import com.nelani.demo.datasource.ShardedUuid;
+import com.nelani.demo.tenant.TenantRegistry;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.AbstractAggregateRoot;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -19,20 +22,33 @@ import java.util.UUID;
  * enforced through domain methods to maintain consistency.
  * <p>
  * Expiration is calculated internally and should not be modified directly.
+ * <p>
+ * Every status change registers a {@link PaymentStatusChangedEvent}, which is
+ * recorded in the outbox when the payment is saved.
  */
 @Entity
 @Table(name = "payments", indexes = {
         @Index(name = "idx_payment_order", columnList = "orderId"),
-        @Index(name = "idx_payment_status", columnList = "status")
+        @Index(name = "idx_payment_status", columnList = "status"),
+        @Index(name = "idx_payment_status_created", columnList = "status, createdAt"),
+        @Index(name = "idx_payment_provider_created", columnList = "provider, createdAt"),
+        @Index(name = "idx_payment_status_completed", columnList = "status, completedAt"),
+        @Index(name = "idx_payment_created", columnList = "createdAt")
 })
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-public class Payment {
+public class Payment extends AbstractAggregateRoot<Payment> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @ShardedUuid // Names the payment's shard, so lookups by id need no directory
     private UUID id;
 
+    // Merchant account whose provider credentials are used for this payment
+    @NotBlank
+    @Size(max = 64)
+    @Column(nullable = false, length = 64)
+    private String tenantId;
+
     @NotBlank(message = "Order ID is required")
     @Size(max = 100, message = "Order ID must not exceed 100 characters")
     @Column(nullable = false, unique = true)
@@ -44,6 +60,15 @@ public class Payment {
     @Column(nullable = false, precision = 12, scale = 2)
     private BigDecimal amount;
 
+    @NotNull(message = "Payment currency is required")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 3)
+    private CurrencyCode currency;
+
+    // Amount in minor units for the providers, derived once per instance, -1 until then
+    @Transient
+    private long amountMinorUnits = -1;
+
     @NotNull(message = "Payment status is required")
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
@@ -59,8 +84,9 @@ public class Payment {
     @Column(nullable = false)
     private OffsetDateTime createdAt;
 
+    // Only checked on insert: payments must still be updatable once expired
     @NotNull
-    @Future
+    @Future(groups = OnCreate.class)
     @Column(nullable = false)
     private OffsetDateTime expiresAt;
 
@@ -70,21 +96,69 @@ public class Payment {
     @Setter
     private String providerReference;
 
+    // Provider-hosted checkout page, if the provider has one (PayPal approval link)
+    @Setter
+    @Column(length = 2048)
+    private String checkoutUrl;
+
     /**
      * Creates a new payment with a default expiration of 1 day.
      *
+     * @param tenantId the merchant account
      * @param orderId  the unique order identifier
-     * @param amount   the payment amount
+     * @param amount   the payment amount and currency
      * @param status   the initial payment status
      * @param provider the payment provider
+     * @throws IllegalArgumentException if the provider does not take the
+     *                                  currency
      */
-    public Payment(String orderId, BigDecimal amount, PaymentStatus status, PaymentProviderType provider) {
+    public Payment(String tenantId, String orderId, Money amount, PaymentStatus status,
+            PaymentProviderType provider) {
+        if (!provider.supports(amount.currency())) {
+            throw new IllegalArgumentException(provider + " does not support " + amount.currency() + " payments");
+        }
+        this.tenantId = tenantId;
         this.orderId = orderId;
-        this.amount = amount;
-        this.status = status;
+        this.amount = amount.toBigDecimal();
+        this.currency = amount.currency();
+        this.amountMinorUnits = amount.minorUnits();
         this.provider = provider;
         this.createdAt = OffsetDateTime.now();
         this.expiresAt = calculateExpiration();
+        changeStatus(status);
+    }
+
+    /**
+     * Creates a new payment of the default merchant account.
+     */
+    public Payment(String orderId, Money amount, PaymentStatus status, PaymentProviderType provider) {
+        this(TenantRegistry.DEFAULT_TENANT, orderId, amount, status, provider);
+    }
+
+    /**
+     * Creates a new payment of the default merchant account in the provider's
+     * default currency.
+     *
+     * @throws IllegalArgumentException if the amount has more decimal places
+     *                                  than that currency
+     */
+    public Payment(String orderId, BigDecimal amount, PaymentStatus status, PaymentProviderType provider) {
+        this(orderId, Money.of(amount, provider.defaultCurrency()), status, provider);
+    }
+
+    /**
+     * Returns the amount in minor units of {@link #getCurrency()}, e.g. cents.
+     * Only the first call on a loaded payment converts the stored decimal.
+     */
+    public long getAmountMinorUnits() {
+        if (amountMinorUnits < 0) {
+            amountMinorUnits = Money.of(amount, currency).minorUnits();
+        }
+        return amountMinorUnits;
+    }
+
+    public Money getMoney() {
+        return new Money(getAmountMinorUnits(), currency);
     }
 
     /**
@@ -102,7 +176,7 @@ public class Payment {
      */
     public void expireIfNeeded() {
         if (status != PaymentStatus.EXPIRED && isExpired()) {
-            this.status = PaymentStatus.EXPIRED;
+            changeStatus(PaymentStatus.EXPIRED);
         }
     }
 
@@ -141,7 +215,7 @@ public class Payment {
         if (status == PaymentStatus.PENDING || status == PaymentStatus.SUCCESS) {
             throw new IllegalStateException("Cannot re-initiate an active or successful payment");
         }
-        this.status = PaymentStatus.INITIATING;
+        changeStatus(PaymentStatus.INITIATING);
     }
 
     /**
@@ -152,8 +226,9 @@ public class Payment {
      * @param type the payment provider
      */
     public void markPending(PaymentProviderType type) {
-        this.status = PaymentStatus.PENDING;
+        PaymentProviderType previousProvider = this.provider;
         this.provider = type;
+        changeStatus(PaymentStatus.PENDING, previousProvider);
     }
 
     /**
@@ -167,15 +242,35 @@ public class Payment {
         if (status == PaymentStatus.SUCCESS) {
             throw new IllegalStateException("Cannot fail a successful payment");
         }
-        this.status = PaymentStatus.FAILED;
+        changeStatus(PaymentStatus.FAILED);
     }
 
     /**
      * Marks the payment as SUCCESS and records the completion time.
      */
     public void markSuccess() {
-        this.status = PaymentStatus.SUCCESS;
         this.completedAt = OffsetDateTime.now();
+        changeStatus(PaymentStatus.SUCCESS);
+    }
+
+    /**
+     * Moves the payment to the given status and registers a
+     * {@link PaymentStatusChangedEvent} if the status actually changed.
+     *
+     * @param next the new status
+     */
+    private void changeStatus(PaymentStatus next) {
+        changeStatus(next, provider);
+    }
+
+    private void changeStatus(PaymentStatus next, PaymentProviderType previousProvider) {
+        if (status == next) {
+            return;
+        }
+        PaymentStatus previous = this.status;
+        this.status = next;
+        registerEvent(new PaymentStatusChangedEvent(orderId, next, previous, provider, previousProvider, amount,
+                currency, createdAt, OffsetDateTime.now()));
     }
 
     /**
@@ -188,4 +283,11 @@ public class Payment {
     private OffsetDateTime calculateExpiration() {
         return OffsetDateTime.now().plusDays(1);
     }
+
+    /**
+     * Validation group for constraints that only hold when a payment is first
+     * persisted.
+     */
+    public interface OnCreate {
+    }
 }
@@ -1,6 +1,51 @@
 package com.nelani.demo.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Payment providers. The codes are stored by the compact schema and, like
+ * {@link PaymentStatus} codes, must never change or be reused.
+ */
 public enum PaymentProviderType {
-    PAYPAL,
-    STRIPE,
+    // PayPal does not take ZAR or KRW payments
+    PAYPAL(1, CurrencyCode.USD, EnumSet.complementOf(EnumSet.of(CurrencyCode.ZAR, CurrencyCode.KRW))),
+    STRIPE(2, CurrencyCode.ZAR, EnumSet.allOf(CurrencyCode.class));
+
+    private static final PaymentProviderType[] BY_CODE = EnumCodes.index(values(), PaymentProviderType::code);
+
+    private final short code;
+
+    // Charged when a request names no currency, as before currencies could be chosen
+    private final CurrencyCode defaultCurrency;
+
+    private final Set<CurrencyCode> currencies;
+
+    PaymentProviderType(int code, CurrencyCode defaultCurrency, Set<CurrencyCode> currencies) {
+        this.code = (short) code;
+        this.defaultCurrency = defaultCurrency;
+        this.currencies = currencies;
+    }
+
+    public short code() {
+        return code;
+    }
+
+    public CurrencyCode defaultCurrency() {
+        return defaultCurrency;
+    }
+
+    /**
+     * Whether payments in {@code currency} can be charged with this provider.
+     */
+    public boolean supports(CurrencyCode currency) {
+        return currencies.contains(currency);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no provider has the code
+     */
+    public static PaymentProviderType fromCode(short code) {
+        return EnumCodes.lookup(BY_CODE, code, PaymentProviderType.class);
+    }
 }
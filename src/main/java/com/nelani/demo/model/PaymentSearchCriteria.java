@@ -0,0 +1,23 @@
+package com.nelani.demo.model;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Optional filters for searching payments. A {@code null} component means the
+ * filter is not applied; range bounds are inclusive.
+ */
+public record PaymentSearchCriteria(
+        PaymentStatus status,
+        PaymentProviderType provider,
+        OffsetDateTime createdFrom,
+        OffsetDateTime createdTo,
+        OffsetDateTime completedFrom,
+        OffsetDateTime completedTo,
+        BigDecimal minAmount,
+        BigDecimal maxAmount) {
+
+    public static PaymentSearchCriteria none() {
+        return new PaymentSearchCriteria(null, null, null, null, null, null, null, null);
+    }
+}
@@ -1,9 +1,37 @@
 package com.nelani.demo.model;
 
+/**
+ * Payment lifecycle states.
+ * <p>
+ * Each state has a fixed code stored by the compact schema (see
+ * {@code application-schema-compact.properties}). Codes must never change or
+ * be reused; new states take the next free one. The current codes follow the
+ * alphabetical order of the names, so sorting by the column gives the same
+ * order in both schemas.
+ */
 public enum PaymentStatus {
-    INITIATING,
-    PENDING,
-    SUCCESS,
-    FAILED,
-    EXPIRED
+    INITIATING(3),
+    PENDING(4),
+    SUCCESS(5),
+    FAILED(2),
+    EXPIRED(1);
+
+    private static final PaymentStatus[] BY_CODE = EnumCodes.index(values(), PaymentStatus::code);
+
+    private final short code;
+
+    PaymentStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short code() {
+        return code;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no status has the code
+     */
+    public static PaymentStatus fromCode(short code) {
+        return EnumCodes.lookup(BY_CODE, code, PaymentStatus.class);
+    }
 }
@@ -0,0 +1,24 @@
+package com.nelani.demo.model;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Domain event registered by {@link Payment} whenever its status changes.
+ * <p>
+ * Published by Spring Data when the payment is saved, i.e. inside the
+ * transaction that performs the change. {@code previousStatus} is
+ * {@code null} for a newly created payment; {@code previousProvider} differs
+ * from {@code provider} only when the change also switched providers.
+ */
+public record PaymentStatusChangedEvent(
+        String orderId,
+        PaymentStatus status,
+        PaymentStatus previousStatus,
+        PaymentProviderType provider,
+        PaymentProviderType previousProvider,
+        BigDecimal amount,
+        CurrencyCode currency,
+        OffsetDateTime createdAt,
+        OffsetDateTime occurredAt) {
+}
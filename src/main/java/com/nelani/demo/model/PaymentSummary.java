@@ -0,0 +1,60 @@
+package com.nelani.demo.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable read model of a {@link Payment} used by listing queries.
+ * <p>
+ * Instances are built directly by a JPQL constructor expression, so rows are
+ * never attached to the persistence context and no dirty-checking snapshot is
+ * kept for them.
+ */
+public record PaymentSummary(
+        String orderId,
+        BigDecimal amount,
+        CurrencyCode currency,
+        PaymentStatus status,
+        PaymentProviderType provider,
+        OffsetDateTime createdAt,
+        OffsetDateTime expiresAt,
+        OffsetDateTime completedAt) {
+
+    // Sort properties compared the way H2 orders the columns: enums by name, nulls lowest
+    @SuppressWarnings("rawtypes")
+    private static final Map<String, Function<PaymentSummary, Comparable>> SORT_KEYS = Map.of(
+            "orderId", PaymentSummary::orderId,
+            "amount", PaymentSummary::amount,
+            "status", summary -> summary.status().name(),
+            "provider", summary -> summary.provider().name(),
+            "createdAt", PaymentSummary::createdAt,
+            "expiresAt", PaymentSummary::expiresAt,
+            "completedAt", PaymentSummary::completedAt);
+
+    /**
+     * Orders summaries the way the database orders their rows for the same
+     * sort, for merging sorted runs read from several tables or shards.
+     *
+     * @throws IllegalArgumentException if a sort property is not a summary
+     *                                  column
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static Comparator<PaymentSummary> comparator(Sort sort) {
+        Comparator<PaymentSummary> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            Function<PaymentSummary, Comparable> key = SORT_KEYS.get(order.getProperty());
+            if (key == null) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            }
+            Comparator<PaymentSummary> byKey = Comparator.comparing(key,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byKey : byKey.reversed());
+        }
+        return comparator;
+    }
+}
@@ -0,0 +1,103 @@
+package com.nelani.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Token bucket of one merchant account's calls to one provider, shared by
+ * every node.
+ * <p>
+ * Tokens accrue at {@code ratePerSecond} up to the burst size. That rate
+ * starts at the configured limit, is halved whenever the provider answers
+ * 429, and climbs back linearly afterwards. While {@code blockedUntil} lies
+ * ahead, no tokens accrue or are handed out.
+ * <p>
+ * A row of {@code provider_quota}, read and written with plain JDBC by
+ * {@link com.nelani.demo.repository.ProviderQuotaBucketRepository}.
+ */
+@Getter
+@AllArgsConstructor
+public class ProviderQuotaBucket {
+
+    private final PaymentProviderType provider;
+    private final String tenantId;
+    private double tokens;
+    private double ratePerSecond;
+    private OffsetDateTime refilledAt;
+    private OffsetDateTime blockedUntil;
+
+    /**
+     * A new bucket, full.
+     */
+    public ProviderQuotaBucket(PaymentProviderType provider, String tenantId, double ratePerSecond, int burst,
+            OffsetDateTime now) {
+        this.provider = provider;
+        this.tenantId = tenantId;
+        this.tokens = burst;
+        this.ratePerSecond = ratePerSecond;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes up to {@code max} whole tokens.
+     *
+     * @param maxRate        the configured rate, which the learned rate climbs
+     *                       back to
+     * @param rateIncrease   how much the learned rate climbs per second
+     * @return the tokens taken, possibly none
+     */
+    public int take(int max, OffsetDateTime now, double maxRate, int burst, double rateIncrease) {
+        refill(now, maxRate, burst, rateIncrease);
+        int taken = (int) Math.min(max, Math.floor(tokens));
+        tokens -= taken;
+        return taken;
+    }
+
+    /**
+     * How long until the next whole token, after {@link #take}.
+     */
+    public Duration untilNextToken(OffsetDateTime now) {
+        if (isBlocked(now)) {
+            return Duration.between(now, blockedUntil);
+        }
+        double seconds = Math.max(0, 1 - tokens) / ratePerSecond;
+        return Duration.ofNanos((long) Math.ceil(seconds * 1_000_000_000));
+    }
+
+    /**
+     * Records a 429 from the provider: drops the tokens left and blocks the
+     * bucket for {@code retryAfter}. The rate is halved once per block, so
+     * the other nodes' 429s from the same burst do not halve it again.
+     */
+    public void throttle(OffsetDateTime now, Duration retryAfter, double minRate) {
+        if (!isBlocked(now)) {
+            ratePerSecond = Math.max(minRate, ratePerSecond / 2);
+        }
+        tokens = 0;
+        refilledAt = now;
+        OffsetDateTime until = now.plus(retryAfter);
+        if (blockedUntil == null || until.isAfter(blockedUntil)) {
+            blockedUntil = until;
+        }
+    }
+
+    private void refill(OffsetDateTime now, double maxRate, int burst, double rateIncrease) {
+        if (isBlocked(now)) {
+            return;
+        }
+        // From the end of a block, not from before it
+        OffsetDateTime from = blockedUntil != null && blockedUntil.isAfter(refilledAt) ? blockedUntil : refilledAt;
+        double seconds = Math.max(0, Duration.between(from, now).toNanos() / 1e9);
+        tokens = Math.min(burst, tokens + seconds * ratePerSecond);
+        ratePerSecond = Math.min(maxRate, ratePerSecond + seconds * rateIncrease);
+        refilledAt = now;
+        blockedUntil = null;
+    }
+
+    private boolean isBlocked(OffsetDateTime now) {
+        return blockedUntil != null && now.isBefore(blockedUntil);
+    }
+}
@@ -0,0 +1,63 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Where a reconciliation pass over stale payments got to.
+ * <p>
+ * A pass walks payments in (createdAt, id) order and records the last one it
+ * handled after every chunk, so a restarted node carries on from there
+ * instead of starting over.
+ */
+@Entity
+@Table(name = "payment_reconciliation_checkpoint")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ReconciliationCheckpoint {
+
+    @Id
+    @Column(length = 50)
+    private String job;
+
+    // Staleness cutoff of the pass in progress, null when no pass is running
+    private OffsetDateTime createdBefore;
+
+    private OffsetDateTime cursorCreatedAt;
+
+    private UUID cursorId;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+
+    public ReconciliationCheckpoint(String job) {
+        this.job = job;
+        this.updatedAt = OffsetDateTime.now();
+    }
+
+    public boolean isInProgress() {
+        return createdBefore != null;
+    }
+
+    public void start(OffsetDateTime createdBefore) {
+        this.createdBefore = createdBefore;
+        this.cursorCreatedAt = null;
+        this.cursorId = null;
+        this.updatedAt = OffsetDateTime.now();
+    }
+
+    public void advance(Payment lastHandled) {
+        this.cursorCreatedAt = lastHandled.getCreatedAt();
+        this.cursorId = lastHandled.getId();
+        this.updatedAt = OffsetDateTime.now();
+    }
+
+    public void finish() {
+        start(null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.nelani.demo.model;
+
+/**
+ * A {@link PaymentStatusChangedEvent} committed on another node, replayed on
+ * this node's event bus by {@link com.nelani.demo.outbox.OutboxTail}.
+ * <p>
+ * Published outside any transaction, for plain {@code @EventListener}s. Rows
+ * recorded before V15 carry only the new status, so {@code previousStatus},
+ * {@code previousProvider}, {@code currency} and {@code createdAt} may be
+ * {@code null}.
+ */
+public record RemotePaymentStatusChangedEvent(PaymentStatusChangedEvent change) {
+}
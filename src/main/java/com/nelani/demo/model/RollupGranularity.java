@@ -0,0 +1,25 @@
+package com.nelani.demo.model;
+
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+
+    HOURLY("payment_rollup_hourly", ChronoUnit.HOURS),
+    DAILY("payment_rollup_daily", ChronoUnit.DAYS);
+
+    private final String tableName;
+    private final ChronoUnit unit;
+
+    RollupGranularity(String tableName, ChronoUnit unit) {
+        this.tableName = tableName;
+        this.unit = unit;
+    }
+
+    public String tableName() {
+        return tableName;
+    }
+
+    public ChronoUnit unit() {
+        return unit;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nelani.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A verified provider webhook waiting to be applied to its payment.
+ * <p>
+ * Accepting a webhook only inserts this row, so providers get their
+ * acknowledgement without waiting on the payment update. The unique
+ * (provider, eventId) key turns redeliveries of the same event into no-ops.
+ * <p>
+ * The id gives the arrival order. Like the outbox id it is drawn from the
+ * sequence one value at a time, so it holds across nodes.
+ */
+@Entity
+@Table(name = "webhook_inbox", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_webhook_inbox_event", columnNames = { "provider", "eventId" })
+}, indexes = {
+        @Index(name = "idx_webhook_inbox_unprocessed", columnList = "processedAt, id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class WebhookInboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_inbox_seq")
+    @SequenceGenerator(name = "webhook_inbox_seq", sequenceName = "webhook_inbox_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentProviderType provider;
+
+    @Column(nullable = false)
+    private String eventId;
+
+    // Merchant account whose endpoint received the webhook
+    @Column(nullable = false, length = 64)
+    private String tenantId;
+
+    @Column(nullable = false)
+    private UUID paymentId;
+
+    @Column(nullable = false)
+    private boolean success;
+
+    @Column(nullable = false)
+    private OffsetDateTime receivedAt;
+
+    private OffsetDateTime processedAt;
+
+    public WebhookInboxEvent(PaymentProviderType provider, String tenantId, String eventId, UUID paymentId,
+            boolean success) {
+        this.provider = provider;
+        this.tenantId = tenantId;
+        this.eventId = eventId;
+        this.paymentId = paymentId;
+        this.success = success;
+        this.receivedAt = OffsetDateTime.now();
+    }
+
+    public void markProcessed(OffsetDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nelani.demo.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Stores an {@link OffsetDateTime} as microseconds since the epoch, UTC, the
+ * same precision as the {@code TIMESTAMP(6)} columns it replaces. Values read
+ * back are in UTC. Only applied by the compact schema mapping
+ * ({@code META-INF/orm-compact.xml}).
+ */
+@Converter
+public class EpochMicrosConverter implements AttributeConverter<OffsetDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(OffsetDateTime time) {
+        if (time == null) {
+            return null;
+        }
+        return toEpochMicros(time.toInstant());
+    }
+
+    @Override
+    public OffsetDateTime convertToEntityAttribute(Long micros) {
+        if (micros == null) {
+            return null;
+        }
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                Math.floorMod(micros, 1_000_000L) * 1_000L), ZoneOffset.UTC);
+    }
+
+    public static long toEpochMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+}
@@ -0,0 +1,24 @@
+package com.nelani.demo.model.converter;
+
+import com.nelani.demo.model.PaymentProviderType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a {@link PaymentProviderType} as its
+ * {@link PaymentProviderType#code() code}. Only applied by the compact schema
+ * mapping ({@code META-INF/orm-compact.xml}).
+ */
+@Converter
+public class PaymentProviderCodeConverter implements AttributeConverter<PaymentProviderType, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(PaymentProviderType provider) {
+        return provider == null ? null : provider.code();
+    }
+
+    @Override
+    public PaymentProviderType convertToEntityAttribute(Short code) {
+        return code == null ? null : PaymentProviderType.fromCode(code);
+    }
+}
@@ -0,0 +1,23 @@
+package com.nelani.demo.model.converter;
+
+import com.nelani.demo.model.PaymentStatus;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a {@link PaymentStatus} as its {@link PaymentStatus#code() code}.
+ * Only applied by the compact schema mapping ({@code META-INF/orm-compact.xml}).
+ */
+@Converter
+public class PaymentStatusCodeConverter implements AttributeConverter<PaymentStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(PaymentStatus status) {
+        return status == null ? null : status.code();
+    }
+
+    @Override
+    public PaymentStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : PaymentStatus.fromCode(code);
+    }
+}
@@ -0,0 +1,30 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.dto.PaymentEventMessage;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Hands relayed events to in-process {@code @EventListener} methods accepting
+ * {@link PaymentEventMessage}. Listeners run on the relay thread, after the
+ * originating transaction has committed.
+ */
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher publisher;
+
+    public ApplicationEventOutboxSink(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String name() {
+        return "listener";
+    }
+
+    @Override
+    public void publish(List<PaymentEventMessage> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
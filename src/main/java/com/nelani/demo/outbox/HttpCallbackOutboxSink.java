@@ -0,0 +1,38 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.dto.PaymentEventMessage;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * POSTs each batch as a JSON array to a callback URL. Any non-2xx response
+ * fails the batch so that it is retried on the next relay run.
+ */
+public class HttpCallbackOutboxSink implements OutboxSink {
+
+    private final RestClient restClient;
+    private final URI url;
+
+    public HttpCallbackOutboxSink(RestClient restClient, URI url) {
+        this.restClient = restClient;
+        this.url = url;
+    }
+
+    @Override
+    public String name() {
+        return "http";
+    }
+
+    @Override
+    public void publish(List<PaymentEventMessage> events) {
+        restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(events)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
@@ -0,0 +1,43 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.model.OutboxEvent;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.repository.OutboxEventRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Writes every {@link PaymentStatusChangedEvent} to the outbox table.
+ * <p>
+ * The listener joins the transaction that saved the payment and refuses to run
+ * without one, so a change and its outbox row always commit or roll back
+ * together. Rows are tagged with {@link #origin()}, so this process's
+ * {@link OutboxTail} can tell them from other nodes' changes.
+ */
+@Component
+public class OutboxRecorder {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final String origin = UUID.randomUUID().toString();
+
+    public OutboxRecorder(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void on(PaymentStatusChangedEvent event) {
+        outboxEventRepository.save(new OutboxEvent(event, origin));
+    }
+
+    /**
+     * Random id of this process, recorded on every outbox row it writes.
+     */
+    public String origin() {
+        return origin;
+    }
+}
@@ -0,0 +1,160 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.coordination.Lease;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentEventMessage;
+import com.nelani.demo.exception.LeaseLostException;
+import com.nelani.demo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Drains the payment outbox in batches and pushes the events to every
+ * configured {@link OutboxSink}.
+ * <p>
+ * Events are read in id order and a batch is only marked published after all
+ * sinks accepted it. A failing sink leaves the batch in place and stops the
+ * run, so later events of the same order are never delivered ahead of earlier
+ * ones. Delivery is therefore ordered per order and at-least-once.
+ * <p>
+ * Only one relay may drain a given outbox at a time: runs are skipped unless
+ * this node holds the relay's job lease, and a batch is only marked published
+ * while it still does. With sharded payments, each shard's outbox is relayed
+ * on its own, under its own lease, so ordering holds per order as before.
+ * <p>
+ * Metrics:
+ * <ul>
+ * <li>{@code payments.outbox.relayed}: events delivered (throughput)</li>
+ * <li>{@code payments.outbox.relay.lag}: time from status change to delivery</li>
+ * <li>{@code payments.outbox.relay.failures}: failed deliveries, tagged by sink</li>
+ * <li>{@code payments.outbox.pending}: events waiting in the outbox</li>
+ * </ul>
+ */
+@Log4j2
+public class OutboxRelay {
+
+    static final String JOB = "outbox-relay";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final JobCoordinator coordinator;
+    private final PaymentShards shards;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final Counter relayed;
+    private final Timer lag;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, List<OutboxSink> sinks,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, JobCoordinator coordinator,
+            PaymentShards shards, int batchSize, Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sinks = List.copyOf(sinks);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.coordinator = coordinator;
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.retention = retention;
+
+        this.relayed = meterRegistry.counter("payments.outbox.relayed");
+        this.lag = Timer.builder("payments.outbox.relay.lag")
+                .description("Time from a payment status change to its delivery")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("payments.outbox.pending", () -> shards.gather(outboxEventRepository::countByPublishedAtIsNull)
+                .stream().mapToLong(Long::longValue).sum())
+                .description("Payment events waiting in the outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Delivers batches until the outbox is empty or a sink fails.
+     *
+     * @return the number of events delivered in this run, 0 if other nodes
+     *         relay
+     */
+    @Scheduled(fixedDelayString = "${payments.outbox.relay.interval:500}")
+    public int relay() {
+        return shards.sum(this::relayShard);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.outbox.purge-interval:3600000}")
+    public void purgePublished() {
+        shards.forEach(shard -> purgeShard());
+    }
+
+    private int relayShard() {
+        Optional<Lease> lease = coordinator.lead(JOB);
+        if (lease.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        int delivered;
+        try {
+            do {
+                delivered = relayBatch(lease.get());
+                total += delivered;
+            } while (delivered == batchSize);
+        } catch (LeaseLostException e) {
+            log.warn("Outbox relay taken over by another node, its last batch will be delivered again", e);
+        }
+        return total;
+    }
+
+    private void purgeShard() {
+        if (coordinator.lead(JOB).isEmpty()) {
+            return;
+        }
+        Integer purged = transactionTemplate.execute(status -> outboxEventRepository
+                .deletePublishedBefore(OffsetDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Purged published outbox events [count={}]", purged);
+        }
+    }
+
+    private int relayBatch(Lease lease) {
+        List<PaymentEventMessage> batch = transactionTemplate
+                .execute(status -> outboxEventRepository.findUnpublished(Limit.of(batchSize)));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(batch);
+            } catch (RuntimeException e) {
+                meterRegistry.counter("payments.outbox.relay.failures", "sink", sink.name()).increment();
+                log.warn("Outbox sink failed, batch will be retried [sink={}, firstId={}, size={}]",
+                        sink.name(), batch.getFirst().id(), batch.size(), e);
+                return 0;
+            }
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Long> ids = batch.stream().map(PaymentEventMessage::id).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxEventRepository.markPublished(ids, now);
+            coordinator.fence(lease);
+        });
+
+        relayed.increment(batch.size());
+        batch.forEach(event -> lag.record(Duration.between(event.occurredAt(), now)));
+        return batch.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.dto.PaymentEventMessage;
+
+import java.util.List;
+
+/**
+ * Destination for relayed payment events.
+ * <p>
+ * Delivery is at-least-once: when any sink throws, the whole batch stays in the
+ * outbox and is offered again, also to sinks that already accepted it.
+ * Implementations receive events in outbox order and must not reorder events
+ * of the same order.
+ */
+public interface OutboxSink {
+
+    /**
+     * @return short name used in logs and metric tags
+     */
+    String name();
+
+    void publish(List<PaymentEventMessage> events);
+}
@@ -0,0 +1,149 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.OutboxEvent;
+import com.nelani.demo.model.RemotePaymentStatusChangedEvent;
+import com.nelani.demo.repository.OutboxEventRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Replays the payment status changes other nodes commit on this node's
+ * in-process event bus, so SSE streams, gRPC watchers and the in-memory stats
+ * see every change, not only the ones made here.
+ * <p>
+ * A {@code PaymentStatusChangedEvent} reaches the listeners of the node that
+ * made the change only, and webhooks, expiry and reconciliation run on
+ * whichever node holds their job lease. Every node therefore reads the outbox
+ * past the highest id it has seen and publishes the rows other processes
+ * recorded as {@link RemotePaymentStatusChangedEvent}s. Its own rows are
+ * skipped, they already went through the bus.
+ * <p>
+ * Ids are drawn before commit, so a change can become visible after a higher
+ * id did. Ids passed over are kept as gaps and looked up again on every run
+ * until they show up or {@code gapTimeout} has passed, which covers rolled
+ * back changes and unused sequence values. A node starts at the end of the
+ * outbox: a stream opens with a snapshot, and the stats reconciliation counts
+ * what came before.
+ * <p>
+ * With sharded payments, each shard's outbox is tailed on its own.
+ */
+@Log4j2
+public class OutboxTail {
+
+    // A wider jump is a sequence gap, such as after a database restart, not changes still committing
+    private static final int MAX_GAP = 1_000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentShards shards;
+    private final String origin;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Clock clock;
+
+    private final Position[] positions;
+
+    // How far one shard's outbox has been read
+    private static final class Position {
+        private long after = -1;
+        // Ids passed over, with when they were first missed
+        private final Map<Long, Instant> gaps = new TreeMap<>();
+    }
+
+    /**
+     * @param origin this process's id on the outbox rows, see
+     *               {@link OutboxRecorder#origin()}
+     */
+    public OutboxTail(OutboxEventRepository outboxEventRepository, ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager, PaymentShards shards, String origin, int batchSize,
+            Duration gapTimeout, Clock clock) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.origin = origin;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.clock = clock;
+        this.positions = IntStream.range(0, shards.count()).mapToObj(shard -> new Position())
+                .toArray(Position[]::new);
+    }
+
+    /**
+     * Publishes the other nodes' changes that committed since the last run.
+     *
+     * @return the number of changes published
+     */
+    @Scheduled(fixedDelayString = "${payments.events.tail-interval:500}")
+    public synchronized int poll() {
+        AtomicInteger published = new AtomicInteger();
+        shards.forEach(shard -> published.addAndGet(pollShard(positions[shard])));
+        return published.get();
+    }
+
+    private int pollShard(Position position) {
+        if (position.after < 0) {
+            position.after = transactionTemplate.execute(status -> outboxEventRepository.findMaxId());
+            return 0;
+        }
+        Instant now = clock.instant();
+        position.gaps.values().removeIf(missedAt -> !now.isBefore(missedAt.plus(gapTimeout)));
+
+        int published = 0;
+        if (!position.gaps.isEmpty()) {
+            List<OutboxEvent> late = transactionTemplate
+                    .execute(status -> outboxEventRepository.findByIdInOrderById(position.gaps.keySet()));
+            for (OutboxEvent event : late) {
+                position.gaps.remove(event.getId());
+                published += publish(event);
+            }
+        }
+
+        List<OutboxEvent> batch;
+        do {
+            long after = position.after;
+            batch = transactionTemplate
+                    .execute(status -> outboxEventRepository.findByIdGreaterThanOrderById(after, Limit.of(batchSize)));
+            for (OutboxEvent event : batch) {
+                long missed = event.getId() - position.after - 1;
+                if (missed > 0 && missed <= MAX_GAP) {
+                    for (long id = position.after + 1; id < event.getId(); id++) {
+                        position.gaps.put(id, now);
+                    }
+                }
+                position.after = event.getId();
+                published += publish(event);
+            }
+        } while (batch.size() == batchSize);
+        return published;
+    }
+
+    private int publish(OutboxEvent event) {
+        if (origin.equals(event.getOrigin())) {
+            return 0;
+        }
+        try {
+            publisher.publishEvent(new RemotePaymentStatusChangedEvent(event.toStatusChangedEvent()));
+        } catch (RuntimeException e) {
+            // One failing listener must not hold back the changes after it
+            log.warn("Replaying a payment status change failed [id={}, orderId={}]", event.getId(),
+                    event.getOrderId(), e);
+        }
+        return 1;
+    }
+}
@@ -1,45 +1,88 @@
 package com.nelani.demo.provider;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nelani.demo.dto.PaymentResponseDTO;
 import com.nelani.demo.dto.WebhookResult;
 import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.exception.ProviderQuotaExceededException;
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
-import com.paypal.core.PayPalHttpClient;
-import com.paypal.core.PayPalEnvironment;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.quota.ProviderQuota;
+import com.nelani.demo.tenant.TenantClientCache;
+import com.nelani.demo.tenant.TenantRegistry;
+import com.paypal.http.exceptions.HttpException;
 import com.paypal.orders.AmountWithBreakdown;
 import com.paypal.orders.OrderRequest;
 import com.paypal.orders.OrdersCreateRequest;
 import com.paypal.orders.PurchaseUnitRequest;
 import com.paypal.orders.*;
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
-// Polymorphism: PayPal-specific implementation of the PaymentProvider interface
+// Polymorphism: PayPal-specific implementation of the PaymentProvider interface.
+// Every call goes through the payment's merchant account client, see PayPalTenantClient.
 @Log4j2
 @Service
 public class PayPalProvider implements PaymentProvider {
 
-        @Value("${paypal.client-id}")
-        private String clientId;
+        private static final ObjectMapper MAPPER = new ObjectMapper();
 
-        @Value("${paypal.client-secret}")
-        private String clientSecret;
+        private static final String APPROVED = "CHECKOUT.ORDER.APPROVED";
 
-        private PayPalHttpClient client;
+        // Shape of a real PAYMENT.CAPTURE.COMPLETED event, trimmed to the fields webhooks read
+        private static final String WARM_UP_EVENT = """
+                        {"id": "WH-WARMUP-%d", "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                         "resource": {"id": "CAPTURE-WARMUP", "status": "COMPLETED", "custom_id": "%s"}}""";
 
-        @PostConstruct
-        public void init() {
-                PayPalEnvironment env = new PayPalEnvironment.Sandbox(clientId, clientSecret);
-                client = new PayPalHttpClient(env);
+        private final TenantClientCache<PayPalTenantClient> clients;
+
+        // Shared by all merchant accounts, which only differ in their webhook id
+        private final PayPalWebhookVerifier webhookVerifier;
+
+        private final ProviderQuota quota;
+
+        @Autowired
+        public PayPalProvider(TenantRegistry tenants, MeterRegistry meterRegistry, ProviderQuota quota,
+                        @Value("${paypal.webhook.max-clock-skew:PT5M}") Duration maxClockSkew) {
+                this(new TenantClientCache<>(PaymentProviderType.PAYPAL.name(),
+                                tenantId -> PayPalTenantClient.create(tenants.paypal(tenantId), tenants.properties()),
+                                tenants.properties().maxClients(), tenants.properties().idleTimeout(),
+                                Clock.systemUTC(), meterRegistry),
+                                new PayPalWebhookVerifier(null, maxClockSkew, PayPalWebhookVerifier::download,
+                                                Clock.systemUTC()),
+                                quota);
+        }
+
+        PayPalProvider(TenantClientCache<PayPalTenantClient> clients, PayPalWebhookVerifier webhookVerifier,
+                        ProviderQuota quota) {
+                this.clients = clients;
+                this.webhookVerifier = webhookVerifier;
+                this.quota = quota;
+        }
+
+        @PreDestroy
+        public void close() {
+                clients.clear();
         }
 
         @Override
@@ -52,8 +95,13 @@ public class PayPalProvider implements PaymentProvider {
         public PaymentResponseDTO createPayment(Payment payment) {
 
                 // High-level audit log: helps trace payment flow in prod logs
-                log.info("Creating PayPal order [paymentId={}, orderId={}]",
-                                payment.getId(), payment.getOrderId());
+                log.info("Creating PayPal order [paymentId={}, orderId={}, tenant={}]",
+                                payment.getId(), payment.getOrderId(), payment.getTenantId());
+
+                // Unknown merchant accounts are rejected before anything is sent
+                PayPalTenantClient client = clients.get(payment.getTenantId());
+                // Every attempt, retries included, counts against the account's cluster-wide quota
+                quota.acquire(getType(), payment.getTenantId(), 1);
 
                 try {
 
@@ -69,9 +117,11 @@ public class PayPalProvider implements PaymentProvider {
                                                         .shippingPreference("NO_SHIPPING"));
 
                         // Core monetary object used consistently across PayPal structures
+                        String currency = payment.getCurrency().name();
+                        String value = payment.getMoney().toPlainString();
                         Money money = new Money()
-                                        .currencyCode("USD")
-                                        .value(payment.getAmount().toPlainString());
+                                        .currencyCode(currency)
+                                        .value(value);
 
                         // Represents a single logical item on the PayPal invoice
                         Item item = new Item()
@@ -85,8 +135,8 @@ public class PayPalProvider implements PaymentProvider {
 
                         // Final amount PayPal will charge
                         AmountWithBreakdown amount = new AmountWithBreakdown()
-                                        .currencyCode("USD")
-                                        .value(payment.getAmount().toPlainString())
+                                        .currencyCode(currency)
+                                        .value(value)
                                         .amountBreakdown(breakdown);
 
                         PurchaseUnitRequest purchaseUnit = new PurchaseUnitRequest()
@@ -106,11 +156,20 @@ public class PayPalProvider implements PaymentProvider {
 
                         log.info("PayPal order created successfully [paypalOrderId={}]", order.id());
 
+                        // The buyer approves the order on this page; kept so resume needs no PayPal call
+                        String approvalLink = order.links().stream()
+                                        .filter(link -> "approve".equals(link.rel()) || "payer-action".equals(link.rel()))
+                                        .map(LinkDescription::href)
+                                        .findFirst()
+                                        .orElseThrow(() -> new IllegalStateException("PayPal order has no approval link"));
+                        payment.setCheckoutUrl(approvalLink);
+
                         return new PaymentResponseDTO(
                                         payment.getOrderId(),
                                         order.id(),
-                                        order.id(),
+                                        approvalLink,
                                         payment.getAmount(),
+                                        payment.getCurrency(),
                                         getType(),
                                         null,
                                         null,
@@ -120,6 +179,14 @@ public class PayPalProvider implements PaymentProvider {
                 }
                 // Network issues, timeouts, DNS, SSL handshake problems, etc.
                 catch (IOException e) {
+                        if (isRateLimited(e)) {
+                                log.warn("PayPal rate limit reached [paymentId={}, tenant={}]", payment.getId(),
+                                                payment.getTenantId(), e);
+                                Duration retryAfter = retryAfter((HttpException) e);
+                                quota.rateLimited(getType(), payment.getTenantId(), retryAfter);
+                                throw new ProviderQuotaExceededException("PayPal is rate limiting this merchant account. "
+                                                + "Please try again shortly.", retryAfter);
+                        }
                         log.warn("PayPal network failure [paymentId={}, orderId={}]",
                                         payment.getId(), payment.getOrderId(), e);
 
@@ -150,12 +217,223 @@ public class PayPalProvider implements PaymentProvider {
         @Override
         @Retryable(retryFor = PaymentProviderTemporaryException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
         public PaymentResponseDTO resumePayment(Payment payment) {
-                return null;
+
+                log.info("Resuming PayPal payment [paymentId={}, orderId={}, paypalOrderId={}]",
+                                payment.getId(), payment.getOrderId(), payment.getProviderReference());
+
+                /*
+                 * The approval link stored at creation stays valid for the life of the
+                 * order, so resuming is a local lookup. Completion is picked up by the
+                 * webhook (or reconciliation), not here.
+                 */
+                if (payment.getProviderReference() == null || payment.getCheckoutUrl() == null) {
+                        throw new IllegalStateException("PayPal approval link is not available for this payment");
+                }
+
+                return new PaymentResponseDTO(
+                                payment.getOrderId(),
+                                payment.getProviderReference(),
+                                payment.getCheckoutUrl(),
+                                payment.getAmount(),
+                                payment.getCurrency(),
+                                getType(),
+                                null,
+                                null,
+                                null,
+                                null);
+        }
+
+        @Override
+        public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
+
+                // Local signature check against PayPal's cached certificate and the account's webhook id
+                webhookVerifier.verify(clients.get(tenantId).webhookId(), payload, headers);
+                JsonNode event = readEvent(payload);
+
+                // Buyer approved: capture now, the capture result settles the payment
+                if (APPROVED.equals(event.path("event_type").asText())) {
+                        Optional<Boolean> captured = capture(clients.get(tenantId),
+                                        event.path("resource").path("id").asText());
+                        if (captured.isEmpty()) {
+                                return new WebhookResult(null, false, false, event.path("id").asText(null));
+                        }
+                        return toResult(event, captured.get());
+                }
+                return interpret(event);
+        }
+
+        /**
+         * Never calls PayPal: a replayed approval is skipped, since capturing
+         * is a live action; the archived capture event settles the payment.
+         */
+        @Override
+        public WebhookResult parseWebhook(String tenantId, String payload) {
+                return interpret(readEvent(payload));
+        }
+
+        private static JsonNode readEvent(String payload) {
+                JsonNode event;
+                try {
+                        event = MAPPER.readTree(payload);
+                } catch (JsonProcessingException e) {
+                        throw new IllegalArgumentException("Malformed PayPal webhook payload");
+                }
+                log.info("PayPal webhook received [eventId={}, type={}]", event.path("id").asText(null),
+                                event.path("event_type").asText());
+                return event;
+        }
+
+        private static WebhookResult interpret(JsonNode event) {
+                String eventType = event.path("event_type").asText();
+
+                boolean success;
+                switch (eventType) {
+
+                        case "PAYMENT.CAPTURE.COMPLETED" -> success = true;
+
+                        case "PAYMENT.CAPTURE.DENIED",
+                                        "PAYMENT.CAPTURE.DECLINED",
+                                        "CHECKOUT.PAYMENT-APPROVAL.REVERSED" -> success = false;
+
+                        default -> {
+                                log.debug("Unhandled PayPal webhook event type [type={}]", eventType);
+                                return new WebhookResult(null, false, false, event.path("id").asText(null));
+                        }
+                }
+                return toResult(event, success);
         }
 
+        private static WebhookResult toResult(JsonNode event, boolean success) {
+                String eventId = event.path("id").asText(null);
+                JsonNode resource = event.path("resource");
+
+                /*
+                 * createPayment stores our payment id as the purchase unit custom_id;
+                 * capture resources carry it at the top level.
+                 */
+                String customId = resource.path("custom_id").asText(
+                                resource.path("purchase_units").path(0).path("custom_id").asText(null));
+                if (customId == null) {
+                        log.warn("PayPal webhook missing custom_id [eventId={}]", eventId);
+                        return new WebhookResult(null, false, false, eventId);
+                }
+
+                try {
+                        return new WebhookResult(UUID.fromString(customId), success, true, eventId);
+                } catch (IllegalArgumentException e) {
+                        log.warn("Invalid paymentId in PayPal custom_id [value={}, eventId={}]", customId, eventId);
+                        return new WebhookResult(null, false, false, eventId);
+                }
+        }
+
+        // Fetches the account's access token, which the SDK caches for its first order
+        @Override
+        public void preconnect(String tenantId) {
+                try {
+                        clients.get(tenantId).preconnect();
+                } catch (IOException e) {
+                        throw new IllegalStateException("PayPal unreachable for tenant " + tenantId, e);
+                }
+        }
+
+        /*
+         * Parses synthetic capture events the way interpret does, without its
+         * per-event logging, and runs the signature check on one of them.
+         */
+        @Override
+        public void warmUpWebhooks(int iterations) {
+                for (int i = 0; i < iterations; i++) {
+                        JsonNode event;
+                        try {
+                                event = MAPPER.readTree(WARM_UP_EVENT.formatted(i, UUID.randomUUID()));
+                        } catch (JsonProcessingException e) {
+                                throw new IllegalStateException("Malformed synthetic PayPal event", e);
+                        }
+                        UUID.fromString(event.path("resource").path("custom_id").asText());
+                }
+                webhookVerifier.warmUp(WARM_UP_EVENT.formatted(0, UUID.randomUUID()), iterations);
+        }
+
+        /**
+         * PayPal has no bulk order lookup, so each payment is fetched on its own
+         * (the default batch size of one).
+         */
         @Override
-        public WebhookResult handleWebhook(String payload, String signature) {
-                return null;
+        public Map<UUID, PaymentStatus> fetchOutcomes(List<Payment> payments) {
+                Map<UUID, PaymentStatus> outcomes = new HashMap<>();
+                for (Payment payment : payments) {
+                        if (payment.getProviderReference() == null) {
+                                continue;
+                        }
+                        try {
+                                Order order = clients.get(payment.getTenantId())
+                                                .execute(new OrdersGetRequest(payment.getProviderReference()))
+                                                .result();
+                                switch (order.status()) {
+                                        case "COMPLETED" -> outcomes.put(payment.getId(), PaymentStatus.SUCCESS);
+                                        case "VOIDED" -> outcomes.put(payment.getId(), PaymentStatus.FAILED);
+                                        default -> {
+                                        }
+                                }
+                        } catch (IOException e) {
+                                if (isRateLimited(e)) {
+                                        quota.rateLimited(getType(), payment.getTenantId(),
+                                                        retryAfter((HttpException) e));
+                                }
+                                log.warn("PayPal order lookup failed [paymentId={}, paypalOrderId={}]",
+                                                payment.getId(), payment.getProviderReference(), e);
+                                throw new PaymentProviderTemporaryException(
+                                                "Unable to reach PayPal at the moment. Please try again shortly.");
+                        }
+                }
+                return outcomes;
+        }
+
+        /**
+         * Captures an approved order. The request id makes the capture
+         * idempotent, so redelivered approval events never charge twice.
+         * <p>
+         * PayPal refusing the capture (a 4xx other than 429, e.g. a declined
+         * instrument) is a final outcome, so the webhook is acknowledged;
+         * failing it would only make PayPal redeliver the approval for days.
+         * Network failures, 429 and 5xx fail the webhook, so it is redelivered.
+         *
+         * @return whether the capture completed, or empty if an earlier
+         *         delivery already captured the order; its capture event
+         *         settles the payment
+         */
+        private Optional<Boolean> capture(PayPalTenantClient client, String paypalOrderId) {
+                try {
+                        OrdersCaptureRequest request = new OrdersCaptureRequest(paypalOrderId);
+                        request.header("PayPal-Request-Id", "capture-" + paypalOrderId);
+                        request.requestBody(new OrderRequest());
+
+                        Order captured = client.execute(request).result();
+                        log.info("PayPal order captured [paypalOrderId={}, status={}]", paypalOrderId,
+                                        captured.status());
+                        return Optional.of("COMPLETED".equals(captured.status()));
+
+                } catch (HttpException e) {
+                        if (e.statusCode() >= 400 && e.statusCode() < 500 && e.statusCode() != 429) {
+                                if (String.valueOf(e.getMessage()).contains("ORDER_ALREADY_CAPTURED")) {
+                                        log.info("PayPal order already captured [paypalOrderId={}]", paypalOrderId);
+                                        return Optional.empty();
+                                }
+                                log.warn("PayPal capture refused [paypalOrderId={}, status={}, reason={}]",
+                                                paypalOrderId, e.statusCode(), e.getMessage());
+                                return Optional.of(false);
+                        }
+                        throw captureUnavailable(paypalOrderId, e);
+                } catch (IOException e) {
+                        throw captureUnavailable(paypalOrderId, e);
+                }
+        }
+
+        // Failing the webhook makes PayPal redeliver it
+        private static PaymentProviderTemporaryException captureUnavailable(String paypalOrderId, IOException e) {
+                log.warn("PayPal capture failed [paypalOrderId={}]", paypalOrderId, e);
+                return new PaymentProviderTemporaryException(
+                                "Unable to reach PayPal at the moment. Please try again shortly.");
         }
 
         @Recover
@@ -168,4 +446,27 @@ public class PayPalProvider implements PaymentProvider {
                                 "Payment service is temporarily unavailable. Please try again later.");
         }
 
+        // Rate limited calls are not retried here, the caller gets a 429
+        @Recover
+        public PaymentResponseDTO recover(ProviderQuotaExceededException ex, Payment payment) {
+                throw ex;
+        }
+
+        private static boolean isRateLimited(IOException e) {
+                return e instanceof HttpException http && http.statusCode() == 429;
+        }
+
+        // Retry-After in seconds, if PayPal sent one
+        private static Duration retryAfter(HttpException e) {
+                String value = e.headers() == null ? null : e.headers().header("Retry-After");
+                if (value == null) {
+                        return null;
+                }
+                try {
+                        return Duration.ofSeconds(Long.parseLong(value.trim()));
+                } catch (NumberFormatException ignored) {
+                        return null;
+                }
+        }
+
 }
@@ -0,0 +1,89 @@
+package com.nelani.demo.provider;
+
+import com.nelani.demo.tenant.TenantProperties;
+import com.paypal.core.AuthorizationProvider;
+import com.paypal.core.PayPalEnvironment;
+import com.paypal.core.PayPalHttpClient;
+import com.paypal.http.HttpClient;
+import com.paypal.http.HttpRequest;
+import com.paypal.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One merchant account's access to PayPal: an SDK client holding the
+ * account's credentials and access token, and its webhook id.
+ * <p>
+ * The PayPal SDK sends through {@code HttpURLConnection}, so connections
+ * cannot be pooled per account. Isolation comes from the call limit instead:
+ * at most {@code maxConcurrentCalls} calls of an account are in flight, so a
+ * merchant whose calls are slow only ever waits behind its own calls.
+ */
+class PayPalTenantClient implements AutoCloseable {
+
+    private final HttpClient client;
+    private final String webhookId;
+    private final long acquireTimeoutMillis;
+    private final Semaphore calls;
+
+    PayPalTenantClient(HttpClient client, String webhookId, TenantProperties limits) {
+        this.client = client;
+        this.webhookId = webhookId;
+        this.acquireTimeoutMillis = limits.connectTimeout().toMillis();
+        this.calls = new Semaphore(limits.maxConcurrentCalls());
+    }
+
+    static PayPalTenantClient create(TenantProperties.PayPal account, TenantProperties limits) {
+        PayPalHttpClient client = new PayPalHttpClient(
+                new PayPalEnvironment.Sandbox(account.clientId(), account.clientSecret()));
+        client.setConnectTimeout((int) limits.connectTimeout().toMillis());
+        client.setReadTimeout((int) limits.readTimeout().toMillis());
+        return new PayPalTenantClient(client, account.webhookId(), limits);
+    }
+
+    /**
+     * Executes a request within the account's call limit.
+     *
+     * @throws IOException on network failures, or when no call slot frees up
+     *                     within the connect timeout
+     */
+    <T> HttpResponse<T> execute(HttpRequest<T> request) throws IOException {
+        try {
+            if (!calls.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Too many concurrent PayPal calls for this merchant account");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to call PayPal");
+        }
+        try {
+            return client.execute(request);
+        } finally {
+            calls.release();
+        }
+    }
+
+    /**
+     * Fetches the account's access token ahead of its first call. The SDK
+     * caches it until it expires.
+     *
+     * @throws IOException if PayPal cannot be reached or rejects the credentials
+     */
+    void preconnect() throws IOException {
+        if (client instanceof PayPalHttpClient paypal) {
+            AuthorizationProvider.sharedInstance().authorize(paypal, null);
+        }
+    }
+
+    String webhookId() {
+        return webhookId;
+    }
+
+    // Nothing is held open between calls
+    @Override
+    public void close() {
+    }
+}
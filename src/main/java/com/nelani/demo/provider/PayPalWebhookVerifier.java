@@ -0,0 +1,216 @@
+package com.nelani.demo.provider;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Verifies PayPal webhook transmissions locally, without a call to PayPal's
+ * verify-webhook-signature API.
+ * <p>
+ * PayPal signs {@code transmissionId|transmissionTime|webhookId|crc32(body)}
+ * with SHA256withRSA and names the signing certificate in
+ * {@code PAYPAL-CERT-URL}. Certificates are only fetched from PayPal hosts
+ * and are cached per URL until they expire, so steady-state verification is
+ * pure CPU work.
+ */
+@Log4j2
+public class PayPalWebhookVerifier {
+
+    static final String TRANSMISSION_ID = "PAYPAL-TRANSMISSION-ID";
+    static final String TRANSMISSION_TIME = "PAYPAL-TRANSMISSION-TIME";
+    static final String TRANSMISSION_SIG = "PAYPAL-TRANSMISSION-SIG";
+    static final String CERT_URL = "PAYPAL-CERT-URL";
+    static final String AUTH_ALGO = "PAYPAL-AUTH-ALGO";
+
+    private static final String ALGORITHM = "SHA256withRSA";
+    private static final int MAX_CACHED_CERTIFICATES = 16;
+
+    private final String webhookId;
+    private final Duration maxClockSkew;
+    private final Function<URI, X509Certificate> certificateLoader;
+    private final Clock clock;
+    private final Map<URI, X509Certificate> certificates = new ConcurrentHashMap<>();
+
+    public PayPalWebhookVerifier(String webhookId, Duration maxClockSkew,
+            Function<URI, X509Certificate> certificateLoader, Clock clock) {
+        this.webhookId = webhookId;
+        this.maxClockSkew = maxClockSkew;
+        this.certificateLoader = certificateLoader;
+        this.clock = clock;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the transmission is not authentic
+     */
+    public void verify(String payload, HttpHeaders headers) {
+        verify(webhookId, payload, headers);
+    }
+
+    /**
+     * Verifies a transmission to the webhook with the given id, e.g. that of
+     * another merchant account. Certificates are shared by all webhooks.
+     *
+     * @throws IllegalArgumentException if the transmission is not authentic
+     */
+    public void verify(String webhookId, String payload, HttpHeaders headers) {
+        String transmissionId = require(headers, TRANSMISSION_ID);
+        String transmissionTime = require(headers, TRANSMISSION_TIME);
+        String signature = require(headers, TRANSMISSION_SIG);
+        URI certUrl = trustedCertUrl(require(headers, CERT_URL));
+
+        if (!ALGORITHM.equalsIgnoreCase(require(headers, AUTH_ALGO))) {
+            throw new IllegalArgumentException("Unsupported webhook signature algorithm");
+        }
+        if (webhookId == null || webhookId.isBlank()) {
+            throw new IllegalStateException("PayPal webhook id is not configured");
+        }
+        requireFresh(transmissionTime);
+
+        String signed = signedMessage(transmissionId, transmissionTime, webhookId, payload);
+
+        boolean valid;
+        try {
+            Signature verifier = Signature.getInstance(ALGORITHM);
+            verifier.initVerify(certificate(certUrl));
+            verifier.update(signed.getBytes(StandardCharsets.UTF_8));
+            valid = verifier.verify(Base64.getDecoder().decode(signature));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            // Expired certificate, malformed signature or key mismatch
+            valid = false;
+        }
+        if (!valid) {
+            log.warn("Invalid PayPal webhook signature [transmissionId={}]", transmissionId);
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+    }
+
+    /**
+     * Runs the freshness and signature checks on a synthetic transmission.
+     * PayPal's certificate cannot be stood in for, so the transmission is
+     * signed with a throwaway key and checked against its public key instead;
+     * the certificate download and cache are not exercised.
+     */
+    void warmUp(String payload, int iterations) {
+        String transmissionTime = OffsetDateTime.now(clock).toString();
+        String signed = signedMessage("warm-up", transmissionTime, "warm-up", payload);
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keys = generator.generateKeyPair();
+            Signature signer = Signature.getInstance(ALGORITHM);
+            signer.initSign(keys.getPrivate());
+            signer.update(signed.getBytes(StandardCharsets.UTF_8));
+            byte[] signature = signer.sign();
+
+            for (int i = 0; i < iterations; i++) {
+                requireFresh(transmissionTime);
+                Signature verifier = Signature.getInstance(ALGORITHM);
+                verifier.initVerify(keys.getPublic());
+                verifier.update(signedMessage("warm-up", transmissionTime, "warm-up", payload)
+                        .getBytes(StandardCharsets.UTF_8));
+                if (!verifier.verify(signature)) {
+                    throw new IllegalStateException("Synthetic PayPal signature did not verify");
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA256withRSA is not available", e);
+        }
+    }
+
+    /**
+     * Downloads a PEM certificate over HTTPS. Used as the default loader.
+     */
+    public static X509Certificate download(URI certUrl) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(certUrl).timeout(Duration.ofSeconds(5)).GET().build();
+        try (InputStream body = client.send(request, HttpResponse.BodyHandlers.ofInputStream()).body()) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(body);
+        } catch (IOException | CertificateException e) {
+            throw new IllegalStateException("Could not load PayPal certificate", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading PayPal certificate", e);
+        }
+    }
+
+    private X509Certificate certificate(URI certUrl) throws CertificateException {
+        X509Certificate certificate = certificates.get(certUrl);
+        if (certificate == null) {
+            if (certificates.size() >= MAX_CACHED_CERTIFICATES) {
+                certificates.clear();
+            }
+            certificate = certificates.computeIfAbsent(certUrl, certificateLoader);
+            log.info("Cached PayPal webhook certificate [url={}, notAfter={}]", certUrl, certificate.getNotAfter());
+        }
+        try {
+            certificate.checkValidity(Date.from(clock.instant()));
+        } catch (CertificateException e) {
+            certificates.remove(certUrl);
+            throw e;
+        }
+        return certificate;
+    }
+
+    private static String signedMessage(String transmissionId, String transmissionTime, String webhookId,
+            String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return transmissionId + "|" + transmissionTime + "|" + webhookId + "|" + crc.getValue();
+    }
+
+    private void requireFresh(String transmissionTime) {
+        try {
+            OffsetDateTime sentAt = OffsetDateTime.parse(transmissionTime);
+            Duration age = Duration.between(sentAt.toInstant(), clock.instant()).abs();
+            if (age.compareTo(maxClockSkew) > 0) {
+                throw new IllegalArgumentException("Webhook transmission is too old");
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid webhook transmission time");
+        }
+    }
+
+    // Only certificates served by PayPal itself may vouch for a webhook
+    private static URI trustedCertUrl(String value) {
+        URI uri = URI.create(value);
+        String host = uri.getHost();
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || host == null
+                || !(host.equals("api.paypal.com") || host.equals("api.sandbox.paypal.com"))) {
+            throw new IllegalArgumentException("Untrusted webhook certificate URL");
+        }
+        return uri;
+    }
+
+    private static String require(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing webhook header " + name);
+        }
+        return value;
+    }
+}
@@ -4,11 +4,22 @@ import com.nelani.demo.dto.PaymentResponseDTO;
 import com.nelani.demo.dto.WebhookResult;
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Common abstraction for all payment providers.
  * Implementations must handle provider-specific concerns internally
  * (retries, idempotency, error handling).
+ * <p>
+ * Calls are made with the credentials of the payment's merchant account
+ * ({@link Payment#getTenantId()}), or of the account whose webhook endpoint
+ * was called; unknown accounts are rejected with an
+ * {@link IllegalArgumentException}.
  */
 public interface PaymentProvider {
 
@@ -43,11 +54,74 @@ public interface PaymentProvider {
     PaymentResponseDTO resumePayment(Payment payment);
 
     /**
-     * Handles incoming provider webhooks.
+     * Verifies and interprets an incoming provider webhook. Each provider
+     * reads the signature headers it needs; missing or invalid ones are
+     * rejected with an {@link IllegalArgumentException}.
      *
-     * @param payload   raw webhook payload
-     * @param signature provider signature header
+     * @param tenantId merchant account whose endpoint received the webhook
+     * @param payload  raw webhook payload
+     * @param headers  all request headers
      * @return webhook processing result
      */
-    WebhookResult handleWebhook(String payload, String signature);
+    WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers);
+
+    /**
+     * Interprets a webhook payload whose signature was verified when it was
+     * first received, e.g. one replayed from the webhook archive. Never calls
+     * the provider; events whose live handling does are skipped.
+     *
+     * @param tenantId merchant account whose endpoint received the webhook
+     * @param payload  raw webhook payload
+     * @return webhook processing result
+     */
+    WebhookResult parseWebhook(String tenantId, String payload);
+
+    /**
+     * Looks up the provider-side outcome of the given payments, used by
+     * reconciliation to catch lost webhooks.
+     * <p>
+     * Only payments the provider reports as settled appear in the result,
+     * mapped to {@link PaymentStatus#SUCCESS} or {@link PaymentStatus#FAILED};
+     * payments still open at the provider are left out.
+     * <p>
+     * Defaults to an empty map for providers that cannot be queried.
+     *
+     * @param payments at most {@link #reconciliationBatchSize()} payments
+     * @return settled status per payment id
+     */
+    default Map<UUID, PaymentStatus> fetchOutcomes(List<Payment> payments) {
+        return Map.of();
+    }
+
+    /**
+     * @return how many payments one {@link #fetchOutcomes} call can look up
+     */
+    default int reconciliationBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Opens the merchant account's connection to the provider ahead of its
+     * first payment, TLS handshake and access token included. Called by the
+     * warm-up before the node reports ready.
+     * <p>
+     * Defaults to doing nothing.
+     *
+     * @param tenantId merchant account to connect
+     * @throws RuntimeException if the provider cannot be reached
+     */
+    default void preconnect(String tenantId) {
+    }
+
+    /**
+     * Runs webhook verification and parsing on synthetic, locally signed
+     * events, so they are compiled before the first real webhook. Nothing is
+     * stored or logged per event.
+     * <p>
+     * Defaults to doing nothing.
+     *
+     * @param iterations number of synthetic events
+     */
+    default void warmUpWebhooks(int iterations) {
+    }
 }
@@ -0,0 +1,140 @@
+package com.nelani.demo.provider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming reads of raw Stripe event payloads.
+ * <p>
+ * Walks the payload once with a Jackson parser, keeping only the handful of
+ * fields webhook handling needs and skipping everything else without
+ * building it. This replaces deserializing the event into the Stripe model,
+ * which materializes the whole PaymentIntent graph.
+ */
+final class StripeEventReader {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * The parts of an event used to update a payment. The intent fields are
+     * null when {@code data.object} does not carry them.
+     *
+     * @param id        event id
+     * @param type      event type
+     * @param intentId  {@code data.object.id}
+     * @param status    {@code data.object.status}
+     * @param paymentId {@code data.object.metadata.paymentId}
+     */
+    record Summary(String id, String type, String intentId, String status, String paymentId) {
+    }
+
+    private record Intent(String id, String status, String paymentId) {
+    }
+
+    private StripeEventReader() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a JSON object
+     */
+    static Summary read(String payload) {
+        try (JsonParser parser = JSON.createParser(payload)) {
+            expectObject(parser.nextToken());
+
+            String id = null;
+            String type = null;
+            Intent intent = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> id = text(parser, value);
+                    case "type" -> type = text(parser, value);
+                    case "data" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            intent = readData(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            return intent == null
+                    ? new Summary(id, type, null, null, null)
+                    : new Summary(id, type, intent.id(), intent.status(), intent.paymentId());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed Stripe webhook payload");
+        }
+    }
+
+    // data: { "object": { ... }, "previous_attributes": { ... } }
+    private static Intent readData(JsonParser parser) throws IOException {
+        Intent intent = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("object") && value == JsonToken.START_OBJECT) {
+                intent = readObject(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return intent;
+    }
+
+    private static Intent readObject(JsonParser parser) throws IOException {
+        String id = null;
+        String status = null;
+        String paymentId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = text(parser, value);
+                case "status" -> status = text(parser, value);
+                case "metadata" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        paymentId = readMetadata(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new Intent(id, status, paymentId);
+    }
+
+    private static String readMetadata(JsonParser parser) throws IOException {
+        String paymentId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("paymentId")) {
+                paymentId = text(parser, value);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return paymentId;
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static void expectObject(JsonToken token) {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Malformed Stripe webhook payload");
+        }
+    }
+}
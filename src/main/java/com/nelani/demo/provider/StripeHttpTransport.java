@@ -0,0 +1,106 @@
+package com.nelani.demo.provider;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stripe SDK transport with its own connection pool, one per merchant
+ * account.
+ * <p>
+ * The SDK's default transport goes through {@code HttpURLConnection}, whose
+ * keep-alive cache is shared by the whole JVM. This one sends requests on a
+ * dedicated {@link java.net.http.HttpClient}, and admits at most
+ * {@code maxConcurrentCalls} at a time, so a merchant whose calls are slow
+ * only ever waits behind its own calls.
+ */
+class StripeHttpTransport extends HttpClient implements AutoCloseable {
+
+    private final java.net.http.HttpClient http;
+    private final Duration readTimeout;
+    private final Duration acquireTimeout;
+    private final Semaphore calls;
+
+    StripeHttpTransport(Duration connectTimeout, Duration readTimeout, int maxConcurrentCalls) {
+        this.http = java.net.http.HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        this.readTimeout = readTimeout;
+        this.acquireTimeout = connectTimeout;
+        this.calls = new Semaphore(maxConcurrentCalls);
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        try {
+            if (!calls.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ApiConnectionException("Too many concurrent Stripe calls for this merchant account");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Interrupted waiting to call Stripe", e);
+        }
+
+        try {
+            HttpResponse<String> response = http.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofString());
+            return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()),
+                    response.body());
+        } catch (IOException e) {
+            throw new ApiConnectionException("IOException during API request to Stripe (" + request.url() + "): "
+                    + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Interrupted during API request to Stripe", e);
+        } finally {
+            calls.release();
+        }
+    }
+
+    /**
+     * Stops accepting requests; calls already sent complete.
+     */
+    @Override
+    public void close() {
+        http.shutdown();
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI()).timeout(readTimeout);
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL: " + request.url(), e);
+        }
+
+        // Same headers as the SDK's own transport
+        builder.header("User-Agent", buildUserAgentString());
+        builder.header("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString());
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+
+        HttpContent content = request.content();
+        switch (request.method()) {
+            case GET -> builder.GET();
+            case DELETE -> builder.DELETE();
+            case POST -> {
+                if (content == null) {
+                    builder.POST(HttpRequest.BodyPublishers.noBody());
+                } else {
+                    builder.header("Content-Type", content.contentType());
+                    builder.POST(HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()));
+                }
+            }
+        }
+        return builder.build();
+    }
+}
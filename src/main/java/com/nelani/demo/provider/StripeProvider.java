@@ -3,45 +3,109 @@ package com.nelani.demo.provider;
 import com.nelani.demo.dto.PaymentResponseDTO;
 import com.nelani.demo.dto.WebhookResult;
 import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.exception.ProviderQuotaExceededException;
+import com.nelani.demo.model.CurrencyCode;
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.quota.ProviderQuota;
+import com.nelani.demo.tenant.TenantClientCache;
+import com.nelani.demo.tenant.TenantProperties;
+import com.nelani.demo.tenant.TenantRegistry;
 import com.stripe.Stripe;
 import com.stripe.exception.AuthenticationException;
 import com.stripe.exception.InvalidRequestException;
-import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Customer;
 import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.model.StripeSearchResult;
+import com.stripe.net.LiveStripeResponseGetter;
 import com.stripe.net.RequestOptions;
-import com.stripe.net.Webhook;
-import jakarta.annotation.PostConstruct;
+import com.stripe.net.StripeResponseGetter;
+import com.stripe.param.CustomerCreateParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentSearchParams;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-// Polymorphism: Stripe-specific implementation of the PaymentProvider interface
+// Polymorphism: Stripe-specific implementation of the PaymentProvider interface.
+// Every call goes through the payment's merchant account client, see StripeTenantClient.
 @Log4j2
 @Service
 public class StripeProvider implements PaymentProvider {
 
-        @Value("${stripe.secret-key}")
-        private String stripeSecretKey;
+        public static final String SIGNATURE_HEADER = "Stripe-Signature";
 
-        @Value("${stripe.secret-webhook}")
-        private String stripeSecretWebhook;
+        // Builds the full Stripe Event/PaymentIntent model for handled webhooks
+        @Value("${stripe.webhook.full-model:false}")
+        private boolean fullWebhookModel;
 
-        @PostConstruct
-        public void init() {
-                Stripe.apiKey = stripeSecretKey;
+        // What Webhook.constructEvent attaches to events; uses the global Stripe settings
+        private static final StripeResponseGetter RESPONSE_GETTER = new LiveStripeResponseGetter();
+
+        // Stripe takes lowercase ISO codes
+        private static final Map<CurrencyCode, String> STRIPE_CURRENCIES = new EnumMap<>(CurrencyCode.class);
+
+        static {
+                for (CurrencyCode currency : CurrencyCode.values()) {
+                        STRIPE_CURRENCIES.put(currency, currency.name().toLowerCase(Locale.ROOT));
+                }
+        }
+
+        // Shape of a real payment_intent.succeeded event, trimmed to the fields webhooks read
+        private static final String WARM_UP_EVENT = """
+                        {"id": "evt_warmup_%d", "object": "event", "type": "payment_intent.succeeded",
+                         "data": {"object": {"id": "pi_warmup_%d", "object": "payment_intent",
+                          "status": "succeeded", "metadata": {"paymentId": "%s"}}}}""";
+
+        // API calls made by createPayment: the customer, then the PaymentIntent
+        private static final int CREATE_CALLS = 2;
+
+        private final TenantClientCache<StripeTenantClient> clients;
+        private final ProviderQuota quota;
+
+        @Autowired
+        public StripeProvider(TenantRegistry tenants, MeterRegistry meterRegistry, ProviderQuota quota,
+                        @Value("${stripe.webhook.tolerance:PT5M}") Duration webhookTolerance,
+                        @Value("${stripe.api-base:" + Stripe.LIVE_API_BASE + "}") String apiBase) {
+                this(clientCache(tenants, meterRegistry, tenantId -> StripeTenantClient.create(
+                                tenants.stripe(tenantId), tenants.properties(), webhookTolerance, apiBase)),
+                                quota);
+        }
+
+        StripeProvider(TenantClientCache<StripeTenantClient> clients, ProviderQuota quota) {
+                this.clients = clients;
+                this.quota = quota;
+        }
+
+        static TenantClientCache<StripeTenantClient> clientCache(TenantRegistry tenants, MeterRegistry meterRegistry,
+                        Function<String, StripeTenantClient> factory) {
+                TenantProperties limits = tenants.properties();
+                return new TenantClientCache<>(PaymentProviderType.STRIPE.name(), factory, limits.maxClients(),
+                                limits.idleTimeout(), Clock.systemUTC(), meterRegistry);
+        }
+
+        @PreDestroy
+        public void close() {
+                clients.clear();
         }
 
         @Override
@@ -53,8 +117,13 @@ public class StripeProvider implements PaymentProvider {
         @Retryable(retryFor = PaymentProviderTemporaryException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
         public PaymentResponseDTO createPayment(Payment payment) {
 
-                log.info("Creating Stripe payment [paymentId={}, orderId={}]",
-                                payment.getId(), payment.getOrderId());
+                log.info("Creating Stripe payment [paymentId={}, orderId={}, tenant={}]",
+                                payment.getId(), payment.getOrderId(), payment.getTenantId());
+
+                // Unknown merchant accounts are rejected before anything is sent
+                StripeTenantClient stripe = clients.get(payment.getTenantId());
+                // Every attempt, retries included, counts against the account's cluster-wide quota
+                quota.acquire(getType(), payment.getTenantId(), CREATE_CALLS);
 
                 try {
                         /*
@@ -64,58 +133,55 @@ public class StripeProvider implements PaymentProvider {
                          * not hard-coded values.
                          * - Do NOT log email addresses or personal information.
                          */
-                        Map<String, Object> customerParams = new HashMap<>();
-                        customerParams.put("email", "johndoe@gmail.com");
-                        customerParams.put("name", "John Doe");
+                        CustomerCreateParams customerParams = CustomerCreateParams.builder()
+                                        .setEmail("johndoe@gmail.com")
+                                        .setName("John Doe")
+                                        .build();
 
-                        final Customer customer = Customer.create(customerParams);
+                        final Customer customer = stripe.api().customers().create(customerParams,
+                                        stripe.options().build());
 
                         log.debug("Stripe customer created [customerId={}]", customer.getId());
 
                         /*
                          * Build PaymentIntent parameters.
-                         * Stripe expects amount in the smallest currency unit (cents).
+                         * Stripe expects amount in the smallest currency unit (cents),
+                         * which the payment already holds.
                          */
-                        Map<String, Object> params = new HashMap<>();
-                        params.put(
-                                        "amount",
-                                        payment.getAmount()
-                                                        .multiply(BigDecimal.valueOf(100))
-                                                        .setScale(0, RoundingMode.HALF_UP)
-                                                        .longValueExact());
-                        params.put("currency", "zar");
-                        params.put("customer", customer.getId());
-                        params.put("receipt_email", "JohnDoe@gmail.com");
-                        params.put("description", "Order " + payment.getOrderId());
-                        params.put("statement_descriptor_suffix", "NELANI");
-
-                        Map<String, Object> autoPaymentMethods = new HashMap<>();
-                        autoPaymentMethods.put("enabled", true);
-
-                        params.put("automatic_payment_methods", autoPaymentMethods);
-
                         int itemCount = ThreadLocalRandom.current().nextInt(1, 6);
 
-                        /*
-                         * Metadata is safe for internal tracking and reconciliation.
-                         * Never store sensitive card or user data here.
-                         */
-                        params.put("metadata", Map.of(
-                                        "orderId", payment.getOrderId(),
-                                        "paymentId", payment.getId(),
-                                        "itemCount", String.valueOf(itemCount),
-                                        "expiresAt", payment.getExpiresAt().toString()));
+                        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                                        .setAmount(payment.getAmountMinorUnits())
+                                        .setCurrency(STRIPE_CURRENCIES.get(payment.getCurrency()))
+                                        .setCustomer(customer.getId())
+                                        .setReceiptEmail("JohnDoe@gmail.com")
+                                        .setDescription("Order " + payment.getOrderId())
+                                        .setStatementDescriptorSuffix("NELANI")
+                                        .setAutomaticPaymentMethods(PaymentIntentCreateParams.AutomaticPaymentMethods
+                                                        .builder()
+                                                        .setEnabled(true)
+                                                        .build())
+                                        /*
+                                         * Metadata is safe for internal tracking and reconciliation.
+                                         * Never store sensitive card or user data here.
+                                         */
+                                        .putAllMetadata(Map.of(
+                                                        "orderId", payment.getOrderId(),
+                                                        "paymentId", payment.getId().toString(),
+                                                        "itemCount", String.valueOf(itemCount),
+                                                        "expiresAt", payment.getExpiresAt().toString()))
+                                        .build();
 
                         /*
                          * Idempotency ensures Stripe does not create duplicate payments
                          * if retries occur (network issues, timeouts, etc.).
                          */
-                        RequestOptions options = RequestOptions.builder()
+                        RequestOptions options = stripe.options()
                                         .setIdempotencyKey("payment-" + payment.getId())
                                         .build();
 
                         // Create the PaymentIntent with Stripe
-                        final PaymentIntent intent = PaymentIntent.create(params, options);
+                        final PaymentIntent intent = stripe.api().paymentIntents().create(params, options);
 
                         log.info(
                                         "Stripe payment intent created successfully [paymentId={}, intentId={}]",
@@ -131,12 +197,16 @@ public class StripeProvider implements PaymentProvider {
                                         intent.getId(),
                                         intent.getClientSecret(),
                                         payment.getAmount(),
+                                        payment.getCurrency(),
                                         getType(),
                                         null,
                                         null,
                                         null,
                                         null);
 
+                } catch (RateLimitException e) {
+                        throw rateLimited(payment, e);
+
                 } catch (InvalidRequestException e) {
                         /*
                          * Indicates a bug or invalid request sent to Stripe.
@@ -192,13 +262,16 @@ public class StripeProvider implements PaymentProvider {
                                 payment.getOrderId(),
                                 payment.getProviderReference());
 
+                StripeTenantClient stripe = clients.get(payment.getTenantId());
+                quota.acquire(getType(), payment.getTenantId(), 1);
+
                 try {
                         /*
                          * Retrieve the existing PaymentIntent from Stripe.
                          * This does not create a new payment and is safe to retry.
                          */
-                        final PaymentIntent intent = PaymentIntent.retrieve(
-                                        payment.getProviderReference());
+                        final PaymentIntent intent = stripe.api().paymentIntents().retrieve(
+                                        payment.getProviderReference(), stripe.options().build());
 
                         log.debug(
                                         "Stripe payment intent retrieved [intentId={}, status={}]",
@@ -233,12 +306,16 @@ public class StripeProvider implements PaymentProvider {
                                         intent.getId(),
                                         intent.getClientSecret(),
                                         payment.getAmount(),
+                                        payment.getCurrency(),
                                         getType(),
                                         null,
                                         null,
                                         null,
                                         null);
 
+                } catch (RateLimitException e) {
+                        throw rateLimited(payment, e);
+
                 } catch (StripeException e) {
                         /*
                          * Represents transient Stripe failures (timeouts, API issues).
@@ -255,77 +332,88 @@ public class StripeProvider implements PaymentProvider {
         }
 
         @Override
-        public WebhookResult handleWebhook(String payload, String signature) {
-
-                Event event;
+        public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
 
                 /*
-                 * Verify webhook authenticity using Stripe's signing secret.
+                 * Verify webhook authenticity using the merchant account's signing secret(s).
                  * This ensures the payload was sent by Stripe and not a third party.
+                 * Invalid signatures indicate either a misconfiguration or a potential
+                 * malicious request; the event is not processed further. Unknown accounts
+                 * are reported the same way.
                  * Never log the raw payload or signature.
                  */
+                String signature = headers.getFirst(SIGNATURE_HEADER);
+                if (signature == null) {
+                        throw new IllegalArgumentException("Missing " + SIGNATURE_HEADER + " header");
+                }
                 try {
-                        event = Webhook.constructEvent(
-                                        payload,
-                                        signature,
-                                        stripeSecretWebhook);
-                } catch (SignatureVerificationException e) {
-                        /*
-                         * Invalid signatures indicate either a misconfiguration
-                         * or a potential malicious request.
-                         * Do not retry or process the event further.
-                         */
-                        log.warn("Invalid Stripe webhook signature");
+                        clients.get(tenantId).webhookVerifier().verify(payload, signature);
+                } catch (IllegalArgumentException e) {
+                        log.warn("Invalid Stripe webhook signature [tenant={}, reason={}]", tenantId, e.getMessage());
                         throw new IllegalArgumentException("Invalid webhook signature");
                 }
 
+                return parseWebhook(tenantId, payload);
+        }
+
+        @Override
+        public WebhookResult parseWebhook(String tenantId, String payload) {
+
+                /*
+                 * One streaming pass over the payload yields the event type and the
+                 * few PaymentIntent fields we use. Ignored types return here, and
+                 * handled ones never build the Stripe object graph unless the full
+                 * model is switched on.
+                 */
+                StripeEventReader.Summary summary = StripeEventReader.read(payload);
+
                 log.info(
                                 "Stripe webhook received [eventId={}, type={}]",
-                                event.getId(),
-                                event.getType());
+                                summary.id(),
+                                summary.type());
 
-                PaymentIntent intent;
                 boolean success;
 
                 /*
                  * Handle only the payment lifecycle events that affect
                  * internal payment state. All other events are safely ignored.
                  */
-                switch (event.getType()) {
+                switch (String.valueOf(summary.type())) {
 
-                        case "payment_intent.succeeded" -> {
-                                intent = extractIntent(event);
-                                success = true;
-                        }
+                        case "payment_intent.succeeded" -> success = true;
 
                         case "payment_intent.payment_failed",
-                                        "payment_intent.canceled" -> {
-                                intent = extractIntent(event);
-                                success = false;
-                        }
+                                        "payment_intent.canceled" -> success = false;
 
                         default -> {
                                 log.debug(
                                                 "Unhandled Stripe webhook event type [type={}]",
-                                                event.getType());
-                                return new WebhookResult(null, false, false);
+                                                summary.type());
+                                return new WebhookResult(null, false, false, summary.id());
                         }
                 }
 
+                String intentId = summary.intentId();
+                String paymentIdRaw = summary.paymentId();
+
+                if (fullWebhookModel) {
+                        PaymentIntent intent = extractIntent(
+                                        StripeObject.deserializeStripeObject(payload, Event.class, RESPONSE_GETTER));
+                        intentId = intent.getId();
+                        paymentIdRaw = intent.getMetadata() == null ? null : intent.getMetadata().get("paymentId");
+                }
+
                 /*
                  * Metadata is the only reliable link between Stripe events
                  * and internal payment records.
                  */
-                Map<String, String> metadata = intent.getMetadata();
-                if (metadata == null || !metadata.containsKey("paymentId")) {
+                if (paymentIdRaw == null) {
                         log.warn(
                                         "Stripe webhook missing paymentId metadata [intentId={}]",
-                                        intent.getId());
+                                        intentId);
                         return new WebhookResult(null, false, false);
                 }
 
-                String paymentIdRaw = metadata.get("paymentId");
-
                 /*
                  * Defensive validation of paymentId.
                  * Malformed metadata should not break webhook processing.
@@ -337,7 +425,7 @@ public class StripeProvider implements PaymentProvider {
                         log.warn(
                                         "Invalid paymentId UUID in Stripe metadata [value={}, intentId={}]",
                                         paymentIdRaw,
-                                        intent.getId());
+                                        intentId);
                         return new WebhookResult(null, false, false);
                 }
 
@@ -350,7 +438,104 @@ public class StripeProvider implements PaymentProvider {
                  * The third flag indicates the event was verified and handled
                  * (even if the payment failed).
                  */
-                return new WebhookResult(paymentId, success, true);
+                return new WebhookResult(paymentId, success, true, summary.id());
+        }
+
+        /**
+         * Stripe search accepts at most 10 OR-ed clauses per query.
+         */
+        @Override
+        public int reconciliationBatchSize() {
+                return 10;
+        }
+
+        @Override
+        public Map<UUID, PaymentStatus> fetchOutcomes(List<Payment> payments) {
+
+                /*
+                 * One search call per merchant account covers the batch, usually a
+                 * single call. Search results can trail writes by about a minute,
+                 * which is fine for payments that have been pending much longer
+                 * than that.
+                 */
+                Map<String, List<Payment>> byTenant = payments.stream()
+                                .collect(Collectors.groupingBy(Payment::getTenantId));
+
+                Map<UUID, PaymentStatus> outcomes = new HashMap<>();
+                byTenant.forEach((tenantId, tenantPayments) -> outcomes.putAll(
+                                searchOutcomes(tenantId, clients.get(tenantId), tenantPayments)));
+                return outcomes;
+        }
+
+        private Map<UUID, PaymentStatus> searchOutcomes(String tenantId, StripeTenantClient stripe,
+                        List<Payment> payments) {
+                String query = payments.stream()
+                                .map(payment -> "metadata['paymentId']:'" + payment.getId() + "'")
+                                .collect(Collectors.joining(" OR "));
+
+                try {
+                        StripeSearchResult<PaymentIntent> result = stripe.api().paymentIntents().search(
+                                        PaymentIntentSearchParams.builder()
+                                                        .setQuery(query)
+                                                        .setLimit(100L)
+                                                        .build(),
+                                        stripe.options().build());
+
+                        Map<UUID, PaymentStatus> outcomes = new HashMap<>();
+                        for (PaymentIntent intent : result.getData()) {
+                                String paymentId = intent.getMetadata().get("paymentId");
+                                PaymentStatus status = switch (intent.getStatus()) {
+                                        case "succeeded" -> PaymentStatus.SUCCESS;
+                                        case "canceled" -> PaymentStatus.FAILED;
+                                        default -> null;
+                                };
+                                if (paymentId != null && status != null) {
+                                        outcomes.put(UUID.fromString(paymentId), status);
+                                }
+                        }
+                        return outcomes;
+
+                } catch (StripeException e) {
+                        if (e instanceof RateLimitException) {
+                                quota.rateLimited(getType(), tenantId, null);
+                        }
+                        log.warn("Stripe payment search failed [size={}]", payments.size(), e);
+                        throw new PaymentProviderTemporaryException(
+                                        "Stripe payment search temporarily unavailable");
+                }
+        }
+
+        // Any authenticated read opens the account's pooled connection; the balance is the cheapest
+        @Override
+        public void preconnect(String tenantId) {
+                StripeTenantClient stripe = clients.get(tenantId);
+                try {
+                        stripe.api().balance().retrieve(stripe.options().build());
+                } catch (StripeException e) {
+                        throw new IllegalStateException("Stripe unreachable for tenant " + tenantId, e);
+                }
+        }
+
+        /*
+         * Signs synthetic succeeded events with a throwaway secret and runs them
+         * through the same verifier and reader as real webhooks, plus the full
+         * model when it is switched on. Skips parseWebhook, which logs per event.
+         */
+        @Override
+        public void warmUpWebhooks(int iterations) {
+                String secret = "whsec_warmup";
+                StripeWebhookVerifier verifier = new StripeWebhookVerifier(List.of(secret), Duration.ZERO,
+                                Clock.systemUTC());
+                long timestamp = System.currentTimeMillis() / 1000;
+                for (int i = 0; i < iterations; i++) {
+                        String payload = WARM_UP_EVENT.formatted(i, i, UUID.randomUUID());
+                        verifier.verify(payload, StripeWebhookVerifier.signatureHeader(secret, payload, timestamp));
+                        StripeEventReader.read(payload);
+                        if (fullWebhookModel) {
+                                extractIntent(StripeObject.deserializeStripeObject(payload, Event.class,
+                                                RESPONSE_GETTER));
+                        }
+                }
         }
 
         @Recover
@@ -363,6 +548,25 @@ public class StripeProvider implements PaymentProvider {
                                 "Payment service is temporarily unavailable. Please try again later.");
         }
 
+        // Rate limited calls are not retried here, the caller gets a 429
+        @Recover
+        public PaymentResponseDTO recover(ProviderQuotaExceededException ex, Payment payment) {
+                throw ex;
+        }
+
+        /*
+         * Stripe answered 429 for the account. Slows down the account's quota on
+         * every node instead of retrying, which would only add to the load.
+         * Stripe sends no Retry-After, so the quota's default applies.
+         */
+        private ProviderQuotaExceededException rateLimited(Payment payment, RateLimitException e) {
+                log.warn("Stripe rate limit reached [paymentId={}, tenant={}]", payment.getId(),
+                                payment.getTenantId(), e);
+                quota.rateLimited(getType(), payment.getTenantId(), null);
+                return new ProviderQuotaExceededException(
+                                "Stripe is rate limiting this merchant account. Please try again shortly.", null);
+        }
+
         private PaymentIntent extractIntent(Event event) {
                 return (PaymentIntent) event
                                 .getDataObjectDeserializer()
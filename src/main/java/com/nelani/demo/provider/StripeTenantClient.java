@@ -0,0 +1,145 @@
+package com.nelani.demo.provider;
+
+import com.nelani.demo.tenant.TenantProperties;
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetterOptions;
+
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One merchant account's access to Stripe: an SDK client on the account's
+ * own {@link StripeHttpTransport} and a verifier for its webhook endpoint
+ * secrets.
+ * <p>
+ * The client itself holds no API key. Every call passes the account's key
+ * in its {@link RequestOptions} (see {@link #options()}), so nothing relies
+ * on the JVM-wide {@code Stripe.apiKey}.
+ */
+class StripeTenantClient implements AutoCloseable {
+
+    private final StripeClient api;
+    private final String secretKey;
+    private final StripeWebhookVerifier webhookVerifier;
+    private final AutoCloseable transport;
+
+    StripeTenantClient(StripeClient api, String secretKey, StripeWebhookVerifier webhookVerifier,
+            AutoCloseable transport) {
+        this.api = api;
+        this.secretKey = secretKey;
+        this.webhookVerifier = webhookVerifier;
+        this.transport = transport;
+    }
+
+    /**
+     * Creates the client of an account, with a new connection pool.
+     *
+     * @param apiBase Stripe API base URL, replaced in tests
+     */
+    static StripeTenantClient create(TenantProperties.Stripe account, TenantProperties limits,
+            Duration webhookTolerance, String apiBase) {
+        StripeHttpTransport transport = new StripeHttpTransport(limits.connectTimeout(), limits.readTimeout(),
+                limits.maxConcurrentCalls());
+        StripeClient api = new StripeClient(new LiveStripeResponseGetter(new Options(apiBase, limits), transport));
+
+        List<String> secrets = account.webhookSecrets() == null ? List.of() : account.webhookSecrets();
+        StripeWebhookVerifier verifier = secrets.stream().allMatch(String::isBlank) ? null
+                : new StripeWebhookVerifier(secrets, webhookTolerance, Clock.systemUTC());
+        return new StripeTenantClient(api, account.secretKey(), verifier, transport);
+    }
+
+    StripeClient api() {
+        return api;
+    }
+
+    /**
+     * Request options carrying the account's secret key.
+     */
+    RequestOptions.RequestOptionsBuilder options() {
+        return RequestOptions.builder().setApiKey(secretKey);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the account has no webhook secret
+     */
+    StripeWebhookVerifier webhookVerifier() {
+        if (webhookVerifier == null) {
+            throw new IllegalArgumentException("No Stripe webhook secret configured for this merchant account");
+        }
+        return webhookVerifier;
+    }
+
+    @Override
+    public void close() throws Exception {
+        transport.close();
+    }
+
+    // Client-wide SDK settings; the key is left to each request
+    private static final class Options extends StripeResponseGetterOptions {
+
+        private final String apiBase;
+        private final TenantProperties limits;
+
+        private Options(String apiBase, TenantProperties limits) {
+            this.apiBase = apiBase;
+            this.limits = limits;
+        }
+
+        @Override
+        public String getApiKey() {
+            return null;
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return (int) limits.connectTimeout().toMillis();
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return (int) limits.readTimeout().toMillis();
+        }
+
+        // Retries are Spring Retry's, as before
+        @Override
+        public int getMaxNetworkRetries() {
+            return 0;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return Stripe.UPLOAD_API_BASE;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return Stripe.CONNECT_API_BASE;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.nelani.demo.provider;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Verifies the {@code Stripe-Signature} header of a webhook.
+ * <p>
+ * Same scheme as {@code Webhook.constructEvent}: HMAC-SHA256 over
+ * {@code timestamp.payload}, hex encoded in one or more {@code v1} entries.
+ * Unlike it, the event is not deserialized here, keys are built once and each
+ * thread reuses its own initialised {@link Mac} per secret, and signatures are
+ * compared in constant time.
+ * <p>
+ * Several secrets may be active at once so the endpoint secret can be rolled
+ * without rejecting webhooks signed with the previous one.
+ */
+public class StripeWebhookVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SCHEME = "v1";
+
+    private final List<SecretKeySpec> keys;
+    private final long toleranceSeconds;
+    private final Clock clock;
+    private final ThreadLocal<Mac[]> macs;
+
+    public StripeWebhookVerifier(List<String> secrets, Duration tolerance, Clock clock) {
+        this.keys = secrets.stream()
+                .map(String::trim)
+                .filter(secret -> !secret.isEmpty())
+                .map(secret -> new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM))
+                .toList();
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("No Stripe webhook secret configured");
+        }
+        this.toleranceSeconds = tolerance.toSeconds();
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMacs);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no active secret produced one of the
+     *                                  header's signatures, or the timestamp is
+     *                                  outside the tolerance
+     */
+    public void verify(String payload, String signatureHeader) {
+        if (signatureHeader == null) {
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+
+        // t=<unix seconds>,v1=<hex>[,v1=<hex>...]; other schemes are ignored
+        String timestamp = null;
+        List<byte[]> signatures = new ArrayList<>(2);
+        for (String item : signatureHeader.split(",")) {
+            int eq = item.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String key = item.substring(0, eq).trim();
+            String value = item.substring(eq + 1).trim();
+            if (key.equals("t")) {
+                timestamp = value;
+            } else if (key.equals(SCHEME)) {
+                try {
+                    signatures.add(HexFormat.of().parseHex(value));
+                } catch (IllegalArgumentException e) {
+                    // Not a hex signature, cannot match
+                }
+            }
+        }
+        if (timestamp == null || signatures.isEmpty()) {
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+
+        long signedAt;
+        try {
+            signedAt = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+        if (toleranceSeconds > 0 && signedAt < clock.instant().getEpochSecond() - toleranceSeconds) {
+            throw new IllegalArgumentException("Webhook timestamp outside the tolerance zone");
+        }
+
+        byte[] prefix = (timestamp + ".").getBytes(StandardCharsets.UTF_8);
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+
+        for (Mac mac : macs.get()) {
+            mac.update(prefix);
+            byte[] expected = mac.doFinal(body);
+            for (byte[] signature : signatures) {
+                if (MessageDigest.isEqual(expected, signature)) {
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid webhook signature");
+    }
+
+    /**
+     * The header Stripe would send for {@code payload}, signed with
+     * {@code secret} at {@code timestamp} (unix seconds). Used for synthetic
+     * events only.
+     */
+    static String signatureHeader(String secret, String payload, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            byte[] signature = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + "," + SCHEME + "=" + HexFormat.of().formatHex(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private Mac[] newMacs() {
+        Mac[] result = new Mac[keys.size()];
+        try {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Mac.getInstance(ALGORITHM);
+                result[i].init(keys.get(i));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+        return result;
+    }
+}
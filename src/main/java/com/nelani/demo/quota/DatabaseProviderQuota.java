@@ -0,0 +1,261 @@
+package com.nelani.demo.quota;
+
+import com.nelani.demo.exception.ProviderQuotaExceededException;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.ProviderQuotaBucket;
+import com.nelani.demo.repository.ProviderQuotaBucketRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * {@link ProviderQuota} shared by all nodes through token buckets in the
+ * database, one per provider and merchant account.
+ * <p>
+ * A node takes {@code grantSize} permits from a bucket at a time, in a short
+ * transaction of its own that locks the bucket row, and uses them locally
+ * for at most {@code grantTtl}. Only one thread per bucket and node goes to
+ * the database, so the database sees about one round trip per
+ * {@code grantSize} calls. Permits a node took but did not use in time are
+ * dropped rather than returned, so the cluster stays at or below the
+ * configured rate.
+ * <p>
+ * A 429 from the provider halves the bucket's rate and blocks it for the
+ * provider's {@code Retry-After}, for every node; see
+ * {@link ProviderQuotaBucket}. If the quota table cannot be reached, calls
+ * go ahead without a permit: the provider's own 429s still slow them down.
+ * <p>
+ * Permits are taken while payment transactions hold a connection, so the
+ * buckets are reached through a small pool of their own on
+ * {@code spring.datasource}, the home shard with sharded payments; see
+ * {@link com.nelani.demo.config.QuotaConfig}. On the main pool a busy node
+ * would wait for a second connection it may never get, and then call
+ * without a permit just when the quota matters most. That pool is closed
+ * with the quota.
+ * <p>
+ * Metrics, tagged by provider:
+ * <ul>
+ * <li>{@code payments.quota.grants}: permit batches taken from the database</li>
+ * <li>{@code payments.quota.wait}: time calls waited for a permit</li>
+ * <li>{@code payments.quota.rejected}: calls refused after waiting</li>
+ * <li>{@code payments.quota.throttled}: 429 responses from the provider</li>
+ * <li>{@code payments.quota.errors}: calls let through because the quota table
+ * could not be reached</li>
+ * </ul>
+ */
+@Log4j2
+public class DatabaseProviderQuota implements ProviderQuota, AutoCloseable {
+
+    private final ProviderQuotaBucketRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProviderQuotaProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final AutoCloseable pool;
+
+    private final Map<BucketKey, Grant> grants = new ConcurrentHashMap<>();
+
+    private record BucketKey(PaymentProviderType provider, String tenantId) {
+    }
+
+    // Permits this node took from a bucket and has not used yet
+    private static final class Grant {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int permits;
+        private Instant expiresAt = Instant.MIN;
+    }
+
+    private record Taken(int permits, Duration untilNext) {
+    }
+
+    /**
+     * @param pool the connections behind {@code repository}, closed by
+     *             {@link #close()}
+     */
+    public DatabaseProviderQuota(ProviderQuotaBucketRepository repository,
+            PlatformTransactionManager transactionManager, ProviderQuotaProperties properties, Clock clock,
+            MeterRegistry meterRegistry, AutoCloseable pool) {
+        this.repository = repository;
+        // The quota pool's own transactions, so the row lock is held only briefly
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.pool = pool;
+    }
+
+    @Override
+    public void acquire(PaymentProviderType provider, String tenantId, int calls) {
+        ProviderQuotaProperties.Limit limit = limit(provider);
+        if (limit == null) {
+            return;
+        }
+        Instant start = clock.instant();
+        Instant deadline = start.plus(properties.maxWait());
+        Grant grant = grants.computeIfAbsent(new BucketKey(provider, tenantId), key -> new Grant());
+
+        try {
+            if (!grant.lock.tryLock(properties.maxWait().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw rejected(provider, properties.maxWait());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejected(provider, properties.maxWait());
+        }
+        try {
+            while (true) {
+                Instant now = clock.instant();
+                if (!now.isBefore(grant.expiresAt)) {
+                    grant.permits = 0;
+                }
+                if (grant.permits >= calls) {
+                    grant.permits -= calls;
+                    recordWait(provider, start, now);
+                    return;
+                }
+
+                int wanted = Math.max(properties.grantSize(), calls - grant.permits);
+                Taken taken = take(provider, tenantId, limit, wanted);
+                if (taken == null) {
+                    return;
+                }
+                grant.permits += taken.permits();
+                grant.expiresAt = now.plus(properties.grantTtl());
+                if (grant.permits >= calls) {
+                    grant.permits -= calls;
+                    recordWait(provider, start, now);
+                    return;
+                }
+
+                if (now.plus(taken.untilNext()).isAfter(deadline)) {
+                    throw rejected(provider, taken.untilNext());
+                }
+                Thread.sleep(Math.max(1, taken.untilNext().toMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejected(provider, properties.maxWait());
+        } finally {
+            grant.lock.unlock();
+        }
+    }
+
+    @Override
+    public void rateLimited(PaymentProviderType provider, String tenantId, Duration retryAfter) {
+        meterRegistry.counter("payments.quota.throttled", "provider", provider.name()).increment();
+        ProviderQuotaProperties.Limit limit = limit(provider);
+        if (limit == null) {
+            return;
+        }
+        // Permits taken before the 429 are not used
+        grants.remove(new BucketKey(provider, tenantId));
+
+        Duration block = retryAfter != null ? retryAfter : properties.defaultRetryAfter();
+        ProviderQuotaBucket bucket = inBucket(provider, tenantId, limit, current -> {
+            current.throttle(OffsetDateTime.now(clock), block, limit.minRatePerSecond());
+            return current;
+        });
+        if (bucket != null) {
+            log.warn("Provider rate limit reached, slowing down [provider={}, tenant={}, ratePerSecond={}, "
+                    + "blockedFor={}]", provider, tenantId, bucket.getRatePerSecond(), block);
+        }
+    }
+
+    /**
+     * Closes the quota's connection pool. Called on shutdown, as Spring
+     * closes {@link AutoCloseable} beans.
+     */
+    @Override
+    public void close() throws Exception {
+        pool.close();
+    }
+
+    private Taken take(PaymentProviderType provider, String tenantId, ProviderQuotaProperties.Limit limit,
+            int permits) {
+        double rateIncrease = limit.ratePerSecond() / (properties.recoveryTime().toMillis() / 1000.0);
+        Taken taken = inBucket(provider, tenantId, limit, bucket -> {
+            OffsetDateTime now = OffsetDateTime.now(clock);
+            int granted = bucket.take(permits, now, limit.ratePerSecond(), limit.burst(), rateIncrease);
+            return new Taken(granted, bucket.untilNextToken(now));
+        });
+        if (taken != null) {
+            meterRegistry.counter("payments.quota.grants", "provider", provider.name()).increment();
+        }
+        return taken;
+    }
+
+    /**
+     * Runs the action on the locked bucket, creating the bucket first if
+     * needed.
+     *
+     * @return the action's result, or null if the database could not be
+     *         reached
+     */
+private <T> T inBucket(PaymentProviderType provider, String tenantId, ProviderQuotaProperties.Limit limit,
+            Function<ProviderQuotaBucket, T> action) {
+        try {
+            try {
+                return transactionTemplate.execute(status -> inLockedBucket(provider, tenantId, limit, action));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the bucket at the same time; it exists now
+                return transactionTemplate.execute(status -> inLockedBucket(provider, tenantId, limit, action));
+            }
+        } catch (DataAccessException | TransactionException e) {
+            meterRegistry.counter("payments.quota.errors", "provider", provider.name()).increment();
+            log.warn("Provider quota unavailable, calling without a permit [provider={}, tenant={}]",
+                    provider, tenantId, e);
+            return null;
+        }
+    }
+
+    private <T> T inLockedBucket(PaymentProviderType provider, String tenantId, ProviderQuotaProperties.Limit limit,
+            Function<ProviderQuotaBucket, T> action) {
+        ProviderQuotaBucket bucket = repository.findForUpdate(provider, tenantId).orElseGet(() -> {
+            ProviderQuotaBucket created = new ProviderQuotaBucket(provider, tenantId, limit.ratePerSecond(),
+                    limit.burst(), OffsetDateTime.now(clock));
+            repository.insert(created);
+            return created;
+        });
+        T result = action.apply(bucket);
+        repository.update(bucket);
+        return result;
+    }
+
+    private ProviderQuotaProperties.Limit limit(PaymentProviderType provider) {
+        return properties.providers() == null ? null : properties.providers().get(provider);
+    }
+
+    private void recordWait(PaymentProviderType provider, Instant start, Instant now) {
+        if (now.isAfter(start)) {
+            Timer.builder("payments.quota.wait")
+                    .description("Time provider calls waited for a quota permit")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry)
+                    .record(Duration.between(start, now));
+        }
+    }
+
+    private ProviderQuotaExceededException rejected(PaymentProviderType provider, Duration retryAfter) {
+        meterRegistry.counter("payments.quota.rejected", "provider", provider.name()).increment();
+        return new ProviderQuotaExceededException(
+                "Too many " + provider + " requests for this merchant account. Please try again shortly.",
+                retryAfter);
+    }
+}
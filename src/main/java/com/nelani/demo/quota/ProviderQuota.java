@@ -0,0 +1,48 @@
+package com.nelani.demo.quota;
+
+import com.nelani.demo.exception.ProviderQuotaExceededException;
+import com.nelani.demo.model.PaymentProviderType;
+
+import java.time.Duration;
+
+/**
+ * Call quota of merchant accounts with payment providers.
+ * <p>
+ * Providers take a permit per API call before sending it and report the
+ * provider's rate limit responses back, so the quota can slow down for
+ * every node at once.
+ */
+public interface ProviderQuota {
+
+    /**
+     * A quota that never limits, used when {@code payments.quota.enabled} is
+     * off.
+     */
+    ProviderQuota UNLIMITED = new ProviderQuota() {
+
+        @Override
+        public void acquire(PaymentProviderType provider, String tenantId, int calls) {
+        }
+
+        @Override
+        public void rateLimited(PaymentProviderType provider, String tenantId, Duration retryAfter) {
+        }
+    };
+
+    /**
+     * Takes permits for the given number of calls, waiting a short while for
+     * them if needed.
+     *
+     * @throws ProviderQuotaExceededException if the permits are not available
+     *                                        in time
+     */
+    void acquire(PaymentProviderType provider, String tenantId, int calls);
+
+    /**
+     * Records that the provider rejected a call of the account with 429.
+     *
+     * @param retryAfter the provider's {@code Retry-After}, or null if it sent
+     *                   none
+     */
+    void rateLimited(PaymentProviderType provider, String tenantId, Duration retryAfter);
+}
@@ -0,0 +1,49 @@
+package com.nelani.demo.quota;
+
+import com.nelani.demo.model.PaymentProviderType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Cluster-wide provider call quotas, bound from {@code payments.quota}.
+ *
+ * @param enabled           off to call providers without a quota
+ * @param grantSize         permits a node takes from the database at once
+ * @param grantTtl          how long a node may use permits it took; unused
+ *                          ones are dropped after that
+ * @param maxWait           longest a call waits for a permit before failing
+ *                          with 429
+ * @param recoveryTime      time for a learned rate to climb from zero back to
+ *                          the configured rate
+ * @param defaultRetryAfter how long a bucket is blocked after a 429 without
+ *                          {@code Retry-After}
+ * @param poolSize          connections of the quota's own pool to
+ *                          {@code spring.datasource}
+ * @param providers         limits per provider; providers without one are not
+ *                          limited
+ */
+@ConfigurationProperties("payments.quota")
+public record ProviderQuotaProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5") int grantSize,
+        @DefaultValue("PT1S") Duration grantTtl,
+        @DefaultValue("PT1S") Duration maxWait,
+        @DefaultValue("PT1M") Duration recoveryTime,
+        @DefaultValue("PT1S") Duration defaultRetryAfter,
+        @DefaultValue("2") int poolSize,
+        Map<PaymentProviderType, Limit> providers) {
+
+    /**
+     * Limit of each merchant account with one provider.
+     *
+     * @param ratePerSecond    sustained calls per second
+     * @param burst            calls that may be made at once after a quiet
+     *                         period
+     * @param minRatePerSecond floor of the learned rate
+     */
+    public record Limit(double ratePerSecond, int burst, @DefaultValue("1") double minRatePerSecond) {
+    }
+}
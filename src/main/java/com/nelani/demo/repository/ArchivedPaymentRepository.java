@@ -0,0 +1,60 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.ArchivedPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Archive tier of the payments (see {@code V7__create_payments_archive.sql}).
+ * <p>
+ * Moves between the tiers are single INSERT ... SELECT statements, so rows
+ * never pass through the persistence context.
+ */
+@Repository
+public interface ArchivedPaymentRepository extends JpaRepository<ArchivedPayment, UUID> {
+
+    Optional<ArchivedPayment> findByOrderId(String orderId);
+
+    /**
+     * Copies the given rows of {@code payments} into the archive. The caller
+     * deletes them from {@code payments} in the same transaction. JPQL rather
+     * than SQL so {@code archivedAt} is bound in the column's storage schema.
+     */
+    @Modifying
+    @Query("""
+            insert into ArchivedPayment (id, tenantId, orderId, amount, currency, status, provider, createdAt,
+                                         expiresAt, completedAt, providerReference, checkoutUrl, archivedAt)
+            select p.id, p.tenantId, p.orderId, p.amount, p.currency, p.status, p.provider, p.createdAt,
+                   p.expiresAt, p.completedAt, p.providerReference, p.checkoutUrl, :archivedAt
+            from Payment p
+            where p.id in :ids
+            """)
+    int copyFromPayments(@Param("ids") Collection<UUID> ids, @Param("archivedAt") OffsetDateTime archivedAt);
+
+    /**
+     * Copies the archived rows of the given orders back into {@code payments}.
+     * The caller deletes them from the archive in the same transaction.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO payments (id, tenant_id, order_id, amount, currency, status, provider, created_at,
+                                  expires_at, completed_at, provider_reference, checkout_url)
+            SELECT id, tenant_id, order_id, amount, currency, status, provider, created_at, expires_at,
+                   completed_at, provider_reference, checkout_url
+            FROM payments_archive
+            WHERE order_id IN (:orderIds)
+            """, nativeQuery = true)
+    int copyToPayments(@Param("orderIds") Collection<String> orderIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM payments_archive WHERE order_id IN (:orderIds)", nativeQuery = true)
+    int deleteByOrderIds(@Param("orderIds") Collection<String> orderIds);
+}
@@ -0,0 +1,21 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Query("select count(n) from ClusterNode n where n.heartbeatAt > :since")
+    long countAlive(@Param("since") OffsetDateTime since);
+
+    @Modifying
+    @Query("delete from ClusterNode n where n.heartbeatAt < :cutoff")
+    int deleteSilentSince(@Param("cutoff") OffsetDateTime cutoff);
+}
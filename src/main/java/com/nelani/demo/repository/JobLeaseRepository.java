@@ -0,0 +1,25 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.JobLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // Row lock, so a lease changes hands only once the current holder's fenced write has committed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from JobLease l where l.name = :name")
+    Optional<JobLease> findForUpdate(@Param("name") String name);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from JobLease l where l.owner = :owner")
+    List<JobLease> findForUpdateByOwner(@Param("owner") String owner);
+}
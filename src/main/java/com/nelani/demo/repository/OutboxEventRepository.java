@@ -0,0 +1,49 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.dto.PaymentEventMessage;
+import com.nelani.demo.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Returns the oldest unpublished events in delivery order, projected
+     * straight into messages.
+     */
+    @Query("""
+            select new com.nelani.demo.dto.PaymentEventMessage(
+                e.id, e.orderId, e.status, e.provider, e.amount, e.occurredAt)
+            from OutboxEvent e
+            where e.publishedAt is null
+            order by e.id
+            """)
+    List<PaymentEventMessage> findUnpublished(Limit limit);
+
+    long countByPublishedAtIsNull();
+
+    @Query("select coalesce(max(e.id), 0) from OutboxEvent e")
+    long findMaxId();
+
+    // Read by every node's tail, published or not
+    List<OutboxEvent> findByIdGreaterThanOrderById(long id, Limit limit);
+
+    List<OutboxEvent> findByIdInOrderById(Collection<Long> ids);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :publishedAt where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") OffsetDateTime publishedAt);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") OffsetDateTime cutoff);
+}
@@ -1,19 +1,93 @@
 package com.nelani.demo.repository;
 
 import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, UUID> {
+public interface PaymentRepository extends JpaRepository<Payment, UUID>, PaymentSearchRepository,
+        PaymentStatsRepository {
 
     @Override
     Page<Payment> findAll(Pageable pageable);
 
+    /**
+     * Pages over payments as {@link PaymentSummary} rows without hydrating
+     * managed entities. Sorting uses the entity property names, as for
+     * {@link #findAll(Pageable)}.
+     */
+    @Query(value = """
+            select new com.nelani.demo.model.PaymentSummary(
+                p.orderId, p.amount, p.currency, p.status, p.provider, p.createdAt, p.expiresAt, p.completedAt)
+            from Payment p
+            """, countQuery = "select count(p) from Payment p")
+    Page<PaymentSummary> findAllSummaries(Pageable pageable);
+
     Optional<Payment> findByOrderId(String orderId);
+
+    List<Payment> findByOrderIdIn(Collection<String> orderIds);
+
+    /**
+     * Order ids of the most recent payments in one of {@code statuses},
+     * newest first. Used to preload the orders checkouts are likely to look
+     * up next.
+     */
+    @Query("""
+            select p.orderId from Payment p
+            where p.status in :statuses
+            order by p.createdAt desc
+            """)
+    List<String> findRecentOrderIds(@Param("statuses") Collection<PaymentStatus> statuses, Limit limit);
+
+    /**
+     * Keyset page of payments in {@code status} created before
+     * {@code createdBefore}, ordered by (createdAt, id) and starting after the
+     * given cursor, among the ids from {@code firstId} to {@code lastId}.
+     * Served by {@code idx_payment_status_created}.
+     */
+    @Query("""
+            select p from Payment p
+            where p.status = :status
+              and p.createdAt < :createdBefore
+              and (p.createdAt > :afterCreatedAt or (p.createdAt = :afterCreatedAt and p.id > :afterId))
+              and p.id between :firstId and :lastId
+            order by p.createdAt, p.id
+            """)
+    List<Payment> findChunkAfter(@Param("status") PaymentStatus status,
+            @Param("createdBefore") OffsetDateTime createdBefore,
+            @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+            @Param("afterId") UUID afterId,
+            @Param("firstId") UUID firstId,
+            @Param("lastId") UUID lastId,
+            Limit limit);
+
+    /**
+     * Locks up to {@code limit} payments in one of {@code statuses} created
+     * before {@code createdBefore}, oldest first, and returns their ids. The
+     * locks keep the rows from changing while they are moved to the archive.
+     * Served by {@code idx_payment_status_created}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select p.id from Payment p
+            where p.status in :statuses and p.createdAt < :createdBefore
+            order by p.createdAt
+            """)
+    List<UUID> lockArchivable(@Param("statuses") Collection<PaymentStatus> statuses,
+            @Param("createdBefore") OffsetDateTime createdBefore, Limit limit);
 }
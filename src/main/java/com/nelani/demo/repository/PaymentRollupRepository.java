@@ -0,0 +1,198 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Money;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.RollupGranularity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains and reads the payment rollup tables (see
+ * {@code V4__create_payment_rollups.sql}), with one bucket per provider and
+ * currency so amounts in different currencies are never added up.
+ * <p>
+ * Plain JDBC: the work is set-based INSERT ... SELECT aggregation that never
+ * needs entities. Hourly buckets are computed from both payment tiers,
+ * {@code payments} and {@code payments_archive}; daily buckets are summed from
+ * the hourly ones. Payment columns are read through {@link PaymentStorageSchema},
+ * so the same statements work on the compact schema.
+ */
+@Repository
+public class PaymentRollupRepository {
+
+    private static final String AGGREGATES = """
+            COUNT(*) AS payments,
+            SUM(CASE WHEN status = 'SUCCESS' THEN 1 ELSE 0 END) AS succeeded,
+            SUM(CASE WHEN status = 'FAILED' THEN 1 ELSE 0 END) AS failed,
+            SUM(CASE WHEN status = 'EXPIRED' THEN 1 ELSE 0 END) AS expired,
+            SUM(amount) AS amount,
+            SUM(CASE WHEN status = 'SUCCESS' THEN amount ELSE 0 END) AS succeeded_amount,
+            COUNT(completed_at) AS completed,
+            COALESCE(SUM(DATEDIFF('SECOND', created_at, completed_at)), 0) AS completion_seconds
+            """;
+
+    private static final String SUMS = """
+            SUM(payments), SUM(succeeded), SUM(failed), SUM(expired), SUM(amount), SUM(succeeded_amount),
+            SUM(completed), SUM(completion_seconds)
+            """;
+
+    private static final String COLUMNS = """
+            bucket_start, provider, currency, payments, succeeded, failed, expired, amount, succeeded_amount,
+            completed, completion_seconds
+            """;
+
+    private static final RowMapper<PaymentRollupDTO> ROLLUP_MAPPER = (rs, rowNum) -> {
+        long payments = rs.getLong("payments");
+        long succeeded = rs.getLong("succeeded");
+        long completed = rs.getLong("completed");
+        CurrencyCode currency = CurrencyCode.valueOf(rs.getString("currency"));
+        return new PaymentRollupDTO(
+                rs.getObject("bucket_start", OffsetDateTime.class),
+                PaymentProviderType.valueOf(rs.getString("provider")),
+                currency,
+                payments,
+                succeeded,
+                rs.getLong("failed"),
+                rs.getLong("expired"),
+                payments == 0 ? 0 : (double) succeeded / payments,
+                Money.of(rs.getBigDecimal("amount"), currency).toBigDecimal(),
+                Money.of(rs.getBigDecimal("succeeded_amount"), currency).toBigDecimal(),
+                completed == 0 ? null : (double) rs.getLong("completion_seconds") / completed);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentStorageSchema schema;
+    private final String paymentColumns;
+
+    public PaymentRollupRepository(JdbcTemplate jdbcTemplate,
+            @Value("${payments.storage.schema:standard}") PaymentStorageSchema schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schema = schema;
+        this.paymentColumns = schema.status("status") + " AS status, " + schema.provider("provider")
+                + " AS provider, currency, amount, " + schema.timestamp("created_at") + " AS created_at, "
+                + schema.timestamp("completed_at") + " AS completed_at";
+    }
+
+    public Optional<OffsetDateTime> findRebuiltAt(String job) {
+        return jdbcTemplate.query("SELECT rebuilt_at FROM payment_rollup_rebuild WHERE job = ?",
+                (rs, rowNum) -> rs.getObject(1, OffsetDateTime.class), job).stream().findFirst();
+    }
+
+    public void saveRebuiltAt(String job, OffsetDateTime rebuiltAt) {
+        jdbcTemplate.update("""
+                MERGE INTO payment_rollup_rebuild (job, rebuilt_at)
+                KEY (job) VALUES (?, ?)
+                """, job, rebuiltAt);
+    }
+
+    /**
+     * Stamps every outbox event not rolled up yet with {@code rolledUpAt},
+     * which must be unique to the refresh and at microsecond precision.
+     *
+     * @return the number of events stamped
+     */
+    public int markRolledUp(OffsetDateTime rolledUpAt) {
+        return jdbcTemplate.update("UPDATE payment_outbox SET rolled_up_at = ? WHERE rolled_up_at IS NULL",
+                rolledUpAt);
+    }
+
+    /**
+     * UTC hours, by payment creation time, touched by the outbox events
+     * stamped with {@code rolledUpAt}.
+     */
+    public List<OffsetDateTime> findDirtyHours(OffsetDateTime rolledUpAt) {
+        return jdbcTemplate.query("""
+                SELECT DATE_TRUNC('HOUR', %s AT TIME ZONE 'UTC') AS bucket_start
+                FROM payment_outbox o
+                JOIN payments p ON p.order_id = o.order_id
+                WHERE o.rolled_up_at = ?
+                UNION
+                SELECT DATE_TRUNC('HOUR', %s AT TIME ZONE 'UTC')
+                FROM payment_outbox o
+                JOIN payments_archive a ON a.order_id = o.order_id
+                WHERE o.rolled_up_at = ?
+                ORDER BY bucket_start
+                """.formatted(schema.timestamp("p.created_at"), schema.timestamp("a.created_at")),
+                (rs, rowNum) -> rs.getObject(1, OffsetDateTime.class), rolledUpAt, rolledUpAt);
+    }
+
+    public void rebuildAll() {
+        jdbcTemplate.update("DELETE FROM payment_rollup_hourly");
+        jdbcTemplate.update("INSERT INTO payment_rollup_hourly (" + COLUMNS + ") "
+                + "SELECT DATE_TRUNC('HOUR', created_at AT TIME ZONE 'UTC'), provider, currency, " + AGGREGATES
+                + "FROM " + allPayments("")
+                + "GROUP BY DATE_TRUNC('HOUR', created_at AT TIME ZONE 'UTC'), provider, currency");
+        jdbcTemplate.update("DELETE FROM payment_rollup_daily");
+        jdbcTemplate.update("INSERT INTO payment_rollup_daily (" + COLUMNS + ") "
+                + "SELECT DATE_TRUNC('DAY', bucket_start), provider, currency, " + SUMS
+                + "FROM payment_rollup_hourly GROUP BY DATE_TRUNC('DAY', bucket_start), provider, currency");
+    }
+
+    /**
+     * Re-aggregates one bucket from its source: hourly buckets from the
+     * payments created in that hour (an index range scan on created_at in each
+     * tier), daily
+     * buckets from their hourly buckets.
+     */
+    public void rebuildBucket(RollupGranularity granularity, OffsetDateTime bucketStart) {
+        OffsetDateTime bucketEnd = bucketStart.plus(1, granularity.unit());
+        String table = granularity.tableName();
+
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE bucket_start = ?", bucketStart);
+        if (granularity == RollupGranularity.HOURLY) {
+            jdbcTemplate.update("INSERT INTO " + table + " (" + COLUMNS + ") SELECT ?, provider, currency, "
+                    + AGGREGATES + "FROM " + allPayments(" WHERE created_at >= ? AND created_at < ?")
+                    + "GROUP BY provider, currency",
+                    bucketStart, schema.bind(bucketStart), schema.bind(bucketEnd), schema.bind(bucketStart),
+                    schema.bind(bucketEnd));
+        } else {
+            jdbcTemplate.update("INSERT INTO " + table + " (" + COLUMNS + ") SELECT ?, provider, currency, "
+                    + SUMS + "FROM payment_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? "
+                    + "GROUP BY provider, currency",
+                    bucketStart, bucketStart, bucketEnd);
+        }
+    }
+
+    public List<PaymentRollupDTO> findRollups(RollupGranularity granularity, OffsetDateTime from,
+            OffsetDateTime to, PaymentProviderType provider) {
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        String providerFilter = "";
+        if (provider != null) {
+            providerFilter = " AND provider = ?";
+            args.add(provider.name());
+        }
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + granularity.tableName()
+                + " WHERE bucket_start >= ? AND bucket_start < ?" + providerFilter
+                + " ORDER BY bucket_start, provider, currency", ROLLUP_MAPPER, args.toArray());
+    }
+
+    /**
+     * The same figures computed straight from the payment tiers, for comparison
+     * in benchmarks and tests.
+     */
+    public List<PaymentRollupDTO> aggregateRaw(RollupGranularity granularity, OffsetDateTime from,
+            OffsetDateTime to) {
+        String bucket = "DATE_TRUNC('" + (granularity == RollupGranularity.HOURLY ? "HOUR" : "DAY")
+                + "', created_at AT TIME ZONE 'UTC')";
+        return jdbcTemplate.query("SELECT " + bucket + " AS bucket_start, provider, currency, " + AGGREGATES
+                + "FROM " + allPayments(" WHERE created_at >= ? AND created_at < ?")
+                + "GROUP BY " + bucket + ", provider, currency ORDER BY bucket_start, provider, currency",
+                ROLLUP_MAPPER, schema.bind(from), schema.bind(to), schema.bind(from), schema.bind(to));
+    }
+
+    // Both tiers with the same filter on each side, so each can use its created_at index.
+    // The filter is on the raw column, the projection is decoded.
+    private String allPayments(String where) {
+        return "(SELECT " + paymentColumns + " FROM payments" + where
+                + " UNION ALL SELECT " + paymentColumns + " FROM payments_archive" + where + ") p ";
+    }
+}
@@ -0,0 +1,25 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.PaymentSearchCriteria;
+import com.nelani.demo.model.PaymentSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Repository fragment for filtered payment searches built at runtime.
+ */
+public interface PaymentSearchRepository {
+
+    /**
+     * How far into the results a page may reach: its offset plus its size.
+     * Searches that cover the archive read this many rows from each tier, so
+     * deeper pages are refused rather than materialized.
+     */
+    int MAX_WINDOW = 10_000;
+
+    /**
+     * @throws IllegalArgumentException if the page reaches past
+     *                                  {@link #MAX_WINDOW}
+     */
+    Page<PaymentSummary> search(PaymentSearchCriteria criteria, Pageable pageable);
+}
@@ -0,0 +1,136 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.ArchivedPayment;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentSearchCriteria;
+import com.nelani.demo.model.PaymentSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria API implementation of {@link PaymentSearchRepository}.
+ * <p>
+ * Only the filters that are set end up in the WHERE clause, so every
+ * combination produces its own plan and can use the matching composite index
+ * (see {@code V2__add_payment_search_indexes.sql}). Rows are selected into
+ * {@link PaymentSummary} and never become managed entities.
+ * <p>
+ * Searches cover both tiers, {@code payments} and the archived payments. When
+ * no archived payment matches, which a single count on the small archive
+ * indexes answers, the page is read from {@code payments} alone as before.
+ * Otherwise the first offset + size rows of each tier are read in sort order
+ * and merged, so the page is exact without a UNION over both tables. That
+ * window is bounded by {@link PaymentSearchRepository#MAX_WINDOW}, for both
+ * paths alike.
+ */
+class PaymentSearchRepositoryImpl implements PaymentSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<PaymentSummary> search(PaymentSearchCriteria criteria, Pageable pageable) {
+        if (pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() > MAX_WINDOW) {
+            throw new IllegalArgumentException("Pages must end within the first " + MAX_WINDOW + " results");
+        }
+        long archived = count(ArchivedPayment.class, criteria);
+        if (archived == 0) {
+            List<PaymentSummary> content = pageable.isPaged()
+                    ? select(Payment.class, criteria, pageable.getSort(), pageable.getOffset(), pageable.getPageSize())
+                    : select(Payment.class, criteria, pageable.getSort(), 0, -1);
+            return PageableExecutionUtils.getPage(content, pageable, () -> count(Payment.class, criteria));
+        }
+
+        int window = pageable.isPaged() ? Math.toIntExact(pageable.getOffset() + pageable.getPageSize()) : -1;
+        List<PaymentSummary> merged = new ArrayList<>(select(Payment.class, criteria, pageable.getSort(), 0, window));
+        merged.addAll(select(ArchivedPayment.class, criteria, pageable.getSort(), 0, window));
+        // Two sorted runs, merged in one pass; ties keep hot rows first
+        merged.sort(PaymentSummary.comparator(pageable.getSort()));
+
+        List<PaymentSummary> content = merged;
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), merged.size());
+            content = merged.subList(from, Math.min(window, merged.size()));
+        }
+        return new PageImpl<>(content, pageable, count(Payment.class, criteria) + archived);
+    }
+
+    private <T> List<PaymentSummary> select(Class<T> tier, PaymentSearchCriteria criteria, Sort sort, long offset,
+            int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<PaymentSummary> query = cb.createQuery(PaymentSummary.class);
+        Root<T> payment = query.from(tier);
+        query.select(cb.construct(PaymentSummary.class,
+                payment.get("orderId"),
+                payment.get("amount"),
+                payment.get("currency"),
+                payment.get("status"),
+                payment.get("provider"),
+                payment.get("createdAt"),
+                payment.get("expiresAt"),
+                payment.get("completedAt")))
+                .where(predicates(criteria, payment, cb))
+                .orderBy(QueryUtils.toOrders(sort, payment, cb));
+
+        TypedQuery<PaymentSummary> typedQuery = entityManager.createQuery(query);
+        if (limit >= 0) {
+            typedQuery.setFirstResult(Math.toIntExact(offset));
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    private long count(Class<?> tier, PaymentSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<?> payment = query.from(tier);
+        query.select(cb.count(payment)).where(predicates(criteria, payment, cb));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Equality filters first, then ranges, mirroring the column order of the composite indexes
+    private static Predicate[] predicates(PaymentSearchCriteria criteria, Root<?> payment,
+            CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (criteria.status() != null) {
+            predicates.add(cb.equal(payment.get("status"), criteria.status()));
+        }
+        if (criteria.provider() != null) {
+            predicates.add(cb.equal(payment.get("provider"), criteria.provider()));
+        }
+        addRange(predicates, cb, payment.get("createdAt"), criteria.createdFrom(), criteria.createdTo());
+        addRange(predicates, cb, payment.get("completedAt"), criteria.completedFrom(), criteria.completedTo());
+        addRange(predicates, cb, payment.get("amount"), criteria.minAmount(), criteria.maxAmount());
+
+        return predicates.toArray(Predicate[]::new);
+    }
+
+    private static <T extends Comparable<? super T>> void addRange(List<Predicate> predicates, CriteriaBuilder cb,
+            Path<T> path, T from, T to) {
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(path, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThanOrEqualTo(path, to));
+        }
+    }
+}
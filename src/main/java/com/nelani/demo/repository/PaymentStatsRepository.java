@@ -0,0 +1,16 @@
+package com.nelani.demo.repository;
+
+import java.util.List;
+
+/**
+ * Repository fragment for statistics aggregated over both payment tiers.
+ */
+public interface PaymentStatsRepository {
+
+    /**
+     * Counts and sums all payments, hot and archived, per status, provider,
+     * currency and UTC creation day in a single pass. Used to reconcile the
+     * in-memory statistics counters.
+     */
+    List<PaymentStatsRow> aggregateStats();
+}
@@ -0,0 +1,80 @@
+package com.nelani.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Plain JDBC implementation of {@link PaymentStatsRepository}, so the columns
+ * can be read through {@link PaymentStorageSchema}.
+ */
+class PaymentStatsRepositoryImpl implements PaymentStatsRepository {
+
+    private record Row(String status, String provider, String currency, LocalDate createdDay, long payments,
+            BigDecimal amount) implements PaymentStatsRow {
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getProvider() {
+            return provider;
+        }
+
+        @Override
+        public String getCurrency() {
+            return currency;
+        }
+
+        @Override
+        public LocalDate getCreatedDay() {
+            return createdDay;
+        }
+
+        @Override
+        public long getPayments() {
+            return payments;
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+
+    PaymentStatsRepositoryImpl(JdbcTemplate jdbcTemplate,
+            @Value("${payments.storage.schema:standard}") PaymentStorageSchema schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Grouped on the raw columns, decoded once per group
+        this.sql = """
+                SELECT %s AS status, %s AS provider, currency, created_day, COUNT(*) AS payments,
+                       SUM(amount) AS amount
+                FROM (SELECT status, provider, currency, CAST(%s AT TIME ZONE 'UTC' AS DATE) AS created_day, amount
+                      FROM payments
+                      UNION ALL
+                      SELECT status, provider, currency, CAST(%s AT TIME ZONE 'UTC' AS DATE) AS created_day, amount
+                      FROM payments_archive)
+                GROUP BY status, provider, currency, created_day
+                """.formatted(schema.status("status"), schema.provider("provider"),
+                schema.timestamp("created_at"), schema.timestamp("created_at"));
+    }
+
+    @Override
+    public List<PaymentStatsRow> aggregateStats() {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Row(
+                rs.getString("status"),
+                rs.getString("provider"),
+                rs.getString("currency"),
+                rs.getObject("created_day", LocalDate.class),
+                rs.getLong("payments"),
+                rs.getBigDecimal("amount")));
+    }
+}
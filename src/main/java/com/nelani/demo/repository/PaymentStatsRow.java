@@ -0,0 +1,22 @@
+package com.nelani.demo.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One group of {@link PaymentRepository#aggregateStats()}.
+ */
+public interface PaymentStatsRow {
+
+    String getStatus();
+
+    String getProvider();
+
+    String getCurrency();
+
+    LocalDate getCreatedDay();
+
+    long getPayments();
+
+    BigDecimal getAmount();
+}
@@ -0,0 +1,88 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.converter.EpochMicrosConverter;
+
+import java.time.OffsetDateTime;
+import java.util.function.Function;
+
+/**
+ * How the payment tiers store status, provider and timestamps, selected with
+ * {@code payments.storage.schema}. Entities are mapped for either schema by
+ * JPA; this is for the native SQL over the payment tables, which reads the
+ * raw columns.
+ * <p>
+ * The expression methods take a raw column and return SQL with the standard
+ * type: the enum name as a string, or a {@code TIMESTAMP WITH TIME ZONE}.
+ * Filters should compare the raw column with {@link #bind(OffsetDateTime)}
+ * instead, so they can still use the indexes.
+ */
+public enum PaymentStorageSchema {
+
+    STANDARD {
+        @Override
+        public String status(String column) {
+            return column;
+        }
+
+        @Override
+        public String provider(String column) {
+            return column;
+        }
+
+        @Override
+        public String timestamp(String column) {
+            return column;
+        }
+
+        @Override
+        public Object bind(OffsetDateTime time) {
+            return time;
+        }
+    },
+
+    COMPACT {
+        private static final String EPOCH = "TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00'";
+
+        @Override
+        public String status(String column) {
+            return decode(column, PaymentStatus.values(), PaymentStatus::code);
+        }
+
+        @Override
+        public String provider(String column) {
+            return decode(column, PaymentProviderType.values(), PaymentProviderType::code);
+        }
+
+        @Override
+        public String timestamp(String column) {
+            return "DATEADD(MICROSECOND, " + column + ", " + EPOCH + ")";
+        }
+
+        @Override
+        public Object bind(OffsetDateTime time) {
+            return EpochMicrosConverter.toEpochMicros(time.toInstant());
+        }
+    };
+
+    public abstract String status(String column);
+
+    public abstract String provider(String column);
+
+    public abstract String timestamp(String column);
+
+    /**
+     * The value to bind when comparing a raw timestamp column with {@code time}.
+     */
+    public abstract Object bind(OffsetDateTime time);
+
+    // CASE column WHEN 1 THEN 'EXPIRED' ... END
+    private static <E extends Enum<E>> String decode(String column, E[] values, Function<E, Short> code) {
+        StringBuilder sql = new StringBuilder("CASE ").append(column);
+        for (E value : values) {
+            sql.append(" WHEN ").append(code.apply(value)).append(" THEN '").append(value.name()).append('\'');
+        }
+        return sql.append(" END").toString();
+    }
+}
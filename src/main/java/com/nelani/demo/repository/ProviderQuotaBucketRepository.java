@@ -0,0 +1,68 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.ProviderQuotaBucket;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Reads and writes the provider quota buckets (see
+ * {@code V10__create_provider_quota.sql}).
+ * <p>
+ * Plain JDBC on the quota's own connection pool rather than a Spring Data
+ * repository: the quota is taken while a payment transaction holds a
+ * connection of the main pool, so it must not need a second one from it.
+ * Not a component; {@link com.nelani.demo.config.QuotaConfig} creates it.
+ */
+public class ProviderQuotaBucketRepository {
+
+    private static final RowMapper<ProviderQuotaBucket> BUCKET_MAPPER = (rs, rowNum) -> new ProviderQuotaBucket(
+            PaymentProviderType.valueOf(rs.getString("provider")),
+            rs.getString("tenant_id"),
+            rs.getDouble("tokens"),
+            rs.getDouble("rate_per_second"),
+            rs.getObject("refilled_at", OffsetDateTime.class),
+            rs.getObject("blocked_until", OffsetDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProviderQuotaBucketRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Row lock, so nodes take tokens from a bucket one at a time
+    public Optional<ProviderQuotaBucket> findForUpdate(PaymentProviderType provider, String tenantId) {
+        return jdbcTemplate.query("""
+                SELECT provider, tenant_id, tokens, rate_per_second, refilled_at, blocked_until
+                FROM provider_quota
+                WHERE provider = ? AND tenant_id = ?
+                FOR UPDATE
+                """, BUCKET_MAPPER, provider.name(), tenantId).stream().findFirst();
+    }
+
+    /**
+     * Inserts a new bucket.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if another node
+     *                                                       created it first
+     */
+    public void insert(ProviderQuotaBucket bucket) {
+        jdbcTemplate.update("""
+                INSERT INTO provider_quota (provider, tenant_id, tokens, rate_per_second, refilled_at, blocked_until)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, bucket.getProvider().name(), bucket.getTenantId(), bucket.getTokens(),
+                bucket.getRatePerSecond(), bucket.getRefilledAt(), bucket.getBlockedUntil());
+    }
+
+    public void update(ProviderQuotaBucket bucket) {
+        jdbcTemplate.update("""
+                UPDATE provider_quota
+                SET tokens = ?, rate_per_second = ?, refilled_at = ?, blocked_until = ?
+                WHERE provider = ? AND tenant_id = ?
+                """, bucket.getTokens(), bucket.getRatePerSecond(), bucket.getRefilledAt(),
+                bucket.getBlockedUntil(), bucket.getProvider().name(), bucket.getTenantId());
+    }
+}
@@ -0,0 +1,28 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.WebhookInboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEvent, Long> {
+
+    /**
+     * Returns the oldest unprocessed events in arrival order.
+     */
+    @Query("select e from WebhookInboxEvent e where e.processedAt is null order by e.id")
+    List<WebhookInboxEvent> findUnprocessed(Limit limit);
+
+    long countByProcessedAtIsNull();
+
+    @Modifying
+    @Query("delete from WebhookInboxEvent e where e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") OffsetDateTime cutoff);
+}
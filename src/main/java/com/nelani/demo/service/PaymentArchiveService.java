@@ -0,0 +1,11 @@
+package com.nelani.demo.service;
+
+import java.util.Collection;
+
+public interface PaymentArchiveService {
+
+    int archive();
+
+    int restore(Collection<String> orderIds);
+
+}
@@ -0,0 +1,10 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.BatchPaymentResponseDTO;
+
+public interface PaymentBatchService {
+
+    BatchPaymentResponseDTO initializePayments(BatchPaymentRequestDTO request);
+
+}
@@ -0,0 +1,40 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+public interface PaymentEventStreamService {
+
+    SseEmitter subscribe(String orderId);
+
+    /**
+     * Follows a payment over another transport than SSE. The sink receives
+     * the current status, then every committed change, and is completed
+     * after a final status. Returns the action that ends the subscription
+     * early, e.g. when the client goes away.
+     */
+    Runnable subscribe(String orderId, StatusSink sink);
+
+    /**
+     * Receives the status changes of one subscription, one call at a time.
+     */
+    interface StatusSink {
+
+        /**
+         * Delivers a status change. Throwing ends the subscription.
+         */
+        void send(PaymentStatusChangedEvent event) throws IOException;
+
+        /**
+         * Keeps an idle connection open, for transports without their own
+         * keep-alive.
+         */
+        default void heartbeat() throws IOException {
+        }
+
+        void complete();
+    }
+
+}
@@ -4,6 +4,7 @@ import com.nelani.demo.model.PaymentProviderType;
 import com.nelani.demo.provider.PaymentProvider;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,4 +26,8 @@ public class PaymentProviderFactory {
                 return Optional.ofNullable(providers.get(type))
                                 .orElseThrow(() -> new IllegalArgumentException("Unsupported provider: " + type));
         }
+
+        public Collection<PaymentProvider> all() {
+                return providers.values();
+        }
 }
@@ -0,0 +1,9 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.ReconciliationResult;
+
+public interface PaymentReconciliationService {
+
+    ReconciliationResult reconcile();
+
+}
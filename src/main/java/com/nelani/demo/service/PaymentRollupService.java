@@ -0,0 +1,17 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.RollupGranularity;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface PaymentRollupService {
+
+    List<PaymentRollupDTO> getRollups(RollupGranularity granularity, OffsetDateTime from, OffsetDateTime to,
+            PaymentProviderType provider);
+
+    void refresh();
+
+}
@@ -2,6 +2,7 @@ package com.nelani.demo.service;
 
 import com.nelani.demo.dto.PaymentRequestDTO;
 import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
@@ -11,7 +12,16 @@ public interface PaymentService {
 
     Page<PaymentResponseDTO> getAllPayments(PaymentSortField field, Sort.Direction direction, int page, int size);
 
+    Page<PaymentResponseDTO> searchPayments(PaymentSearchCriteria criteria, PaymentSortField field,
+            Sort.Direction direction, int page, int size);
+
     PaymentResponseDTO initializePayment(PaymentRequestDTO request);
 
     PaymentResponseDTO resumePayment(String orderId);
+
+    /**
+     * Returns the current state of a payment, archived ones included,
+     * without its provider session.
+     */
+    PaymentResponseDTO getPayment(String orderId);
 }
@@ -0,0 +1,13 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.PaymentStatsDTO;
+
+import java.time.LocalDate;
+
+public interface PaymentStatsService {
+
+    PaymentStatsDTO getStats(LocalDate from, LocalDate to);
+
+    void reconcile();
+
+}
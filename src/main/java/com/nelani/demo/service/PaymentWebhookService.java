@@ -1,7 +1,25 @@
 package com.nelani.demo.service;
 
+import com.nelani.demo.model.PaymentProviderType;
+import org.springframework.http.HttpHeaders;
+
 public interface PaymentWebhookService {
 
-    void handleStripeWebhook(String payload, String signature);
+    /**
+     * Verifies a webhook with the provider's signature headers and queues it.
+     *
+     * @param tenantId merchant account whose endpoint received the webhook
+     * @param headers  all request headers
+     */
+    void handleWebhook(PaymentProviderType provider, String tenantId, String payload, HttpHeaders headers);
+
+    /**
+     * Feeds an archived, already verified webhook through the same ingestion
+     * path as a live one.
+     *
+     * @return true if the event was queued, false if it is irrelevant or was
+     *         accepted before
+     */
+    boolean replayWebhook(PaymentProviderType provider, String tenantId, String payload);
 
 }
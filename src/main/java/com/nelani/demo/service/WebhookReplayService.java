@@ -0,0 +1,13 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.WebhookReplayResult;
+import com.nelani.demo.model.PaymentProviderType;
+
+import java.time.OffsetDateTime;
+
+public interface WebhookReplayService {
+
+    WebhookReplayResult replay(OffsetDateTime from, OffsetDateTime to, PaymentProviderType provider,
+            int ratePerSecond, int workers);
+
+}
@@ -0,0 +1,170 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentArchiveService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves terminal payments out of the hot {@code payments} table into the
+ * archive tier, and back when an archived order is initialized again.
+ * <p>
+ * A pass moves SUCCESS, FAILED and EXPIRED payments created longer ago than
+ * the configured age, oldest first, in batches. Each batch locks its rows,
+ * copies them into {@code payments_archive} and deletes them from
+ * {@code payments} in one transaction, so a payment is always in exactly one
+ * tier. Reads fall through to the archive (see
+ * {@code PaymentSearchRepositoryImpl} and the lookups in the services), and
+ * stats and rollups aggregate both tiers, so a move changes no figures.
+ * <p>
+ * Row counts per tier are published as the {@code payments.rows} gauge and
+ * refreshed on their own interval rather than on every scrape.
+ * <p>
+ * Passes run on the node holding the archiver's job lease. Each batch locks
+ * its rows, so a pass that overlaps a takeover moves nothing twice.
+ * <p>
+ * With sharded payments, each shard archives its own payments, and a
+ * restore runs on the shard the caller's transaction uses, which is the
+ * order's.
+ */
+@Log4j2
+@Service
+public class PaymentArchiveServiceImpl implements PaymentArchiveService {
+
+    static final String JOB = "payment-archive";
+
+    private static final Set<PaymentStatus> TERMINAL_STATUSES = EnumSet.of(PaymentStatus.SUCCESS,
+            PaymentStatus.FAILED, PaymentStatus.EXPIRED);
+
+    private final PaymentRepository paymentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final JobCoordinator coordinator;
+    private final PaymentShards shards;
+    private final boolean enabled;
+    private final Duration archiveAfter;
+    private final int batchSize;
+
+    private final AtomicLong hotRows = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+
+    public PaymentArchiveServiceImpl(PaymentRepository paymentRepository,
+            ArchivedPaymentRepository archivedPaymentRepository, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry, JobCoordinator coordinator, PaymentShards shards,
+            @Value("${payments.archive.enabled:true}") boolean enabled,
+            @Value("${payments.archive.after:P90D}") Duration archiveAfter,
+            @Value("${payments.archive.batch-size:500}") int batchSize) {
+        this.paymentRepository = paymentRepository;
+        this.archivedPaymentRepository = archivedPaymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.coordinator = coordinator;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.archiveAfter = archiveAfter;
+        this.batchSize = batchSize;
+
+        meterRegistry.gauge("payments.rows", Tags.of("tier", "hot"), hotRows);
+        meterRegistry.gauge("payments.rows", Tags.of("tier", "archive"), archivedRows);
+    }
+
+    /**
+     * Runs one pass and returns the number of payments moved, 0 if other
+     * nodes archive.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${payments.archive.interval:3600000}", initialDelayString = "${payments.archive.interval:3600000}")
+    public int archive() {
+        if (!enabled) {
+            return 0;
+        }
+        int moved = shards.sum(this::archiveShard);
+        if (moved > 0) {
+            countRows();
+        }
+        return moved;
+    }
+
+    private int archiveShard() {
+        if (coordinator.lead(JOB).isEmpty()) {
+            return 0;
+        }
+        OffsetDateTime createdBefore = OffsetDateTime.now().minus(archiveAfter);
+
+        int moved = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> moveBatch(createdBefore));
+            meterRegistry.counter("payments.archive.moved").increment(batch);
+            moved += batch;
+        } while (batch == batchSize);
+
+        if (moved > 0) {
+            log.info("Archived terminal payments [moved={}, createdBefore={}]", moved, createdBefore);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the archived payments of the given orders back to
+     * {@code payments}, in the caller's transaction, so they can change again.
+     *
+     * @return the number of payments restored
+     */
+    @Override
+    @Transactional
+    public int restore(Collection<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        int restored = archivedPaymentRepository.copyToPayments(orderIds);
+        if (restored > 0) {
+            archivedPaymentRepository.deleteByOrderIds(orderIds);
+            meterRegistry.counter("payments.archive.restored").increment(restored);
+            log.info("Restored archived payments [count={}]", restored);
+        }
+        return restored;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${payments.archive.count-interval:60000}", initialDelayString = "${payments.archive.count-interval:60000}")
+    public void countRows() {
+        hotRows.set(shards.gather(paymentRepository::count).stream().mapToLong(Long::longValue).sum());
+        archivedRows.set(shards.gather(archivedPaymentRepository::count).stream().mapToLong(Long::longValue).sum());
+    }
+
+    private int moveBatch(OffsetDateTime createdBefore) {
+        List<UUID> ids = paymentRepository.lockArchivable(TERMINAL_STATUSES, createdBefore,
+                Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedPaymentRepository.copyFromPayments(ids, OffsetDateTime.now());
+        paymentRepository.deleteAllByIdInBatch(ids);
+        return ids.size();
+    }
+}
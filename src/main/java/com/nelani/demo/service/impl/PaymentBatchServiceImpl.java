@@ -0,0 +1,216 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.BatchPaymentItemResult;
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.BatchPaymentResponseDTO;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.Money;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentArchiveService;
+import com.nelani.demo.service.PaymentBatchService;
+import com.nelani.demo.service.PaymentProviderFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Initializes many payments at once.
+ * <p>
+ * The work is split in three phases so that no database transaction is held
+ * open while providers are being called:
+ * <ol>
+ * <li>reserve: one IN lookup plus a JDBC-batched insert/update of all rows</li>
+ * <li>call providers concurrently on the bounded batch executor</li>
+ * <li>apply: one IN reload plus a JDBC-batched update of the outcomes</li>
+ * </ol>
+ * Each item succeeds or fails on its own; a failing item never rolls back the
+ * rest of the batch. With sharded payments, the reserve and apply phases run
+ * once per shard the batch touches.
+ */
+@Log4j2
+@Service
+public class PaymentBatchServiceImpl implements PaymentBatchService {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentArchiveService archiveService;
+    private final PaymentProviderFactory factory;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor batchExecutor;
+    private final PaymentShards shards;
+
+    public PaymentBatchServiceImpl(PaymentRepository paymentRepository, PaymentArchiveService archiveService,
+            PaymentProviderFactory factory, PlatformTransactionManager transactionManager,
+            @Qualifier("paymentBatchExecutor") Executor batchExecutor, PaymentShards shards) {
+        this.paymentRepository = paymentRepository;
+        this.archiveService = archiveService;
+        this.factory = factory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchExecutor = batchExecutor;
+        this.shards = shards;
+    }
+
+    @Override
+    public BatchPaymentResponseDTO initializePayments(BatchPaymentRequestDTO request) {
+        List<PaymentRequestDTO> items = request.payments();
+        BatchPaymentItemResult[] results = new BatchPaymentItemResult[items.size()];
+
+        log.info("Initializing payment batch [size={}]", items.size());
+
+        // Phase 1: persist every accepted item as INITIATING in one batched write per shard
+        Map<Integer, List<Integer>> indexesByShard = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            indexesByShard.computeIfAbsent(shards.forOrder(items.get(i).orderId()), shard -> new ArrayList<>())
+                    .add(i);
+        }
+        Map<Integer, Payment> reserved = new TreeMap<>();
+        indexesByShard.forEach((shard, indexes) -> reserved.putAll(shards.on(shard,
+                () -> transactionTemplate.execute(status -> reserve(items, indexes, results)))));
+
+        // Phase 2: call the providers concurrently, outside any transaction
+        Map<Integer, CompletableFuture<PaymentResponseDTO>> calls = new LinkedHashMap<>();
+        reserved.forEach((index, payment) -> calls.put(index, CompletableFuture.supplyAsync(
+                () -> factory.get(payment.getProvider()).createPayment(payment), batchExecutor)));
+
+        Map<UUID, PaymentResponseDTO> sessions = new HashMap<>();
+        Map<UUID, String> checkoutUrls = new HashMap<>();
+        calls.forEach((index, call) -> {
+            Payment payment = reserved.get(index);
+            try {
+                PaymentResponseDTO responseDTO = call.join();
+                sessions.put(payment.getId(), responseDTO);
+                // Providers record hosted checkout pages on the detached copy
+                if (payment.getCheckoutUrl() != null) {
+                    checkoutUrls.put(payment.getId(), payment.getCheckoutUrl());
+                }
+                results[index] = BatchPaymentItemResult.succeeded(payment.getOrderId(), responseDTO);
+            } catch (CompletionException e) {
+                log.warn("Batch item failed with provider [paymentId={}, orderId={}]",
+                        payment.getId(), payment.getOrderId(), e.getCause());
+                results[index] = BatchPaymentItemResult.failed(payment.getOrderId(), errorMessage(e.getCause()));
+            }
+        });
+
+        // Phase 3: record the provider outcomes in one batched write per shard
+        Map<Integer, Set<UUID>> idsByShard = new TreeMap<>();
+        reserved.values().forEach(payment -> idsByShard
+                .computeIfAbsent(shards.forPayment(payment.getId()), shard -> new HashSet<>()).add(payment.getId()));
+        idsByShard.forEach((shard, ids) -> shards.on(shard, () -> transactionTemplate.execute(status -> {
+            apply(ids, sessions, checkoutUrls);
+            return null;
+        })));
+
+        BatchPaymentResponseDTO response = BatchPaymentResponseDTO.of(Arrays.asList(results));
+        log.info("Payment batch completed [succeeded={}, failed={}]", response.succeeded(), response.failed());
+        return response;
+    }
+
+    private Map<Integer, Payment> reserve(List<PaymentRequestDTO> items, List<Integer> indexes,
+            BatchPaymentItemResult[] results) {
+        Set<String> orderIds = indexes.stream()
+                .map(i -> items.get(i).orderId())
+                .collect(Collectors.toSet());
+
+        // Single IN lookup instead of one findByOrderId per item
+        Map<String, Payment> existing = paymentRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.toMap(Payment::getOrderId, Function.identity()));
+
+        // Archived orders are moved back first, same as on the single initialize path
+        Set<String> missing = new HashSet<>(orderIds);
+        missing.removeAll(existing.keySet());
+        if (archiveService.restore(missing) > 0) {
+            paymentRepository.findByOrderIdIn(missing)
+                    .forEach(payment -> existing.put(payment.getOrderId(), payment));
+        }
+
+        Set<String> seen = new HashSet<>();
+        Map<Integer, Payment> reserved = new LinkedHashMap<>();
+
+        for (int i : indexes) {
+            PaymentRequestDTO item = items.get(i);
+
+            if (!seen.add(item.orderId())) {
+                results[i] = BatchPaymentItemResult.failed(item.orderId(), "Duplicate order ID in batch.");
+                continue;
+            }
+
+            Payment payment = existing.get(item.orderId());
+            if (payment == null) {
+                try {
+                    payment = new Payment(
+                            item.resolvedTenantId(),
+                            item.orderId(),
+                            Money.of(item.amount(), item.resolvedCurrency()),
+                            PaymentStatus.INITIATING,
+                            item.provider());
+                } catch (IllegalArgumentException e) {
+                    results[i] = BatchPaymentItemResult.failed(item.orderId(), e.getMessage());
+                    continue;
+                }
+            } else if (!payment.getTenantId().equals(item.resolvedTenantId())) {
+                results[i] = BatchPaymentItemResult.failed(item.orderId(),
+                        "Order ID is used by another merchant account.");
+                continue;
+            } else {
+                // Same rules as the single initialize path
+                payment.expireIfNeeded();
+                if (payment.canBeReinitialized()) {
+                    payment.markInitiating();
+                } else if (payment.getStatus() == PaymentStatus.SUCCESS) {
+                    results[i] = BatchPaymentItemResult.failed(item.orderId(), "Order already paid.");
+                    continue;
+                } else if (payment.getStatus() == PaymentStatus.PENDING) {
+                    results[i] = BatchPaymentItemResult.failed(item.orderId(), "Resume payment.");
+                    continue;
+                }
+            }
+
+            reserved.put(i, payment);
+        }
+
+        // New and updated rows are flushed together as JDBC batches
+        paymentRepository.saveAll(reserved.values());
+        return reserved;
+    }
+
+    private void apply(Set<UUID> ids, Map<UUID, PaymentResponseDTO> sessions, Map<UUID, String> checkoutUrls) {
+        List<Payment> payments = paymentRepository.findAllById(ids);
+        for (Payment payment : payments) {
+            PaymentResponseDTO responseDTO = sessions.get(payment.getId());
+            if (payment.getStatus() != PaymentStatus.INITIATING) {
+                // A webhook settled it while the providers were called, never move it backwards
+                log.info("Batch item settled meanwhile, outcome kept [paymentId={}, orderId={}, status={}]",
+                        payment.getId(), payment.getOrderId(), payment.getStatus());
+            } else if (responseDTO != null) {
+                payment.setProviderReference(responseDTO.clientId());
+                payment.setCheckoutUrl(checkoutUrls.get(payment.getId()));
+                payment.markPending(responseDTO.provider());
+            } else {
+                // Failed items stay reinitializable by a later single or batch call
+                payment.markFailed();
+            }
+        }
+
+        paymentRepository.saveAll(payments);
+    }
+
+    private String errorMessage(Throwable e) {
+        if (e instanceof ResponseStatusException statusException) {
+            return statusException.getReason();
+        }
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,272 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ReadFromPrimary;
+import com.nelani.demo.model.ArchivedPayment;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.model.RemotePaymentStatusChangedEvent;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentEventStreamService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process event bus that streams payment status changes to SSE clients and
+ * to the gRPC {@code WatchPayment} call.
+ * <p>
+ * Status changes reach the bus as {@link PaymentStatusChangedEvent}s once the
+ * transaction that made them has committed, whether they came from a webhook,
+ * an expiry or any other transition. Changes committed on other nodes arrive
+ * through {@link com.nelani.demo.outbox.OutboxTail}, up to
+ * {@code payments.events.tail-interval} later. Idle connections only cost an async
+ * servlet request and a map entry; no thread is held while waiting.
+ * <p>
+ * Sends run on the virtual-thread event executor. Each subscriber keeps only
+ * its latest undelivered status, so a slow client skips intermediate states
+ * instead of building up a queue. The stream is completed once the payment
+ * reaches a final status.
+ */
+@Log4j2
+@Service
+public class PaymentEventStreamServiceImpl implements PaymentEventStreamService {
+
+    private static final Set<PaymentStatus> FINAL_STATUSES = EnumSet.of(PaymentStatus.SUCCESS,
+            PaymentStatus.FAILED, PaymentStatus.EXPIRED);
+
+    private final PaymentRepository paymentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final PaymentShards shards;
+    private final Executor eventExecutor;
+    private final Duration timeout;
+    private final int maxSubscribers;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    public PaymentEventStreamServiceImpl(PaymentRepository paymentRepository,
+            ArchivedPaymentRepository archivedPaymentRepository, PaymentShards shards,
+            @Qualifier("paymentEventExecutor") Executor eventExecutor,
+            @Value("${payments.events.timeout:PT30M}") Duration timeout,
+            @Value("${payments.events.max-subscribers:16000}") int maxSubscribers) {
+        this.paymentRepository = paymentRepository;
+        this.archivedPaymentRepository = archivedPaymentRepository;
+        this.shards = shards;
+        this.eventExecutor = eventExecutor;
+        this.timeout = timeout;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary // The snapshot must not be older than the events that follow it
+    public SseEmitter subscribe(String orderId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = open(orderId, new SseSink(emitter));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary
+    public Runnable subscribe(String orderId, StatusSink sink) {
+        Subscriber subscriber = open(orderId, sink);
+        return () -> unsubscribe(subscriber);
+    }
+
+    private Subscriber open(String orderId, StatusSink sink) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many open payment streams. Retry later.");
+        }
+
+        // Register before reading the snapshot, so a change committed while it is read still reaches
+        // the subscriber; a snapshot older than that change is then dropped
+        Subscriber subscriber = new Subscriber(orderId, sink);
+        subscribers.computeIfAbsent(orderId, key -> new CopyOnWriteArraySet<>()).add(subscriber);
+
+        // Archived payments are final: their snapshot is the only event and completes the stream
+        PaymentStatusChangedEvent snapshot;
+        try {
+            snapshot = shards.onOrder(orderId, () -> paymentRepository.findByOrderId(orderId)
+                    .map(PaymentEventStreamServiceImpl::snapshotOf)
+                    .or(() -> archivedPaymentRepository.findByOrderId(orderId)
+                            .map(PaymentEventStreamServiceImpl::snapshotOf)))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Payment not found."));
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+
+        subscriber.offerSnapshot(snapshot);
+
+        return subscriber;
+    }
+
+    private static PaymentStatusChangedEvent snapshotOf(Payment payment) {
+        return new PaymentStatusChangedEvent(payment.getOrderId(), payment.getStatus(), null,
+                payment.getProvider(), null, payment.getAmount(), payment.getCurrency(), payment.getCreatedAt(),
+                payment.getCompletedAt() != null ? payment.getCompletedAt() : payment.getCreatedAt());
+    }
+
+    private static PaymentStatusChangedEvent snapshotOf(ArchivedPayment payment) {
+        return new PaymentStatusChangedEvent(payment.getOrderId(), payment.getStatus(), null,
+                payment.getProvider(), null, payment.getAmount(), payment.getCurrency(), payment.getCreatedAt(),
+                payment.getCompletedAt() != null ? payment.getCompletedAt() : payment.getCreatedAt());
+    }
+
+    @TransactionalEventListener
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        Set<Subscriber> orderSubscribers = subscribers.get(event.orderId());
+        if (orderSubscribers != null) {
+            orderSubscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+    }
+
+    @EventListener
+    public void onRemoteStatusChanged(RemotePaymentStatusChangedEvent event) {
+        onStatusChanged(event.change());
+    }
+
+    // Keeps proxies and load balancers from closing idle streams
+    @Scheduled(fixedRateString = "${payments.events.heartbeat-interval:15000}")
+    public void sendHeartbeats() {
+        subscribers.values().forEach(orderSubscribers -> orderSubscribers
+                .forEach(subscriber -> eventExecutor.execute(subscriber::sendHeartbeat)));
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.orderId, (orderId, orderSubscribers) -> {
+            orderSubscribers.remove(subscriber);
+            return orderSubscribers.isEmpty() ? null : orderSubscribers;
+        });
+    }
+
+    private final class Subscriber {
+
+        private final String orderId;
+        private final StatusSink sink;
+        private final AtomicReference<PaymentStatusChangedEvent> latest = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean live = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(String orderId, StatusSink sink) {
+            this.orderId = orderId;
+            this.sink = sink;
+        }
+
+        void offer(PaymentStatusChangedEvent event) {
+            live.set(true);
+            latest.set(event);
+            scheduleDrain();
+        }
+
+        // The snapshot is dropped if a live change already arrived, as that one is newer
+        void offerSnapshot(PaymentStatusChangedEvent event) {
+            if (!live.get() && latest.compareAndSet(null, event)) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                eventExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                PaymentStatusChangedEvent event;
+                while ((event = latest.getAndSet(null)) != null) {
+                    send(event);
+                }
+                draining.set(false);
+                // Re-check: an offer may have landed after the last poll but before the flag was cleared
+            } while (latest.get() != null && draining.compareAndSet(false, true));
+        }
+
+        private void send(PaymentStatusChangedEvent event) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                sink.send(event);
+                if (FINAL_STATUSES.contains(event.status())) {
+                    // Released first, so a client that sees the stream end never finds it still counted
+                    unsubscribe(this);
+                    sink.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping payment stream [orderId={}]: {}", orderId, e.getMessage());
+                unsubscribe(this);
+            }
+        }
+
+        void sendHeartbeat() {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                sink.heartbeat();
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+            }
+        }
+    }
+
+    private record SseSink(SseEmitter emitter) implements StatusSink {
+
+        @Override
+        public void send(PaymentStatusChangedEvent event) throws IOException {
+            emitter.send(SseEmitter.event().name("status").data(event, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.coordination.Lease;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.ReconciliationResult;
+import com.nelani.demo.exception.LeaseLostException;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.ReconciliationCheckpoint;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.ReconciliationCheckpointRepository;
+import com.nelani.demo.service.PaymentProviderFactory;
+import com.nelani.demo.service.PaymentReconciliationService;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Catches payments whose webhook was lost by asking the providers directly.
+ * <p>
+ * A pass walks PENDING payments older than the stale threshold in
+ * (createdAt, id) chunks. For every chunk:
+ * <ol>
+ * <li>payments are grouped per provider and split into lookups of the
+ * provider's {@link PaymentProvider#reconciliationBatchSize()}</li>
+ * <li>lookups run concurrently on the bounded reconciliation executor, each
+ * waiting for a permit from the provider's rate limiter</li>
+ * <li>corrections and the checkpoint are written in one JDBC-batched
+ * transaction</li>
+ * </ol>
+ * The checkpoint survives restarts, so an interrupted pass resumes after the
+ * last completed chunk. A failed lookup only skips its own payments; they
+ * are picked up again by the next pass.
+ * <p>
+ * The payments are split into {@code payments.reconciliation.partitions}
+ * ranges of ids, each with its own checkpoint and job lease, so the live
+ * nodes share the work. A node only reconciles the partitions it holds, and
+ * a chunk's corrections only commit while it still holds the partition.
+ * With sharded payments, every shard is split into the same partitions.
+ */
+@Log4j2
+@Service
+public class PaymentReconciliationServiceImpl implements PaymentReconciliationService {
+
+    static final String JOB = "stale-pending-payments";
+
+    private static final OffsetDateTime FIRST_CREATED_AT = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0,
+            ZoneOffset.UTC);
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final PaymentRepository paymentRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final PaymentProviderFactory factory;
+    private final TransactionTemplate transactionTemplate;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final Executor reconciliationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final JobCoordinator coordinator;
+    private final PaymentShards shards;
+    private final int partitions;
+    private final int chunkSize;
+    private final Duration staleAfter;
+
+    public PaymentReconciliationServiceImpl(PaymentRepository paymentRepository,
+            ReconciliationCheckpointRepository checkpointRepository, PaymentProviderFactory factory,
+            PlatformTransactionManager transactionManager, RateLimiterRegistry rateLimiterRegistry,
+            @Qualifier("paymentReconciliationExecutor") Executor reconciliationExecutor,
+            MeterRegistry meterRegistry, JobCoordinator coordinator, PaymentShards shards,
+            @Value("${payments.reconciliation.partitions:1}") int partitions,
+            @Value("${payments.reconciliation.chunk-size:500}") int chunkSize,
+            @Value("${payments.reconciliation.stale-after:PT30M}") Duration staleAfter) {
+        this.paymentRepository = paymentRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.factory = factory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rateLimiterRegistry = rateLimiterRegistry;
+        this.reconciliationExecutor = reconciliationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.coordinator = coordinator;
+        this.shards = shards;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Runs (or resumes) one pass over the stale payments of the partitions
+     * this node holds.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${payments.reconciliation.interval:300000}", initialDelayString = "${payments.reconciliation.interval:300000}")
+    public ReconciliationResult reconcile() {
+        List<ReconciliationResult> results = new ArrayList<>();
+        shards.forEach(shard -> {
+            for (Lease lease : coordinator.partitions(JOB, partitions)) {
+                try {
+                    results.add(reconcile(lease));
+                } catch (LeaseLostException e) {
+                    log.warn("Reconciliation partition taken over by another node [shard={}, partition={}]", shard,
+                            lease.partition(), e);
+                }
+            }
+        });
+        return new ReconciliationResult(
+                results.stream().mapToInt(ReconciliationResult::checked).sum(),
+                results.stream().mapToInt(ReconciliationResult::corrected).sum(),
+                results.stream().mapToInt(ReconciliationResult::lookupFailures).sum());
+    }
+
+    private ReconciliationResult reconcile(Lease lease) {
+        ReconciliationCheckpoint checkpoint = transactionTemplate.execute(status -> begin(lease));
+        OffsetDateTime createdBefore = checkpoint.getCreatedBefore();
+        OffsetDateTime afterCreatedAt = Objects.requireNonNullElse(checkpoint.getCursorCreatedAt(),
+                FIRST_CREATED_AT);
+        UUID afterId = Objects.requireNonNullElse(checkpoint.getCursorId(), FIRST_ID);
+
+        int checked = 0;
+        int corrected = 0;
+        int lookupFailures = 0;
+        List<Payment> chunk;
+        do {
+            OffsetDateTime cursorCreatedAt = afterCreatedAt;
+            UUID cursorId = afterId;
+            chunk = transactionTemplate.execute(status -> paymentRepository.findChunkAfter(PaymentStatus.PENDING,
+                    createdBefore, cursorCreatedAt, cursorId, lease.firstId(), lease.lastId(), Limit.of(chunkSize)));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            Lookups lookups = lookUp(chunk);
+            Payment last = chunk.getLast();
+            Integer applied = transactionTemplate.execute(status -> apply(lease, lookups.outcomes(), last));
+
+            checked += chunk.size();
+            corrected += applied;
+            lookupFailures += lookups.failures();
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+        } while (chunk.size() == chunkSize);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            checkpoint(lease).finish();
+            coordinator.fence(lease);
+        });
+
+        if (checked > 0) {
+            log.info("Reconciled stale payments [partition={}, checked={}, corrected={}, lookupFailures={}]",
+                    lease.partition(), checked, corrected, lookupFailures);
+        }
+        return new ReconciliationResult(checked, corrected, lookupFailures);
+    }
+
+    // Checkpoints are kept per partition, under the partition's lease name
+    private ReconciliationCheckpoint begin(Lease lease) {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(lease.name())
+                .orElseGet(() -> checkpointRepository.save(new ReconciliationCheckpoint(lease.name())));
+        if (checkpoint.isInProgress()) {
+            log.info("Resuming reconciliation [checkpoint={}, createdBefore={}, after={}]", lease.name(),
+                    checkpoint.getCreatedBefore(), checkpoint.getCursorId());
+        } else {
+            checkpoint.start(OffsetDateTime.now().minus(staleAfter));
+        }
+        return checkpoint;
+    }
+
+    private ReconciliationCheckpoint checkpoint(Lease lease) {
+        return checkpointRepository.findById(lease.name()).orElseThrow();
+    }
+
+    /**
+     * Looks up one chunk at the providers, outside any transaction.
+     */
+    private Lookups lookUp(List<Payment> chunk) {
+        Map<PaymentProviderType, List<Payment>> byProvider = chunk.stream()
+                .collect(Collectors.groupingBy(Payment::getProvider, () -> new EnumMap<>(PaymentProviderType.class),
+                        Collectors.toList()));
+
+        List<Lookup> calls = new ArrayList<>();
+        byProvider.forEach((type, payments) -> {
+            PaymentProvider provider = factory.get(type);
+            RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter("reconciliation-" + type.name().toLowerCase());
+            int batchSize = Math.max(1, provider.reconciliationBatchSize());
+            for (int from = 0; from < payments.size(); from += batchSize) {
+                List<Payment> batch = payments.subList(from, Math.min(from + batchSize, payments.size()));
+                calls.add(new Lookup(type, batch.size(), CompletableFuture.supplyAsync(
+                        RateLimiter.decorateSupplier(rateLimiter, () -> provider.fetchOutcomes(batch)),
+                        reconciliationExecutor)));
+            }
+        });
+
+        Map<UUID, PaymentStatus> outcomes = new HashMap<>();
+        int failures = 0;
+        for (Lookup call : calls) {
+            try {
+                outcomes.putAll(call.result().join());
+            } catch (RuntimeException e) {
+                failures += call.size();
+                meterRegistry.counter("payments.reconciliation.lookup.failures", "provider", call.provider().name())
+                        .increment(call.size());
+                log.warn("Provider lookup failed during reconciliation [provider={}, size={}]", call.provider(),
+                        call.size(), e);
+            }
+        }
+        return new Lookups(outcomes, failures);
+    }
+
+    /**
+     * Applies the provider outcomes to payments that are still PENDING and
+     * moves the checkpoint past the chunk, in the caller's transaction.
+     */
+    private int apply(Lease lease, Map<UUID, PaymentStatus> outcomes, Payment last) {
+        int corrected = 0;
+        if (!outcomes.isEmpty()) {
+            List<Payment> payments = paymentRepository.findAllById(outcomes.keySet());
+            for (Payment payment : payments) {
+                // A webhook may have settled it while we were looking it up
+                if (payment.getStatus() != PaymentStatus.PENDING) {
+                    continue;
+                }
+                PaymentStatus outcome = outcomes.get(payment.getId());
+                if (outcome == PaymentStatus.SUCCESS) {
+                    payment.markSuccess();
+                } else {
+                    payment.markFailed();
+                }
+                meterRegistry.counter("payments.reconciliation.corrections", "status", outcome.name()).increment();
+                corrected++;
+            }
+            paymentRepository.saveAll(payments);
+        }
+        checkpoint(lease).advance(last);
+        coordinator.fence(lease);
+        return corrected;
+    }
+
+    private record Lookup(PaymentProviderType provider, int size, CompletableFuture<Map<UUID, PaymentStatus>> result) {
+    }
+
+    private record Lookups(Map<UUID, PaymentStatus> outcomes, int failures) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.coordination.Lease;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.RollupGranularity;
+import com.nelani.demo.repository.PaymentRollupRepository;
+import com.nelani.demo.service.PaymentRollupService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains hourly and daily payment rollups incrementally.
+ * <p>
+ * The payment outbox doubles as the change log: every status change,
+ * including late ones on old payments, lands there. Each refresh stamps the
+ * events not rolled up yet, then re-aggregates only the hours (by payment
+ * creation time) those events touched, and the days containing those hours.
+ * The first refresh rebuilds everything instead.
+ * <p>
+ * Events are tracked one by one rather than by an id high-water mark, as ids
+ * are not commit order: a change committed after the refresh stamped the
+ * others stays unstamped and is picked up by the next one, whatever its id.
+ * A change is committed with its event, so by the time an event is stamped
+ * the buckets are rebuilt from data that includes it.
+ * <p>
+ * Only the node holding the rollups' job lease refreshes them, and its
+ * refresh only commits while it still holds the lease. Assumes an outbox
+ * retention well above the refresh interval, so events are not purged before
+ * they are rolled up.
+ * <p>
+ * With sharded payments, each shard keeps the rollups of its own payments,
+ * from its own outbox, and reads add up the shards' buckets.
+ */
+@Log4j2
+@Service
+public class PaymentRollupServiceImpl implements PaymentRollupService {
+
+    static final String JOB = "payment-rollups";
+
+    private final PaymentRollupRepository paymentRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator coordinator;
+    private final PaymentShards shards;
+
+    public PaymentRollupServiceImpl(PaymentRollupRepository paymentRollupRepository,
+            PlatformTransactionManager transactionManager, JobCoordinator coordinator, PaymentShards shards) {
+        this.paymentRollupRepository = paymentRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coordinator = coordinator;
+        this.shards = shards;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PaymentRollupDTO> getRollups(RollupGranularity granularity, OffsetDateTime from, OffsetDateTime to,
+            PaymentProviderType provider) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from
+                : end.minus(granularity == RollupGranularity.HOURLY ? Duration.ofDays(1) : Duration.ofDays(30));
+        if (start.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to.");
+        }
+        List<List<PaymentRollupDTO>> perShard = shards
+                .gather(() -> paymentRollupRepository.findRollups(granularity, start, end, provider));
+        return perShard.size() == 1 ? perShard.getFirst() : merge(perShard);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${payments.rollup.interval:60000}")
+    public void refresh() {
+        shards.forEach(shard -> transactionTemplate.executeWithoutResult(status -> refreshShard()));
+    }
+
+    private void refreshShard() {
+        Optional<Lease> lease = coordinator.lead(JOB);
+        if (lease.isEmpty()) {
+            return;
+        }
+        // Unique per refresh, and at the precision the column keeps so the stamp can be matched again
+        OffsetDateTime rolledUpAt = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        int events = paymentRollupRepository.markRolledUp(rolledUpAt);
+
+        if (paymentRollupRepository.findRebuiltAt(JOB).isEmpty()) {
+            paymentRollupRepository.rebuildAll();
+            paymentRollupRepository.saveRebuiltAt(JOB, rolledUpAt);
+            coordinator.fence(lease.get());
+            log.info("Rebuilt payment rollups [events={}]", events);
+            return;
+        }
+        if (events == 0) {
+            return;
+        }
+
+        List<OffsetDateTime> hours = paymentRollupRepository.findDirtyHours(rolledUpAt);
+        Set<OffsetDateTime> days = new TreeSet<>();
+        for (OffsetDateTime hour : hours) {
+            paymentRollupRepository.rebuildBucket(RollupGranularity.HOURLY, hour);
+            days.add(hour.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS));
+        }
+        days.forEach(day -> paymentRollupRepository.rebuildBucket(RollupGranularity.DAILY, day));
+        coordinator.fence(lease.get());
+
+        log.debug("Refreshed payment rollups [events={}, hours={}, days={}]", events, hours.size(), days.size());
+    }
+
+    // Adds up the shards' buckets. Only successful payments have a completion time.
+    private static List<PaymentRollupDTO> merge(List<List<PaymentRollupDTO>> perShard) {
+        Map<String, PaymentRollupDTO> merged = new LinkedHashMap<>();
+        perShard.stream().flatMap(List::stream).forEach(rollup -> merged.merge(
+                rollup.bucketStart().toInstant() + "/" + rollup.provider() + "/" + rollup.currency(), rollup,
+                PaymentRollupServiceImpl::add));
+        return merged.values().stream()
+                .sorted(Comparator.comparing(PaymentRollupDTO::bucketStart).thenComparing(PaymentRollupDTO::provider)
+                        .thenComparing(PaymentRollupDTO::currency))
+                .toList();
+    }
+
+    private static PaymentRollupDTO add(PaymentRollupDTO left, PaymentRollupDTO right) {
+        long payments = left.payments() + right.payments();
+        long succeeded = left.succeeded() + right.succeeded();
+        double completionSeconds = completionSeconds(left) + completionSeconds(right);
+        return new PaymentRollupDTO(left.bucketStart(), left.provider(), left.currency(), payments, succeeded,
+                left.failed() + right.failed(), left.expired() + right.expired(),
+                payments == 0 ? 0 : (double) succeeded / payments,
+                left.amount().add(right.amount()),
+                left.succeededAmount().add(right.succeededAmount()),
+                succeeded == 0 ? null : completionSeconds / succeeded);
+    }
+
+    private static double completionSeconds(PaymentRollupDTO rollup) {
+        return rollup.averageCompletionSeconds() == null ? 0
+                : rollup.averageCompletionSeconds() * rollup.succeeded();
+    }
+}
@@ -1,16 +1,25 @@
 package com.nelani.demo.service.impl;
 
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ReadFromPrimary;
 import com.nelani.demo.dto.PaymentRequestDTO;
 import com.nelani.demo.dto.PaymentResponseDTO;
 import com.nelani.demo.mapper.PaymentMapper;
+import com.nelani.demo.model.Money;
 import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
 import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
 import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
 import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.PaymentSearchRepository;
+import com.nelani.demo.service.PaymentArchiveService;
 import com.nelani.demo.service.PaymentProviderFactory;
 import com.nelani.demo.service.PaymentService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -19,41 +28,85 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final PaymentArchiveService archiveService;
     private final PaymentProviderFactory factory;
+    private final PaymentShards shards;
 
-    public PaymentServiceImpl(PaymentRepository paymentRepository, PaymentProviderFactory factory) {
+    public PaymentServiceImpl(PaymentRepository paymentRepository,
+            ArchivedPaymentRepository archivedPaymentRepository, PaymentArchiveService archiveService,
+            PaymentProviderFactory factory, PaymentShards shards) {
         this.paymentRepository = paymentRepository;
+        this.archivedPaymentRepository = archivedPaymentRepository;
+        this.archiveService = archiveService;
         this.factory = factory;
+        this.shards = shards;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<PaymentResponseDTO> getAllPayments(PaymentSortField field, Sort.Direction direction, int page,
             int size) {
+        requireWithinWindow(page, size);
         Pageable pageable = PageRequest.of(page, size,
                 Sort.by(direction, field.fieldName()));
 
-        var paymentsList = paymentRepository.findAll(pageable);
+        // Project straight into the read model; listing never needs managed entities.
+        // An unfiltered search so archived payments are listed too.
+        var paymentsList = search(PaymentSearchCriteria.none(), pageable);
 
-        return paymentsList.map(payment -> PaymentMapper.toResponseDTO(payment, null, null));
+        return paymentsList.map(PaymentMapper::toResponseDTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PaymentResponseDTO> searchPayments(PaymentSearchCriteria criteria, PaymentSortField field,
+            Sort.Direction direction, int page, int size) {
+        requireOrdered(criteria.createdFrom(), criteria.createdTo(), "createdFrom must not be after createdTo.");
+        requireOrdered(criteria.completedFrom(), criteria.completedTo(),
+                "completedFrom must not be after completedTo.");
+        requireOrdered(criteria.minAmount(), criteria.maxAmount(), "minAmount must not be greater than maxAmount.");
+        requireWithinWindow(page, size);
+
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by(direction, field.fieldName()));
+
+        return search(criteria, pageable).map(PaymentMapper::toResponseDTO);
     }
 
     @Override
     @Transactional
     public PaymentResponseDTO initializePayment(PaymentRequestDTO request) {
+        // Connections are taken at the first statement, so the order's shard is picked in time
+        return shards.onOrder(request.orderId(), () -> initialize(request));
+    }
+
+    private PaymentResponseDTO initialize(PaymentRequestDTO request) {
         Payment payment;
 
         // Check if the payment request exists
         Optional<Payment> existingPayment = paymentRepository.findByOrderId(request.orderId());
 
+        // An archived order is moved back first, it keeps its order ID and may be reinitialized
+        if (existingPayment.isEmpty() && archiveService.restore(List.of(request.orderId())) > 0) {
+            existingPayment = paymentRepository.findByOrderId(request.orderId());
+        }
+
         if (existingPayment.isPresent()) {
             payment = existingPayment.get();
+            // Order IDs are unique across merchant accounts
+            if (!payment.getTenantId().equals(request.resolvedTenantId())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Order ID is used by another merchant account.");
+            }
             payment.expireIfNeeded();
             paymentRepository.save(payment);
 
@@ -67,10 +120,11 @@ public class PaymentServiceImpl implements PaymentService {
             }
 
         } else {
-            // Create new payment
+            // Create new payment, rejects amounts finer than the currency's minor unit
             payment = new Payment(
+                    request.resolvedTenantId(),
                     request.orderId(),
-                    request.amount(),
+                    Money.of(request.amount(), request.resolvedCurrency()),
                     PaymentStatus.INITIATING,
                     request.provider());
 
@@ -82,8 +136,8 @@ public class PaymentServiceImpl implements PaymentService {
         PaymentResponseDTO responseDTO = provider.createPayment(payment);
 
         // Update the existing Payment and save it to the DB
-        payment.setProviderReference(responseDTO.getClientId());
-        payment.markPending(responseDTO.getProvider());
+        payment.setProviderReference(responseDTO.clientId());
+        payment.markPending(responseDTO.provider());
         paymentRepository.save(payment);
 
         return responseDTO;
@@ -92,10 +146,21 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional
     public PaymentResponseDTO resumePayment(String orderId) {
+        return shards.onOrder(orderId, () -> resume(orderId));
+    }
+
+    private PaymentResponseDTO resume(String orderId) {
         // Get the payment by orderId
-        Payment payment = paymentRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Payment not found."));
+        Optional<Payment> hotPayment = paymentRepository.findByOrderId(orderId);
+        if (hotPayment.isEmpty()) {
+            // Only terminal payments are archived, so an archived one is never resumable
+            var archived = archivedPaymentRepository.findByOrderId(orderId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Payment not found."));
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Payment cannot be resumed. Current status: " + archived.getStatus());
+        }
+        Payment payment = hotPayment.get();
 
         // Check if the payment is expired
         payment.expireIfNeeded();
@@ -122,4 +187,53 @@ public class PaymentServiceImpl implements PaymentService {
         return provider.resumePayment(payment);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary // Callers ask right after a change, a lagging replica would report the old status
+    public PaymentResponseDTO getPayment(String orderId) {
+        return shards.onOrder(orderId, () -> paymentRepository.findByOrderId(orderId)
+                .map(payment -> PaymentMapper.toResponseDTO(payment, null, null))
+                .or(() -> archivedPaymentRepository.findByOrderId(orderId).map(PaymentMapper::toResponseDTO))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found.")));
+    }
+
+    /**
+     * Searches every shard. Each returns its first offset + size rows in sort
+     * order, at most {@link PaymentSearchRepository#MAX_WINDOW}, and the page
+     * is cut from their merge.
+     */
+    private Page<PaymentSummary> search(PaymentSearchCriteria criteria, Pageable pageable) {
+        if (shards.count() == 1) {
+            return paymentRepository.search(criteria, pageable);
+        }
+        int window = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        Pageable firstRows = PageRequest.of(0, window, pageable.getSort());
+        List<Page<PaymentSummary>> pages = shards.gather(() -> paymentRepository.search(criteria, firstRows));
+
+        List<PaymentSummary> merged = new ArrayList<>();
+        long total = 0;
+        for (Page<PaymentSummary> page : pages) {
+            merged.addAll(page.getContent());
+            total += page.getTotalElements();
+        }
+        merged.sort(PaymentSummary.comparator(pageable.getSort()));
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        return new PageImpl<>(merged.subList(from, Math.min(window, merged.size())), pageable, total);
+    }
+
+    // Deep pages read every row before them, narrower filters are the way there
+    private static void requireWithinWindow(int page, int size) {
+        if ((long) page * size + size > PaymentSearchRepository.MAX_WINDOW) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Pages must end within the first " + PaymentSearchRepository.MAX_WINDOW
+                            + " results; narrow the filters instead.");
+        }
+    }
+
+    private static <T extends Comparable<? super T>> void requireOrdered(T from, T to, String message) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
+
 }
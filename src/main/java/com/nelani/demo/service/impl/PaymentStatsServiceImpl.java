@@ -0,0 +1,209 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ReadFromPrimary;
+import com.nelani.demo.dto.PaymentStatsDTO;
+import com.nelani.demo.dto.PaymentStatsEntry;
+import com.nelani.demo.dto.PaymentStatsTotal;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Money;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.model.RemotePaymentStatusChangedEvent;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.PaymentStatsRow;
+import com.nelani.demo.service.PaymentStatsService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps payment statistics in memory so that reads never touch the database.
+ * <p>
+ * Counters are kept per UTC creation day, status, provider and currency.
+ * Every committed status change moves the payment from its previous cell to
+ * its new one, including changes made on other nodes, which arrive through
+ * {@link com.nelani.demo.outbox.OutboxTail}. Counts and amounts are {@link LongAdder}s; amounts are held in
+ * minor units of their currency, so sums are exact and concurrent updates do
+ * not contend on a single field. Amounts in different currencies are never
+ * added up, totals carry one sum per currency.
+ * <p>
+ * Reads cost one pass over the cells (days x statuses x providers x
+ * currencies), however many payments there are.
+ * <p>
+ * A periodic reconciliation rebuilds all cells from one aggregate query and
+ * swaps them in, correcting any drift such as changes that committed while a
+ * previous reconciliation was running. With sharded payments, the query
+ * runs on every shard and the rows are added up.
+ */
+@Log4j2
+@Service
+public class PaymentStatsServiceImpl implements PaymentStatsService {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentShards shards;
+
+    private volatile Map<Key, Cell> cells = new ConcurrentHashMap<>();
+    private volatile OffsetDateTime reconciledAt;
+
+    public PaymentStatsServiceImpl(PaymentRepository paymentRepository, PaymentShards shards) {
+        this.paymentRepository = paymentRepository;
+        this.shards = shards;
+    }
+
+    @Override
+    public PaymentStatsDTO getStats(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to.");
+        }
+
+        Map<PaymentStatus, Totals> byStatus = new EnumMap<>(PaymentStatus.class);
+        Map<PaymentProviderType, Totals> byProvider = new EnumMap<>(PaymentProviderType.class);
+        Totals total = new Totals();
+        List<PaymentStatsEntry> entries = new ArrayList<>();
+
+        cells.forEach((key, cell) -> {
+            if ((from != null && key.day().isBefore(from)) || (to != null && key.day().isAfter(to))) {
+                return;
+            }
+            long count = cell.count.sum();
+            long minorUnits = cell.minorUnits.sum();
+            if (count == 0) {
+                return;
+            }
+            total.add(count, minorUnits, key.currency());
+            byStatus.computeIfAbsent(key.status(), status -> new Totals()).add(count, minorUnits, key.currency());
+            byProvider.computeIfAbsent(key.provider(), provider -> new Totals()).add(count, minorUnits,
+                    key.currency());
+            entries.add(new PaymentStatsEntry(key.day(), key.status(), key.provider(), key.currency(), count,
+                    new Money(minorUnits, key.currency()).toBigDecimal()));
+        });
+        entries.sort(Comparator.comparing(PaymentStatsEntry::day)
+                .thenComparing(PaymentStatsEntry::status)
+                .thenComparing(PaymentStatsEntry::provider)
+                .thenComparing(PaymentStatsEntry::currency));
+
+        Map<PaymentStatus, PaymentStatsTotal> statusTotals = new EnumMap<>(PaymentStatus.class);
+        byStatus.forEach((status, totals) -> statusTotals.put(status, totals.toDTO()));
+        Map<PaymentProviderType, PaymentStatsTotal> providerTotals = new EnumMap<>(PaymentProviderType.class);
+        byProvider.forEach((provider, totals) -> providerTotals.put(provider, totals.toDTO()));
+
+        return new PaymentStatsDTO(total.toDTO(), statusTotals, providerTotals, entries, reconciledAt);
+    }
+
+    @TransactionalEventListener
+    public void onStatusChanged(PaymentStatusChangedEvent event) {
+        LocalDate day = dayOf(event.createdAt());
+        long minorUnits = Money.of(event.amount(), event.currency()).minorUnits();
+        Map<Key, Cell> current = cells;
+
+        if (event.previousStatus() != null) {
+            current.computeIfAbsent(new Key(day, event.previousStatus(), event.previousProvider(), event.currency()),
+                    key -> new Cell()).add(-1, -minorUnits);
+        }
+        current.computeIfAbsent(new Key(day, event.status(), event.provider(), event.currency()),
+                key -> new Cell()).add(1, minorUnits);
+    }
+
+    @EventListener
+    public void onRemoteStatusChanged(RemotePaymentStatusChangedEvent event) {
+        // Rows recorded before V15 do not say which cell they belong to, reconciliation counts them
+        if (event.change().currency() != null && event.change().createdAt() != null) {
+            onStatusChanged(event.change());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${payments.stats.reconcile-interval:300000}", initialDelayString = "${payments.stats.reconcile-interval:300000}")
+    public void reconcile() {
+        Map<Key, Cell> rebuilt = new ConcurrentHashMap<>();
+        for (List<PaymentStatsRow> rows : shards.gather(paymentRepository::aggregateStats)) {
+            for (PaymentStatsRow row : rows) {
+                CurrencyCode currency = CurrencyCode.valueOf(row.getCurrency());
+                rebuilt.computeIfAbsent(new Key(row.getCreatedDay(), PaymentStatus.valueOf(row.getStatus()),
+                        PaymentProviderType.valueOf(row.getProvider()), currency), key -> new Cell())
+                        .add(row.getPayments(), Money.of(row.getAmount(), currency).minorUnits());
+            }
+        }
+
+        long drift = drift(cells, rebuilt);
+        cells = rebuilt;
+        reconciledAt = OffsetDateTime.now();
+
+        if (drift > 0) {
+            log.warn("Payment stats drifted from the database and were corrected [payments={}]", drift);
+        }
+    }
+
+    // Number of payments by which the in-memory counts differed from the rebuilt ones
+    private static long drift(Map<Key, Cell> previous, Map<Key, Cell> rebuilt) {
+        long drift = 0;
+        for (Map.Entry<Key, Cell> entry : rebuilt.entrySet()) {
+            Cell old = previous.get(entry.getKey());
+            drift += Math.abs(entry.getValue().count.sum() - (old == null ? 0 : old.count.sum()));
+        }
+        for (Map.Entry<Key, Cell> entry : previous.entrySet()) {
+            if (!rebuilt.containsKey(entry.getKey())) {
+                drift += Math.abs(entry.getValue().count.sum());
+            }
+        }
+        return drift;
+    }
+
+    private static LocalDate dayOf(OffsetDateTime createdAt) {
+        return createdAt.atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private record Key(LocalDate day, PaymentStatus status, PaymentProviderType provider, CurrencyCode currency) {
+    }
+
+    private static final class Cell {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder minorUnits = new LongAdder();
+
+        void add(long payments, long amountMinorUnits) {
+            count.add(payments);
+            minorUnits.add(amountMinorUnits);
+        }
+    }
+
+    private static final class Totals {
+
+        private long count;
+        private final Map<CurrencyCode, Long> minorUnits = new EnumMap<>(CurrencyCode.class);
+
+        void add(long payments, long amountMinorUnits, CurrencyCode currency) {
+            count += payments;
+            minorUnits.merge(currency, amountMinorUnits, Long::sum);
+        }
+
+        PaymentStatsTotal toDTO() {
+            Map<CurrencyCode, BigDecimal> amounts = new EnumMap<>(CurrencyCode.class);
+            minorUnits.forEach((currency, units) -> amounts.put(currency, new Money(units, currency).toBigDecimal()));
+            return new PaymentStatsTotal(count, amounts);
+        }
+    }
+}
@@ -1,57 +1,62 @@
 package com.nelani.demo.service.impl;
 
 import com.nelani.demo.dto.WebhookResult;
-import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
-import com.nelani.demo.provider.PaymentProvider;
-import com.nelani.demo.repository.PaymentRepository;
 import com.nelani.demo.service.PaymentProviderFactory;
 import com.nelani.demo.service.PaymentWebhookService;
-import org.springframework.http.HttpStatus;
+import com.nelani.demo.webhook.WebhookArchive;
+import com.nelani.demo.webhook.WebhookInbox;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.server.ResponseStatusException;
 
+/**
+ * Verifies provider webhooks and hands them to the {@link WebhookInbox}.
+ * <p>
+ * Verification happens on the request thread so forged requests are rejected
+ * straight away; applying the change to the payment happens asynchronously.
+ * Every verified payload is also written to the {@link WebhookArchive} so it
+ * can be replayed later.
+ */
 @Service
 public class PaymentWebhookServiceImpl implements PaymentWebhookService {
 
-    private final PaymentRepository paymentRepository;
     private final PaymentProviderFactory factory;
+    private final WebhookInbox webhookInbox;
+    private final WebhookArchive webhookArchive;
 
-    public PaymentWebhookServiceImpl(PaymentRepository paymentRepository, PaymentProviderFactory factory) {
-        this.paymentRepository = paymentRepository;
+    public PaymentWebhookServiceImpl(PaymentProviderFactory factory, WebhookInbox webhookInbox,
+            WebhookArchive webhookArchive) {
         this.factory = factory;
+        this.webhookInbox = webhookInbox;
+        this.webhookArchive = webhookArchive;
     }
 
     @Override
-    @Transactional
-    public void handleStripeWebhook(String payload, String signature) {
-        // Verifies the webhook
-        PaymentProvider provider = factory.get(PaymentProviderType.STRIPE);
-        WebhookResult webhookResult = provider.handleWebhook(payload, signature);
-
-        // Checks if the webhook is relevant
-        if (!webhookResult.relevant()) {
-            return;
-        }
+    public void handleWebhook(PaymentProviderType provider, String tenantId, String payload, HttpHeaders headers) {
+        // Verifies the webhook with the merchant account's secrets, from the headers the provider signs with
+        WebhookResult webhookResult = factory.get(provider).handleWebhook(tenantId, payload, headers);
+        archive(provider, tenantId, webhookResult, payload);
+        accept(provider, tenantId, webhookResult);
+    }
 
-        // Checks if the paymentId is not null
-        if (webhookResult.paymentId() == null) {
-            return;
-        }
+    @Override
+    public boolean replayWebhook(PaymentProviderType provider, String tenantId, String payload) {
+        // Verified when it was archived; provider timestamps are too old to verify again
+        return accept(provider, tenantId, factory.get(provider).parseWebhook(tenantId, payload));
+    }
 
-        // Get the payment using the paymentId
-        Payment payment = paymentRepository.findById(webhookResult.paymentId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Payment not found"));
+    private void archive(PaymentProviderType provider, String tenantId, WebhookResult webhookResult,
+            String payload) {
+        webhookArchive.append(provider, tenantId, webhookResult == null ? null : webhookResult.eventId(), payload);
+    }
 
-        // Updates the payment
-        if (webhookResult.success()) {
-            payment.markSuccess();
-        } else {
-            payment.markFailed();
+    private boolean accept(PaymentProviderType provider, String tenantId, WebhookResult webhookResult) {
+        // Checks if the webhook is relevant and maps to a payment
+        if (webhookResult == null || !webhookResult.relevant() || webhookResult.paymentId() == null) {
+            return false;
         }
 
-        paymentRepository.save(payment); // Save the payment
+        // Redeliveries and replays of an accepted event are dropped here
+        return webhookInbox.accept(provider, tenantId, webhookResult);
     }
 }
@@ -0,0 +1,114 @@
+package com.nelani.demo.service.impl;
+
+import com.nelani.demo.dto.WebhookReplayResult;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.service.PaymentWebhookService;
+import com.nelani.demo.service.WebhookReplayService;
+import com.nelani.demo.webhook.WebhookArchive;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays archived webhooks through {@link PaymentWebhookService}, so they
+ * take the same inbox path as live ones.
+ * <p>
+ * Replay is idempotent: events still in the inbox are dropped as duplicates,
+ * and older ones are re-applied under the inbox rules, which never move a
+ * payment backwards. Parallel workers may reorder events, which those rules
+ * also tolerate.
+ * <p>
+ * The archive is read on the calling thread, paced by a rate limiter, and
+ * handed to a worker pool that lives for the duration of the replay. At most
+ * two events per worker are in flight, so memory stays flat for long ranges.
+ */
+@Log4j2
+@Service
+public class WebhookReplayServiceImpl implements WebhookReplayService {
+
+    static final int MAX_RATE = 1000;
+    static final int MAX_WORKERS = 16;
+
+    private final WebhookArchive webhookArchive;
+    private final PaymentWebhookService paymentWebhookService;
+
+    public WebhookReplayServiceImpl(WebhookArchive webhookArchive, PaymentWebhookService paymentWebhookService) {
+        this.webhookArchive = webhookArchive;
+        this.paymentWebhookService = paymentWebhookService;
+    }
+
+    @Override
+    public WebhookReplayResult replay(OffsetDateTime from, OffsetDateTime to, PaymentProviderType provider,
+            int ratePerSecond, int workers) {
+        if (!webhookArchive.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Webhook archive is disabled.");
+        }
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to.");
+        }
+        if (ratePerSecond < 1 || ratePerSecond > MAX_RATE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "rate must be between 1 and " + MAX_RATE + ".");
+        }
+        if (workers < 1 || workers > MAX_WORKERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "workers must be between 1 and " + MAX_WORKERS + ".");
+        }
+
+        log.info("Replaying webhooks [from={}, to={}, provider={}, rate={}, workers={}]", from, to, provider,
+                ratePerSecond, workers);
+
+        RateLimiter rateLimiter = RateLimiter.of("webhook-replay", RateLimiterConfig.custom()
+                .limitForPeriod(ratePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(5))
+                .build());
+        Semaphore inFlight = new Semaphore(workers * 2);
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        int read;
+        // close() waits for the submitted replays to finish
+        try (ExecutorService pool = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("webhook-replay-", 0).factory())) {
+            read = webhookArchive.scan(from, to, provider, webhook -> {
+                while (!rateLimiter.acquirePermission()) {
+                    // Timed out waiting for the next period; keep waiting
+                }
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        if (paymentWebhookService.replayWebhook(webhook.provider(), webhook.tenantId(),
+                                webhook.payload())) {
+                            queued.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Webhook replay failed [provider={}, eventId={}]", webhook.provider(),
+                                webhook.eventId(), e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        }
+
+        WebhookReplayResult result = new WebhookReplayResult(read, queued.get(), skipped.get(), failed.get());
+        log.info("Webhook replay completed [read={}, queued={}, skipped={}, failed={}]", result.read(),
+                result.queued(), result.skipped(), result.failed());
+        return result;
+    }
+}
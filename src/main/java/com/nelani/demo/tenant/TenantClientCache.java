@@ -0,0 +1,151 @@
+package com.nelani.demo.tenant;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of one provider's per-tenant clients.
+ * <p>
+ * Clients are created on first use and kept in least-recently-used order.
+ * Each lookup first closes the clients that have been idle for longer than
+ * the idle timeout, and a new client beyond {@code maxClients} closes the
+ * least recently used one, so only active merchants hold connections.
+ * Clients are closed outside the lock; a call still running on a closed
+ * client finishes, and the next lookup creates a fresh one.
+ * <p>
+ * Metrics, tagged by provider:
+ * <ul>
+ * <li>{@code payments.tenants.clients}: clients currently cached</li>
+ * <li>{@code payments.tenants.clients.created}: clients created</li>
+ * <li>{@code payments.tenants.clients.evicted}: clients closed as idle or
+ * least recently used</li>
+ * </ul>
+ *
+ * @param <C> the client type
+ */
+@Log4j2
+public class TenantClientCache<C extends AutoCloseable> {
+
+    private final String provider;
+    private final Function<String, C> factory;
+    private final int maxClients;
+    private final long idleMillis;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    // Access ordered, guarded by itself
+    private final LinkedHashMap<String, Entry<C>> clients = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Entry<C> {
+        private final C client;
+        private long lastUsed;
+
+        private Entry(C client) {
+            this.client = client;
+        }
+    }
+
+    public TenantClientCache(String provider, Function<String, C> factory, int maxClients, Duration idleTimeout,
+            Clock clock, MeterRegistry meterRegistry) {
+        if (maxClients < 1) {
+            throw new IllegalArgumentException("maxClients must be at least 1");
+        }
+        this.provider = provider;
+        this.factory = factory;
+        this.maxClients = maxClients;
+        this.idleMillis = idleTimeout.toMillis();
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("payments.tenants.clients", this, TenantClientCache::size)
+                .description("Provider clients cached for active merchant accounts")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the tenant's client, creating it if it is not cached.
+     *
+     * @throws IllegalArgumentException if the factory rejects the tenant
+     */
+    public C get(String tenantId) {
+        List<C> evicted = new ArrayList<>();
+        C client;
+        synchronized (clients) {
+            long now = clock.millis();
+            evictIdle(now, evicted);
+
+            Entry<C> entry = clients.get(tenantId);
+            if (entry == null) {
+                entry = new Entry<>(factory.apply(tenantId));
+                clients.put(tenantId, entry);
+                meterRegistry.counter("payments.tenants.clients.created", "provider", provider).increment();
+                log.debug("Created provider client [provider={}, tenant={}]", provider, tenantId);
+                if (clients.size() > maxClients) {
+                    Iterator<Entry<C>> eldest = clients.values().iterator();
+                    evicted.add(eldest.next().client);
+                    eldest.remove();
+                }
+            }
+            entry.lastUsed = now;
+            client = entry.client;
+        }
+        evicted.forEach(this::close);
+        return client;
+    }
+
+    public int size() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    /**
+     * Closes every cached client.
+     */
+    public void clear() {
+        List<C> closed;
+        synchronized (clients) {
+            closed = clients.values().stream().map(entry -> entry.client).toList();
+            clients.clear();
+        }
+        closed.forEach(this::closeQuietly);
+    }
+
+    // Least recently used first, so the scan stops at the first client still in use
+    private void evictIdle(long now, List<C> evicted) {
+        Iterator<Map.Entry<String, Entry<C>>> entries = clients.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Entry<C>> entry = entries.next();
+            if (now - entry.getValue().lastUsed < idleMillis) {
+                return;
+            }
+            evicted.add(entry.getValue().client);
+            entries.remove();
+            log.debug("Closing idle provider client [provider={}, tenant={}]", provider, entry.getKey());
+        }
+    }
+
+    private void close(C client) {
+        meterRegistry.counter("payments.tenants.clients.evicted", "provider", provider).increment();
+        closeQuietly(client);
+    }
+
+    private void closeQuietly(C client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("Failed to close provider client [provider={}]", provider, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.nelani.demo.tenant;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merchant accounts (tenants) served by this node and the limits of their
+ * provider clients, bound from {@code payments.tenants}.
+ *
+ * @param maxClients         provider clients kept per provider; the least
+ *                           recently used one is closed beyond this
+ * @param idleTimeout        clients unused for this long are closed
+ * @param maxConcurrentCalls provider calls one tenant may have in flight
+ * @param connectTimeout     connect timeout, also the longest wait for a
+ *                           free call slot of the tenant
+ * @param readTimeout        response timeout of a provider call
+ * @param accounts           credentials per tenant id
+ */
+@ConfigurationProperties("payments.tenants")
+public record TenantProperties(
+        @DefaultValue("256") int maxClients,
+        @DefaultValue("PT30M") Duration idleTimeout,
+        @DefaultValue("16") int maxConcurrentCalls,
+        @DefaultValue("PT5S") Duration connectTimeout,
+        @DefaultValue("PT30S") Duration readTimeout,
+        Map<String, Account> accounts) {
+
+    /**
+     * Provider credentials of one merchant account; either may be null if
+     * the merchant does not use that provider.
+     */
+    public record Account(Stripe stripe, PayPal paypal) {
+    }
+
+    /**
+     * @param webhookSecrets endpoint signing secrets, several while one is
+     *                       being rolled
+     */
+    public record Stripe(String secretKey, List<String> webhookSecrets) {
+    }
+
+    public record PayPal(String clientId, String clientSecret, String webhookId) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.nelani.demo.tenant;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Looks up the provider credentials of a merchant account (tenant).
+ * <p>
+ * The {@value #DEFAULT_TENANT} account is made of the {@code stripe.*} and
+ * {@code paypal.*} keys, so a single-merchant deployment needs no tenant
+ * configuration; requests without a tenant id use it. Further accounts come
+ * from {@code payments.tenants.accounts.<id>}.
+ */
+public class TenantRegistry {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final TenantProperties properties;
+    private final Map<String, TenantProperties.Account> accounts;
+
+    public TenantRegistry(TenantProperties properties, TenantProperties.Account defaultAccount) {
+        Map<String, TenantProperties.Account> all = new HashMap<>();
+        all.put(DEFAULT_TENANT, defaultAccount);
+        if (properties.accounts() != null) {
+            all.putAll(properties.accounts());
+        }
+        all.keySet().forEach(tenantId -> {
+            if (!TENANT_ID.matcher(tenantId).matches()) {
+                throw new IllegalStateException("Invalid merchant account id: " + tenantId);
+            }
+        });
+        this.properties = properties;
+        this.accounts = Map.copyOf(all);
+    }
+
+    /**
+     * Returns the given tenant id, or the default tenant's when it is null or
+     * blank.
+     */
+    public static String resolve(String tenantId) {
+        return tenantId == null || tenantId.isBlank() ? DEFAULT_TENANT : tenantId;
+    }
+
+    public TenantProperties properties() {
+        return properties;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the tenant is unknown or has no
+     *                                  Stripe credentials
+     */
+    public TenantProperties.Stripe stripe(String tenantId) {
+        TenantProperties.Stripe stripe = account(tenantId).stripe();
+        if (stripe == null || stripe.secretKey() == null) {
+            throw new IllegalArgumentException("Merchant account " + tenantId + " is not set up for Stripe");
+        }
+        return stripe;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the tenant is unknown or has no
+     *                                  PayPal credentials
+     */
+    public TenantProperties.PayPal paypal(String tenantId) {
+        TenantProperties.PayPal paypal = account(tenantId).paypal();
+        if (paypal == null || paypal.clientId() == null) {
+            throw new IllegalArgumentException("Merchant account " + tenantId + " is not set up for PayPal");
+        }
+        return paypal;
+    }
+
+    private TenantProperties.Account account(String tenantId) {
+        TenantProperties.Account account = accounts.get(tenantId);
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown merchant account: " + tenantId);
+        }
+        return account;
+    }
+}
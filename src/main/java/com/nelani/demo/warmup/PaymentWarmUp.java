@@ -0,0 +1,201 @@
+package com.nelani.demo.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PageResponseDTO;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.mapper.PaymentMapper;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentProviderFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Warms the node up before it reports ready, so the first checkouts after a
+ * start or deploy do not pay for cold connections, interpreted code and an
+ * empty database cache.
+ * <p>
+ * Runs on {@link ApplicationReadyEvent}. Spring Boot only moves the readiness
+ * state, and {@code /actuator/health/readiness}, to accepting traffic once
+ * the event's listeners have returned, so a load balancer probing readiness
+ * keeps traffic away until the warm-up is done. Steps, in order:
+ * <ol>
+ * <li>{@code connections}: opens each provider's connection for the
+ * configured merchant accounts, TLS handshake and access token included</li>
+ * <li>{@code mapping}: maps synthetic payments to responses and runs requests
+ * and responses through validation and the application's JSON mapper</li>
+ * <li>{@code webhooks}: verifies and parses synthetic, locally signed
+ * webhooks of every provider</li>
+ * <li>{@code orders}: looks up the most recent open payments of every shard by
+ * order id, the lookup every checkout and resume starts with</li>
+ * </ol>
+ * A failing step is logged and the next one runs; the node becomes ready
+ * regardless. Steps still pending when the timeout is reached are skipped.
+ * <p>
+ * Metrics:
+ * <ul>
+ * <li>{@code payments.warmup}: time spent, tagged by step ({@code total} for
+ * the whole warm-up)</li>
+ * </ul>
+ */
+@Log4j2
+public class PaymentWarmUp {
+
+    private static final List<PaymentStatus> OPEN = List.of(PaymentStatus.INITIATING, PaymentStatus.PENDING);
+
+    private final PaymentProviderFactory providers;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final WarmUpProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public PaymentWarmUp(PaymentProviderFactory providers, PaymentRepository paymentRepository,
+            PaymentShards shards, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            Validator validator, WarmUpProperties properties, MeterRegistry meterRegistry) {
+        this.providers = providers;
+        this.paymentRepository = paymentRepository;
+        this.shards = shards;
+        // Read-write, so with a read replica the lookups warm the primary that checkouts read
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs every step, then returns so the node can report ready. Ordered
+     * last, after the other startup listeners have loaded their state.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.enabled()) {
+            log.info("Warm-up disabled, reporting ready");
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + properties.timeout().toNanos();
+        BooleanSupplier expired = () -> System.nanoTime() - deadline > 0;
+
+        step("connections", expired, () -> preconnect(expired));
+        step("mapping", expired, () -> exerciseMapping(expired));
+        step("webhooks", expired, () -> providers.all()
+                .forEach(provider -> provider.warmUpWebhooks(properties.iterations())));
+        step("orders", expired, () -> loadHotOrders(expired));
+
+        Duration total = Duration.ofNanos(System.nanoTime() - start);
+        timer("total").record(total);
+        log.info("Warm-up finished, reporting ready [took={}ms]", total.toMillis());
+    }
+
+    private void step(String name, BooleanSupplier expired, Runnable action) {
+        if (expired.getAsBoolean()) {
+            log.warn("Warm-up step skipped, timeout reached [step={}, timeout={}]", name, properties.timeout());
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.warn("Warm-up step failed [step={}]", name, e);
+        }
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        timer(name).record(took);
+        log.info("Warm-up step done [step={}, took={}ms]", name, took.toMillis());
+    }
+
+    // An unreachable provider or account only costs its own first payment the connection setup
+    private void preconnect(BooleanSupplier expired) {
+        for (PaymentProvider provider : providers.all()) {
+            for (String tenantId : properties.tenants()) {
+                if (expired.getAsBoolean()) {
+                    return;
+                }
+                try {
+                    provider.preconnect(tenantId);
+                } catch (RuntimeException e) {
+                    log.warn("Warm-up could not connect [provider={}, tenant={}, reason={}]", provider.getType(),
+                            tenantId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // What a checkout and a listing do between the controller and the database, on synthetic payments
+    private void exerciseMapping(BooleanSupplier expired) {
+        OffsetDateTime now = OffsetDateTime.now();
+        BigDecimal amount = new BigDecimal("150.00");
+        List<PaymentResponseDTO> page = new ArrayList<>();
+        try {
+            for (int i = 0; i < properties.iterations() && !expired.getAsBoolean(); i++) {
+                PaymentProviderType type = PaymentProviderType.values()[i % PaymentProviderType.values().length];
+                String orderId = "warm-up-" + i;
+
+                PaymentRequestDTO request = objectMapper.readValue(objectMapper.writeValueAsBytes(
+                        new PaymentRequestDTO(orderId, amount, type)), PaymentRequestDTO.class);
+                validator.validate(request);
+
+                Payment payment = new Payment(orderId, request.amount(), PaymentStatus.INITIATING, type);
+                objectMapper.writeValueAsBytes(PaymentMapper.toResponseDTO(payment, "client", "secret"));
+
+                page.add(PaymentMapper.toResponseDTO(new PaymentSummary(orderId, amount, type.defaultCurrency(),
+                        PaymentStatus.PENDING, type, now, now.plusDays(1), null)));
+                if (page.size() == 20) {
+                    objectMapper.writeValueAsBytes(PageResponseDTO.of(new PageImpl<>(page, PageRequest.of(0, 20),
+                            1000)));
+                    page.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Synthetic payment could not be serialized", e);
+        }
+    }
+
+    private void loadHotOrders(BooleanSupplier expired) {
+        shards.forEach(shard -> transactionTemplate.executeWithoutResult(status -> {
+            for (String orderId : paymentRepository.findRecentOrderIds(OPEN, Limit.of(properties.hotOrders()))) {
+                if (expired.getAsBoolean()) {
+                    return;
+                }
+                paymentRepository.findByOrderId(orderId);
+            }
+        }));
+    }
+
+    private Timer timer(String step) {
+        return Timer.builder("payments.warmup")
+                .description("Time spent warming up before reporting ready")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,30 @@
+package com.nelani.demo.warmup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Warm-up run before the node reports ready, bound from
+ * {@code payments.warmup}.
+ *
+ * @param enabled    off to report ready as soon as the context is up
+ * @param tenants    merchant accounts whose provider connections are opened
+ * @param iterations synthetic payments, responses and webhooks run through
+ *                   the mapping, JSON and webhook code; enough for the JIT to
+ *                   compile them
+ * @param hotOrders  most recent open payments looked up by order id, per
+ *                   shard
+ * @param timeout    longest the warm-up may hold back readiness; steps still
+ *                   pending then are skipped
+ */
+@ConfigurationProperties("payments.warmup")
+public record WarmUpProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("default") List<String> tenants,
+        @DefaultValue("10000") int iterations,
+        @DefaultValue("500") int hotOrders,
+        @DefaultValue("PT30S") Duration timeout) {
+}
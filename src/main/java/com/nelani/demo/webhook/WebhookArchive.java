@@ -0,0 +1,281 @@
+package com.nelani.demo.webhook;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.tenant.TenantRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local, append-only archive of every verified webhook payload, kept so
+ * webhooks can be replayed after a fix or an outage without relying on
+ * provider redelivery.
+ * <p>
+ * Payloads go to segment files ({@code webhooks-<startMillis>.seg}), each
+ * payload as its own gzip member, so a single record can be read back from
+ * its offset. Every segment has a text index ({@code .idx}) with one line per
+ * record: received time, provider, event id, offset, length and merchant
+ * account; lines written before accounts existed belong to the default
+ * account. The index
+ * line is written after the payload, so an entry never points at a torn
+ * record; a torn index line is skipped on read.
+ * <p>
+ * A new segment is started at startup, when the current one reaches the
+ * size limit and when it gets older than the age limit, which keeps time
+ * range reads to a few small files. Writes are not fsynced: payloads lost
+ * in a crash are still in the inbox and can be redelivered by the provider.
+ */
+@Log4j2
+@Component
+public class WebhookArchive {
+
+    private static final String PREFIX = "webhooks-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * An archived webhook payload as it was received.
+     */
+    public record ArchivedWebhook(OffsetDateTime receivedAt, PaymentProviderType provider, String tenantId,
+            String eventId, String payload) {
+    }
+
+    private record IndexEntry(long receivedAt, PaymentProviderType provider, String eventId, long offset,
+            int length, String tenantId) {
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final Duration segmentAge;
+    private final MeterRegistry meterRegistry;
+
+    // Current segment, guarded by this
+    private FileChannel segment;
+    private BufferedWriter index;
+    private long segmentStart;
+
+    public WebhookArchive(@Value("${payments.webhooks.archive.enabled:true}") boolean enabled,
+            @Value("${payments.webhooks.archive.directory:./data/webhook-archive}") Path directory,
+            @Value("${payments.webhooks.archive.segment-size:64MB}") DataSize segmentSize,
+            @Value("${payments.webhooks.archive.segment-age:PT1H}") Duration segmentAge,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentSize.toBytes();
+        this.segmentAge = segmentAge;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a verified payload. Failures are logged and counted but never
+     * reach the caller: the webhook itself has already been accepted.
+     */
+    public void append(PaymentProviderType provider, String tenantId, String eventId, String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            byte[] record = compress(payload);
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                rollIfNeeded(now);
+                long offset = segment.size();
+                segment.write(ByteBuffer.wrap(record));
+                index.write(now + "\t" + provider.name() + "\t" + (eventId == null ? "" : eventId) + "\t"
+                        + offset + "\t" + record.length + "\t" + tenantId);
+                index.newLine();
+                index.flush();
+            }
+        } catch (IOException e) {
+            meterRegistry.counter("payments.webhooks.archive.failures").increment();
+            log.warn("Failed to archive webhook [provider={}, eventId={}]", provider, eventId, e);
+        }
+    }
+
+    /**
+     * Streams the webhooks received in {@code [from, to)} to {@code consumer}
+     * in arrival order, optionally only those of one provider.
+     *
+     * @return the number of webhooks passed to the consumer
+     */
+    public int scan(OffsetDateTime from, OffsetDateTime to, PaymentProviderType provider,
+            Consumer<ArchivedWebhook> consumer) {
+        long fromMillis = from.toInstant().toEpochMilli();
+        long toMillis = to.toInstant().toEpochMilli();
+
+        List<Long> starts = segmentStarts();
+        int count = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            // A segment holds records from its start up to the next segment's start
+            boolean overlaps = start < toMillis && (i + 1 == starts.size() || starts.get(i + 1) > fromMillis);
+            if (!overlaps) {
+                continue;
+            }
+            for (IndexEntry entry : readIndex(start)) {
+                if (entry.receivedAt() >= fromMillis && entry.receivedAt() < toMillis
+                        && (provider == null || provider == entry.provider())) {
+                    consumer.accept(read(start, entry));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Looks up a webhook by provider event id, newest segment first. Scans the
+     * indexes, which are small next to the payloads they point to.
+     */
+    public Optional<ArchivedWebhook> find(PaymentProviderType provider, String eventId) {
+        List<Long> starts = segmentStarts();
+        for (int i = starts.size() - 1; i >= 0; i--) {
+            long start = starts.get(i);
+            for (IndexEntry entry : readIndex(start)) {
+                if (entry.provider() == provider && entry.eventId().equals(eventId)) {
+                    return Optional.of(read(start, entry));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.warn("Failed to close webhook archive segment", e);
+        }
+    }
+
+    private void rollIfNeeded(long now) throws IOException {
+        if (segment != null && segment.size() < segmentBytes && now - segmentStart < segmentAge.toMillis()) {
+            return;
+        }
+        closeSegment();
+
+        Files.createDirectories(directory);
+        // Segment names must be unique and increasing, even for rolls within one millisecond
+        long start = Math.max(now, segmentStart + 1);
+        segment = FileChannel.open(segmentPath(start), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        index = Files.newBufferedWriter(indexPath(start), StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.APPEND);
+        segmentStart = start;
+        log.debug("Started webhook archive segment [file={}]", segmentPath(start));
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            index.close();
+            segment.force(true);
+            segment.close();
+            segment = null;
+            index = null;
+        }
+    }
+
+    private List<Long> segmentStarts() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(INDEX_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(),
+                            name.length() - INDEX_SUFFIX.length())))
+                    .sorted(Comparator.naturalOrder())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list webhook archive " + directory, e);
+        }
+    }
+
+    private List<IndexEntry> readIndex(long start) {
+        List<IndexEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexPath(start), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                try {
+                    entries.add(new IndexEntry(Long.parseLong(fields[0]), PaymentProviderType.valueOf(fields[1]),
+                            fields[2], Long.parseLong(fields[3]), Integer.parseInt(fields[4]),
+                            fields.length > 5 ? fields[5] : TenantRegistry.DEFAULT_TENANT));
+                } catch (RuntimeException e) {
+                    // Torn last line after a crash
+                    log.warn("Skipping unreadable webhook archive index line [segment={}]", start);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read webhook archive index " + indexPath(start), e);
+        }
+        return entries;
+    }
+
+    private ArchivedWebhook read(long start, IndexEntry entry) {
+        try (FileChannel channel = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+            while (buffer.hasRemaining() && channel.read(buffer, entry.offset() + buffer.position()) >= 0) {
+                // Positional reads until the record is complete
+            }
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.array()))) {
+                String payload = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                return new ArchivedWebhook(OffsetDateTime.ofInstant(Instant.ofEpochMilli(entry.receivedAt()),
+                        ZoneOffset.UTC), entry.provider(), entry.tenantId(),
+                        entry.eventId().isEmpty() ? null : entry.eventId(), payload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read webhook archive segment " + segmentPath(start), e);
+        }
+    }
+
+    private static byte[] compress(String payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length() / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(PREFIX + start + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(long start) {
+        return directory.resolve(PREFIX + start + INDEX_SUFFIX);
+    }
+}
@@ -0,0 +1,238 @@
+package com.nelani.demo.webhook;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.coordination.Lease;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.exception.LeaseLostException;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.WebhookInboxEvent;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.WebhookInboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Shared ingestion path for verified webhooks of every provider.
+ * <p>
+ * {@link #accept} stores the event in the inbox and returns, so the webhook
+ * request only pays for one insert. Redeliveries of an event already in the
+ * inbox are dropped by its unique (provider, eventId) key.
+ * <p>
+ * An event is only applied to a payment of the merchant account whose
+ * endpoint received it, so one account's signed webhooks can never settle
+ * another account's payments.
+ * <p>
+ * Stored events are applied in arrival order by a single drain on the
+ * webhook executor, in batches: one IN lookup of the payments and one
+ * JDBC-batched update per batch. Each accept wakes the drain; further wake-ups
+ * while a drain is queued are merged into it. A scheduled wake-up picks up
+ * anything left behind by a failed drain or a restart.
+ * <p>
+ * Only the node holding the inbox's job lease drains it. Events accepted on
+ * other nodes wait for that node's next scheduled wake-up, so with several
+ * nodes they are applied up to {@code payments.webhooks.drain-interval}
+ * later.
+ * <p>
+ * With sharded payments, an event is stored next to its payment, on the
+ * shard its payment id names or, for a payment moved by a resharding, on the
+ * shard that holds it now (see {@link PaymentShards#locatePayment}). Each
+ * shard's inbox is drained on its own.
+ * <p>
+ * Metrics:
+ * <ul>
+ * <li>{@code payments.webhooks.accepted}: events stored, tagged by provider</li>
+ * <li>{@code payments.webhooks.duplicates}: redeliveries dropped, tagged by provider</li>
+ * <li>{@code payments.webhooks.pending}: events waiting to be applied</li>
+ * </ul>
+ */
+@Log4j2
+@Component
+public class WebhookInbox {
+
+    static final String JOB = "webhook-inbox";
+
+    private final WebhookInboxRepository webhookInboxRepository;
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor webhookExecutor;
+    private final MeterRegistry meterRegistry;
+    private final JobCoordinator coordinator;
+    private final PaymentShards shards;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    public WebhookInbox(WebhookInboxRepository webhookInboxRepository, PaymentRepository paymentRepository,
+            PlatformTransactionManager transactionManager, @Qualifier("webhookExecutor") Executor webhookExecutor,
+            MeterRegistry meterRegistry, JobCoordinator coordinator, PaymentShards shards,
+            @Value("${payments.webhooks.batch-size:200}") int batchSize,
+            @Value("${payments.webhooks.retention:P7D}") Duration retention) {
+        this.webhookInboxRepository = webhookInboxRepository;
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.webhookExecutor = webhookExecutor;
+        this.meterRegistry = meterRegistry;
+        this.coordinator = coordinator;
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.retention = retention;
+
+        Gauge.builder("payments.webhooks.pending", () -> shards.gather(webhookInboxRepository::countByProcessedAtIsNull)
+                .stream().mapToLong(Long::longValue).sum())
+                .description("Verified webhook events waiting to be applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores a verified, relevant webhook for asynchronous processing.
+     *
+     * @param tenantId merchant account whose endpoint received the webhook
+     * @return false if the same event was accepted before
+     */
+    public boolean accept(PaymentProviderType provider, String tenantId, WebhookResult result) {
+        // Without a provider event id there is nothing to deduplicate on
+        String eventId = result.eventId() != null ? result.eventId() : "local-" + UUID.randomUUID();
+
+        try {
+            // The drain only sees payments on the event's own shard
+            int shard = shards.locatePayment(result.paymentId(), paymentRepository::existsById);
+            shards.on(shard, () -> transactionTemplate.execute(status -> webhookInboxRepository
+                    .saveAndFlush(new WebhookInboxEvent(provider, tenantId, eventId, result.paymentId(),
+                            result.success()))));
+        } catch (DataIntegrityViolationException e) {
+            meterRegistry.counter("payments.webhooks.duplicates", "provider", provider.name()).increment();
+            log.info("Duplicate webhook ignored [provider={}, eventId={}]", provider, eventId);
+            return false;
+        }
+
+        meterRegistry.counter("payments.webhooks.accepted", "provider", provider.name()).increment();
+        requestDrain();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhooks.drain-interval:5000}")
+    public void requestDrain() {
+        if (drainQueued.compareAndSet(false, true)) {
+            webhookExecutor.execute(() -> {
+                drainQueued.set(false);
+                try {
+                    drain();
+                } catch (RuntimeException e) {
+                    log.warn("Webhook inbox drain failed, pending events will be retried", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies pending events until the inbox is empty.
+     *
+     * @return the number of events processed, 0 if other nodes drain the
+     *         inbox
+     */
+    public int drain() {
+        return shards.sum(this::drainShard);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhooks.purge-interval:3600000}")
+    public void purgeProcessed() {
+        shards.forEach(shard -> purgeShard());
+    }
+
+    private int drainShard() {
+        Optional<Lease> lease = coordinator.lead(JOB);
+        if (lease.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        int processed;
+        try {
+            do {
+                processed = transactionTemplate.execute(status -> applyBatch(lease.get()));
+                total += processed;
+            } while (processed == batchSize);
+        } catch (LeaseLostException e) {
+            log.warn("Webhook inbox drain taken over by another node", e);
+        }
+        return total;
+    }
+
+    private void purgeShard() {
+        if (coordinator.lead(JOB).isEmpty()) {
+            return;
+        }
+        Integer purged = transactionTemplate.execute(status -> webhookInboxRepository
+                .deleteProcessedBefore(OffsetDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Purged processed webhook events [count={}]", purged);
+        }
+    }
+
+    private int applyBatch(Lease lease) {
+        List<WebhookInboxEvent> events = webhookInboxRepository.findUnprocessed(Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, Payment> payments = paymentRepository
+                .findAllById(events.stream().map(WebhookInboxEvent::getPaymentId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (WebhookInboxEvent event : events) {
+            Payment payment = payments.get(event.getPaymentId());
+            if (payment == null) {
+                log.warn("Webhook for unknown payment skipped [provider={}, eventId={}, paymentId={}]",
+                        event.getProvider(), event.getEventId(), event.getPaymentId());
+            } else if (!payment.getTenantId().equals(event.getTenantId())) {
+                log.warn("Webhook for another merchant account's payment skipped [provider={}, eventId={}, "
+                        + "paymentId={}, tenant={}]", event.getProvider(), event.getEventId(),
+                        event.getPaymentId(), event.getTenantId());
+            } else {
+                apply(payment, event.isSuccess());
+            }
+            event.markProcessed(now);
+        }
+
+        paymentRepository.saveAll(payments.values());
+        coordinator.fence(lease);
+        return events.size();
+    }
+
+    // Redelivered or out-of-order events never move a payment backwards
+    private static void apply(Payment payment, boolean success) {
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
+            return;
+        }
+        if (success) {
+            payment.markSuccess();
+        } else if (payment.getStatus() != PaymentStatus.FAILED) {
+            payment.markFailed();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+-- Compact schema (schema-compact profile only, see META-INF/orm-compact.xml).
+-- Rewrites both payment tiers with:
+--   status, provider  SMALLINT codes (PaymentStatus.code(), PaymentProviderType.code())
+--   *_at              BIGINT microseconds since the epoch, UTC
+-- id stays UUID, which H2 already stores as 16 fixed bytes.
+-- Each table is copied once into its compact form and swapped in, rather than
+-- altered column by column, which would rewrite it for every statement.
+-- Versioned 8.1 so it runs right after the currency column. A database that
+-- is already past V8 cannot be converted: CompactSchemaConfig refuses to
+-- start on one.
+
+CREATE TABLE payments_compact (
+    id                 UUID           NOT NULL,
+    order_id           VARCHAR(100)   NOT NULL,
+    amount             NUMERIC(12, 2) NOT NULL,
+    currency           VARCHAR(3)     NOT NULL,
+    status             SMALLINT       NOT NULL,
+    provider           SMALLINT       NOT NULL,
+    created_at         BIGINT         NOT NULL,
+    expires_at         BIGINT         NOT NULL,
+    completed_at       BIGINT,
+    provider_reference VARCHAR(255),
+    checkout_url       VARCHAR(2048)
+);
+
+INSERT INTO payments_compact
+SELECT id, order_id, amount, currency,
+       CASE status WHEN 'EXPIRED' THEN 1 WHEN 'FAILED' THEN 2 WHEN 'INITIATING' THEN 3 WHEN 'PENDING' THEN 4
+                   WHEN 'SUCCESS' THEN 5 END,
+       CASE provider WHEN 'PAYPAL' THEN 1 WHEN 'STRIPE' THEN 2 END,
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', created_at),
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', expires_at),
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', completed_at),
+       provider_reference, checkout_url
+FROM payments;
+
+DROP TABLE payments;
+ALTER TABLE payments_compact RENAME TO payments;
+ALTER TABLE payments ADD CONSTRAINT pk_payments PRIMARY KEY (id);
+ALTER TABLE payments ADD CONSTRAINT uk_payment_order UNIQUE (order_id);
+
+CREATE INDEX idx_payment_order ON payments (order_id);
+CREATE INDEX idx_payment_status ON payments (status);
+CREATE INDEX idx_payment_status_created ON payments (status, created_at);
+CREATE INDEX idx_payment_provider_created ON payments (provider, created_at);
+CREATE INDEX idx_payment_status_completed ON payments (status, completed_at);
+CREATE INDEX idx_payment_created ON payments (created_at);
+
+CREATE TABLE payments_archive_compact (
+    id                 UUID           NOT NULL,
+    order_id           VARCHAR(100)   NOT NULL,
+    amount             NUMERIC(12, 2) NOT NULL,
+    currency           VARCHAR(3)     NOT NULL,
+    status             SMALLINT       NOT NULL,
+    provider           SMALLINT       NOT NULL,
+    created_at         BIGINT         NOT NULL,
+    expires_at         BIGINT         NOT NULL,
+    completed_at       BIGINT,
+    provider_reference VARCHAR(255),
+    checkout_url       VARCHAR(2048),
+    archived_at        BIGINT         NOT NULL
+);
+
+INSERT INTO payments_archive_compact
+SELECT id, order_id, amount, currency,
+       CASE status WHEN 'EXPIRED' THEN 1 WHEN 'FAILED' THEN 2 WHEN 'INITIATING' THEN 3 WHEN 'PENDING' THEN 4
+                   WHEN 'SUCCESS' THEN 5 END,
+       CASE provider WHEN 'PAYPAL' THEN 1 WHEN 'STRIPE' THEN 2 END,
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', created_at),
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', expires_at),
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', completed_at),
+       provider_reference, checkout_url,
+       DATEDIFF(MICROSECOND, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00', archived_at)
+FROM payments_archive;
+
+DROP TABLE payments_archive;
+ALTER TABLE payments_archive_compact RENAME TO payments_archive;
+ALTER TABLE payments_archive ADD CONSTRAINT pk_payments_archive PRIMARY KEY (id);
+ALTER TABLE payments_archive ADD CONSTRAINT uk_payments_archive_order UNIQUE (order_id);
+
+CREATE INDEX idx_payments_archive_created ON payments_archive (created_at);
@@ -0,0 +1,13 @@
+-- Cluster-wide token buckets for provider API calls, one per provider and
+-- merchant account, see com.nelani.demo.quota.DatabaseProviderQuota. Nodes
+-- lock a row to take a batch of tokens; rate_per_second is the rate learned
+-- from the provider's 429 responses.
+CREATE TABLE provider_quota (
+    provider        VARCHAR(20)                 NOT NULL,
+    tenant_id       VARCHAR(64)                 NOT NULL,
+    tokens          DOUBLE PRECISION            NOT NULL,
+    rate_per_second DOUBLE PRECISION            NOT NULL,
+    refilled_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    blocked_until   TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_provider_quota PRIMARY KEY (provider, tenant_id)
+);
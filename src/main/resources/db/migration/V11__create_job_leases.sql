@@ -0,0 +1,19 @@
+-- Leases of singleton background jobs and of job partitions, see
+-- com.nelani.demo.coordination.DatabaseJobCoordinator. owner is the node
+-- holding the lease until expires_at (null once released); token is the
+-- fencing token, which grows every time the lease is taken.
+CREATE TABLE job_lease (
+    name       VARCHAR(100)                NOT NULL,
+    owner      VARCHAR(100),
+    token      BIGINT                      NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_job_lease PRIMARY KEY (name)
+);
+
+-- Nodes taking part in job coordination and their last heartbeat. Partitions
+-- are shared among the nodes that beat within the lease TTL.
+CREATE TABLE cluster_node (
+    node_id      VARCHAR(100)                NOT NULL,
+    heartbeat_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_cluster_node PRIMARY KEY (node_id)
+);
@@ -0,0 +1,6 @@
+-- Outbox and inbox ids give the delivery and arrival order. Blocks of 50 per
+-- node let a later change on one node take a lower id than an earlier change
+-- on another, so every node now draws one id per row. Ids already handed out
+-- stay below the next value.
+ALTER SEQUENCE payment_outbox_seq INCREMENT BY 1;
+ALTER SEQUENCE webhook_inbox_seq INCREMENT BY 1;
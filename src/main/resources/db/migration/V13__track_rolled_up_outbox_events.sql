@@ -0,0 +1,16 @@
+-- Outbox ids are not commit order: a change can commit with an id below one
+-- already rolled up, and an id high-water mark skips it for good. Each outbox
+-- row now records when its change was rolled up instead.
+ALTER TABLE payment_outbox ADD COLUMN rolled_up_at TIMESTAMP(6) WITH TIME ZONE;
+
+CREATE INDEX idx_outbox_rolled_up ON payment_outbox (rolled_up_at, id);
+
+-- When a job last rebuilt every bucket, replacing the id watermark. Starts
+-- empty, so the next refresh rebuilds the buckets the watermark skipped.
+DROP TABLE payment_rollup_watermark;
+
+CREATE TABLE payment_rollup_rebuild (
+    job        VARCHAR(50)                 NOT NULL,
+    rebuilt_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_payment_rollup_rebuild PRIMARY KEY (job)
+);
@@ -0,0 +1,16 @@
+-- Rollups were summed across currencies. Buckets are now kept per provider
+-- and currency; the rollups are derived data, so they are emptied and the
+-- rebuild marker dropped, and the next refresh rebuilds every bucket.
+DELETE FROM payment_rollup_hourly;
+ALTER TABLE payment_rollup_hourly ADD COLUMN currency VARCHAR(3) NOT NULL;
+ALTER TABLE payment_rollup_hourly DROP CONSTRAINT pk_payment_rollup_hourly;
+ALTER TABLE payment_rollup_hourly ADD CONSTRAINT pk_payment_rollup_hourly
+    PRIMARY KEY (bucket_start, provider, currency);
+
+DELETE FROM payment_rollup_daily;
+ALTER TABLE payment_rollup_daily ADD COLUMN currency VARCHAR(3) NOT NULL;
+ALTER TABLE payment_rollup_daily DROP CONSTRAINT pk_payment_rollup_daily;
+ALTER TABLE payment_rollup_daily ADD CONSTRAINT pk_payment_rollup_daily
+    PRIMARY KEY (bucket_start, provider, currency);
+
+DELETE FROM payment_rollup_rebuild;
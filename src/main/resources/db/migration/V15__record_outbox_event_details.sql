@@ -0,0 +1,10 @@
+-- Every node tails the outbox to feed its in-process event bus, see
+-- com.nelani.demo.outbox.OutboxTail. Rows now carry what the bus listeners
+-- need besides the new status, and the process that recorded them, so a node
+-- skips the changes it already saw in-process. Rows written before are left
+-- without them.
+ALTER TABLE payment_outbox ADD COLUMN previous_status VARCHAR(20);
+ALTER TABLE payment_outbox ADD COLUMN previous_provider VARCHAR(20);
+ALTER TABLE payment_outbox ADD COLUMN currency VARCHAR(3);
+ALTER TABLE payment_outbox ADD COLUMN created_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE payment_outbox ADD COLUMN origin VARCHAR(36);
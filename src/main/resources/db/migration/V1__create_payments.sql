@@ -0,0 +1,17 @@
+-- Payments aggregate, see com.nelani.demo.model.Payment
+CREATE TABLE payments (
+    id                 UUID                     NOT NULL,
+    order_id           VARCHAR(100)             NOT NULL,
+    amount             NUMERIC(12, 2)           NOT NULL,
+    status             VARCHAR(20)              NOT NULL,
+    provider           VARCHAR(20)              NOT NULL,
+    created_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    completed_at       TIMESTAMP(6) WITH TIME ZONE,
+    provider_reference VARCHAR(255),
+    CONSTRAINT pk_payments PRIMARY KEY (id),
+    CONSTRAINT uk_payment_order UNIQUE (order_id)
+);
+
+CREATE INDEX idx_payment_order ON payments (order_id);
+CREATE INDEX idx_payment_status ON payments (status);
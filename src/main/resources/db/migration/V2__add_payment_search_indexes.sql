@@ -0,0 +1,6 @@
+-- Composite indexes for GET /api/payments/search.
+-- Equality filters (status, provider) lead, the range/sort column follows.
+CREATE INDEX idx_payment_status_created ON payments (status, created_at);
+CREATE INDEX idx_payment_provider_created ON payments (provider, created_at);
+CREATE INDEX idx_payment_status_completed ON payments (status, completed_at);
+CREATE INDEX idx_payment_created ON payments (created_at);
@@ -0,0 +1,16 @@
+-- Transactional outbox for payment status changes, see com.nelani.demo.model.OutboxEvent.
+-- Rows are written in the same transaction as the change and drained by the OutboxRelay.
+CREATE SEQUENCE payment_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE payment_outbox (
+    id           BIGINT                      NOT NULL,
+    order_id     VARCHAR(100)                NOT NULL,
+    status       VARCHAR(20)                 NOT NULL,
+    provider     VARCHAR(20)                 NOT NULL,
+    amount       NUMERIC(12, 2)              NOT NULL,
+    occurred_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    published_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_payment_outbox PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_outbox_unpublished ON payment_outbox (published_at, id);
@@ -0,0 +1,37 @@
+-- Pre-aggregated payment analytics per UTC hour/day and provider, maintained
+-- incrementally by PaymentRollupServiceImpl. Buckets are keyed by created_at.
+CREATE TABLE payment_rollup_hourly (
+    bucket_start       TIMESTAMP(0) WITH TIME ZONE NOT NULL,
+    provider           VARCHAR(20)                 NOT NULL,
+    payments           BIGINT                      NOT NULL,
+    succeeded          BIGINT                      NOT NULL,
+    failed             BIGINT                      NOT NULL,
+    expired            BIGINT                      NOT NULL,
+    amount             NUMERIC(18, 2)              NOT NULL,
+    succeeded_amount   NUMERIC(18, 2)              NOT NULL,
+    completed          BIGINT                      NOT NULL,
+    completion_seconds BIGINT                      NOT NULL,
+    CONSTRAINT pk_payment_rollup_hourly PRIMARY KEY (bucket_start, provider)
+);
+
+CREATE TABLE payment_rollup_daily (
+    bucket_start       TIMESTAMP(0) WITH TIME ZONE NOT NULL,
+    provider           VARCHAR(20)                 NOT NULL,
+    payments           BIGINT                      NOT NULL,
+    succeeded          BIGINT                      NOT NULL,
+    failed             BIGINT                      NOT NULL,
+    expired            BIGINT                      NOT NULL,
+    amount             NUMERIC(18, 2)              NOT NULL,
+    succeeded_amount   NUMERIC(18, 2)              NOT NULL,
+    completed          BIGINT                      NOT NULL,
+    completion_seconds BIGINT                      NOT NULL,
+    CONSTRAINT pk_payment_rollup_daily PRIMARY KEY (bucket_start, provider)
+);
+
+-- Last payment_outbox id whose change is reflected in the rollups
+CREATE TABLE payment_rollup_watermark (
+    job           VARCHAR(50)                 NOT NULL,
+    last_event_id BIGINT                      NOT NULL,
+    updated_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_payment_rollup_watermark PRIMARY KEY (job)
+);
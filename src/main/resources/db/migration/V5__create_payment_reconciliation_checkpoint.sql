@@ -0,0 +1,11 @@
+-- Progress of the reconciliation pass, see PaymentReconciliationServiceImpl.
+-- created_before is the staleness cutoff of the pass in progress (null when
+-- idle) and cursor_* the (created_at, id) of the last payment it handled.
+CREATE TABLE payment_reconciliation_checkpoint (
+    job               VARCHAR(50)                 NOT NULL,
+    created_before    TIMESTAMP(6) WITH TIME ZONE,
+    cursor_created_at TIMESTAMP(6) WITH TIME ZONE,
+    cursor_id         UUID,
+    updated_at        TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_payment_reconciliation_checkpoint PRIMARY KEY (job)
+);
@@ -0,0 +1,20 @@
+-- Verified provider webhook events waiting to be applied, see
+-- com.nelani.demo.model.WebhookInboxEvent. The unique key drops redeliveries.
+CREATE SEQUENCE webhook_inbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE webhook_inbox (
+    id           BIGINT                      NOT NULL,
+    provider     VARCHAR(20)                 NOT NULL,
+    event_id     VARCHAR(255)                NOT NULL,
+    payment_id   UUID                        NOT NULL,
+    success      BOOLEAN                     NOT NULL,
+    received_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    processed_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_webhook_inbox PRIMARY KEY (id),
+    CONSTRAINT uk_webhook_inbox_event UNIQUE (provider, event_id)
+);
+
+CREATE INDEX idx_webhook_inbox_unprocessed ON webhook_inbox (processed_at, id);
+
+-- Provider checkout page (e.g. the PayPal approval link), reused on resume
+ALTER TABLE payments ADD COLUMN checkout_url VARCHAR(2048);
@@ -0,0 +1,21 @@
+-- Cold tier for terminal payments moved out of payments by the archiver, see
+-- com.nelani.demo.model.ArchivedPayment. Same columns as payments plus the
+-- time of the move. Only order_id and created_at are indexed, for fall-through
+-- lookups and range reads; fewer indexes keep the batched moves cheap.
+CREATE TABLE payments_archive (
+    id                 UUID                        NOT NULL,
+    order_id           VARCHAR(100)                NOT NULL,
+    amount             NUMERIC(12, 2)              NOT NULL,
+    status             VARCHAR(20)                 NOT NULL,
+    provider           VARCHAR(20)                 NOT NULL,
+    created_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    completed_at       TIMESTAMP(6) WITH TIME ZONE,
+    provider_reference VARCHAR(255),
+    checkout_url       VARCHAR(2048),
+    archived_at        TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_payments_archive PRIMARY KEY (id),
+    CONSTRAINT uk_payments_archive_order UNIQUE (order_id)
+);
+
+CREATE INDEX idx_payments_archive_created ON payments_archive (created_at);
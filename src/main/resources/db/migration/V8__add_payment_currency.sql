@@ -0,0 +1,10 @@
+-- ISO 4217 currency of each payment, see com.nelani.demo.model.CurrencyCode.
+-- Existing payments were charged in the currency each provider used before
+-- currencies could be chosen: USD at PayPal, ZAR at Stripe.
+ALTER TABLE payments ADD COLUMN currency VARCHAR(3);
+UPDATE payments SET currency = CASE provider WHEN 'PAYPAL' THEN 'USD' ELSE 'ZAR' END;
+ALTER TABLE payments ALTER COLUMN currency SET NOT NULL;
+
+ALTER TABLE payments_archive ADD COLUMN currency VARCHAR(3);
+UPDATE payments_archive SET currency = CASE provider WHEN 'PAYPAL' THEN 'USD' ELSE 'ZAR' END;
+ALTER TABLE payments_archive ALTER COLUMN currency SET NOT NULL;
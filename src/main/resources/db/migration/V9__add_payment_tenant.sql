@@ -0,0 +1,8 @@
+-- Merchant account (tenant) of each payment, see com.nelani.demo.tenant.TenantRegistry.
+-- Payments made before accounts could be chosen belong to the default account.
+ALTER TABLE payments ADD COLUMN tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
+ALTER TABLE payments_archive ADD COLUMN tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
+
+-- Account whose endpoint received each webhook; the drain only applies an
+-- event to a payment of the same account
+ALTER TABLE webhook_inbox ADD COLUMN tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
@@ -0,0 +1,163 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.config.AsyncConfig;
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentBatchService;
+import com.nelani.demo.service.PaymentProviderFactory;
+import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.impl.PaymentBatchServiceImpl;
+import com.nelani.demo.service.impl.PaymentServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares N single {@code initializePayment} calls with one batch call of N items.
+ * <p>
+ * Providers are replaced by a stub with a fixed latency so that the numbers show
+ * the effect of JDBC batching and concurrent provider calls only.
+ * Run with {@code mvn test -Pbenchmark -Dtest=BatchInitializationBenchmark}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import({ PaymentServiceImpl.class, PaymentBatchServiceImpl.class, AsyncConfig.class,
+        BatchInitializationBenchmark.StubProviderConfig.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class BatchInitializationBenchmark {
+
+    private static final int ITEMS = 200;
+    private static final long PROVIDER_LATENCY_MILLIS = 5;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentBatchService paymentBatchService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void singleCallsVersusBatch() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Warm up both paths
+        runSingle("warmup-single", ITEMS / 4);
+        runBatch("warmup-batch", ITEMS / 4);
+        paymentRepository.deleteAllInBatch();
+
+        statistics.clear();
+        long singleNanos = runSingle("single", ITEMS);
+        long singleStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        long batchNanos = runBatch("batch", ITEMS);
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        System.out.printf("%n%-8s %8s %12s %14s%n", "mode", "items", "total (ms)", "statements");
+        System.out.printf("%-8s %8d %12d %14d%n", "single", ITEMS, TimeUnit.NANOSECONDS.toMillis(singleNanos),
+                singleStatements);
+        System.out.printf("%-8s %8d %12d %14d%n%n", "batch", ITEMS, TimeUnit.NANOSECONDS.toMillis(batchNanos),
+                batchStatements);
+
+        Assertions.assertThat(paymentRepository.count()).isEqualTo(2L * ITEMS);
+    }
+
+    private long runSingle(String prefix, int items) {
+        long start = System.nanoTime();
+        for (PaymentRequestDTO request : requests(prefix, items)) {
+            paymentService.initializePayment(request);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runBatch(String prefix, int items) {
+        long start = System.nanoTime();
+        paymentBatchService.initializePayments(new BatchPaymentRequestDTO(requests(prefix, items)));
+        return System.nanoTime() - start;
+    }
+
+    private List<PaymentRequestDTO> requests(String prefix, int items) {
+        List<PaymentRequestDTO> requests = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            requests.add(new PaymentRequestDTO(prefix + "-" + i, BigDecimal.valueOf(100 + i),
+                    PaymentProviderType.STRIPE));
+        }
+        return requests;
+    }
+
+    @TestConfiguration
+    static class StubProviderConfig {
+
+        @Bean
+        PaymentProviderFactory paymentProviderFactory() {
+            return new PaymentProviderFactory(List.of(new LatencyStubProvider()));
+        }
+    }
+
+    static class LatencyStubProvider implements PaymentProvider {
+
+        @Override
+        public PaymentProviderType getType() {
+            return PaymentProviderType.STRIPE;
+        }
+
+        @Override
+        public PaymentResponseDTO createPayment(Payment payment) {
+            try {
+                Thread.sleep(PROVIDER_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new PaymentResponseDTO(payment.getOrderId(), "pi_" + payment.getId(), "secret",
+                    payment.getAmount(), payment.getCurrency(), getType(), null, null, null, null);
+        }
+
+        @Override
+        public PaymentResponseDTO resumePayment(Payment payment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WebhookResult parseWebhook(String tenantId, String payload) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.PaymentStorageSchema;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.assertj.core.api.Assertions;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compares the standard and compact payments schema on a file-backed H2
+ * database: bytes per row and rows per 4 KiB page of the table, size of
+ * {@code idx_payment_status} and of all payments indexes, and scan speed.
+ * <p>
+ * Both databases get the same rows through the standard schema; the compact
+ * one is then converted by the {@code db/compact} migration, whose time is
+ * reported as well. Row sizes are H2's {@code DISK_SPACE_USED} for the live
+ * table. Index sizes are the shrinkage of the database file, after
+ * {@code SHUTDOWN COMPACT}, once the indexes are dropped; H2 compresses
+ * compacted files, so these are sizes at rest.
+ * 200,000 rows by default, changeable with {@code -Dcompact.rows}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=CompactSchemaBenchmark}.
+ */
+class CompactSchemaBenchmark {
+
+    private static final int ROWS = Integer.getInteger("compact.rows", 200_000);
+    private static final int BATCH_SIZE = 1_000;
+    private static final int SCANS = 5;
+    private static final OffsetDateTime START = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final String[] STATUSES = { "SUCCESS", "SUCCESS", "SUCCESS", "FAILED", "EXPIRED", "PENDING" };
+
+    @TempDir
+    Path dataDir;
+
+    private record Result(long bytesPerRow, long statusIndexBytesPerRow, long indexBytesPerRow,
+            double fullScanRowsPerSecond, double rangeScanMillis, double migrationSeconds) {
+    }
+
+    private record Scans(double fullScanRowsPerSecond, double rangeScanMillis) {
+    }
+
+    @Test
+    void standardVersusCompactSchema() throws Exception {
+        Result standard = run(PaymentStorageSchema.STANDARD);
+        Result compact = run(PaymentStorageSchema.COMPACT);
+
+        System.out.printf("%n%-10s %10s %12s %14s %14s %14s %12s %10s%n", "schema", "bytes/row", "rows/4KiB",
+                "status idx B/r", "all idx B/r", "scan rows/s", "range ms", "migrate s");
+        print(PaymentStorageSchema.STANDARD, standard);
+        print(PaymentStorageSchema.COMPACT, compact);
+        System.out.println();
+    }
+
+    private Result run(PaymentStorageSchema schema) throws SQLException, IOException {
+        String name = schema.name().toLowerCase();
+        // Results of repeated queries must not be reused while measuring scans
+        String url = "jdbc:h2:file:" + dataDir.resolve(name) + ";DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=FALSE";
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+
+        double migrationSeconds = 0;
+        long tableBytes;
+        Scans scans;
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            // The conversion only runs on a database at V8, so the rows are inserted there
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").target("8").load()
+                    .migrate();
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            insertRows(jdbc);
+
+            String[] locations = { "classpath:db/migration" };
+            if (schema == PaymentStorageSchema.COMPACT) {
+                locations = new String[] { "classpath:db/migration", "classpath:db/compact" };
+                long start = System.nanoTime();
+                Flyway.configure().dataSource(dataSource).locations(locations).target("8.1").load().migrate();
+                migrationSeconds = (System.nanoTime() - start) / 1e9;
+            }
+            Flyway.configure().dataSource(dataSource).locations(locations).load().migrate();
+            Assertions.assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM payments", Long.class))
+                    .isEqualTo(ROWS);
+            scans = scan(jdbc, schema);
+            tableBytes = jdbc.queryForObject("SELECT DISK_SPACE_USED('PAYMENTS')", Long.class);
+        }
+
+        long total = compactedSize(url, name, null);
+        long withoutStatusIndex = compactedSize(url, name, "DROP INDEX idx_payment_status");
+        long withoutIndexes = compactedSize(url, name, """
+                DROP INDEX idx_payment_order;
+                DROP INDEX idx_payment_status_created;
+                DROP INDEX idx_payment_provider_created;
+                DROP INDEX idx_payment_status_completed;
+                DROP INDEX idx_payment_created""");
+
+        return new Result(tableBytes / ROWS, (total - withoutStatusIndex) / ROWS, (total - withoutIndexes) / ROWS,
+                scans.fullScanRowsPerSecond(), scans.rangeScanMillis(), migrationSeconds);
+    }
+
+    private static void insertRows(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < ROWS; i++) {
+            // Spread over a year, completed a few minutes after creation when terminal
+            OffsetDateTime created = START.plusSeconds(i * (365L * 24 * 3600 / ROWS));
+            String status = STATUSES[random.nextInt(STATUSES.length)];
+            batch.add(new Object[] { UUID.randomUUID(), "order-" + i, BigDecimal.valueOf(100 + random.nextInt(99_900), 2),
+                    status, random.nextInt(3) == 0 ? "PAYPAL" : "STRIPE", Timestamp.from(created.toInstant()),
+                    Timestamp.from(created.plusDays(1).toInstant()),
+                    status.equals("PENDING") ? null : Timestamp.from(created.plusMinutes(3).toInstant()) });
+            if (batch.size() == BATCH_SIZE || i == ROWS - 1) {
+                jdbc.batchUpdate("""
+                        INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at,
+                                              expires_at, completed_at)
+                        VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?, ?)""", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static Scans scan(JdbcTemplate jdbc, PaymentStorageSchema schema) {
+        // Full scan: a filter no index covers, so every row is read
+        String fullScan = "SELECT COUNT(*), SUM(amount) FROM payments WHERE completed_at >= created_at";
+        // Index range scan on idx_payment_status_created over a month of successful payments
+        String rangeScan = "SELECT COUNT(*), SUM(amount) FROM payments"
+                + " WHERE status = ? AND created_at >= ? AND created_at < ?";
+        Object success = schema == PaymentStorageSchema.COMPACT ? PaymentStatus.SUCCESS.code() : "SUCCESS";
+        Object from = schema.bind(START.plusMonths(6));
+        Object to = schema.bind(START.plusMonths(7));
+
+        // Warm-up
+        jdbc.queryForList(fullScan);
+        jdbc.queryForList(rangeScan, success, from, to);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++) {
+            jdbc.queryForList(fullScan);
+        }
+        double fullScanRowsPerSecond = (double) ROWS * SCANS / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++) {
+            jdbc.queryForList(rangeScan, success, from, to);
+        }
+        double rangeScanMillis = (System.nanoTime() - start) / 1e6 / SCANS;
+
+        return new Scans(fullScanRowsPerSecond, rangeScanMillis);
+    }
+
+    // Runs the statements, compacts the database and returns the size of its file
+    private long compactedSize(String url, String name, String statements) throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            if (statements != null) {
+                for (String sql : statements.split(";")) {
+                    statement.execute(sql.strip());
+                }
+            }
+            statement.execute("SHUTDOWN COMPACT");
+        }
+        return Files.size(dataDir.resolve(name + ".mv.db"));
+    }
+
+    private static void print(PaymentStorageSchema schema, Result result) {
+        System.out.printf("%-10s %,10d %,12d %,14d %,14d %,14.0f %12.2f %10.2f%n", schema, result.bytesPerRow(),
+                4096 / Math.max(1, result.bytesPerRow()), result.statusIndexBytesPerRow(), result.indexBytesPerRow(),
+                result.fullScanRowsPerSecond(), result.rangeScanMillis(), result.migrationSeconds());
+    }
+}
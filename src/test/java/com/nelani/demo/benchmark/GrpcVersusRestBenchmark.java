@@ -0,0 +1,357 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.grpc.v1.InitializePaymentRequest;
+import com.nelani.demo.grpc.v1.InitializePaymentResult;
+import com.nelani.demo.grpc.v1.Payment;
+import com.nelani.demo.grpc.v1.PaymentsGrpc;
+import com.nelani.demo.grpc.v1.Provider;
+import com.nelani.demo.grpc.v1.ResumePaymentRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checkouts and resumes through the REST API and through the gRPC API of the
+ * same running service, on one machine:
+ * <ul>
+ * <li>one call at a time: {@code POST /api/payments} over a kept-alive
+ * HTTP/1.1 connection against the unary {@code InitializePayment}, and the
+ * same for resume</li>
+ * <li>{@value #CLIENTS} concurrent callers: HTTP/1.1 connections from a pool
+ * against one multiplexed HTTP/2 channel</li>
+ * <li>the {@code InitializePayments} stream, every order on one call</li>
+ * </ul>
+ * Reports calls per second and the median and 99th percentile latency, plus
+ * the bytes of a checkout request and response body in each encoding.
+ * <p>
+ * The service runs as a fresh JVM from the packaged jar with the default
+ * in-memory storage and provider quotas off. Stripe is a local stub, so the
+ * figures are the service's own cost, transport included. Every mode runs
+ * {@code -Dgrpc.calls} calls (2,000 by default) after a quarter as many to
+ * warm up. Run with {@code mvn package -DskipTests}, then
+ * {@code mvn test -Pbenchmark -Dtest=GrpcVersusRestBenchmark}.
+ */
+class GrpcVersusRestBenchmark {
+
+    private static final int CALLS = Integer.getInteger("grpc.calls", 2_000);
+    private static final int CLIENTS = 16;
+    private static final Duration TIMEOUT = Duration.ofSeconds(180);
+    private static final String CHECKOUT = """
+            {"orderId": "%s", "amount": 150.00, "provider": "STRIPE"}""";
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final AtomicInteger orders = new AtomicInteger();
+
+    private String base;
+    private PaymentsGrpc.PaymentsBlockingStub blocking;
+    private PaymentsGrpc.PaymentsStub async;
+
+    private interface Call {
+        void run(String orderId) throws Exception;
+    }
+
+    @Test
+    void restVersusGrpc() throws Exception {
+        Path jar = jar();
+        Assumptions.assumeTrue(jar != null, "Build with mvn package -DskipTests first");
+
+        HttpServer stripe = stripeStub();
+        int port = freePort();
+        int grpcPort = freePort();
+        Process process = launch(jar, port, grpcPort, stripe.getAddress().getPort());
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress("localhost", grpcPort,
+                InsecureChannelCredentials.create()).build();
+        try {
+            base = "http://localhost:" + port;
+            awaitReady(process);
+            blocking = PaymentsGrpc.newBlockingStub(channel);
+            async = PaymentsGrpc.newStub(channel);
+
+            printBodySizes();
+            System.out.printf("%-34s %10s %10s %10s%n", "mode", "calls/s", "p50 ms", "p99 ms");
+
+            measure("checkout, REST", 1, this::restCheckout);
+            measure("checkout, gRPC unary", 1, this::grpcCheckout);
+            measure("checkout, REST, " + CLIENTS + " clients", CLIENTS, this::restCheckout);
+            measure("checkout, gRPC unary, " + CLIENTS + " clients", CLIENTS, this::grpcCheckout);
+            streamed("checkout, gRPC stream");
+
+            List<String> pending = new ArrayList<>();
+            for (int i = 0; i < CALLS + CALLS / 4; i++) {
+                String orderId = nextOrder();
+                grpcCheckout(orderId);
+                pending.add(orderId);
+            }
+            AtomicInteger resumed = new AtomicInteger();
+            measure("resume, REST", 1, ignored -> restResume(pending.get(resumed.getAndIncrement()
+                    % pending.size())));
+            measure("resume, gRPC unary", 1, ignored -> grpcResume(pending.get(resumed.getAndIncrement()
+                    % pending.size())));
+            System.out.println();
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            process.destroy();
+            process.waitFor();
+            stripe.stop(0);
+        }
+    }
+
+    private void measure(String mode, int clients, Call call) throws Exception {
+        run(clients, CALLS / 4, call);
+        long start = System.nanoTime();
+        double[] millis = run(clients, CALLS, call);
+        report(mode, System.nanoTime() - start, millis);
+    }
+
+    private double[] run(int clients, int calls, Call call) throws Exception {
+        double[] millis = new double[calls];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < calls; i = next.getAndIncrement()) {
+                        long start = System.nanoTime();
+                        call.run(nextOrder());
+                        millis[i] = (System.nanoTime() - start) / 1e6;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return millis;
+    }
+
+    // Latency is from sending a request to receiving its result, requests are all sent up front
+    private void streamed(String mode) throws Exception {
+        stream(CALLS / 4);
+        long start = System.nanoTime();
+        double[] millis = stream(CALLS);
+        report(mode, System.nanoTime() - start, millis);
+    }
+
+    private double[] stream(int calls) throws Exception {
+        double[] millis = new double[calls];
+        long[] sent = new long[calls];
+        List<String> orderIds = new ArrayList<>(calls);
+        Map<String, Integer> index = new ConcurrentHashMap<>();
+        for (int i = 0; i < calls; i++) {
+            String orderId = nextOrder();
+            orderIds.add(orderId);
+            index.put(orderId, i);
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<InitializePaymentRequest> requests = async.initializePayments(
+                new StreamObserver<>() {
+
+                    @Override
+                    public void onNext(InitializePaymentResult result) {
+                        int i = index.get(result.getOrderId());
+                        millis[i] = (System.nanoTime() - sent[i]) / 1e6;
+                        if (result.hasFailure()) {
+                            done.completeExceptionally(new AssertionError(result.getFailure().getMessage()));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        done.completeExceptionally(error);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        done.complete(null);
+                    }
+                });
+        for (int i = 0; i < calls; i++) {
+            sent[i] = System.nanoTime();
+            requests.onNext(grpcRequest(orderIds.get(i)));
+        }
+        requests.onCompleted();
+        done.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        return millis;
+    }
+
+    private void restCheckout(String orderId) throws Exception {
+        send(HttpRequest.newBuilder(URI.create(base + "/api/payments"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(CHECKOUT.formatted(orderId)))
+                .build());
+    }
+
+    private void grpcCheckout(String orderId) {
+        blocking.withDeadlineAfter(30, TimeUnit.SECONDS).initializePayment(grpcRequest(orderId));
+    }
+
+    private void restResume(String orderId) throws Exception {
+        send(HttpRequest.newBuilder(URI.create(base + "/api/payments/resume?orderId=" + orderId))
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+
+    private void grpcResume(String orderId) {
+        blocking.withDeadlineAfter(30, TimeUnit.SECONDS)
+                .resumePayment(ResumePaymentRequest.newBuilder().setOrderId(orderId).build());
+    }
+
+    private String send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        return response.body();
+    }
+
+    private void printBodySizes() throws Exception {
+        String orderId = nextOrder();
+        String jsonRequest = CHECKOUT.formatted(orderId);
+        String jsonResponse = send(HttpRequest.newBuilder(URI.create(base + "/api/payments"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonRequest))
+                .build());
+        InitializePaymentRequest grpcRequest = grpcRequest(nextOrder());
+        Payment grpcResponse = blocking.initializePayment(grpcRequest);
+        System.out.printf("%nCheckout body bytes: JSON request %d, response %d; protobuf request %d, response %d%n%n",
+                jsonRequest.getBytes(StandardCharsets.UTF_8).length,
+                jsonResponse.getBytes(StandardCharsets.UTF_8).length,
+                grpcRequest.getSerializedSize(), grpcResponse.getSerializedSize());
+    }
+
+    private static void report(String mode, long nanos, double[] millis) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-34s %,10.0f %10.2f %10.2f%n", mode, millis.length / (nanos / 1e9),
+                sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)]);
+    }
+
+    private static InitializePaymentRequest grpcRequest(String orderId) {
+        return InitializePaymentRequest.newBuilder()
+                .setOrderId(orderId)
+                .setAmount("150.00")
+                .setProvider(Provider.PROVIDER_STRIPE)
+                .build();
+    }
+
+    private String nextOrder() {
+        return "grpc-bench-" + orders.incrementAndGet();
+    }
+
+    private static Process launch(Path jar, int port, int grpcPort, int stripePort) throws IOException {
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.grpc.server.enabled=true",
+                "--spring.grpc.server.port=" + grpcPort,
+                "--payments.quota.enabled=false",
+                "--logging.level.root=WARN");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("STRIPE_SECRET_KEY", "sk_test_grpc");
+        builder.environment().put("STRIPE_SECRET_WEBHOOK", "whsec_grpc");
+        builder.environment().put("STRIPE_API_BASE", "http://localhost:" + stripePort);
+        builder.environment().put("PAYPAL_CLIENT_ID", "grpc");
+        builder.environment().put("PAYPAL_CLIENT_SECRET", "grpc");
+        return builder.start();
+    }
+
+    private void awaitReady(Process process) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(base + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+            Assertions.assertThat(process.isAlive()).as("service exited early").isTrue();
+            try {
+                if (http.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("service was not ready within " + TIMEOUT);
+    }
+
+    // Answers just enough of the Stripe API for checkouts and resumes, on a virtual thread per call
+    private static HttpServer stripeStub() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/balance", exchange -> respond(exchange, """
+                {"object": "balance", "available": [], "pending": [], "livemode": false}"""));
+        server.createContext("/v1/customers", exchange -> respond(exchange, """
+                {"id": "cus_grpc", "object": "customer"}"""));
+        server.createContext("/v1/payment_intents", exchange -> respond(exchange, """
+                {"id": "pi_grpc", "object": "payment_intent", "client_secret": "pi_grpc_secret",
+                 "status": "requires_payment_method"}"""));
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Path jar() throws IOException {
+        try (var files = Files.list(Path.of("target"))) {
+            return files.filter(file -> file.toString().endsWith(".jar"))
+                    .filter(file -> !file.toString().endsWith("-plain.jar"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.nelani.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nelani.demo.dto.PageResponseDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH measurement of writing payment responses, the previous way and the
+ * current one:
+ * <ul>
+ * <li>one checkout response, through Jackson's bean serializer and through
+ * the hand-written {@code PaymentResponseSerializer}</li>
+ * <li>a listing page of 20 rows, as a serialized Spring Data {@link Page} and
+ * as the {@link PageResponseDTO} envelope, in JSON</li>
+ * <li>the envelope in Smile and CBOR, for internal clients</li>
+ * </ul>
+ * Mappers are built like the application's. Reports operations per
+ * millisecond and, from JMH's GC profiler, bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}). The harness is generated by the benchmark
+ * profile only. Also prints the size of a listing page in each format.
+ * Run with {@code mvn test -Pbenchmark -Dtest=JsonSerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    // Jackson's bean serializer, as used before the hand-written one
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface BeanSerialized {
+    }
+
+    private ObjectMapper json;
+    private ObjectMapper beanJson;
+    private ObjectMapper smile;
+    private ObjectMapper cbor;
+    private PaymentResponseDTO checkout;
+    private Page<PaymentResponseDTO> page;
+    private PageResponseDTO<PaymentResponseDTO> envelope;
+
+    @Test
+    void serialization() throws Exception {
+        JsonSerializationBenchmark sizes = new JsonSerializationBenchmark();
+        sizes.setUp();
+        System.out.printf("%nListing page bytes: Spring Data page %,d, JSON %,d, Smile %,d, CBOR %,d%n%n",
+                sizes.listingSpringDataPage().length, sizes.listingEnvelopeJson().length,
+                sizes.listingEnvelopeSmile().length, sizes.listingEnvelopeCbor().length);
+
+        new Runner(new OptionsBuilder()
+                .include(JsonSerializationBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        json = builder().build();
+        beanJson = builder().mixIn(PaymentResponseDTO.class, BeanSerialized.class).build();
+        smile = builder().factory(new SmileFactory()).build();
+        cbor = builder().factory(new CBORFactory()).build();
+
+        OffsetDateTime createdAt = OffsetDateTime.of(2025, 1, 6, 10, 15, 30, 123_456_000, ZoneOffset.UTC);
+        checkout = new PaymentResponseDTO("ORD-2025-0001", "pi_3NQxYkLkdIwHu7ix0X1",
+                "pi_3NQxYkLkdIwHu7ix0X1_secret_abc123", new BigDecimal("199.99"), CurrencyCode.ZAR,
+                PaymentProviderType.STRIPE, "PENDING", createdAt, createdAt.plusDays(1), null);
+        List<PaymentResponseDTO> rows = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            rows.add(new PaymentResponseDTO("ORD-2025-" + i, null, null, BigDecimal.valueOf(1000 + i, 2),
+                    CurrencyCode.USD, PaymentProviderType.PAYPAL, "SUCCESS", createdAt.minusMinutes(i),
+                    createdAt.minusMinutes(i).plusDays(1), createdAt.minusMinutes(i).plusSeconds(42)));
+        }
+        page = new PageImpl<>(rows, PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt")),
+                1_000);
+        envelope = PageResponseDTO.of(page);
+    }
+
+    @Benchmark
+    public byte[] checkoutBeanSerializer() throws Exception {
+        return beanJson.writeValueAsBytes(checkout);
+    }
+
+    @Benchmark
+    public byte[] checkoutHandWritten() throws Exception {
+        return json.writeValueAsBytes(checkout);
+    }
+
+    @Benchmark
+    public byte[] listingSpringDataPage() throws Exception {
+        return beanJson.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] listingEnvelopeJson() throws Exception {
+        return json.writeValueAsBytes(envelope);
+    }
+
+    @Benchmark
+    public byte[] listingEnvelopeSmile() throws Exception {
+        return smile.writeValueAsBytes(envelope);
+    }
+
+    @Benchmark
+    public byte[] listingEnvelopeCbor() throws Exception {
+        return cbor.writeValueAsBytes(envelope);
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
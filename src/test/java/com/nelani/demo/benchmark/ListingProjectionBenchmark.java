@@ -0,0 +1,137 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.mapper.PaymentMapper;
+import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.repository.PaymentRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compares listing through managed {@code Payment} entities with the
+ * {@code PaymentSummary} projection, reporting latency and bytes allocated per
+ * page for 100, 1,000 and 10,000-row pages.
+ * <p>
+ * Allocation is read from the calling thread's allocation counter, so it covers
+ * JDBC, Hibernate and DTO mapping but not background GC work.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ListingProjectionBenchmark}.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@ActiveProfiles("test")
+class ListingProjectionBenchmark {
+
+    private static final int[] PAGE_SIZES = { 100, 1_000, 10_000 };
+    private static final int ROWS = 10_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeAll
+    void seed() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        jdbcTemplate.update("DELETE FROM payments");
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[] { UUID.randomUUID(), "listing-" + i, BigDecimal.valueOf(100 + i, 2),
+                    i % 2 == 0 ? "PENDING" : "SUCCESS", i % 2 == 0 ? "STRIPE" : "PAYPAL",
+                    Timestamp.from(now.minusMinutes(i).toInstant()),
+                    Timestamp.from(now.plusDays(1).toInstant()) });
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at)
+                VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?)
+                """, rows);
+    }
+
+    @Test
+    void entityVersusProjection() {
+        System.out.printf("%n%-10s %10s %14s %18s%n", "mode", "page size", "latency (ms)", "allocated (KiB)");
+
+        for (int size : PAGE_SIZES) {
+            Pageable pageable = PageRequest.of(0, size,
+                    Sort.by(Sort.Direction.DESC, PaymentSortField.CREATED_AT.fieldName()));
+
+            Result entity = measure(() -> paymentRepository.findAll(pageable)
+                    .map(payment -> PaymentMapper.toResponseDTO(payment, null, null)));
+            Result projection = measure(() -> paymentRepository.findAllSummaries(pageable)
+                    .map(PaymentMapper::toResponseDTO));
+
+            print("entity", size, entity);
+            print("projection", size, projection);
+        }
+        System.out.println();
+
+        Assertions.assertThat(paymentRepository.count()).isEqualTo(ROWS);
+    }
+
+    private Result measure(Supplier<Page<PaymentResponseDTO>> listing) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            readOnly.execute(status -> listing.get());
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            Page<PaymentResponseDTO> page = readOnly.execute(status -> listing.get());
+            nanos += System.nanoTime() - start;
+            bytes += THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            Assertions.assertThat(page.getContent()).isNotEmpty();
+        }
+        return new Result(nanos / MEASURED_ROUNDS, bytes / MEASURED_ROUNDS);
+    }
+
+    private static void print(String mode, int size, Result result) {
+        System.out.printf("%-10s %10d %14.2f %18d%n", mode, size, result.nanos() / 1_000_000.0,
+                result.bytes() / 1024);
+    }
+
+    private record Result(long nanos, long bytes) {
+    }
+}
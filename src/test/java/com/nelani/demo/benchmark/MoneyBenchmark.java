@@ -0,0 +1,129 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Money;
+import com.sun.management.ThreadMXBean;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Cost per amount of the money operations on the payment paths, done the
+ * previous way on {@link BigDecimal} and on {@link Money}'s minor units:
+ * <ul>
+ * <li>Stripe mapping: the amount in cents for a PaymentIntent</li>
+ * <li>PayPal mapping: the decimal string of a PayPal amount</li>
+ * <li>comparison: ordering two amounts</li>
+ * <li>aggregation: summing amounts</li>
+ * </ul>
+ * Reports nanoseconds and bytes allocated per operation over 1,000,000
+ * random amounts, changeable with {@code -Dmoney.amounts}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=MoneyBenchmark}.
+ */
+class MoneyBenchmark {
+
+    private static final int AMOUNTS = Integer.getInteger("money.amounts", 1_000_000);
+    private static final int ROUNDS = 5;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private record Result(double nanosPerOp, long bytesPerOp) {
+    }
+
+    @Test
+    void bigDecimalVersusMinorUnits() {
+        BigDecimal[] decimals = new BigDecimal[AMOUNTS];
+        Money[] monies = new Money[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            // 0.01 to 100,000.00, with the scale of the amount column
+            long cents = ThreadLocalRandom.current().nextLong(1, 10_000_000);
+            decimals[i] = BigDecimal.valueOf(cents, 2);
+            monies[i] = new Money(cents, CurrencyCode.USD);
+        }
+
+        IntToLongFunction stripeDecimal = i -> decimals[i].multiply(HUNDRED).setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+        IntToLongFunction stripeMoney = i -> monies[i].minorUnits();
+        IntToLongFunction paypalDecimal = i -> decimals[i].toPlainString().length();
+        IntToLongFunction paypalMoney = i -> monies[i].toPlainString().length();
+        IntToLongFunction compareDecimal = i -> decimals[i].compareTo(decimals[AMOUNTS - 1 - i]);
+        IntToLongFunction compareMoney = i -> monies[i].compareTo(monies[AMOUNTS - 1 - i]);
+
+        for (int i = 0; i < AMOUNTS; i += AMOUNTS / 100) {
+            Assertions.assertThat(stripeMoney.applyAsLong(i)).isEqualTo(stripeDecimal.applyAsLong(i));
+            Assertions.assertThat(monies[i].toPlainString()).isEqualTo(decimals[i].toPlainString());
+            Assertions.assertThat(Long.signum(compareMoney.applyAsLong(i)))
+                    .isEqualTo(Long.signum(compareDecimal.applyAsLong(i)));
+        }
+        Assertions.assertThat(sumMoney(monies).toBigDecimal()).isEqualByComparingTo(sumDecimal(decimals));
+
+        System.out.printf("%n%-14s %-12s %10s %10s%n", "operation", "type", "ns/op", "bytes/op");
+        print("stripe amount", "BigDecimal", measure(stripeDecimal));
+        print("stripe amount", "Money", measure(stripeMoney));
+        print("paypal value", "BigDecimal", measure(paypalDecimal));
+        print("paypal value", "Money", measure(paypalMoney));
+        print("compare", "BigDecimal", measure(compareDecimal));
+        print("compare", "Money", measure(compareMoney));
+        print("sum", "BigDecimal", measurePasses(() -> sumDecimal(decimals).signum()));
+        print("sum", "Money", measurePasses(() -> Long.signum(sumMoney(monies).minorUnits())));
+        System.out.println();
+    }
+
+    private static BigDecimal sumDecimal(BigDecimal[] decimals) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal decimal : decimals) {
+            total = total.add(decimal);
+        }
+        return total;
+    }
+
+    private static Money sumMoney(Money[] monies) {
+        long total = 0;
+        for (Money money : monies) {
+            total = Math.addExact(total, money.minorUnits());
+        }
+        return new Money(total, CurrencyCode.USD);
+    }
+
+    private static Result measure(IntToLongFunction operation) {
+        return measurePasses(() -> {
+            long sink = 0;
+            for (int i = 0; i < AMOUNTS; i++) {
+                sink += operation.applyAsLong(i);
+            }
+            return sink;
+        });
+    }
+
+    // Times whole passes over the amounts, after a few passes of warm-up
+    private static Result measurePasses(LongSupplier pass) {
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += pass.getAsLong();
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += pass.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // Keeps the results alive so the passes are not optimised away
+        Assertions.assertThat(sink).isNotEqualTo(Long.MIN_VALUE);
+        long ops = (long) AMOUNTS * ROUNDS;
+        return new Result((double) elapsed / ops, allocated / ops);
+    }
+
+    private static void print(String operation, String type, Result result) {
+        System.out.printf("%-14s %-12s %10.1f %,10d%n", operation, type, result.nanosPerOp(), result.bytesPerOp());
+    }
+}
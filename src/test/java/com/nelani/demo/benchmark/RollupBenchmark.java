@@ -0,0 +1,102 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.RollupGranularity;
+import com.nelani.demo.repository.PaymentRollupRepository;
+import com.nelani.demo.repository.PaymentStorageSchema;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.assertj.core.api.Assertions;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares reading 30 days of daily analytics from the rollup table with
+ * aggregating the same range straight from {@code payments}.
+ * <p>
+ * Payments are spread evenly over 90 days on a file-backed H2 database. The
+ * row count defaults to 10 million and can be lowered with
+ * {@code -Drollup.rows}; seeding 10 million rows needs a few GB of disk and
+ * several minutes.
+ * Run with {@code mvn test -Pbenchmark -Dtest=RollupBenchmark}.
+ */
+class RollupBenchmark {
+
+    private static final int ROWS = Integer.getInteger("rollup.rows", 10_000_000);
+    private static final int DAYS = 90;
+    private static final int ROUNDS = 5;
+    private static final OffsetDateTime START = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void rollupVersusRawScan() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:file:" + dataDir.resolve("payments")
+                + ";DB_CLOSE_ON_EXIT=FALSE;QUERY_CACHE_SIZE=64;CACHE_SIZE=65536;OPTIMIZE_REUSE_RESULTS=FALSE");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            PaymentRollupRepository rollups = new PaymentRollupRepository(jdbc, PaymentStorageSchema.STANDARD);
+
+            long seedStart = System.nanoTime();
+            long spreadSeconds = (long) DAYS * 86_400;
+            jdbc.update("""
+                    INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at,
+                                          completed_at)
+                    SELECT RANDOM_UUID(), 'bench-' || X, 1 + MOD(X, 500), CASE MOD(X, 3) WHEN 0 THEN 'USD' ELSE 'ZAR' END,
+                           CASE MOD(X, 10) WHEN 0 THEN 'FAILED' WHEN 1 THEN 'EXPIRED' WHEN 2 THEN 'PENDING' ELSE 'SUCCESS' END,
+                           CASE MOD(X, 3) WHEN 0 THEN 'PAYPAL' ELSE 'STRIPE' END,
+                           DATEADD('SECOND', X * %1$d / %2$d, TIMESTAMP WITH TIME ZONE '%3$s'),
+                           DATEADD('DAY', %4$d, TIMESTAMP WITH TIME ZONE '%3$s'),
+                           CASE WHEN MOD(X, 10) > 2
+                                THEN DATEADD('SECOND', X * %1$d / %2$d + MOD(X, 300), TIMESTAMP WITH TIME ZONE '%3$s')
+                           END
+                    FROM SYSTEM_RANGE(0, %2$d - 1)
+                    """.formatted(spreadSeconds, ROWS, "2025-01-01 00:00:00+00", DAYS + 1));
+            long seeded = System.nanoTime();
+            rollups.rebuildAll();
+            long built = System.nanoTime();
+
+            OffsetDateTime from = START.plusDays(30);
+            OffsetDateTime to = from.plusDays(30);
+            Result rollup = measure(() -> rollups.findRollups(RollupGranularity.DAILY, from, to, null));
+            Result raw = measure(() -> rollups.aggregateRaw(RollupGranularity.DAILY, from, to));
+
+            System.out.printf("%nrows=%d, seed %.1f s, full rollup rebuild %.1f s%n", ROWS,
+                    (seeded - seedStart) / 1e9, (built - seeded) / 1e9);
+            System.out.printf("%-8s %14s %8s%n", "source", "latency (ms)", "rows");
+            System.out.printf("%-8s %14.2f %8d%n", "rollup", rollup.nanos() / 1e6, rollup.rows());
+            System.out.printf("%-8s %14.2f %8d%n%n", "raw", raw.nanos() / 1e6, raw.rows());
+
+            Assertions.assertThat(rollup.rows()).isEqualTo(raw.rows()).isEqualTo(60);
+        }
+    }
+
+    private static Result measure(Supplier<List<PaymentRollupDTO>> read) {
+        read.get();
+        long nanos = 0;
+        int rows = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            rows = read.get().size();
+            nanos += System.nanoTime() - start;
+        }
+        return new Result(nanos / ROUNDS, rows);
+    }
+
+    private record Result(long nanos, int rows) {
+    }
+}
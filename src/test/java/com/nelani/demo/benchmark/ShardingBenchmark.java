@@ -0,0 +1,145 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.datasource.ShardContext;
+import com.nelani.demo.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.assertj.core.api.Assertions;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures payment inserts and the newest-first listing with 1, 2 and 4
+ * shards, each a file-backed H2 database of its own behind
+ * {@link ShardRoutingDataSource}.
+ * <p>
+ * Inserts run from a fixed number of threads, one statement per transaction,
+ * each routed to the shard of its order id. The listing asks every shard for
+ * its newest page in parallel and merges them, as the payments listing does.
+ * H2 runs in this JVM, so all shards share its CPUs: the numbers show the
+ * routing and merge overhead and the relief of per-database contention, not
+ * the scaling of separate database servers.
+ * 40,000 rows and 16 threads by default, changeable with
+ * {@code -Dsharding.rows} and {@code -Dsharding.threads}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ShardingBenchmark}.
+ */
+class ShardingBenchmark {
+
+    private static final int ROWS = Integer.getInteger("sharding.rows", 40_000);
+    private static final int THREADS = Integer.getInteger("sharding.threads", 16);
+    private static final int PAGE_SIZE = 50;
+    private static final int LISTINGS = 200;
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path dataDir;
+
+    private record Result(double insertsPerSecond, double listingMillis) {
+    }
+
+    @Test
+    void insertsAndListingByShardCount() throws Exception {
+        System.out.printf("%n%-8s %14s %12s%n", "shards", "inserts/s", "listing ms");
+        for (int count : new int[] { 1, 2, 4 }) {
+            Result result = run(count);
+            System.out.printf("%-8d %,14.0f %12.2f%n", count, result.insertsPerSecond(), result.listingMillis());
+        }
+        System.out.println();
+    }
+
+    private Result run(int count) throws Exception {
+        List<DataSource> pools = new ArrayList<>();
+        for (int shard = 0; shard < count; shard++) {
+            HikariConfig config = new HikariConfig();
+            Path file = dataDir.resolve(count + "-shards-" + shard);
+            config.setJdbcUrl("jdbc:h2:file:" + file + ";DB_CLOSE_ON_EXIT=FALSE");
+            config.setUsername("sa");
+            config.setMaximumPoolSize(THREADS);
+            HikariDataSource pool = new HikariDataSource(config);
+            Flyway.configure().dataSource(pool).locations("classpath:db/migration").load().migrate();
+            pools.add(pool);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try (ShardRoutingDataSource routing = new ShardRoutingDataSource(pools)) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            PaymentShards shards = new PaymentShards(count, new DataSourceTransactionManager(dataSource), executor);
+
+            double insertsPerSecond = insert(shards, jdbc, executor);
+            Assertions.assertThat(shards.sum(() -> jdbc.queryForObject("SELECT COUNT(*) FROM payments",
+                    Integer.class))).isEqualTo(ROWS);
+
+            // Warm-up
+            for (int i = 0; i < LISTINGS / 10; i++) {
+                newestPage(shards, jdbc);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < LISTINGS; i++) {
+                Assertions.assertThat(newestPage(shards, jdbc)).hasSize(PAGE_SIZE);
+            }
+            double listingMillis = (System.nanoTime() - start) / 1e6 / LISTINGS;
+
+            return new Result(insertsPerSecond, listingMillis);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static double insert(PaymentShards shards, JdbcTemplate jdbc, ExecutorService executor)
+            throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(executor.submit(() -> {
+                for (int i = thread; i < ROWS; i += THREADS) {
+                    String orderId = "order-" + i;
+                    Timestamp created = Timestamp.from(START.plusSeconds(i));
+                    shards.onOrder(orderId, () -> jdbc.update("""
+                            INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at,
+                                                  expires_at)
+                            VALUES (?, ?, ?, 'ZAR', 'PENDING', 'STRIPE', ?, ?)""",
+                            PaymentShards.newId(ShardContext.current()), orderId, BigDecimal.TEN, created,
+                            Timestamp.from(created.toInstant().plus(1, ChronoUnit.DAYS))));
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return ROWS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static List<Map<String, Object>> newestPage(PaymentShards shards, JdbcTemplate jdbc) {
+        List<Map<String, Object>> merged = new ArrayList<>();
+        for (List<Map<String, Object>> page : shards.gather(() -> jdbc.queryForList(
+                "SELECT id, order_id, amount, status, created_at FROM payments ORDER BY created_at DESC LIMIT ?",
+                PAGE_SIZE))) {
+            merged.addAll(page);
+        }
+        merged.sort(Comparator.comparing((Map<String, Object> row) -> (OffsetDateTime) row.get("CREATED_AT"))
+                .reversed());
+        return merged.subList(0, PAGE_SIZE);
+    }
+}
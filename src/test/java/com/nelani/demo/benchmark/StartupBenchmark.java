@@ -0,0 +1,165 @@
+package com.nelani.demo.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time from launching the JVM until the first checkout succeeds
+ * ({@code POST /api/payments} answering 200), for the plain jar and for the
+ * {@code fast-startup} build with and without its AOT bean definitions and
+ * class data sharing archive.
+ * <p>
+ * Every launch is a fresh JVM with the default in-memory storage. Stripe is a
+ * local stub answering the customer and PaymentIntent calls, so the figure is
+ * the service's own startup and first-request cost. The median of 5 launches
+ * per mode by default, changeable with {@code -Dstartup.launches}.
+ * Run with {@code mvn package -Pfast-startup -DskipTests}, then
+ * {@code mvn test -Pbenchmark -Dtest=StartupBenchmark}.
+ */
+class StartupBenchmark {
+
+    private static final int LAUNCHES = Integer.getInteger("startup.launches", 5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+    private static final Path FAST_STARTUP = Path.of("target", "fast-startup");
+    private static final String CHECKOUT = """
+            {"orderId": "startup-%d", "amount": 150.00, "provider": "STRIPE"}""";
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private record Mode(String name, Path directory, List<String> jvmArguments) {
+    }
+
+    @Test
+    void timeToFirstCheckout() throws Exception {
+        Path jar = jar();
+        Assumptions.assumeTrue(jar != null && Files.exists(FAST_STARTUP.resolve("application.jsa")),
+                "Build with mvn package -Pfast-startup first");
+
+        // The archive only applies to the class path it was recorded with, so run from its directory
+        String extracted = jar.getFileName().toString();
+        List<Mode> modes = List.of(
+                new Mode("jar", Path.of("target"), List.of("-jar", extracted)),
+                new Mode("extracted", FAST_STARTUP, List.of("-jar", extracted)),
+                new Mode("extracted + AOT", FAST_STARTUP, List.of("-Dspring.aot.enabled=true", "-jar", extracted)),
+                new Mode("extracted + AOT + CDS", FAST_STARTUP, List.of("-XX:SharedArchiveFile=application.jsa",
+                        "-Dspring.aot.enabled=true", "-jar", extracted)));
+
+        HttpServer stripe = stripeStub();
+        try {
+            System.out.printf("%n%-24s %12s %12s %12s%n", "mode", "median ms", "min ms", "max ms");
+            int order = 0;
+            for (Mode mode : modes) {
+                long[] millis = new long[LAUNCHES];
+                for (int i = 0; i < LAUNCHES; i++) {
+                    millis[i] = launch(mode, stripe.getAddress().getPort(), order++);
+                }
+                Arrays.sort(millis);
+                System.out.printf("%-24s %,12d %,12d %,12d%n", mode.name(), millis[LAUNCHES / 2], millis[0],
+                        millis[LAUNCHES - 1]);
+            }
+            System.out.println();
+        } finally {
+            stripe.stop(0);
+        }
+    }
+
+    private long launch(Mode mode, int stripePort, int order) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmArguments());
+        command.add("--server.port=" + port);
+        command.add("--logging.level.root=WARN");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(mode.directory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("STRIPE_SECRET_KEY", "sk_test_startup");
+        builder.environment().put("STRIPE_SECRET_WEBHOOK", "whsec_startup");
+        builder.environment().put("STRIPE_API_BASE", "http://localhost:" + stripePort);
+        builder.environment().put("PAYPAL_CLIENT_ID", "startup");
+        builder.environment().put("PAYPAL_CLIENT_SECRET", "startup");
+
+        HttpRequest checkout = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/payments"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(CHECKOUT.formatted(order)))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                Assertions.assertThat(process.isAlive()).as("%s exited early", mode.name()).isTrue();
+                try {
+                    HttpResponse<String> response = http.send(checkout, HttpResponse.BodyHandlers.ofString());
+                    Assertions.assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+                    return (System.nanoTime() - start) / 1_000_000;
+                } catch (ConnectException e) {
+                    Thread.sleep(10);
+                }
+            }
+            throw new AssertionError(mode.name() + " did not answer within " + TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    // Answers just enough of the Stripe API for a checkout
+    private static HttpServer stripeStub() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/customers", exchange -> respond(exchange, """
+                {"id": "cus_startup", "object": "customer"}"""));
+        server.createContext("/v1/payment_intents", exchange -> respond(exchange, """
+                {"id": "pi_startup", "object": "payment_intent", "client_secret": "pi_startup_secret",
+                 "status": "requires_payment_method"}"""));
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Path jar() throws IOException {
+        if (!Files.isDirectory(FAST_STARTUP)) {
+            return null;
+        }
+        try (var files = Files.list(FAST_STARTUP)) {
+            return files.filter(file -> file.toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
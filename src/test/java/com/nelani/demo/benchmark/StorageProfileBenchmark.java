@@ -0,0 +1,103 @@
+package com.nelani.demo.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the storage profiles on insert, update and lookup rates.
+ * <p>
+ * Each profile gets its own pool and is migrated with the same Flyway scripts
+ * the application uses. The JDBC URLs mirror {@code application-storage-*.properties}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=StorageProfileBenchmark}.
+ */
+class StorageProfileBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH_SIZE = 50;
+    private static final int LOOKUPS = 20_000;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void compareStorageProfiles() {
+        System.out.printf("%n%-16s %14s %14s %14s%n", "profile", "inserts/s", "updates/s", "lookups/s");
+        run("storage-memory", "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64");
+        run("storage-file", "jdbc:h2:file:" + dataDir.resolve("payments")
+                + ";DB_CLOSE_ON_EXIT=FALSE;QUERY_CACHE_SIZE=64;CACHE_SIZE=65536");
+        System.out.println();
+    }
+
+    private void run(String profile, String url) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername("sa");
+        config.setMaximumPoolSize(4);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+            List<Object[]> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                OffsetDateTime now = OffsetDateTime.now();
+                rows.add(new Object[] { UUID.randomUUID(), "order-" + i, BigDecimal.valueOf(100 + i, 2),
+                        "INITIATING", "STRIPE", Timestamp.from(now.toInstant()),
+                        Timestamp.from(now.plusDays(1).toInstant()) });
+            }
+
+            long start = System.nanoTime();
+            for (int from = 0; from < ROWS; from += BATCH_SIZE) {
+                List<Object[]> chunk = rows.subList(from, Math.min(from + BATCH_SIZE, ROWS));
+                tx.executeWithoutResult(status -> jdbc.batchUpdate("""
+                        INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at,
+                                              expires_at)
+                        VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?)""", chunk));
+            }
+            double insertsPerSecond = rate(ROWS, start);
+
+            start = System.nanoTime();
+            for (int from = 0; from < ROWS; from += BATCH_SIZE) {
+                List<Object[]> chunk = rows.subList(from, Math.min(from + BATCH_SIZE, ROWS)).stream()
+                        .map(row -> new Object[] { "PENDING", "pi_" + row[1], row[0] })
+                        .toList();
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(
+                        "UPDATE payments SET status = ?, provider_reference = ? WHERE id = ?", chunk));
+            }
+            double updatesPerSecond = rate(ROWS, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                String orderId = "order-" + ThreadLocalRandom.current().nextInt(ROWS);
+                jdbc.queryForObject("SELECT status FROM payments WHERE order_id = ?", String.class, orderId);
+            }
+            double lookupsPerSecond = rate(LOOKUPS, start);
+
+            System.out.printf("%-16s %14.0f %14.0f %14.0f%n", profile, insertsPerSecond, updatesPerSecond,
+                    lookupsPerSecond);
+
+            jdbc.execute("SHUTDOWN");
+        }
+    }
+
+    private double rate(int operations, long startNanos) {
+        return operations / ((System.nanoTime() - startNanos) / 1_000_000_000d);
+    }
+}
@@ -0,0 +1,198 @@
+package com.nelani.demo.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cost and effect of the warm-up run before readiness: time from launching
+ * the JVM until {@code /actuator/health/readiness} reports UP, then the
+ * latency of the first checkout, the first listing and the median of the
+ * following checkouts, with {@code payments.warmup.enabled} on and off.
+ * <p>
+ * Every launch is a fresh JVM running the packaged jar with the default
+ * in-memory storage. Stripe is a local stub, so the latencies are the
+ * service's own; PayPal credentials are placeholders, so its connection step
+ * fails and is skipped. The median of 3 launches per mode by default,
+ * changeable with {@code -Dwarmup.launches}.
+ * Run with {@code mvn package -DskipTests}, then
+ * {@code mvn test -Pbenchmark -Dtest=WarmUpBenchmark}.
+ */
+class WarmUpBenchmark {
+
+    private static final int LAUNCHES = Integer.getInteger("warmup.launches", 3);
+    private static final int CHECKOUTS = 100;
+    private static final Duration TIMEOUT = Duration.ofSeconds(180);
+    private static final String CHECKOUT = """
+            {"orderId": "warm-up-bench-%d", "amount": 150.00, "provider": "STRIPE"}""";
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private record Result(long readyMillis, double firstCheckoutMillis, double firstListingMillis,
+            double medianCheckoutMillis) {
+    }
+
+    @Test
+    void readinessAndFirstRequests() throws Exception {
+        Path jar = jar();
+        Assumptions.assumeTrue(jar != null, "Build with mvn package -DskipTests first");
+
+        HttpServer stripe = stripeStub();
+        try {
+            System.out.printf("%n%-10s %10s %16s %16s %18s%n", "warm-up", "ready ms", "1st checkout ms",
+                    "1st listing ms", "median checkout ms");
+            for (boolean warmUp : new boolean[] { false, true }) {
+                List<Result> results = new ArrayList<>();
+                for (int i = 0; i < LAUNCHES; i++) {
+                    results.add(launch(jar, warmUp, stripe.getAddress().getPort()));
+                }
+                System.out.printf("%-10s %,10d %16.1f %16.1f %18.2f%n", warmUp ? "on" : "off",
+                        median(results.stream().mapToDouble(Result::readyMillis).toArray()).longValue(),
+                        median(results.stream().mapToDouble(Result::firstCheckoutMillis).toArray()),
+                        median(results.stream().mapToDouble(Result::firstListingMillis).toArray()),
+                        median(results.stream().mapToDouble(Result::medianCheckoutMillis).toArray()));
+            }
+            System.out.println();
+        } finally {
+            stripe.stop(0);
+        }
+    }
+
+    private Result launch(Path jar, boolean warmUp, int stripePort) throws Exception {
+        int port = freePort();
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", jar.toString(),
+                "--server.port=" + port,
+                "--logging.level.root=WARN",
+                "--payments.warmup.enabled=" + warmUp);
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("STRIPE_SECRET_KEY", "sk_test_warmup");
+        builder.environment().put("STRIPE_SECRET_WEBHOOK", "whsec_warmup");
+        builder.environment().put("STRIPE_API_BASE", "http://localhost:" + stripePort);
+        builder.environment().put("PAYPAL_CLIENT_ID", "warmup");
+        builder.environment().put("PAYPAL_CLIENT_SECRET", "warmup");
+
+        String base = "http://localhost:" + port;
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(base + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long readyMillis = awaitReady(process, readiness, start);
+
+            double firstCheckout = checkout(base, 0);
+            double firstListing = timed(HttpRequest.newBuilder(URI.create(base + "/api/payments?page=0&size=20"))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build());
+            double[] checkouts = new double[CHECKOUTS];
+            for (int i = 0; i < CHECKOUTS; i++) {
+                checkouts[i] = checkout(base, i + 1);
+            }
+            return new Result(readyMillis, firstCheckout, firstListing, median(checkouts));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private long awaitReady(Process process, HttpRequest readiness, long start) throws Exception {
+        while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+            Assertions.assertThat(process.isAlive()).as("service exited early").isTrue();
+            try {
+                if (http.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return (System.nanoTime() - start) / 1_000_000;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("service was not ready within " + TIMEOUT);
+    }
+
+    private double checkout(String base, int order) throws Exception {
+        return timed(HttpRequest.newBuilder(URI.create(base + "/api/payments"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(CHECKOUT.formatted(order)))
+                .build());
+    }
+
+    private double timed(HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        double millis = (System.nanoTime() - start) / 1e6;
+        Assertions.assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        return millis;
+    }
+
+    // Answers just enough of the Stripe API for the warm-up and a checkout
+    private static HttpServer stripeStub() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/balance", exchange -> respond(exchange, """
+                {"object": "balance", "available": [], "pending": [], "livemode": false}"""));
+        server.createContext("/v1/customers", exchange -> respond(exchange, """
+                {"id": "cus_warmup", "object": "customer"}"""));
+        server.createContext("/v1/payment_intents", exchange -> respond(exchange, """
+                {"id": "pi_warmup", "object": "payment_intent", "client_secret": "pi_warmup_secret",
+                 "status": "requires_payment_method"}"""));
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static Path jar() throws IOException {
+        try (var files = Files.list(Path.of("target"))) {
+            return files.filter(file -> file.toString().endsWith(".jar"))
+                    .filter(file -> !file.toString().endsWith("-plain.jar"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
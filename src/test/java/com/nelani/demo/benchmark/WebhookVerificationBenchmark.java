@@ -0,0 +1,198 @@
+package com.nelani.demo.benchmark;
+
+import com.nelani.demo.provider.StripeProvider;
+import com.nelani.demo.quota.ProviderQuota;
+import com.nelani.demo.tenant.TenantProperties;
+import com.nelani.demo.tenant.TenantRegistry;
+import com.stripe.Stripe;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.Webhook;
+import com.sun.management.ThreadMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Single-threaded Stripe webhook throughput, i.e. events per second per core,
+ * and heap allocated per event for three paths: the previous
+ * {@code Webhook.constructEvent} handling, {@link StripeProvider#handleWebhook}
+ * with the opt-in full Stripe model, and its default streaming extraction.
+ * <p>
+ * Measured separately for an event type that is acted on and one that is
+ * ignored, both carrying a realistically sized PaymentIntent. The event count
+ * defaults to 50,000 and can be changed with {@code -Dwebhook.events}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=WebhookVerificationBenchmark}.
+ */
+class WebhookVerificationBenchmark {
+
+    private static final int EVENTS = Integer.getInteger("webhook.events", 50_000);
+    private static final String SECRET = "whsec_benchmark";
+
+    private record Result(double eventsPerSecond, long bytesPerEvent) {
+    }
+
+    @Test
+    void constructEventVersusVerifierAndStreamingExtraction() throws Exception {
+        StripeProvider fullModel = provider(true);
+        StripeProvider streaming = provider(false);
+
+        String handled = payload("payment_intent.succeeded");
+        String ignored = payload("payment_intent.created");
+
+        Function<String[], Boolean> constructEvent = request -> {
+            try {
+                Event event = Webhook.constructEvent(request[0], request[1], SECRET);
+                if (event.getType().equals("payment_intent.succeeded")) {
+                    PaymentIntent intent = (PaymentIntent) event.getDataObjectDeserializer().getObject()
+                            .orElseThrow();
+                    return intent.getMetadata().get("paymentId") != null;
+                }
+                return false;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Function<String[], Boolean> withFullModel = request -> fullModel
+                .handleWebhook(TenantRegistry.DEFAULT_TENANT, request[0], signed(request[1]))
+                .relevant();
+        Function<String[], Boolean> withStreaming = request -> streaming
+                .handleWebhook(TenantRegistry.DEFAULT_TENANT, request[0], signed(request[1]))
+                .relevant();
+
+        System.out.printf("%n%-16s %-10s %14s %14s%n", "path", "event", "events/s/core", "bytes/event");
+        for (String[] row : new String[][] { { "handled", handled }, { "ignored", ignored } }) {
+            String[] request = { row[1], sign(row[1]) };
+            boolean relevant = row[0].equals("handled");
+
+            Assertions.assertThat(constructEvent.apply(request)).isEqualTo(relevant);
+            Assertions.assertThat(withFullModel.apply(request)).isEqualTo(relevant);
+            Assertions.assertThat(withStreaming.apply(request)).isEqualTo(relevant);
+
+            print("constructEvent", row[0], measure(constructEvent, request));
+            print("full model", row[0], measure(withFullModel, request));
+            print("streaming", row[0], measure(withStreaming, request));
+        }
+        System.out.println();
+    }
+
+    private static StripeProvider provider(boolean fullModel) {
+        TenantRegistry tenants = new TenantRegistry(
+                new TenantProperties(1, Duration.ofHours(1), 1, Duration.ofSeconds(5), Duration.ofSeconds(30),
+                        Map.of()),
+                new TenantProperties.Account(new TenantProperties.Stripe("sk_test_benchmark", List.of(SECRET)), null));
+        StripeProvider provider = new StripeProvider(tenants, new SimpleMeterRegistry(), ProviderQuota.UNLIMITED,
+                Duration.ofHours(1), Stripe.LIVE_API_BASE);
+        ReflectionTestUtils.setField(provider, "fullWebhookModel", fullModel);
+        return provider;
+    }
+
+    private static Result measure(Function<String[], Boolean> path, String[] request) {
+        // Warm up so both paths are measured after JIT compilation
+        for (int i = 0; i < EVENTS / 2; i++) {
+            path.apply(request);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            path.apply(request);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(EVENTS / (elapsed / 1e9), allocated / EVENTS);
+    }
+
+    private static void print(String path, String event, Result result) {
+        System.out.printf("%-16s %-10s %,14.0f %,14d%n", path, event, result.eventsPerSecond(),
+                result.bytesPerEvent());
+    }
+
+    private static String sign(String payload) throws Exception {
+        long timestamp = Instant.now().getEpochSecond();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] signature = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+        return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(signature);
+    }
+
+    private static HttpHeaders signed(String signature) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(StripeProvider.SIGNATURE_HEADER, signature);
+        return headers;
+    }
+
+    private static String payload(String type) {
+        return """
+                {
+                  "id": "evt_3PbenchmarkEvent",
+                  "object": "event",
+                  "api_version": "%s",
+                  "created": 1718000000,
+                  "data": {
+                    "object": {
+                      "id": "pi_3PbenchmarkIntent",
+                      "object": "payment_intent",
+                      "amount": 12500,
+                      "amount_capturable": 0,
+                      "amount_details": {"tip": {}},
+                      "amount_received": 12500,
+                      "application": null,
+                      "application_fee_amount": null,
+                      "automatic_payment_methods": {"allow_redirects": "always", "enabled": true},
+                      "canceled_at": null,
+                      "cancellation_reason": null,
+                      "capture_method": "automatic",
+                      "client_secret": "pi_3PbenchmarkIntent_secret_abcdef",
+                      "confirmation_method": "automatic",
+                      "created": 1717999990,
+                      "currency": "zar",
+                      "customer": "cus_benchmark",
+                      "description": "Order bench-1",
+                      "last_payment_error": null,
+                      "latest_charge": "ch_3Pbenchmark",
+                      "livemode": false,
+                      "metadata": {
+                        "orderId": "bench-1",
+                        "paymentId": "%s",
+                        "itemCount": "3",
+                        "expiresAt": "2025-06-11T10:00:00Z"
+                      },
+                      "next_action": null,
+                      "payment_method": "pm_benchmark",
+                      "payment_method_options": {
+                        "card": {"installments": null, "mandate_options": null, "network": null,
+                                 "request_three_d_secure": "automatic"}
+                      },
+                      "payment_method_types": ["card"],
+                      "receipt_email": "JohnDoe@gmail.com",
+                      "shipping": null,
+                      "statement_descriptor_suffix": "NELANI",
+                      "status": "succeeded"
+                    }
+                  },
+                  "livemode": false,
+                  "pending_webhooks": 1,
+                  "request": {"id": "req_benchmark", "idempotency_key": "payment-bench"},
+                  "type": "%s"
+                }
+                """.formatted(Stripe.API_VERSION, UUID.randomUUID(), type);
+    }
+}
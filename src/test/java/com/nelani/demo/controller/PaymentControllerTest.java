@@ -1,12 +1,25 @@
 package com.nelani.demo.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nelani.demo.dto.BatchPaymentItemResult;
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.BatchPaymentResponseDTO;
 import com.nelani.demo.dto.PaymentRequestDTO;
 import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.CurrencyCode;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.service.PaymentBatchService;
+import com.nelani.demo.service.PaymentEventStreamService;
 import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.PaymentStatsService;
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.Page;
@@ -24,12 +37,13 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(PaymentController.class)
+@WebMvcTest(controllers = PaymentController.class, properties = "payments.http.binary-formats.enabled=true")
 @ActiveProfiles("test")
 class PaymentControllerTest {
 
@@ -42,6 +56,15 @@ class PaymentControllerTest {
         @MockitoBean
         private PaymentService paymentService;
 
+        @MockitoBean
+        private PaymentBatchService paymentBatchService;
+
+        @MockitoBean
+        private PaymentEventStreamService paymentEventStreamService;
+
+        @MockitoBean
+        private PaymentStatsService paymentStatsService;
+
         @Test
         void PaymentControllerTest_GetAllPayments_returnsPaymentResponseDTOPage() throws Exception {
                 // Arrange
@@ -50,6 +73,7 @@ class PaymentControllerTest {
                                 "clientId",
                                 "clientSecret",
                                 BigDecimal.valueOf(100L),
+                                CurrencyCode.USD,
                                 PaymentProviderType.PAYPAL,
                                 "PENDING",
                                 OffsetDateTime.now(),
@@ -69,7 +93,86 @@ class PaymentControllerTest {
                                 .param("page", "0")
                                 .param("size", "10"))
                                 .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(jsonPath("$.content[0].orderId").value("pay_123"))
+                                .andExpect(jsonPath("$.content[0].completedAt").doesNotExist())
+                                .andExpect(jsonPath("$.page.size").value(10))
+                                .andExpect(jsonPath("$.page.number").value(0))
+                                .andExpect(jsonPath("$.page.totalElements").value(1))
+                                .andExpect(jsonPath("$.page.totalPages").value(1))
+                                .andExpect(jsonPath("$.pageable").doesNotExist());
+        }
+
+        @Test
+        void PaymentControllerTest_GetAllPayments_writesSmileWhenAccepted() throws Exception {
+                // Arrange
+                final PaymentResponseDTO response = new PaymentResponseDTO("pay_123", null, null,
+                                new BigDecimal("100.00"), CurrencyCode.USD, PaymentProviderType.PAYPAL, "PENDING",
+                                OffsetDateTime.parse("2025-01-06T10:15:30Z"),
+                                OffsetDateTime.parse("2025-01-07T10:15:30Z"), null);
+                when(paymentService.getAllPayments(any(PaymentSortField.class), any(Sort.Direction.class), anyInt(),
+                                anyInt())).thenReturn(new PageImpl<>(List.of(response), PageRequest.of(0, 10), 1));
+
+                // Act
+                final byte[] body = mockMvc.perform(get("/api/payments")
+                                .accept("application/x-jackson-smile"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-jackson-smile"))
+                                .andReturn().getResponse().getContentAsByteArray();
+
+                // Assert: same document as the JSON body
+                final JsonNode document = new ObjectMapper(new SmileFactory()).readTree(body);
+                Assertions.assertThat(document.path("content").path(0).path("orderId").asText()).isEqualTo("pay_123");
+                Assertions.assertThat(document.path("content").path(0).path("createdAt").asText())
+                                .isEqualTo("2025-01-06T10:15:30Z");
+                Assertions.assertThat(document.path("content").path(0).has("clientId")).isFalse();
+                Assertions.assertThat(document.path("page").path("totalElements").asLong()).isEqualTo(1);
+        }
+
+        @Test
+        void PaymentControllerTest_GetAllPayments_rejectsNegativePage() throws Exception {
+                // Act & Assert
+                mockMvc.perform(get("/api/payments")
+                                .param("page", "-1"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.error").value("Validation Error"));
+                verifyNoInteractions(paymentService);
+        }
+
+        @Test
+        void PaymentControllerTest_SearchPayments_rejectsOversizedPage() throws Exception {
+                // Act & Assert
+                mockMvc.perform(get("/api/payments/search")
+                                .param("size", "1000"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.error").value("Validation Error"));
+                verifyNoInteractions(paymentService);
+        }
+
+        @Test
+        void PaymentControllerTest_SearchPayments_bindsFiltersIntoCriteria() throws Exception {
+                // Arrange
+                final Page<PaymentResponseDTO> resultsList = new PageImpl<>(List.of(), PageRequest.of(0, 10), 0);
+                final ArgumentCaptor<PaymentSearchCriteria> criteria = ArgumentCaptor
+                                .forClass(PaymentSearchCriteria.class);
+
+                // Mock
+                when(paymentService.searchPayments(criteria.capture(), any(PaymentSortField.class),
+                                any(Sort.Direction.class), anyInt(), anyInt())).thenReturn(resultsList);
+
+                // Act & Assert
+                mockMvc.perform(get("/api/payments/search")
+                                .param("status", "SUCCESS")
+                                .param("provider", "STRIPE")
+                                .param("createdFrom", "2025-01-01T00:00:00Z")
+                                .param("minAmount", "10.00"))
+                                .andExpect(status().isOk())
                                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+
+                Assertions.assertThat(criteria.getValue()).isEqualTo(new PaymentSearchCriteria(
+                                PaymentStatus.SUCCESS, PaymentProviderType.STRIPE,
+                                OffsetDateTime.parse("2025-01-01T00:00:00Z"), null, null, null,
+                                new BigDecimal("10.00"), null));
         }
 
         @Test
@@ -85,6 +188,7 @@ class PaymentControllerTest {
                         "clientId",
                         "clientSecret",
                                 BigDecimal.valueOf(100L),
+                                CurrencyCode.USD,
                                 PaymentProviderType.PAYPAL,
                                 "PENDING",
                                 OffsetDateTime.now(),
@@ -120,6 +224,7 @@ class PaymentControllerTest {
                         "clientId",
                         "clientSecret",
                         BigDecimal.valueOf(100L),
+                        CurrencyCode.USD,
                         PaymentProviderType.PAYPAL,
                         "PENDING",
                         OffsetDateTime.now(),
@@ -129,7 +234,7 @@ class PaymentControllerTest {
                 );
 
                 // Mock
-                when(paymentService.resumePayment(response.getOrderId())).thenReturn(response);
+                when(paymentService.resumePayment(response.orderId())).thenReturn(response);
 
                 // Act & Assert
                 mockMvc.perform(post("/api/payments/resume")
@@ -146,4 +251,41 @@ class PaymentControllerTest {
                         .andExpect(jsonPath("$.completedAt").doesNotExist());
         }
 
+        @Test
+        void PaymentControllerTest_initializePayments_returnsPerItemResults() throws Exception {
+                // Arrange
+                final BatchPaymentRequestDTO request = new BatchPaymentRequestDTO(List.of(
+                                new PaymentRequestDTO("ORDER-1", BigDecimal.valueOf(100), PaymentProviderType.STRIPE),
+                                new PaymentRequestDTO("ORDER-2", BigDecimal.valueOf(50), PaymentProviderType.STRIPE)));
+
+                final PaymentResponseDTO payment = new PaymentResponseDTO(
+                                "ORDER-1",
+                                "clientId",
+                                "clientSecret",
+                                BigDecimal.valueOf(100L),
+                                CurrencyCode.ZAR,
+                                PaymentProviderType.STRIPE,
+                                null,
+                                null,
+                                null,
+                                null);
+
+                final BatchPaymentResponseDTO response = BatchPaymentResponseDTO.of(List.of(
+                                BatchPaymentItemResult.succeeded("ORDER-1", payment),
+                                BatchPaymentItemResult.failed("ORDER-2", "Order already paid.")));
+
+                // Mock
+                when(paymentBatchService.initializePayments(request)).thenReturn(response);
+
+                // Act & Assert
+                mockMvc.perform(post("/api/payments/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.succeeded").value(1))
+                                .andExpect(jsonPath("$.failed").value(1))
+                                .andExpect(jsonPath("$.results[0].payment.clientId").value("clientId"))
+                                .andExpect(jsonPath("$.results[1].error").value("Order already paid."));
+        }
+
 }
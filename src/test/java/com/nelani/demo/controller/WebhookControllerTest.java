@@ -1,15 +1,20 @@
 package com.nelani.demo.controller;
 
+import com.nelani.demo.model.PaymentProviderType;
 import com.nelani.demo.service.PaymentWebhookService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,9 +35,6 @@ class WebhookControllerTest {
         String payload = "{ \"type\": \"payment_intent.succeeded\" }";
         String signature = "t=123456,v1=abc123";
 
-        doNothing().when(paymentWebhookService)
-                .handleStripeWebhook(payload, signature);
-
         // Act & Assert
         mockMvc.perform(post("/webhooks/stripe")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -41,8 +43,58 @@ class WebhookControllerTest {
                 .andExpect(status().isOk());
 
         // Verify
-        verify(paymentWebhookService)
-                .handleStripeWebhook(payload, signature);
+        verify(paymentWebhookService).handleWebhook(eq(PaymentProviderType.STRIPE), eq("default"), eq(payload),
+                argThat((HttpHeaders headers) -> signature.equals(headers.getFirst("Stripe-Signature"))));
     }
-}
 
+    @Test
+    void WebhookControllerTest_handleStripeWebhook_passesTenantFromPath() throws Exception {
+        // Arrange
+        String payload = "{ \"type\": \"payment_intent.succeeded\" }";
+        String signature = "t=123456,v1=abc123";
+
+        // Act & Assert
+        mockMvc.perform(post("/webhooks/stripe/acme")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Stripe-Signature", signature)
+                        .content(payload))
+                .andExpect(status().isOk());
+
+        // Verify
+        verify(paymentWebhookService).handleWebhook(eq(PaymentProviderType.STRIPE), eq("acme"), eq(payload),
+                argThat((HttpHeaders headers) -> signature.equals(headers.getFirst("Stripe-Signature"))));
+    }
+
+    @Test
+    void WebhookControllerTest_handlePayPalWebhook_passesTransmissionHeaders() throws Exception {
+        // Arrange
+        String payload = "{ \"event_type\": \"PAYMENT.CAPTURE.COMPLETED\" }";
+
+        // Act & Assert
+        mockMvc.perform(post("/webhooks/paypal")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("PAYPAL-TRANSMISSION-ID", "tx-1")
+                        .header("PAYPAL-TRANSMISSION-SIG", "c2ln")
+                        .content(payload))
+                .andExpect(status().isOk());
+
+        // Verify
+        verify(paymentWebhookService).handleWebhook(eq(PaymentProviderType.PAYPAL), eq("default"), eq(payload),
+                argThat((HttpHeaders headers) ->
+                "tx-1".equals(headers.getFirst("PAYPAL-TRANSMISSION-ID"))
+                        && "c2ln".equals(headers.getFirst("PAYPAL-TRANSMISSION-SIG"))));
+    }
+
+    @Test
+    void WebhookControllerTest_handlePayPalWebhook_returnsBadRequest_whenSignatureInvalid() throws Exception {
+        // Arrange
+        doThrow(new IllegalArgumentException("Invalid webhook signature"))
+                .when(paymentWebhookService).handleWebhook(any(), any(), any(), any());
+
+        // Act & Assert
+        mockMvc.perform(post("/webhooks/paypal")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,297 @@
+package com.nelani.demo.coordination;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.exception.LeaseLostException;
+import com.nelani.demo.repository.ClusterNodeRepository;
+import com.nelani.demo.repository.JobLeaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Each DatabaseJobCoordinator instance stands for one application node; they only share the database
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class DatabaseJobCoordinatorTest {
+
+        private static final Duration TTL = Duration.ofSeconds(30);
+        private static final Duration HEARTBEAT = Duration.ofSeconds(10);
+
+        @Autowired
+        private JobLeaseRepository leaseRepository;
+
+        @Autowired
+        private ClusterNodeRepository nodeRepository;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+        private SimpleMeterRegistry meterRegistry;
+        private MutableClock clock;
+
+        @BeforeEach
+        void setUp() {
+                leaseRepository.deleteAllInBatch();
+                nodeRepository.deleteAllInBatch();
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                meterRegistry = new SimpleMeterRegistry();
+                clock = new MutableClock();
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Lead_KeepsJobOnOneNodeUntilItsLeaseExpires() {
+                // Arrange
+                DatabaseJobCoordinator first = node(clock, TTL, HEARTBEAT);
+                DatabaseJobCoordinator second = node(clock, TTL, HEARTBEAT);
+
+                // Act & Assert: the first node keeps the job across runs, renewing it on its heartbeat
+                Lease lease = first.lead("relay").orElseThrow();
+                Assertions.assertThat(second.lead("relay")).isEmpty();
+                clock.advance(TTL.minusSeconds(5));
+                first.heartbeat();
+                clock.advance(Duration.ofSeconds(10));
+                Assertions.assertThat(first.lead("relay")).contains(lease);
+                Assertions.assertThat(second.lead("relay")).isEmpty();
+
+                // The first node stops beating: the second takes over with a higher fencing token
+                clock.advance(TTL);
+                Lease takenOver = second.lead("relay").orElseThrow();
+                Assertions.assertThat(takenOver.token()).isGreaterThan(lease.token());
+                Assertions.assertThat(meterRegistry.counter("payments.cluster.takeovers", "job", "relay").count())
+                                .isEqualTo(1);
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Fence_RejectsWritesOfNodeThatLostItsLease() {
+                // Arrange: the first node pauses past its lease and the second takes over
+                DatabaseJobCoordinator first = node(clock, TTL, HEARTBEAT);
+                DatabaseJobCoordinator second = node(clock, TTL, HEARTBEAT);
+                Lease stale = first.lead("rollups").orElseThrow();
+                clock.advance(TTL.plusSeconds(1));
+                Lease current = second.lead("rollups").orElseThrow();
+
+                // Act & Assert: the stale node's transaction is refused, the new leader's goes through
+                Assertions.assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+                                status -> first.fence(stale)))
+                                .isInstanceOf(LeaseLostException.class);
+                transactionTemplate.executeWithoutResult(status -> second.fence(current));
+                Assertions.assertThat(first.lead("rollups")).isEmpty();
+                Assertions.assertThat(meterRegistry.counter("payments.cluster.lost", "job", "rollups").count())
+                                .isEqualTo(1);
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Partitions_RebalanceAsNodesJoinAndLeave() {
+                // Arrange
+                DatabaseJobCoordinator first = node(clock, TTL, HEARTBEAT);
+                first.heartbeat();
+                Assertions.assertThat(first.partitions("reconcile", 8)).hasSize(8);
+
+                // Act: a second node joins; the first gives up its extra partitions on its next heartbeat
+                DatabaseJobCoordinator second = node(clock, TTL, HEARTBEAT);
+                second.heartbeat();
+                first.heartbeat();
+                List<Lease> firstShare = first.partitions("reconcile", 8);
+                List<Lease> secondShare = second.partitions("reconcile", 8);
+
+                // Assert: an even split, each partition on exactly one node
+                Assertions.assertThat(firstShare).hasSize(4);
+                Assertions.assertThat(secondShare).hasSize(4);
+                Set<Integer> covered = new HashSet<>();
+                firstShare.forEach(lease -> covered.add(lease.partition()));
+                secondShare.forEach(lease -> Assertions.assertThat(covered.add(lease.partition())).isTrue());
+                Assertions.assertThat(covered).hasSize(8);
+
+                // The second node stops: once its leases expire the first takes everything back
+                clock.advance(TTL.plusSeconds(1));
+                first.heartbeat();
+                Assertions.assertThat(first.partitions("reconcile", 8)).hasSize(8);
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Leave_HandsJobsOverRightAway() {
+                // Arrange
+                DatabaseJobCoordinator first = node(clock, TTL, HEARTBEAT);
+                DatabaseJobCoordinator second = node(clock, TTL, HEARTBEAT);
+                first.lead("archive").orElseThrow();
+                Assertions.assertThat(second.lead("archive")).isEmpty();
+
+                // Act
+                first.leave();
+                clock.advance(HEARTBEAT);
+
+                // Assert: taken within a heartbeat interval instead of the lease TTL
+                Assertions.assertThat(second.lead("archive")).isPresent();
+                Assertions.assertThat(nodeRepository.existsById(first.nodeId())).isFalse();
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Lead_TakesOverQuicklyAndNeverRunsJobTwice() throws Exception {
+                // Arrange: three nodes beating and running the job as fast as they can, on the real clock
+                Duration ttl = Duration.ofMillis(300);
+                Duration heartbeat = Duration.ofMillis(50);
+                List<DatabaseJobCoordinator> nodes = IntStream.range(0, 3)
+                                .mapToObj(i -> node(Clock.systemUTC(), ttl, heartbeat)).toList();
+                List<AtomicBoolean> crashed = nodes.stream().map(node -> new AtomicBoolean()).toList();
+                AtomicInteger running = new AtomicInteger();
+                AtomicInteger overlaps = new AtomicInteger();
+                AtomicInteger runs = new AtomicInteger();
+                AtomicLong lastToken = new AtomicLong();
+                AtomicInteger tokensOutOfOrder = new AtomicInteger();
+                List<Instant> firstRunAfterCrash = Collections.synchronizedList(new ArrayList<>());
+                AtomicLong crashedAt = new AtomicLong();
+                long end = System.nanoTime() + Duration.ofMillis(2000).toNanos();
+
+                ExecutorService threads = Executors.newFixedThreadPool(6);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < nodes.size(); i++) {
+                        DatabaseJobCoordinator node = nodes.get(i);
+                        AtomicBoolean down = crashed.get(i);
+                        futures.add(threads.submit(() -> {
+                                while (System.nanoTime() < end && !down.get()) {
+                                        node.heartbeat();
+                                        sleep(heartbeat);
+                                }
+                        }));
+                        futures.add(threads.submit(() -> {
+                                while (System.nanoTime() < end && !down.get()) {
+                                        Optional<Lease> lease = node.lead("singleton");
+                                        if (lease.isEmpty()) {
+                                                sleep(Duration.ofMillis(5));
+                                                continue;
+                                        }
+                                        try {
+                                                transactionTemplate.executeWithoutResult(status -> {
+                                                        node.fence(lease.get());
+                                                        if (running.incrementAndGet() > 1) {
+                                                                overlaps.incrementAndGet();
+                                                        }
+                                                        if (lease.get().token() < lastToken.getAndSet(
+                                                                        lease.get().token())) {
+                                                                tokensOutOfOrder.incrementAndGet();
+                                                        }
+                                                        sleep(Duration.ofMillis(2));
+                                                        running.decrementAndGet();
+                                                });
+                                                runs.incrementAndGet();
+                                                if (crashedAt.get() != 0 && !down.get()) {
+                                                        firstRunAfterCrash.add(Instant.now());
+                                                }
+                                        } catch (LeaseLostException e) {
+                                                // Taken over between lead and fence: nothing ran
+                                        }
+                                }
+                        }));
+                }
+
+                // Act: the leader crashes half way through, without releasing its lease
+                sleep(Duration.ofMillis(800));
+                int leader = IntStream.range(0, nodes.size())
+                                .filter(i -> leaseRepository.findById("singleton").orElseThrow().getOwner()
+                                                .equals(nodes.get(i).nodeId()))
+                                .findFirst().orElseThrow();
+                crashed.get(leader).set(true);
+                Instant crash = Instant.now();
+                crashedAt.set(crash.toEpochMilli());
+                for (Future<?> future : futures) {
+                        future.get(30, TimeUnit.SECONDS);
+                }
+                threads.shutdown();
+
+                // Assert: another node took over within about a lease TTL, and no two runs ever overlapped
+                Assertions.assertThat(firstRunAfterCrash).isNotEmpty();
+                Duration takeover = Duration.between(crash, firstRunAfterCrash.getFirst());
+                Assertions.assertThat(takeover).isLessThan(ttl.plus(heartbeat).plusMillis(300));
+                Assertions.assertThat(overlaps.get()).isZero();
+                Assertions.assertThat(tokensOutOfOrder.get()).isZero();
+                Assertions.assertThat(runs.get()).isGreaterThan(50);
+        }
+
+        @Test
+        public void DatabaseJobCoordinatorTest_Lease_IdRangesCoverEveryIdOnce() {
+                // Arrange
+                List<Lease> partitions = JobCoordinator.SINGLE_NODE.partitions("reconcile", 5);
+
+                // Act & Assert: ranges are contiguous and together span the whole id space
+                Assertions.assertThat(partitions.getFirst().firstId()).isEqualTo(new UUID(0, 0));
+                Assertions.assertThat(partitions.getLast().lastId()).isEqualTo(new UUID(-1, -1));
+                for (int i = 1; i < partitions.size(); i++) {
+                        UUID previousLast = partitions.get(i - 1).lastId();
+                        UUID first = partitions.get(i).firstId();
+                        Assertions.assertThat(first.getLeastSignificantBits()).isZero();
+                        Assertions.assertThat(previousLast.getMostSignificantBits() + 1)
+                                        .isEqualTo(first.getMostSignificantBits());
+                }
+        }
+
+        private DatabaseJobCoordinator node(Clock nodeClock, Duration ttl, Duration heartbeat) {
+                return new DatabaseJobCoordinator(leaseRepository, nodeRepository, transactionManager,
+                                PaymentShards.SINGLE, new ClusterProperties(true, "node", ttl, heartbeat), nodeClock,
+                                meterRegistry);
+        }
+
+        private static void sleep(Duration duration) {
+                try {
+                        Thread.sleep(duration.toMillis());
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+
+        private static final class MutableClock extends Clock {
+
+                private volatile Instant now = Instant.ofEpochSecond(1_700_000_000L);
+
+                private void advance(Duration duration) {
+                        now = now.plus(duration);
+                }
+
+                @Override
+                public ZoneId getZone() {
+                        return ZoneOffset.UTC;
+                }
+
+                @Override
+                public Clock withZone(ZoneId zone) {
+                        return this;
+                }
+
+                @Override
+                public Instant instant() {
+                        return now;
+                }
+        }
+}
@@ -0,0 +1,81 @@
+package com.nelani.demo.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class PaymentShardsTest {
+
+    @Test
+    void forOrder_spreadsOrdersEvenly() {
+        PaymentShards shards = new PaymentShards(4, null, Runnable::run);
+        int[] perShard = new int[4];
+        for (int i = 0; i < 40_000; i++) {
+            perShard[shards.forOrder("order-" + i)]++;
+        }
+        for (int count : perShard) {
+            Assertions.assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void forOrder_movesOnlyTheNewShardsShareWhenAShardIsAdded() {
+        PaymentShards four = new PaymentShards(4, null, Runnable::run);
+        PaymentShards five = new PaymentShards(5, null, Runnable::run);
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String orderId = "order-" + i;
+            int before = four.forOrder(orderId);
+            int after = five.forOrder(orderId);
+            if (before != after) {
+                // A moved order only ever goes to the new shard
+                Assertions.assertThat(after).isEqualTo(4);
+                moved++;
+            }
+        }
+        Assertions.assertThat(moved).isBetween(1_700, 2_300);
+    }
+
+    @Test
+    void newId_carriesItsShard() {
+        for (int shard : new int[] { 0, 1, 7, 255 }) {
+            UUID id = PaymentShards.newId(shard);
+            Assertions.assertThat(id.version()).isEqualTo(8);
+            Assertions.assertThat(id.variant()).isEqualTo(2);
+            Assertions.assertThat(PaymentShards.shardOf(id)).isEqualTo(shard);
+        }
+    }
+
+    @Test
+    void forPayment_placesUnshardedIdsOnHome() {
+        PaymentShards shards = new PaymentShards(2, null, Runnable::run);
+        Assertions.assertThat(shards.forPayment(UUID.randomUUID())).isEqualTo(PaymentShards.HOME);
+        Assertions.assertThat(shards.forPayment(PaymentShards.newId(1))).isEqualTo(1);
+        // An id from a shard that no longer exists
+        Assertions.assertThat(shards.forPayment(PaymentShards.newId(9))).isEqualTo(PaymentShards.HOME);
+    }
+
+    @Test
+    void locatePayment_findsPaymentMovedByAResharding() {
+        PaymentShards shards = new PaymentShards(3, null, Runnable::run);
+        UUID unsharded = UUID.randomUUID();
+        UUID created = PaymentShards.newId(1);
+        List<Integer> asked = new ArrayList<>();
+
+        // Both payments now live on shard 2
+        int first = shards.locatePayment(unsharded, id -> {
+            asked.add(ShardContext.current());
+            return ShardContext.current() == 2;
+        });
+        int second = shards.locatePayment(created, id -> ShardContext.current() == 2);
+
+        Assertions.assertThat(first).isEqualTo(2);
+        Assertions.assertThat(asked).containsExactly(PaymentShards.HOME, 1, 2);
+        Assertions.assertThat(second).isEqualTo(2);
+        // Held by no shard: where its id points
+        Assertions.assertThat(shards.locatePayment(created, id -> false)).isEqualTo(1);
+    }
+}
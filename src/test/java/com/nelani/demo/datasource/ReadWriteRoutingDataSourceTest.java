@@ -0,0 +1,146 @@
+package com.nelani.demo.datasource;
+
+import com.nelani.demo.config.DataSourceRoutingConfig;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentArchiveService;
+import com.nelani.demo.service.PaymentProviderFactory;
+import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.impl.PaymentServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the routing against two separate embedded H2 databases. Nothing replicates
+ * between them, so the database a query lands on is directly observable.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "payments.datasource.replica.enabled=true",
+        "payments.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "payments.datasource.replica.migrate=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ DataSourceRoutingConfig.class, PaymentServiceImpl.class, ReadWriteRoutingDataSourceTest.Readers.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private Readers readers;
+
+    @MockitoBean
+    private PaymentProviderFactory factory;
+
+    @MockitoBean
+    private PaymentArchiveService archiveService;
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.deleteAll();
+        new JdbcTemplate(replicaDataSource).update("DELETE FROM payments");
+    }
+
+    @Test
+    void readOnlyListing_isServedByReplica() {
+        // Arrange: the write goes to the primary only
+        paymentRepository.save(new Payment("order-primary", BigDecimal.TEN, PaymentStatus.PENDING,
+                PaymentProviderType.STRIPE));
+
+        // Act & Assert: the replica has not seen the write
+        var page = paymentService.getAllPayments(PaymentSortField.CREATED_AT, Sort.Direction.DESC, 0, 10);
+        Assertions.assertThat(page.getTotalElements()).isZero();
+
+        // Once the row exists on the replica, the listing returns it
+        new JdbcTemplate(replicaDataSource).update("""
+                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at)
+                VALUES (RANDOM_UUID(), 'order-replica', 10.00, 'ZAR', 'PENDING', 'STRIPE',
+                        CURRENT_TIMESTAMP, DATEADD('DAY', 1, CURRENT_TIMESTAMP))""");
+
+        page = paymentService.getAllPayments(PaymentSortField.CREATED_AT, Sort.Direction.DESC, 0, 10);
+        Assertions.assertThat(page.getContent()).extracting("orderId").containsExactly("order-replica");
+    }
+
+    @Test
+    void resumePayment_readsFromPrimary() {
+        // Arrange: the payment exists on the primary only
+        paymentRepository.save(new Payment("order-fresh", BigDecimal.TEN, PaymentStatus.INITIATING,
+                PaymentProviderType.STRIPE));
+
+        // Act & Assert: found on the primary, so the state check runs instead of "not found"
+        assertThatThrownBy(() -> paymentService.resumePayment("order-fresh"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Current status: INITIATING");
+    }
+
+    @Test
+    void readFromPrimary_overridesReadOnlyRouting() {
+        // Arrange: the payment exists on the primary only
+        paymentRepository.save(new Payment("order-pinned", BigDecimal.TEN, PaymentStatus.PENDING,
+                PaymentProviderType.STRIPE));
+
+        // Act & Assert
+        Assertions.assertThat(readers.countReadOnly()).isZero();
+        Assertions.assertThat(readers.countReadOnlyFromPrimary()).isEqualTo(1);
+    }
+
+    @Test
+    void routeOutsideTransaction_isPrimary() {
+        Assertions.assertThat(ReadWriteRoutingDataSource.currentRoute())
+                .isEqualTo(ReadWriteRoutingDataSource.Route.PRIMARY);
+    }
+
+    static class Readers {
+
+        @Bean
+        PaymentShards paymentShards() {
+            return PaymentShards.SINGLE;
+        }
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Transactional(readOnly = true)
+        public long countReadOnly() {
+            return paymentRepository.count();
+        }
+
+        @ReadFromPrimary
+        @Transactional(readOnly = true)
+        public long countReadOnlyFromPrimary() {
+            return paymentRepository.count();
+        }
+    }
+}
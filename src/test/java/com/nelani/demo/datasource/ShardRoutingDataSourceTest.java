@@ -0,0 +1,240 @@
+package com.nelani.demo.datasource;
+
+import com.nelani.demo.config.AsyncConfig;
+import com.nelani.demo.config.ShardingConfig;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.WebhookInboxRepository;
+import com.nelani.demo.service.PaymentArchiveService;
+import com.nelani.demo.service.PaymentProviderFactory;
+import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.PaymentStatsService;
+import com.nelani.demo.service.impl.PaymentServiceImpl;
+import com.nelani.demo.service.impl.PaymentStatsServiceImpl;
+import com.nelani.demo.webhook.WebhookInbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs three shards on separate embedded H2 databases, so the database a
+ * payment lands on is directly observable.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1",
+        "payments.sharding.enabled=true",
+        "payments.sharding.shards[0].url=jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1",
+        "payments.sharding.shards[1].url=jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ShardingConfig.class, AsyncConfig.class, PaymentServiceImpl.class, PaymentStatsServiceImpl.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class ShardRoutingDataSourceTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentStatsService paymentStatsService;
+
+    @Autowired
+    private PaymentShards shards;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private WebhookInboxRepository webhookInboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private PaymentProviderFactory factory;
+
+    @MockitoBean
+    private PaymentArchiveService archiveService;
+
+    @AfterEach
+    void tearDown() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            jdbc(shard).update("DELETE FROM webhook_inbox");
+            jdbc(shard).update("DELETE FROM payments");
+        }
+    }
+
+    @Test
+    void initializePayment_storesPaymentOnItsOrderShard() {
+        // Arrange
+        PaymentProvider provider = mock(PaymentProvider.class);
+        when(factory.get(any())).thenReturn(provider);
+        when(provider.createPayment(any())).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            return new PaymentResponseDTO(payment.getOrderId(), "clientId", "clientSecret", payment.getAmount(),
+                    payment.getCurrency(), payment.getProvider(), null, null, null, null);
+        });
+
+        // Act
+        for (int i = 0; i < 30; i++) {
+            paymentService.initializePayment(new PaymentRequestDTO("order-" + i, BigDecimal.TEN,
+                    PaymentProviderType.STRIPE));
+        }
+
+        // Assert: every payment sits on its order's shard only, and its id names that shard
+        int[] perShard = new int[shards.count()];
+        for (int i = 0; i < 30; i++) {
+            String orderId = "order-" + i;
+            int shard = shards.forOrder(orderId);
+            perShard[shard]++;
+            for (int other = 0; other < shards.count(); other++) {
+                List<UUID> ids = jdbc(other).queryForList("SELECT id FROM payments WHERE order_id = ?", UUID.class,
+                        orderId);
+                Assertions.assertThat(ids).hasSize(other == shard ? 1 : 0);
+                ids.forEach(id -> Assertions.assertThat(PaymentShards.shardOf(id)).isEqualTo(shard));
+            }
+        }
+        Assertions.assertThat(perShard).doesNotContain(0);
+    }
+
+    @Test
+    void resumePayment_findsPaymentOnItsOrderShard() {
+        // Arrange
+        save("order-resume", "10.00");
+
+        // Act & Assert: found, so the state check runs instead of "not found"
+        assertThatThrownBy(() -> paymentService.resumePayment("order-resume"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Current status: INITIATING");
+    }
+
+    @Test
+    void listing_mergesShardsInSortOrder() {
+        // Arrange: amounts 1..12, spread over the shards by order id
+        for (int i = 1; i <= 12; i++) {
+            save("order-" + i, i + ".00");
+        }
+        Assertions.assertThat(countPerShard()).doesNotContain(0);
+
+        // Act
+        var page = paymentService.getAllPayments(PaymentSortField.AMOUNT, Sort.Direction.ASC, 1, 4);
+
+        // Assert
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(12);
+        Assertions.assertThat(page.getTotalPages()).isEqualTo(3);
+        Assertions.assertThat(page.getContent()).extracting(PaymentResponseDTO::amount)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("5"), new BigDecimal("6"), new BigDecimal("7"),
+                        new BigDecimal("8"));
+    }
+
+    @Test
+    void listing_refusesPagesPastTheWindow() {
+        // Act & Assert: refused before any shard is read or any merge buffer sized
+        assertThatThrownBy(() -> paymentService.getAllPayments(PaymentSortField.AMOUNT, Sort.Direction.ASC,
+                20_000_000, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Pages must end within the first");
+    }
+
+    @Test
+    void webhookInbox_appliesEventToPaymentMovedByAResharding() {
+        // Arrange: a payment from before sharding, moved to its order's shard away from home
+        String orderId = IntStream.range(0, 100).mapToObj(i -> "order-moved-" + i)
+                .filter(candidate -> shards.forOrder(candidate) != PaymentShards.HOME).findFirst().orElseThrow();
+        int shard = shards.forOrder(orderId);
+        shards.on(shard, () -> {
+            Payment payment = new Payment(orderId, BigDecimal.TEN, PaymentStatus.INITIATING,
+                    PaymentProviderType.STRIPE);
+            payment.markPending(PaymentProviderType.STRIPE);
+            return paymentRepository.save(payment);
+        });
+        UUID legacyId = UUID.randomUUID();
+        jdbc(shard).update("UPDATE payments SET id = ? WHERE order_id = ?", legacyId, orderId);
+        WebhookInbox inbox = new WebhookInbox(webhookInboxRepository, paymentRepository, transactionManager,
+                Runnable::run, new SimpleMeterRegistry(), JobCoordinator.SINGLE_NODE, shards, 10,
+                Duration.ofDays(7));
+
+        // Act
+        inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(legacyId, true, true, "evt_moved"));
+
+        // Assert: stored next to the payment and applied
+        Assertions.assertThat(jdbc(shard).queryForObject("SELECT COUNT(*) FROM webhook_inbox", Integer.class))
+                .isEqualTo(1);
+        Assertions.assertThat(jdbc(PaymentShards.HOME).queryForObject("SELECT COUNT(*) FROM webhook_inbox",
+                Integer.class)).isZero();
+        Assertions.assertThat(jdbc(shard).queryForObject("SELECT status FROM payments WHERE id = ?", String.class,
+                legacyId)).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void statsReconcile_addsUpEveryShard() {
+        // Arrange
+        for (int i = 1; i <= 6; i++) {
+            save("order-" + i, "10.00");
+        }
+
+        // Act
+        paymentStatsService.reconcile();
+
+        // Assert
+        var stats = paymentStatsService.getStats(null, null);
+        Assertions.assertThat(stats.total().count()).isEqualTo(6);
+        Assertions.assertThat(stats.total().amounts().get(CurrencyCode.ZAR)).isEqualByComparingTo("60.00");
+    }
+
+    private void save(String orderId, String amount) {
+        shards.onOrder(orderId, () -> paymentRepository.save(new Payment(orderId, new BigDecimal(amount),
+                PaymentStatus.INITIATING, PaymentProviderType.STRIPE)));
+    }
+
+    private List<Integer> countPerShard() {
+        List<Integer> counts = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            counts.add(jdbc(shard).queryForObject("SELECT COUNT(*) FROM payments", Integer.class));
+        }
+        return counts;
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate((DataSource) shardRoutingDataSource.getResolvedDataSources().get(shard));
+    }
+}
@@ -0,0 +1,78 @@
+package com.nelani.demo.dto;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+class PaymentResponseSerializerTest {
+
+    private static final PaymentResponseDTO FULL = new PaymentResponseDTO("ORD-1", "pi_1", "pi_1_secret",
+            new BigDecimal("199.90"), CurrencyCode.ZAR, PaymentProviderType.STRIPE, "SUCCESS",
+            OffsetDateTime.parse("2025-01-06T10:15:30.123456+02:00"), OffsetDateTime.parse("2025-01-07T10:15:30Z"),
+            OffsetDateTime.parse("2025-01-06T10:16:42Z"));
+
+    private static final PaymentResponseDTO LISTING_ROW = new PaymentResponseDTO("ORD-2", null, null,
+            new BigDecimal("5"), CurrencyCode.USD, PaymentProviderType.PAYPAL, "PENDING",
+            OffsetDateTime.parse("2025-01-06T10:15:30Z"), OffsetDateTime.parse("2025-01-07T10:15:30Z"), null);
+
+    // The bean serializer Jackson would use without the custom one
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface BeanSerialized {
+    }
+
+    private final ObjectMapper mapper = builder().build();
+
+    @Test
+    void serialize_writesSameJsonAsBeanSerializer() throws Exception {
+        // Arrange
+        ObjectMapper beanMapper = builder()
+                .mixIn(PaymentResponseDTO.class, BeanSerialized.class)
+                .build();
+
+        // Act & Assert: same fields, order and formats; nulls left out
+        for (PaymentResponseDTO response : new PaymentResponseDTO[] { FULL, LISTING_ROW }) {
+            Assertions.assertThat(mapper.writeValueAsString(response))
+                    .isEqualTo(beanMapper.writeValueAsString(response));
+        }
+        Assertions.assertThat(mapper.writeValueAsString(LISTING_ROW)).isEqualTo("""
+                {"orderId":"ORD-2","amount":5,"currency":"USD","provider":"PAYPAL","status":"PENDING",\
+                "createdAt":"2025-01-06T10:15:30Z","expiresAt":"2025-01-07T10:15:30Z"}""");
+    }
+
+    @Test
+    void serialize_roundTripsThroughSmile() throws Exception {
+        // Arrange
+        ObjectMapper smile = builder().factory(new SmileFactory()).build();
+        PaymentResponseDTO utc = new PaymentResponseDTO(FULL.orderId(), FULL.clientId(), FULL.clientSecret(),
+                FULL.amount(), FULL.currency(), FULL.provider(), FULL.status(),
+                OffsetDateTime.parse("2025-01-06T08:15:30.123456Z"), FULL.expiresAt(), FULL.completedAt());
+
+        // Act
+        PageResponseDTO<PaymentResponseDTO> page = PageResponseDTO.of(new PageImpl<>(List.of(utc)));
+        byte[] body = smile.writeValueAsBytes(page);
+        PageResponseDTO<PaymentResponseDTO> read = smile.readValue(body,
+                smile.getTypeFactory().constructParametricType(PageResponseDTO.class, PaymentResponseDTO.class));
+
+        // Assert
+        Assertions.assertThat(read.content()).containsExactly(utc);
+        Assertions.assertThat(read.page().totalElements()).isEqualTo(1);
+        Assertions.assertThat(body.length).isLessThan(mapper.writeValueAsBytes(page).length);
+    }
+
+    // ISO timestamps, as Spring Boot configures the application's mapper
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
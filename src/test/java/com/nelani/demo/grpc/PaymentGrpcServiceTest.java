@@ -0,0 +1,335 @@
+package com.nelani.demo.grpc;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.exception.GrpcExceptionTranslator;
+import com.nelani.demo.grpc.v1.GetPaymentRequest;
+import com.nelani.demo.grpc.v1.InitializePaymentRequest;
+import com.nelani.demo.grpc.v1.InitializePaymentResult;
+import com.nelani.demo.grpc.v1.Payment;
+import com.nelani.demo.grpc.v1.PaymentStatusUpdate;
+import com.nelani.demo.grpc.v1.PaymentsGrpc;
+import com.nelani.demo.grpc.v1.Provider;
+import com.nelani.demo.grpc.v1.ResumePaymentRequest;
+import com.nelani.demo.grpc.v1.Status;
+import com.nelani.demo.grpc.v1.WatchPaymentRequest;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentEventStreamService;
+import com.nelani.demo.service.PaymentService;
+import com.nelani.demo.service.impl.PaymentEventStreamServiceImpl;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.Validation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.grpc.server.exception.GrpcExceptionHandlerInterceptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentGrpcServiceTest {
+
+        @Mock
+        private PaymentService paymentService;
+
+        @Mock
+        private PaymentEventStreamService paymentEventStreamService;
+
+        @Mock
+        private PaymentRepository paymentRepository;
+
+        @Mock
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        private Server server;
+
+        private ManagedChannel channel;
+
+        @AfterEach
+        void tearDown() throws InterruptedException {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+                server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+                executor.shutdownNow();
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_InitializePayment_ReturnsProviderSession() {
+                // Arrange
+                when(paymentService.initializePayment(any(PaymentRequestDTO.class)))
+                                .thenReturn(response("ORD-1"));
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act
+                Payment result = stub.initializePayment(request("ORD-1"));
+
+                // Assert
+                ArgumentCaptor<PaymentRequestDTO> captor = ArgumentCaptor.forClass(PaymentRequestDTO.class);
+                verify(paymentService).initializePayment(captor.capture());
+                Assertions.assertThat(captor.getValue()).isEqualTo(new PaymentRequestDTO("ORD-1",
+                                new BigDecimal("150.00"), PaymentProviderType.STRIPE));
+                Assertions.assertThat(result.getOrderId()).isEqualTo("ORD-1");
+                Assertions.assertThat(result.getClientId()).isEqualTo("pi_ORD-1");
+                Assertions.assertThat(result.getClientSecret()).isEqualTo("secret");
+                Assertions.assertThat(result.getAmount()).isEqualTo("150.00");
+                Assertions.assertThat(result.getCurrency()).isEqualTo("ZAR");
+                Assertions.assertThat(result.getProvider()).isEqualTo(Provider.PROVIDER_STRIPE);
+                Assertions.assertThat(result.hasCreatedAt()).isFalse();
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_InitializePayment_ReturnsInvalidArgument_WhenProviderMissing() {
+                // Arrange
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act & Assert
+                assertThatThrownBy(() -> stub.initializePayment(request("ORD-1").toBuilder()
+                                .setProvider(Provider.PROVIDER_UNSPECIFIED)
+                                .build()))
+                                .isInstanceOf(StatusRuntimeException.class)
+                                .hasMessage("INVALID_ARGUMENT: Provider is required");
+                verifyNoInteractions(paymentService);
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_ResumePayment_ReturnsFailedPrecondition_OnConflict() {
+                // Arrange
+                when(paymentService.resumePayment("ORD-1"))
+                                .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "Payment session expired."));
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act & Assert
+                assertThatThrownBy(() -> stub.resumePayment(ResumePaymentRequest.newBuilder()
+                                .setOrderId("ORD-1")
+                                .build()))
+                                .isInstanceOf(StatusRuntimeException.class)
+                                .hasMessage("FAILED_PRECONDITION: Payment session expired.");
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_GetPayment_ReturnsStatus() {
+                // Arrange
+                OffsetDateTime createdAt = OffsetDateTime.parse("2025-01-06T10:15:30.5+02:00");
+                when(paymentService.getPayment("ORD-1")).thenReturn(new PaymentResponseDTO("ORD-1", null, null,
+                                new BigDecimal("150.00"), CurrencyCode.ZAR, PaymentProviderType.STRIPE, "SUCCESS",
+                                createdAt, createdAt.plusDays(1), createdAt.plusMinutes(1)));
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act
+                Payment result = stub.getPayment(GetPaymentRequest.newBuilder().setOrderId("ORD-1").build());
+
+                // Assert
+                Assertions.assertThat(result.getStatus()).isEqualTo(Status.STATUS_SUCCESS);
+                Assertions.assertThat(result.getClientId()).isEmpty();
+                Assertions.assertThat(result.getCreatedAt().getSeconds()).isEqualTo(createdAt.toEpochSecond());
+                Assertions.assertThat(result.getCreatedAt().getNanos()).isEqualTo(500_000_000);
+                Assertions.assertThat(result.getCompletedAt().getSeconds())
+                                .isEqualTo(createdAt.plusMinutes(1).toEpochSecond());
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_InitializePayments_StreamsOneResultPerPayment_AndReportsFailures()
+                        throws Exception {
+                // Arrange
+                when(paymentService.initializePayment(any(PaymentRequestDTO.class))).thenAnswer(invocation -> {
+                        String orderId = invocation.<PaymentRequestDTO>getArgument(0).orderId();
+                        if (orderId.equals("ORD-3")) {
+                                throw new ResponseStatusException(HttpStatus.CONFLICT, "Order already paid.");
+                        }
+                        return response(orderId);
+                });
+                PaymentsGrpc.PaymentsStub stub = PaymentsGrpc.newStub(start(16));
+                ResultCollector results = new ResultCollector();
+
+                // Act
+                StreamObserver<InitializePaymentRequest> requests = stub.initializePayments(results);
+                for (int i = 1; i <= 5; i++) {
+                        requests.onNext(request("ORD-" + i));
+                }
+                requests.onCompleted();
+
+                // Assert
+                List<InitializePaymentResult> received = results.done.get(5, TimeUnit.SECONDS);
+                Assertions.assertThat(received).extracting(InitializePaymentResult::getOrderId)
+                                .containsExactlyInAnyOrder("ORD-1", "ORD-2", "ORD-3", "ORD-4", "ORD-5");
+                InitializePaymentResult failed = received.stream()
+                                .filter(result -> result.getOrderId().equals("ORD-3"))
+                                .findFirst()
+                                .orElseThrow();
+                Assertions.assertThat(failed.hasPayment()).isFalse();
+                Assertions.assertThat(failed.getFailure().getCode()).isEqualTo("FAILED_PRECONDITION");
+                Assertions.assertThat(failed.getFailure().getMessage()).isEqualTo("Order already paid.");
+                Assertions.assertThat(received).filteredOn(InitializePaymentResult::hasPayment).hasSize(4);
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_InitializePayments_RunsAtMostMaxInFlightAtOnce() throws Exception {
+                // Arrange: initializations block until released, like slow provider calls
+                CountDownLatch release = new CountDownLatch(1);
+                AtomicInteger running = new AtomicInteger();
+                AtomicInteger maxRunning = new AtomicInteger();
+                when(paymentService.initializePayment(any(PaymentRequestDTO.class))).thenAnswer(invocation -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        release.await(5, TimeUnit.SECONDS);
+                        running.decrementAndGet();
+                        return response(invocation.<PaymentRequestDTO>getArgument(0).orderId());
+                });
+                PaymentsGrpc.PaymentsStub stub = PaymentsGrpc.newStub(start(2));
+                ResultCollector results = new ResultCollector();
+
+                // Act
+                StreamObserver<InitializePaymentRequest> requests = stub.initializePayments(results);
+                for (int i = 1; i <= 6; i++) {
+                        requests.onNext(request("ORD-" + i));
+                }
+                requests.onCompleted();
+                Thread.sleep(200);
+                int runningBeforeRelease = running.get();
+                release.countDown();
+
+                // Assert
+                Assertions.assertThat(results.done.get(5, TimeUnit.SECONDS)).hasSize(6);
+                Assertions.assertThat(runningBeforeRelease).isEqualTo(2);
+                Assertions.assertThat(maxRunning.get()).isEqualTo(2);
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_WatchPayment_SendsSnapshotThenChanges_AndCompletesOnFinalStatus() {
+                // Arrange
+                when(paymentRepository.findByOrderId("ORD-1")).thenReturn(Optional.of(new com.nelani.demo.model.Payment(
+                                "ORD-1", BigDecimal.TEN, PaymentStatus.PENDING, PaymentProviderType.STRIPE)));
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(1),
+                                10);
+                paymentEventStreamService = streamService;
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act
+                Iterator<PaymentStatusUpdate> updates = stub.watchPayment(WatchPaymentRequest.newBuilder()
+                                .setOrderId("ORD-1")
+                                .build());
+                PaymentStatusUpdate snapshot = updates.next();
+                streamService.onStatusChanged(new PaymentStatusChangedEvent("ORD-1", PaymentStatus.SUCCESS,
+                                PaymentStatus.PENDING, PaymentProviderType.STRIPE, null, BigDecimal.TEN,
+                                CurrencyCode.ZAR, OffsetDateTime.now(), OffsetDateTime.now()));
+                PaymentStatusUpdate change = updates.next();
+
+                // Assert
+                Assertions.assertThat(snapshot.getStatus()).isEqualTo(Status.STATUS_PENDING);
+                Assertions.assertThat(change.getStatus()).isEqualTo(Status.STATUS_SUCCESS);
+                Assertions.assertThat(change.getPreviousStatus()).isEqualTo(Status.STATUS_PENDING);
+                Assertions.assertThat(change.getAmount()).isEqualTo("10");
+                Assertions.assertThat(updates.hasNext()).isFalse();
+                Assertions.assertThat(streamService.subscriberCount()).isZero();
+        }
+
+        @Test
+        void PaymentGrpcServiceTest_WatchPayment_ReturnsNotFound_WhenPaymentMissing() {
+                // Arrange
+                when(paymentRepository.findByOrderId(anyString())).thenReturn(Optional.empty());
+                paymentEventStreamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(1),
+                                10);
+                PaymentsGrpc.PaymentsBlockingStub stub = PaymentsGrpc.newBlockingStub(start(16));
+
+                // Act & Assert
+                Iterator<PaymentStatusUpdate> updates = stub.watchPayment(WatchPaymentRequest.newBuilder()
+                                .setOrderId("missing")
+                                .build());
+                assertThatThrownBy(updates::hasNext)
+                                .isInstanceOf(StatusRuntimeException.class)
+                                .hasMessage("NOT_FOUND: Payment not found.");
+        }
+
+        private ManagedChannel start(int maxInFlight) {
+                GrpcExceptionTranslator translator = new GrpcExceptionTranslator();
+                PaymentGrpcService service = new PaymentGrpcService(paymentService, paymentEventStreamService,
+                                translator, Validation.buildDefaultValidatorFactory().getValidator(), executor,
+                                maxInFlight);
+                String name = InProcessServerBuilder.generateName();
+                try {
+                        server = InProcessServerBuilder.forName(name)
+                                        .addService(ServerInterceptors.intercept(service,
+                                                        new GrpcExceptionHandlerInterceptor(translator)))
+                                        .build()
+                                        .start();
+                } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                }
+                channel = InProcessChannelBuilder.forName(name).build();
+                return channel;
+        }
+
+        private static InitializePaymentRequest request(String orderId) {
+                return InitializePaymentRequest.newBuilder()
+                                .setOrderId(orderId)
+                                .setAmount("150.00")
+                                .setProvider(Provider.PROVIDER_STRIPE)
+                                .build();
+        }
+
+        private static PaymentResponseDTO response(String orderId) {
+                return new PaymentResponseDTO(orderId, "pi_" + orderId, "secret", new BigDecimal("150.00"),
+                                CurrencyCode.ZAR, PaymentProviderType.STRIPE, null, null, null, null);
+        }
+
+        private static final class ResultCollector implements StreamObserver<InitializePaymentResult> {
+
+                private final List<InitializePaymentResult> results = new CopyOnWriteArrayList<>();
+                private final CompletableFuture<List<InitializePaymentResult>> done = new CompletableFuture<>();
+
+                @Override
+                public void onNext(InitializePaymentResult result) {
+                        results.add(result);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                        done.completeExceptionally(error);
+                }
+
+                @Override
+                public void onCompleted() {
+                        done.complete(results);
+                }
+        }
+}
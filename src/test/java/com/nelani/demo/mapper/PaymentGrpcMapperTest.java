@@ -0,0 +1,70 @@
+package com.nelani.demo.mapper;
+
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.grpc.v1.InitializePaymentRequest;
+import com.nelani.demo.grpc.v1.Provider;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class PaymentGrpcMapperTest {
+
+        @Test
+        void PaymentGrpcMapperTest_EveryProviderAndStatus_HasAProtoValue() {
+                for (PaymentProviderType type : PaymentProviderType.values()) {
+                        Assertions.assertThat(PaymentGrpcMapper.toProviderType(PaymentGrpcMapper.toProvider(type)))
+                                        .isEqualTo(type);
+                }
+                for (PaymentStatus status : PaymentStatus.values()) {
+                        Assertions.assertThat(PaymentGrpcMapper.toStatus(status).name())
+                                        .isEqualTo("STATUS_" + status.name());
+                }
+        }
+
+        @Test
+        void PaymentGrpcMapperTest_ToRequestDTO_MapsEmptyFieldsToNull() {
+                // Act
+                PaymentRequestDTO result = PaymentGrpcMapper.toRequestDTO(InitializePaymentRequest.newBuilder()
+                                .setOrderId("ORD-1")
+                                .build());
+
+                // Assert
+                Assertions.assertThat(result).isEqualTo(new PaymentRequestDTO("ORD-1", null, null, null, null));
+        }
+
+        @Test
+        void PaymentGrpcMapperTest_ToRequestDTO_MapsEveryField() {
+                // Act
+                PaymentRequestDTO result = PaymentGrpcMapper.toRequestDTO(InitializePaymentRequest.newBuilder()
+                                .setOrderId("ORD-1")
+                                .setAmount("19.99")
+                                .setProvider(Provider.PROVIDER_PAYPAL)
+                                .setCurrency("EUR")
+                                .setTenantId("acme")
+                                .build());
+
+                // Assert
+                Assertions.assertThat(result).isEqualTo(new PaymentRequestDTO("ORD-1", new BigDecimal("19.99"),
+                                PaymentProviderType.PAYPAL, CurrencyCode.EUR, "acme"));
+        }
+
+        @Test
+        void PaymentGrpcMapperTest_ToRequestDTO_RejectsMalformedAmountAndCurrency() {
+                assertThatThrownBy(() -> PaymentGrpcMapper.toRequestDTO(InitializePaymentRequest.newBuilder()
+                                .setAmount("150,00")
+                                .build()))
+                                .isInstanceOf(IllegalArgumentException.class)
+                                .hasMessageContaining("Amount must be a decimal number");
+                assertThatThrownBy(() -> PaymentGrpcMapper.toRequestDTO(InitializePaymentRequest.newBuilder()
+                                .setCurrency("XYZ")
+                                .build()))
+                                .isInstanceOf(IllegalArgumentException.class)
+                                .hasMessage("Unsupported currency: XYZ");
+        }
+}
@@ -0,0 +1,57 @@
+package com.nelani.demo.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void of_convertsToMinorUnitsOfTheCurrency() {
+        Assertions.assertThat(Money.of(new BigDecimal("150.5"), CurrencyCode.ZAR).minorUnits()).isEqualTo(15050);
+        Assertions.assertThat(Money.of(new BigDecimal("1500.00"), CurrencyCode.JPY).minorUnits()).isEqualTo(1500);
+        Assertions.assertThat(Money.of(new BigDecimal("7"), CurrencyCode.USD).toBigDecimal())
+                .isEqualTo(new BigDecimal("7.00"));
+    }
+
+    @Test
+    void of_rejectsAmountsFinerThanTheMinorUnit() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("10.005"), CurrencyCode.USD))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("allows 2 decimal places");
+        assertThatThrownBy(() -> Money.of(new BigDecimal("10.5"), CurrencyCode.JPY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("allows 0 decimal places");
+    }
+
+    @Test
+    void toPlainString_padsTheFractionToTheCurrencyExponent() {
+        Assertions.assertThat(new Money(15000, CurrencyCode.USD).toPlainString()).isEqualTo("150.00");
+        Assertions.assertThat(new Money(105, CurrencyCode.USD).toPlainString()).isEqualTo("1.05");
+        Assertions.assertThat(new Money(7, CurrencyCode.EUR).toPlainString()).isEqualTo("0.07");
+        Assertions.assertThat(new Money(-250, CurrencyCode.EUR).toPlainString()).isEqualTo("-2.50");
+        Assertions.assertThat(new Money(1500, CurrencyCode.JPY).toPlainString()).isEqualTo("1500");
+
+        // Same text as the BigDecimal the amount columns hold
+        for (long minor : new long[] { 1, 10, 99, 100, 12345, 99999999 }) {
+            Money money = new Money(minor, CurrencyCode.ZAR);
+            Assertions.assertThat(money.toPlainString()).isEqualTo(money.toBigDecimal().toPlainString());
+        }
+    }
+
+    @Test
+    void plusAndCompareTo_requireTheSameCurrency() {
+        Money tenRand = new Money(1000, CurrencyCode.ZAR);
+
+        Assertions.assertThat(tenRand.plus(new Money(5, CurrencyCode.ZAR))).isEqualTo(
+                new Money(1005, CurrencyCode.ZAR));
+        Assertions.assertThat(tenRand.compareTo(new Money(999, CurrencyCode.ZAR))).isPositive();
+        assertThatThrownBy(() -> tenRand.plus(new Money(1000, CurrencyCode.USD)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tenRand.compareTo(new Money(1000, CurrencyCode.USD)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,220 @@
+package com.nelani.demo.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentEventMessage;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.OutboxEventRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import(OutboxRecorder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class OutboxRelayTest {
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private OutboxEventRepository outboxEventRepository;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private TransactionTemplate transactionTemplate;
+        private StubSink sink;
+        private SimpleMeterRegistry meterRegistry;
+        private OutboxRelay relay;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.executeWithoutResult(status -> {
+                        outboxEventRepository.deleteAllInBatch();
+                        paymentRepository.deleteAllInBatch();
+                });
+                sink = new StubSink();
+                meterRegistry = new SimpleMeterRegistry();
+                relay = new OutboxRelay(outboxEventRepository, List.of(sink), transactionManager, meterRegistry,
+                                JobCoordinator.SINGLE_NODE, PaymentShards.SINGLE, 2, Duration.ofDays(7));
+        }
+
+        @Test
+        public void OutboxRelayTest_StatusChange_IsRecordedInSameTransaction() {
+                // Act
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = new Payment("order1", BigDecimal.TEN, PaymentStatus.INITIATING,
+                                        PaymentProviderType.STRIPE);
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        paymentRepository.save(payment);
+                });
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = new Payment("order2", BigDecimal.TEN, PaymentStatus.INITIATING,
+                                        PaymentProviderType.STRIPE);
+                        paymentRepository.save(payment);
+                        status.setRollbackOnly();
+                });
+
+                // Assert: order1 recorded both changes, the rolled back order2 left nothing behind
+                Assertions.assertThat(outboxEventRepository.findAll())
+                                .extracting(event -> event.getOrderId() + ":" + event.getStatus())
+                                .containsExactly("order1:INITIATING", "order1:PENDING");
+        }
+
+        @Test
+        public void OutboxRelayTest_Relay_DeliversInOrderInBatches() {
+                // Arrange
+                savePaymentThroughLifecycle("order1");
+                savePaymentThroughLifecycle("order2");
+
+                // Act
+                int delivered = relay.relay();
+
+                // Assert
+                Assertions.assertThat(delivered).isEqualTo(6);
+                Assertions.assertThat(sink.batches).hasSize(3).allSatisfy(batch -> Assertions.assertThat(batch)
+                                .hasSize(2));
+                Assertions.assertThat(sink.delivered()).filteredOn(event -> event.orderId().equals("order1"))
+                                .extracting(PaymentEventMessage::status)
+                                .containsExactly(PaymentStatus.INITIATING, PaymentStatus.PENDING,
+                                                PaymentStatus.SUCCESS);
+                Assertions.assertThat(sink.delivered()).extracting(PaymentEventMessage::id).isSorted();
+                Assertions.assertThat(outboxEventRepository.countByPublishedAtIsNull()).isZero();
+                Assertions.assertThat(meterRegistry.counter("payments.outbox.relayed").count()).isEqualTo(6);
+                Assertions.assertThat(meterRegistry.timer("payments.outbox.relay.lag").count()).isEqualTo(6);
+                Assertions.assertThat(relay.relay()).isZero();
+        }
+
+        @Test
+        public void OutboxRelayTest_EventIds_FollowChangeOrder_AcrossNodes() {
+                // Arrange: order1 is created here, then another node records changes of its own
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.save(new Payment("order1",
+                                BigDecimal.TEN, PaymentStatus.INITIATING, PaymentProviderType.STRIPE)));
+                Long otherNode = jdbcTemplate.queryForObject("select next value for payment_outbox_seq", Long.class);
+
+                // Act
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order1").orElseThrow();
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        paymentRepository.save(payment);
+                });
+
+                // Assert: a block of ids held by this node would have put the change before the other node's
+                Assertions.assertThat(outboxEventRepository.findAll())
+                                .filteredOn(event -> event.getStatus() == PaymentStatus.PENDING)
+                                .singleElement()
+                                .satisfies(event -> Assertions.assertThat(event.getId()).isGreaterThan(otherNode));
+        }
+
+        @Test
+        public void OutboxRelayTest_Relay_KeepsBatch_WhenSinkFails() {
+                // Arrange
+                savePaymentThroughLifecycle("order1");
+                sink.failing = true;
+
+                // Act
+                int delivered = relay.relay();
+
+                // Assert: nothing marked published, the batch is redelivered once the sink recovers
+                Assertions.assertThat(delivered).isZero();
+                Assertions.assertThat(outboxEventRepository.countByPublishedAtIsNull()).isEqualTo(3);
+                Assertions.assertThat(meterRegistry.get("payments.outbox.relay.failures").tag("sink", "stub")
+                                .counter().count()).isEqualTo(1);
+                Assertions.assertThat(meterRegistry.get("payments.outbox.pending").gauge().value()).isEqualTo(3);
+
+                sink.failing = false;
+                Assertions.assertThat(relay.relay()).isEqualTo(3);
+                Assertions.assertThat(sink.delivered()).extracting(PaymentEventMessage::status)
+                                .containsExactly(PaymentStatus.INITIATING, PaymentStatus.PENDING,
+                                                PaymentStatus.SUCCESS);
+        }
+
+        @Test
+        public void OutboxRelayTest_FileSink_AppendsOneJsonLinePerEvent(@TempDir Path directory) throws Exception {
+                // Arrange
+                Path file = directory.resolve("events/payment-events.ndjson");
+                FileOutboxSink fileSink = new FileOutboxSink(file,
+                                new ObjectMapper().registerModule(new JavaTimeModule()));
+                OutboxRelay fileRelay = new OutboxRelay(outboxEventRepository, List.of(fileSink), transactionManager,
+                                meterRegistry, JobCoordinator.SINGLE_NODE, PaymentShards.SINGLE, 10,
+                                Duration.ofDays(7));
+                savePaymentThroughLifecycle("order1");
+
+                // Act
+                fileRelay.relay();
+
+                // Assert
+                Assertions.assertThat(Files.readAllLines(file)).hasSize(3)
+                                .allSatisfy(line -> Assertions.assertThat(line).contains("\"orderId\":\"order1\""));
+        }
+
+        private void savePaymentThroughLifecycle(String orderId) {
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.save(new Payment(orderId,
+                                BigDecimal.TEN, PaymentStatus.INITIATING, PaymentProviderType.STRIPE)));
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId(orderId).orElseThrow();
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        paymentRepository.save(payment);
+                });
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId(orderId).orElseThrow();
+                        payment.markSuccess();
+                        paymentRepository.save(payment);
+                });
+        }
+
+        static class StubSink implements OutboxSink {
+
+                final List<List<PaymentEventMessage>> batches = new ArrayList<>();
+                volatile boolean failing;
+
+                @Override
+                public String name() {
+                        return "stub";
+                }
+
+                @Override
+                public void publish(List<PaymentEventMessage> events) {
+                        if (failing) {
+                                throw new IllegalStateException("Sink unavailable");
+                        }
+                        batches.add(List.copyOf(events));
+                }
+
+                List<PaymentEventMessage> delivered() {
+                        return batches.stream().flatMap(List::stream).toList();
+                }
+        }
+}
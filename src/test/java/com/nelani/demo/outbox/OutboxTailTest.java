@@ -0,0 +1,244 @@
+package com.nelani.demo.outbox;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.model.RemotePaymentStatusChangedEvent;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.OutboxEventRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentEventStreamService;
+import com.nelani.demo.service.impl.PaymentEventStreamServiceImpl;
+import com.nelani.demo.service.impl.PaymentStatsServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Two nodes share the database: this context's recorder is node A, node B only has a tail and its own listeners
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import(OutboxRecorder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class OutboxTailTest {
+
+        private static final Duration GAP_TIMEOUT = Duration.ofMinutes(1);
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        @Autowired
+        private OutboxEventRepository outboxEventRepository;
+
+        @Autowired
+        private OutboxRecorder recorder;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private TransactionTemplate transactionTemplate;
+        private MutableClock clock;
+        private List<Object> nodeAEvents;
+        private List<Object> nodeBEvents;
+        private OutboxTail nodeA;
+        private OutboxTail nodeB;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.executeWithoutResult(status -> {
+                        outboxEventRepository.deleteAllInBatch();
+                        paymentRepository.deleteAllInBatch();
+                });
+                clock = new MutableClock();
+                nodeAEvents = new CopyOnWriteArrayList<>();
+                nodeBEvents = new CopyOnWriteArrayList<>();
+                nodeA = new OutboxTail(outboxEventRepository, nodeAEvents::add, transactionManager,
+                                PaymentShards.SINGLE, recorder.origin(), 2, GAP_TIMEOUT, clock);
+                nodeB = new OutboxTail(outboxEventRepository, nodeBEvents::add, transactionManager,
+                                PaymentShards.SINGLE, "node-b", 2, GAP_TIMEOUT, clock);
+        }
+
+        @Test
+        public void OutboxTailTest_Poll_StreamsAndCountsChangesMadeOnAnotherNode() {
+                // Arrange: node B's stream and stats listen to what its tail publishes
+                PaymentEventStreamServiceImpl streamB = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(30),
+                                10);
+                PaymentStatsServiceImpl statsB = new PaymentStatsServiceImpl(paymentRepository, PaymentShards.SINGLE);
+                OutboxTail wiredB = new OutboxTail(outboxEventRepository, event -> {
+                        statsB.onRemoteStatusChanged((RemotePaymentStatusChangedEvent) event);
+                        streamB.onRemoteStatusChanged((RemotePaymentStatusChangedEvent) event);
+                }, transactionManager, PaymentShards.SINGLE, "node-b", 2, GAP_TIMEOUT, clock);
+                wiredB.poll();
+                nodeA.poll();
+
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.save(new Payment("order1",
+                                BigDecimal.TEN, PaymentStatus.INITIATING, PaymentProviderType.STRIPE)));
+                wiredB.poll();
+                RecordingSink watcher = new RecordingSink();
+                streamB.subscribe("order1", watcher);
+
+                // Act: node A applies the webhook
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order1").orElseThrow();
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        paymentRepository.save(payment);
+                });
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order1").orElseThrow();
+                        payment.markSuccess();
+                        paymentRepository.save(payment);
+                });
+                int publishedOnB = wiredB.poll();
+                int publishedOnA = nodeA.poll();
+
+                // Assert: B streams and counts them, A already saw its own changes in-process
+                Assertions.assertThat(publishedOnB).isEqualTo(2);
+                Assertions.assertThat(publishedOnA).isZero();
+                Assertions.assertThat(nodeAEvents).isEmpty();
+                Assertions.assertThat(watcher.statuses).containsExactly(PaymentStatus.INITIATING,
+                                PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+                Assertions.assertThat(watcher.completed).isTrue();
+                Assertions.assertThat(statsB.getStats(null, null).byStatus()).containsOnlyKeys(PaymentStatus.SUCCESS)
+                                .allSatisfy((status, total) -> Assertions.assertThat(total.count()).isEqualTo(1));
+        }
+
+        @Test
+        public void OutboxTailTest_Poll_PublishesChangeCommittedBehindTheTail() {
+                // Arrange
+                nodeB.poll();
+                long first = nextId();
+                long second = nextId();
+                insertEvent(second, "node-c");
+                Assertions.assertThat(nodeB.poll()).isEqualTo(1);
+
+                // Act: the change that drew the lower id commits last
+                insertEvent(first, "node-c");
+                int published = nodeB.poll();
+
+                // Assert
+                Assertions.assertThat(published).isEqualTo(1);
+                Assertions.assertThat(changes(nodeBEvents)).extracting(PaymentStatusChangedEvent::orderId)
+                                .containsExactly("order-" + second, "order-" + first);
+                Assertions.assertThat(nodeB.poll()).isZero();
+        }
+
+        @Test
+        public void OutboxTailTest_Poll_GivesUpOnGapsAfterTimeout() {
+                // Arrange: an id skipped by a rolled back change
+                nodeB.poll();
+                long rolledBack = nextId();
+                insertEvent(nextId(), "node-c");
+                nodeB.poll();
+
+                // Act
+                clock.advance(GAP_TIMEOUT);
+                nodeB.poll();
+                insertEvent(rolledBack, "node-c");
+
+                // Assert: no longer looked up
+                Assertions.assertThat(nodeB.poll()).isZero();
+                Assertions.assertThat(changes(nodeBEvents)).hasSize(1);
+        }
+
+        @Test
+        public void OutboxTailTest_Poll_StartsAtEndOfOutbox() {
+                // Arrange
+                insertEvent(nextId(), "node-c");
+
+                // Act
+                int first = nodeB.poll();
+                insertEvent(nextId(), "node-c");
+                int second = nodeB.poll();
+
+                // Assert
+                Assertions.assertThat(first).isZero();
+                Assertions.assertThat(second).isEqualTo(1);
+        }
+
+        private long nextId() {
+                return jdbcTemplate.queryForObject("select next value for payment_outbox_seq", Long.class);
+        }
+
+        private void insertEvent(long id, String origin) {
+                jdbcTemplate.update("""
+                                INSERT INTO payment_outbox (id, order_id, status, provider, amount, currency, occurred_at,
+                                        created_at, origin)
+                                VALUES (?, ?, 'SUCCESS', 'STRIPE', 10.00, 'ZAR', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, ?)
+                                """, id, "order-" + id, origin);
+        }
+
+        private static List<PaymentStatusChangedEvent> changes(List<Object> events) {
+                return events.stream().map(event -> ((RemotePaymentStatusChangedEvent) event).change()).toList();
+        }
+
+        private static final class RecordingSink implements PaymentEventStreamService.StatusSink {
+
+                private final List<PaymentStatus> statuses = new ArrayList<>();
+                private boolean completed;
+
+                @Override
+                public void send(PaymentStatusChangedEvent event) {
+                        statuses.add(event.status());
+                }
+
+                @Override
+                public void complete() {
+                        completed = true;
+                }
+        }
+
+        private static final class MutableClock extends Clock {
+
+                private volatile Instant now = Instant.ofEpochSecond(1_700_000_000L);
+
+                private void advance(Duration duration) {
+                        now = now.plus(duration);
+                }
+
+                @Override
+                public ZoneId getZone() {
+                        return ZoneOffset.UTC;
+                }
+
+                @Override
+                public Clock withZone(ZoneId zone) {
+                        return this;
+                }
+
+                @Override
+                public Instant instant() {
+                        return now;
+                }
+        }
+}
@@ -0,0 +1,133 @@
+package com.nelani.demo.provider;
+
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.quota.ProviderQuota;
+import com.nelani.demo.tenant.TenantClientCache;
+import com.nelani.demo.tenant.TenantProperties;
+import com.paypal.http.Headers;
+import com.paypal.http.HttpClient;
+import com.paypal.http.HttpResponse;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Order;
+import com.paypal.orders.OrdersCaptureRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PayPalProviderTest {
+
+    private static final TenantProperties LIMITS = new TenantProperties(4, Duration.ofMinutes(30), 4,
+            Duration.ofSeconds(1), Duration.ofSeconds(1), Map.of());
+
+    private final UUID paymentId = UUID.randomUUID();
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private HttpClient http;
+    private PayPalProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        http = mock(HttpClient.class);
+        TenantClientCache<PayPalTenantClient> clients = new TenantClientCache<>("PAYPAL",
+                tenantId -> new PayPalTenantClient(http, "WH-1", LIMITS), 4, Duration.ofMinutes(30),
+                Clock.systemUTC(), new SimpleMeterRegistry());
+        provider = new PayPalProvider(clients, mock(PayPalWebhookVerifier.class), mock(ProviderQuota.class));
+    }
+
+    @Test
+    void handleWebhook_settlesPayment_whenApprovedOrderIsCaptured() throws IOException {
+        when(http.execute(any(OrdersCaptureRequest.class)))
+                .thenReturn(new HttpResponse<>(new Headers(), 201, new Order().status("COMPLETED")) {
+                });
+
+        WebhookResult result = provider.handleWebhook("default", approved(), headers);
+
+        assertThat(result.relevant()).isTrue();
+        assertThat(result.success()).isTrue();
+        assertThat(result.paymentId()).isEqualTo(paymentId);
+    }
+
+    @Test
+    void handleWebhook_failsPayment_whenPayPalRefusesCapture() throws IOException {
+        when(http.execute(any(OrdersCaptureRequest.class)))
+                .thenThrow(new HttpException("{\"name\":\"UNPROCESSABLE_ENTITY\",\"details\":"
+                        + "[{\"issue\":\"INSTRUMENT_DECLINED\"}]}", 422, new Headers()));
+
+        WebhookResult result = provider.handleWebhook("default", approved(), headers);
+
+        // Acknowledged as a final outcome instead of being redelivered for days
+        assertThat(result.relevant()).isTrue();
+        assertThat(result.success()).isFalse();
+        assertThat(result.paymentId()).isEqualTo(paymentId);
+    }
+
+    @Test
+    void handleWebhook_ignoresEvent_whenOrderWasAlreadyCaptured() throws IOException {
+        when(http.execute(any(OrdersCaptureRequest.class)))
+                .thenThrow(new HttpException("{\"name\":\"UNPROCESSABLE_ENTITY\",\"details\":"
+                        + "[{\"issue\":\"ORDER_ALREADY_CAPTURED\"}]}", 422, new Headers()));
+
+        WebhookResult result = provider.handleWebhook("default", approved(), headers);
+
+        assertThat(result.relevant()).isFalse();
+    }
+
+    @Test
+    void handleWebhook_throwsTemporaryException_whenPayPalFailsOrRateLimits() throws IOException {
+        when(http.execute(any(OrdersCaptureRequest.class)))
+                .thenThrow(new HttpException("{\"name\":\"INTERNAL_SERVER_ERROR\"}", 503, new Headers()))
+                .thenThrow(new HttpException("{\"name\":\"RATE_LIMIT_REACHED\"}", 429, new Headers()))
+                .thenThrow(new SocketTimeoutException("Read timed out"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> provider.handleWebhook("default", approved(), headers))
+                    .isInstanceOf(PaymentProviderTemporaryException.class);
+        }
+    }
+
+    @Test
+    void parseWebhook_skipsApproval_withoutCallingPayPal() throws IOException {
+        WebhookResult result = provider.parseWebhook("default", approved());
+
+        // Replays never capture, the archived capture event settles the payment
+        assertThat(result.relevant()).isFalse();
+        verify(http, never()).execute(any());
+    }
+
+    @Test
+    void parseWebhook_settlesPayment_fromReplayedCaptureEvent() throws IOException {
+        String completed = """
+                {"id": "WH-EVT-2", "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                 "resource": {"id": "CAPTURE-1", "status": "COMPLETED", "custom_id": "%s"}}""".formatted(paymentId);
+
+        WebhookResult result = provider.parseWebhook("default", completed);
+
+        assertThat(result.relevant()).isTrue();
+        assertThat(result.success()).isTrue();
+        assertThat(result.paymentId()).isEqualTo(paymentId);
+        verify(http, never()).execute(any());
+    }
+
+    private String approved() {
+        return """
+                {"id": "WH-EVT-1", "event_type": "CHECKOUT.ORDER.APPROVED",
+                 "resource": {"id": "ORDER-1", "purchase_units": [{"custom_id": "%s"}]}}""".formatted(paymentId);
+    }
+}
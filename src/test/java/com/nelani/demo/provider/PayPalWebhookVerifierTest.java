@@ -0,0 +1,148 @@
+package com.nelani.demo.provider;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayPalWebhookVerifierTest {
+
+    private static final String WEBHOOK_ID = "WH-123";
+    private static final String CERT_URL = "https://api.sandbox.paypal.com/v1/notifications/certs/CERT-1";
+    private static final String PAYLOAD = "{\"id\":\"WH-EVT-1\",\"event_type\":\"PAYMENT.CAPTURE.COMPLETED\"}";
+
+    private static PrivateKey privateKey;
+    private static X509Certificate certificate;
+
+    private final Instant now = Instant.now();
+    private final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    @BeforeAll
+    static void generateSigningKey(@TempDir Path dir) throws Exception {
+        // Self-signed stand-in for PayPal's signing certificate
+        Path keystore = dir.resolve("paypal.p12");
+        Process keytool = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "paypal", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=test", "-validity", "2", "-storetype", "PKCS12",
+                "-keystore", keystore.toString(), "-storepass", "changeit")
+                .redirectErrorStream(true)
+                .start();
+        keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+        Assertions.assertThat(keytool.waitFor()).isZero();
+
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, "changeit".toCharArray());
+        }
+        privateKey = (PrivateKey) store.getKey("paypal", "changeit".toCharArray());
+        certificate = (X509Certificate) store.getCertificate("paypal");
+    }
+
+    @Test
+    void verify_acceptsValidSignature_andCachesCertificate() throws Exception {
+        // Arrange
+        AtomicInteger downloads = new AtomicInteger();
+        PayPalWebhookVerifier verifier = new PayPalWebhookVerifier(WEBHOOK_ID, Duration.ofMinutes(5), uri -> {
+            downloads.incrementAndGet();
+            return certificate;
+        }, clock);
+        HttpHeaders headers = signedHeaders("tx-1", PAYLOAD);
+
+        // Act & Assert
+        assertThatCode(() -> verifier.verify(PAYLOAD, headers)).doesNotThrowAnyException();
+        assertThatCode(() -> verifier.verify(PAYLOAD, signedHeaders("tx-2", PAYLOAD)))
+                .doesNotThrowAnyException();
+        Assertions.assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    void verify_rejectsTamperedPayload() throws Exception {
+        // Arrange
+        PayPalWebhookVerifier verifier = verifier();
+        HttpHeaders headers = signedHeaders("tx-1", PAYLOAD);
+
+        // Act & Assert
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD.replace("COMPLETED", "DENIED"), headers))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid webhook signature");
+    }
+
+    @Test
+    void verify_rejectsCertificateOutsidePayPal() throws Exception {
+        // Arrange
+        PayPalWebhookVerifier verifier = verifier();
+        HttpHeaders headers = signedHeaders("tx-1", PAYLOAD);
+        headers.set(PayPalWebhookVerifier.CERT_URL, "https://attacker.example/cert.pem");
+
+        // Act & Assert
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, headers))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Untrusted webhook certificate URL");
+    }
+
+    @Test
+    void verify_rejectsStaleTransmission() throws Exception {
+        // Arrange: signed ten minutes before the verifier's clock
+        PayPalWebhookVerifier verifier = new PayPalWebhookVerifier(WEBHOOK_ID, Duration.ofMinutes(5),
+                uri -> certificate, Clock.offset(clock, Duration.ofMinutes(10)));
+        HttpHeaders headers = signedHeaders("tx-1", PAYLOAD);
+
+        // Act & Assert
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, headers))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too old");
+    }
+
+    @Test
+    void verify_rejectsMissingHeaders() {
+        // Act & Assert
+        assertThatThrownBy(() -> verifier().verify(PAYLOAD, new HttpHeaders()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Missing webhook header");
+    }
+
+    private PayPalWebhookVerifier verifier() {
+        return new PayPalWebhookVerifier(WEBHOOK_ID, Duration.ofMinutes(5), uri -> certificate, clock);
+    }
+
+    private HttpHeaders signedHeaders(String transmissionId, String payload) throws Exception {
+        String transmissionTime = now.toString();
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        String message = transmissionId + "|" + transmissionTime + "|" + WEBHOOK_ID + "|" + crc.getValue();
+
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(privateKey);
+        signer.update(message.getBytes(StandardCharsets.UTF_8));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(PayPalWebhookVerifier.TRANSMISSION_ID, transmissionId);
+        headers.set(PayPalWebhookVerifier.TRANSMISSION_TIME, transmissionTime);
+        headers.set(PayPalWebhookVerifier.TRANSMISSION_SIG, Base64.getEncoder().encodeToString(signer.sign()));
+        headers.set(PayPalWebhookVerifier.CERT_URL, CERT_URL);
+        headers.set(PayPalWebhookVerifier.AUTH_ALGO, "SHA256withRSA");
+        return headers;
+    }
+}
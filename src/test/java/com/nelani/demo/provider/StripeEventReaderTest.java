@@ -0,0 +1,46 @@
+package com.nelani.demo.provider;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeEventReaderTest {
+
+    @Test
+    void read_extractsEventAndIntentFields_skippingNestedLookalikes() {
+        // Nested "id", "type" and "status" fields must not be mistaken for the ones we read
+        String payload = """
+                {"id":"evt_1","object":"event",
+                 "data":{"object":{"id":"pi_1","object":"payment_intent",
+                   "charges":{"data":[{"id":"ch_1","status":"failed","metadata":{"paymentId":"wrong"}}]},
+                   "payment_method_options":{"card":{"type":"card"}},
+                   "metadata":{"orderId":"order1","paymentId":"2b7e9f0c-3c7d-4c1e-9a55-6d0f3c1b2a10"},
+                   "status":"succeeded"},
+                  "previous_attributes":{"status":"processing"}},
+                 "livemode":false,"type":"payment_intent.succeeded"}
+                """;
+
+        StripeEventReader.Summary summary = StripeEventReader.read(payload);
+
+        Assertions.assertThat(summary).isEqualTo(new StripeEventReader.Summary("evt_1",
+                "payment_intent.succeeded", "pi_1", "succeeded", "2b7e9f0c-3c7d-4c1e-9a55-6d0f3c1b2a10"));
+    }
+
+    @Test
+    void read_leavesMissingFieldsNull() {
+        StripeEventReader.Summary summary = StripeEventReader.read(
+                "{\"id\":\"evt_1\",\"type\":\"customer.created\",\"data\":{\"object\":{\"metadata\":null}}}");
+
+        Assertions.assertThat(summary.type()).isEqualTo("customer.created");
+        Assertions.assertThat(summary.intentId()).isNull();
+        Assertions.assertThat(summary.paymentId()).isNull();
+    }
+
+    @Test
+    void read_rejectsNonObjectPayloads() {
+        assertThatThrownBy(() -> StripeEventReader.read("[]")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StripeEventReader.read("{\"type\":")).isInstanceOf(
+                IllegalArgumentException.class);
+    }
+}
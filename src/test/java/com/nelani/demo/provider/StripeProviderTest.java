@@ -3,24 +3,40 @@ package com.nelani.demo.provider;
 import com.nelani.demo.dto.PaymentResponseDTO;
 import com.nelani.demo.dto.WebhookResult;
 import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.exception.ProviderQuotaExceededException;
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
 import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.quota.ProviderQuota;
 import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.tenant.TenantClientCache;
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
 import com.stripe.exception.*;
 import com.stripe.model.Customer;
 import com.stripe.model.PaymentIntent;
 import com.stripe.net.RequestOptions;
+import com.stripe.param.CustomerCreateParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.service.CustomerService;
+import com.stripe.service.PaymentIntentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,12 +49,19 @@ class StripeProviderTest {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    private final StripeClient stripeClient = mock(StripeClient.class);
+    private final CustomerService customers = mock(CustomerService.class);
+    private final PaymentIntentService paymentIntents = mock(PaymentIntentService.class);
+    private final ProviderQuota quota = mock(ProviderQuota.class);
+
     private PaymentProvider stripeProvider;
     private Payment testPayment;
 
     @BeforeEach
     void setup() {
-        stripeProvider = new StripeProvider();
+        when(stripeClient.customers()).thenReturn(customers);
+        when(stripeClient.paymentIntents()).thenReturn(paymentIntents);
+        stripeProvider = provider();
 
         testPayment = new Payment(
                 "order1",
@@ -53,82 +76,118 @@ class StripeProviderTest {
 
     @Test
     void PaymentServiceTest_InitializePayment_ReturnsSuccess() throws Exception {
-        try (MockedStatic<Customer> mockedCustomer = mockStatic(Customer.class);
-
-                MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
-
-            Customer mockCustomer = mock(Customer.class);
-            when(mockCustomer.getId()).thenReturn("cus_12345");
-            mockedCustomer.when(() -> Customer.create(anyMap())).thenReturn(mockCustomer);
+        Customer mockCustomer = mock(Customer.class);
+        when(mockCustomer.getId()).thenReturn("cus_12345");
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class))).thenReturn(mockCustomer);
+
+        PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
+        when(mockPaymentIntent.getId()).thenReturn("pi_12345");
+        when(mockPaymentIntent.getClientSecret()).thenReturn("secret_12345");
+        when(paymentIntents.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                .thenReturn(mockPaymentIntent);
+
+        PaymentResponseDTO response = stripeProvider.createPayment(testPayment);
+
+        assertNotNull(response, "PaymentResponseDTO should not be null");
+        assertEquals(testPayment.getOrderId(), response.orderId(), "OrderId should match");
+        assertEquals("pi_12345", response.clientId(), "PaymentIntent ID should match");
+        assertEquals("secret_12345", response.clientSecret(), "Client secret should match");
+        assertEquals(testPayment.getAmount(), response.amount(), "Amount should match");
+        assertEquals(PaymentProviderType.STRIPE, response.provider(), "Provider should match");
+    }
 
-            PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
-            when(mockPaymentIntent.getId()).thenReturn("pi_12345");
-            when(mockPaymentIntent.getClientSecret()).thenReturn("secret_12345");
-            mockedIntent.when(() -> PaymentIntent.create(anyMap(), any(RequestOptions.class)))
-                    .thenReturn(mockPaymentIntent);
+    @Test
+    void PaymentServiceTest_CreatePayment_SendsTenantKeyAndIdempotencyKey() throws Exception {
+        Payment acmePayment = paymentRepository.save(new Payment("acme", "order2",
+                testPayment.getMoney(), PaymentStatus.PENDING, PaymentProviderType.STRIPE));
+        Customer mockCustomer = mock(Customer.class);
+        when(mockCustomer.getId()).thenReturn("cus_12345");
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class))).thenReturn(mockCustomer);
+        when(paymentIntents.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                .thenReturn(mock(PaymentIntent.class));
+
+        stripeProvider.createPayment(acmePayment);
+
+        ArgumentCaptor<RequestOptions> options = ArgumentCaptor.forClass(RequestOptions.class);
+        verify(paymentIntents).create(any(PaymentIntentCreateParams.class), options.capture());
+        assertEquals("sk_test_acme", options.getValue().getApiKey());
+        assertEquals("payment-" + acmePayment.getId(), options.getValue().getIdempotencyKey());
+    }
 
-            PaymentResponseDTO response = stripeProvider.createPayment(testPayment);
+    @Test
+    void PaymentServiceTest_CreatePayment_UnknownTenant_ThrowsIllegalArgumentException() {
+        Payment payment = new Payment("unknown", "order3", testPayment.getMoney(), PaymentStatus.PENDING,
+                PaymentProviderType.STRIPE);
 
-            assertNotNull(response, "PaymentResponseDTO should not be null");
-            assertEquals(testPayment.getOrderId(), response.getOrderId(), "OrderId should match");
-            assertEquals("pi_12345", response.getClientId(), "PaymentIntent ID should match");
-            assertEquals("secret_12345", response.getClientSecret(), "Client secret should match");
-            assertEquals(testPayment.getAmount(), response.getAmount(), "Amount should match");
-            assertEquals(PaymentProviderType.STRIPE, response.getProvider(), "Provider should match");
-        }
+        assertThrows(IllegalArgumentException.class, () -> stripeProvider.createPayment(payment));
+        verifyNoInteractions(customers, paymentIntents);
     }
 
     @Test
     void PaymentServiceTest_CreatePayment_InvalidRequest_ThrowsIllegalArgumentException() throws Exception {
-        try (MockedStatic<Customer> mockedCustomer = mockStatic(Customer.class);
-                MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
-
-            Customer mockCustomer = mock(Customer.class);
-            when(mockCustomer.getId()).thenReturn("cus_12345");
-            mockedCustomer.when(() -> Customer.create(anyMap())).thenReturn(mockCustomer);
+        Customer mockCustomer = mock(Customer.class);
+        when(mockCustomer.getId()).thenReturn("cus_12345");
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class))).thenReturn(mockCustomer);
 
-            mockedIntent.when(() -> PaymentIntent.create(anyMap(), any(RequestOptions.class)))
-                    .thenThrow(new InvalidRequestException("Invalid request", null, null, null, null, null));
+        when(paymentIntents.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new InvalidRequestException("Invalid request", null, null, null, null, null));
 
-            assertThrows(IllegalArgumentException.class,
-                    () -> stripeProvider.createPayment(testPayment));
-        }
+        assertThrows(IllegalArgumentException.class,
+                () -> stripeProvider.createPayment(testPayment));
     }
 
     @Test
     void PaymentServiceTest_CreatePayment_AuthenticationFailure_ThrowsIllegalStateException() throws Exception {
-        try (MockedStatic<Customer> mockedCustomer = mockStatic(Customer.class)) {
-            mockedCustomer.when(() -> Customer.create(anyMap()))
-                    .thenThrow(new AuthenticationException(
-                            "Invalid API Key",
-                            null,
-                            null,
-                            401));
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new AuthenticationException(
+                        "Invalid API Key",
+                        null,
+                        null,
+                        401));
 
-            assertThrows(IllegalStateException.class,
-                    () -> stripeProvider.createPayment(testPayment));
-        }
+        assertThrows(IllegalStateException.class,
+                () -> stripeProvider.createPayment(testPayment));
     }
 
     @Test
     void PaymentServiceTest_CreatePayment_TransientStripeFailure_ThrowsTemporaryException() throws Exception {
-        try (MockedStatic<Customer> mockedCustomer = mockStatic(Customer.class);
-                MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
+        Customer mockCustomer = mock(Customer.class);
+        when(mockCustomer.getId()).thenReturn("cus_12345");
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class))).thenReturn(mockCustomer);
 
-            Customer mockCustomer = mock(Customer.class);
-            when(mockCustomer.getId()).thenReturn("cus_12345");
-            mockedCustomer.when(() -> Customer.create(anyMap())).thenReturn(mockCustomer);
+        when(paymentIntents.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new ApiException("Server timeout", null, null, 500, null));
 
-            mockedIntent.when(() -> PaymentIntent.create(anyMap(), any(RequestOptions.class)))
-                    .thenThrow(new ApiException("Server timeout", null, null, 500, null));
+        assertThrows(PaymentProviderTemporaryException.class,
+                () -> stripeProvider.createPayment(testPayment));
+    }
+
+    @Test
+    void PaymentServiceTest_CreatePayment_RateLimited_SlowsQuotaAndThrowsQuotaExceeded() throws Exception {
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new RateLimitException("Too many requests", null, "rate_limit", null, 429, null));
 
-            assertThrows(PaymentProviderTemporaryException.class,
-                    () -> stripeProvider.createPayment(testPayment));
-        }
+        assertThrows(ProviderQuotaExceededException.class,
+                () -> stripeProvider.createPayment(testPayment));
+        verify(quota).acquire(PaymentProviderType.STRIPE, "default", 2);
+        verify(quota).rateLimited(PaymentProviderType.STRIPE, "default", null);
+    }
+
+    @Test
+    void PaymentServiceTest_CreatePayment_QuotaExhausted_CallsNothing() {
+        doThrow(new ProviderQuotaExceededException("Too many requests", Duration.ofSeconds(1)))
+                .when(quota).acquire(PaymentProviderType.STRIPE, "default", 2);
+
+        assertThrows(ProviderQuotaExceededException.class,
+                () -> stripeProvider.createPayment(testPayment));
+        verifyNoInteractions(customers, paymentIntents);
     }
 
     @Test
-    void PaymentServiceTest_CreatePayment_InvalidAmount_ThrowsIllegalStateException() {
+    void PaymentServiceTest_CreatePayment_InvalidAmount_ThrowsIllegalStateException() throws Exception {
+        // The account has no valid key, so Stripe rejects the call before looking at the amount
+        when(customers.create(any(CustomerCreateParams.class), any(RequestOptions.class)))
+                .thenThrow(new AuthenticationException("Invalid API Key", null, null, 401));
         testPayment = new Payment(
                 "order1",
                 BigDecimal.ZERO,
@@ -141,52 +200,46 @@ class StripeProviderTest {
 
     @Test
     void PaymentServiceTest_ResumePayment_Success() throws Exception {
-        try (MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
-            PaymentIntent mockIntent = mock(PaymentIntent.class);
+        PaymentIntent mockIntent = mock(PaymentIntent.class);
 
-            when(mockIntent.getId()).thenReturn("pi_12345");
-            when(mockIntent.getClientSecret()).thenReturn("secret_12345");
-            when(mockIntent.getStatus()).thenReturn("requires_payment_method");
+        when(mockIntent.getId()).thenReturn("pi_12345");
+        when(mockIntent.getClientSecret()).thenReturn("secret_12345");
+        when(mockIntent.getStatus()).thenReturn("requires_payment_method");
 
-            // Make sure the exact string matches
-            mockedIntent.when(() -> PaymentIntent.retrieve("pi_test")).thenReturn(mockIntent);
+        // Make sure the exact string matches
+        when(paymentIntents.retrieve(eq("pi_test"), any(RequestOptions.class))).thenReturn(mockIntent);
 
-            PaymentResponseDTO response = stripeProvider.resumePayment(testPayment);
+        PaymentResponseDTO response = stripeProvider.resumePayment(testPayment);
 
-            assertNotNull(response);
-            assertEquals("pi_12345", response.getClientId());
-        }
+        assertNotNull(response);
+        assertEquals("pi_12345", response.clientId());
     }
 
     @Test
     void PaymentServiceTest_ResumePayment_AlreadySucceeded_ThrowsIllegalStateException() throws Exception {
-        try (MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
-            PaymentIntent mockIntent = mock(PaymentIntent.class);
-            when(mockIntent.getStatus()).thenReturn("succeeded");
-            mockedIntent.when(() -> PaymentIntent.retrieve(anyString())).thenReturn(mockIntent);
+        PaymentIntent mockIntent = mock(PaymentIntent.class);
+        when(mockIntent.getStatus()).thenReturn("succeeded");
+        when(paymentIntents.retrieve(anyString(), any(RequestOptions.class))).thenReturn(mockIntent);
 
-            assertThrows(IllegalStateException.class,
-                    () -> stripeProvider.resumePayment(testPayment));
-        }
+        assertThrows(IllegalStateException.class,
+                () -> stripeProvider.resumePayment(testPayment));
     }
 
     @Test
     void PaymentServiceTest_ResumePayment_TransientStripeFailure_ThrowsTemporaryException() throws Exception {
-        try (MockedStatic<PaymentIntent> mockedIntent = mockStatic(PaymentIntent.class)) {
-            mockedIntent.when(() -> PaymentIntent.retrieve(anyString()))
-                    .thenThrow(new ApiException("Server timeout", null, null, 500, null));
+        when(paymentIntents.retrieve(anyString(), any(RequestOptions.class)))
+                .thenThrow(new ApiException("Server timeout", null, null, 500, null));
 
-            assertThrows(PaymentProviderTemporaryException.class,
-                    () -> stripeProvider.resumePayment(testPayment));
-        }
+        assertThrows(PaymentProviderTemporaryException.class,
+                () -> stripeProvider.resumePayment(testPayment));
     }
 
     @Test
     void PaymentServiceTest_HandleWebhook_SuccessEvent() {
-        StripeProvider provider = new StripeProvider() {
+        StripeProvider provider = new StripeProvider(clients(), quota) {
 
             @Override
-            public WebhookResult handleWebhook(String payload, String signature) {
+            public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
                 return new WebhookResult(
                         testPayment.getId(),
                         true,
@@ -194,7 +247,7 @@ class StripeProviderTest {
             }
         };
 
-        WebhookResult result = provider.handleWebhook("payload", "signature");
+        WebhookResult result = provider.handleWebhook("default", "payload", signed("signature"));
 
         assertTrue(result.success());
         assertTrue(result.relevant());
@@ -204,15 +257,129 @@ class StripeProviderTest {
     @Test
     void PaymentServiceTest_HandleWebhook_InvalidSignature_ThrowsIllegalArgumentException()
             throws SignatureVerificationException {
-        StripeProvider provider = new StripeProvider() {
+        StripeProvider provider = new StripeProvider(clients(), quota) {
             @Override
-            public WebhookResult handleWebhook(String payload, String signature) {
+            public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
                 throw new IllegalArgumentException("Invalid webhook signature");
             }
         };
 
         assertThrows(IllegalArgumentException.class,
-                () -> provider.handleWebhook("payload", "wrong-signature"));
+                () -> provider.handleWebhook("default", "payload", signed("wrong-signature")));
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_SignedSucceededEvent_ReturnsPaymentId() throws Exception {
+        StripeProvider provider = provider();
+        String payload = """
+                {"id":"evt_123","object":"event","api_version":"%s","type":"payment_intent.succeeded",
+                 "data":{"object":{"id":"pi_123","object":"payment_intent","status":"succeeded",
+                 "metadata":{"paymentId":"%s"}}}}
+                """.formatted(Stripe.API_VERSION, testPayment.getId());
+
+        WebhookResult result = provider.handleWebhook("default", payload,
+                signed(StripeWebhookVerifierTest.header("whsec_test_default", Instant.now().getEpochSecond(), payload)));
+
+        assertTrue(result.relevant());
+        assertTrue(result.success());
+        assertEquals(testPayment.getId(), result.paymentId());
+        assertEquals("evt_123", result.eventId());
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_SignedIgnoredEvent_IsNotRelevant() throws Exception {
+        StripeProvider provider = provider();
+        String payload = "{\"id\":\"evt_124\",\"data\":{\"object\":{}},\"type\":\"customer.created\"}";
+
+        WebhookResult result = provider.handleWebhook("default", payload,
+                signed(StripeWebhookVerifierTest.header("whsec_test_default", Instant.now().getEpochSecond(), payload)));
+
+        assertFalse(result.relevant());
+        assertNull(result.paymentId());
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_WrongSecret_ThrowsIllegalArgumentException() throws Exception {
+        StripeProvider provider = provider();
+        String payload = "{\"id\":\"evt_125\",\"type\":\"payment_intent.succeeded\"}";
+        String signature = StripeWebhookVerifierTest.header("whsec_other", Instant.now().getEpochSecond(), payload);
+
+        assertThrows(IllegalArgumentException.class, () -> provider.handleWebhook("default", payload, signed(signature)));
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_MissingSignatureHeader_ThrowsIllegalArgumentException() {
+        StripeProvider provider = provider();
+        String payload = "{\"id\":\"evt_129\",\"type\":\"payment_intent.succeeded\"}";
+
+        assertThrows(IllegalArgumentException.class,
+                () -> provider.handleWebhook("default", payload, new HttpHeaders()));
     }
 
+    @Test
+    void PaymentServiceTest_HandleWebhook_OtherTenantsSecret_ThrowsIllegalArgumentException() throws Exception {
+        StripeProvider provider = provider();
+        String payload = "{\"id\":\"evt_128\",\"type\":\"payment_intent.succeeded\"}";
+        String signature = StripeWebhookVerifierTest.header("whsec_test_acme", Instant.now().getEpochSecond(),
+                payload);
+
+        assertThrows(IllegalArgumentException.class, () -> provider.handleWebhook("default", payload, signed(signature)));
+        assertFalse(provider.handleWebhook("acme", payload, signed(signature)).relevant());
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_FullModelFallback_ReturnsSameResult() throws Exception {
+        StripeProvider provider = provider();
+        ReflectionTestUtils.setField(provider, "fullWebhookModel", true);
+        String payload = """
+                {"id":"evt_126","object":"event","api_version":"%s","type":"payment_intent.payment_failed",
+                 "data":{"object":{"id":"pi_126","object":"payment_intent","status":"requires_payment_method",
+                 "metadata":{"paymentId":"%s"}}}}
+                """.formatted(Stripe.API_VERSION, testPayment.getId());
+
+        WebhookResult result = provider.handleWebhook("default", payload,
+                signed(StripeWebhookVerifierTest.header("whsec_test_default", Instant.now().getEpochSecond(), payload)));
+
+        assertTrue(result.relevant());
+        assertFalse(result.success());
+        assertEquals(testPayment.getId(), result.paymentId());
+        assertEquals("evt_126", result.eventId());
+    }
+
+    @Test
+    void PaymentServiceTest_HandleWebhook_MissingPaymentIdMetadata_IsNotRelevant() throws Exception {
+        StripeProvider provider = provider();
+        String payload = """
+                {"id":"evt_127","type":"payment_intent.succeeded",
+                 "data":{"object":{"id":"pi_127","status":"succeeded","metadata":{}}}}
+                """;
+
+        WebhookResult result = provider.handleWebhook("default", payload,
+                signed(StripeWebhookVerifierTest.header("whsec_test_default", Instant.now().getEpochSecond(), payload)));
+
+        assertFalse(result.relevant());
+    }
+
+    private static HttpHeaders signed(String signature) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(StripeProvider.SIGNATURE_HEADER, signature);
+        return headers;
+    }
+
+    private StripeProvider provider() {
+        return new StripeProvider(clients(), quota);
+    }
+
+    // Tenants "default" and "acme" share the mocked API client but have their own keys and webhook secrets
+    private TenantClientCache<StripeTenantClient> clients() {
+        return new TenantClientCache<>("STRIPE", tenantId -> {
+            if (!List.of("default", "acme").contains(tenantId)) {
+                throw new IllegalArgumentException("Unknown merchant account: " + tenantId);
+            }
+            StripeWebhookVerifier verifier = new StripeWebhookVerifier(List.of("whsec_test_" + tenantId),
+                    Duration.ofMinutes(5), Clock.systemUTC());
+            return new StripeTenantClient(stripeClient, "sk_test_" + tenantId, verifier, () -> {
+            });
+        }, 4, Duration.ofMinutes(30), Clock.systemUTC(), new SimpleMeterRegistry());
+    }
 }
@@ -0,0 +1,100 @@
+package com.nelani.demo.provider;
+
+import com.nelani.demo.tenant.TenantProperties;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.Customer;
+import com.stripe.param.CustomerCreateParams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeTenantClientTest {
+
+    private final TenantProperties limits = new TenantProperties(4, Duration.ofMinutes(30), 2,
+            Duration.ofSeconds(2), Duration.ofSeconds(5), Map.of());
+
+    private final List<Map<String, List<String>>> requests = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private String apiBase;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/customers", exchange -> {
+            requests.add(Map.copyOf(exchange.getRequestHeaders()));
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] response = "{\"id\":\"cus_1\",\"object\":\"customer\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        apiBase = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void create_sendsEachTenantsKeyOnItsOwnTransport() throws Exception {
+        // Arrange
+        try (StripeTenantClient acme = client("sk_test_acme"); StripeTenantClient globex = client("sk_test_globex")) {
+            CustomerCreateParams params = CustomerCreateParams.builder().setName("John Doe").build();
+
+            // Act
+            Customer customer = acme.api().customers().create(params, acme.options().build());
+            globex.api().customers().create(params, globex.options().build());
+
+            // Assert
+            assertThat(customer.getId()).isEqualTo("cus_1");
+            assertThat(requests).extracting(headers -> headers.get("Authorization"))
+                    .containsExactly(List.of("Bearer sk_test_acme"), List.of("Bearer sk_test_globex"));
+            assertThat(requests.get(0).get("Content-type")).hasSize(1);
+            assertThat(bodies.get(0)).isEqualTo("name=John+Doe");
+        }
+    }
+
+    @Test
+    void close_rejectsFurtherCalls() throws Exception {
+        // Arrange
+        StripeTenantClient client = client("sk_test_acme");
+        CustomerCreateParams params = CustomerCreateParams.builder().setName("John Doe").build();
+
+        // Act
+        client.close();
+
+        // Assert
+        assertThatThrownBy(() -> client.api().customers().create(params, client.options().build()))
+                .isInstanceOf(ApiConnectionException.class);
+    }
+
+    @Test
+    void webhookVerifier_throwsWhenNoSecretConfigured() throws Exception {
+        try (StripeTenantClient client = client("sk_test_acme")) {
+            assertThatThrownBy(client::webhookVerifier).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private StripeTenantClient client(String secretKey) {
+        return StripeTenantClient.create(new TenantProperties.Stripe(secretKey, List.of()), limits,
+                Duration.ofMinutes(5), apiBase);
+    }
+}
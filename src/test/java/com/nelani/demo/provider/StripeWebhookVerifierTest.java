@@ -0,0 +1,114 @@
+package com.nelani.demo.provider;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeWebhookVerifierTest {
+
+    private static final String PAYLOAD = "{\"id\":\"evt_1\",\"type\":\"payment_intent.succeeded\"}";
+
+    private final Instant now = Instant.ofEpochSecond(1_700_000_000L);
+    private final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    @Test
+    void verify_acceptsSignatureFromAnyActiveSecret() throws Exception {
+        // Arrange: the old secret is still active while the endpoint secret is rolled
+        StripeWebhookVerifier verifier = new StripeWebhookVerifier(List.of("whsec_new", " whsec_old"),
+                Duration.ofMinutes(5), clock);
+
+        // Act & Assert
+        assertThatCode(() -> verifier.verify(PAYLOAD, header("whsec_new", now.getEpochSecond(), PAYLOAD)))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> verifier.verify(PAYLOAD, header("whsec_old", now.getEpochSecond(), PAYLOAD)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void verify_acceptsHeaderWithSeveralSignatures() throws Exception {
+        // Arrange: Stripe sends one v1 entry per active secret on its side
+        StripeWebhookVerifier verifier = verifier();
+        String header = header("whsec_other", now.getEpochSecond(), PAYLOAD) + ",v1="
+                + sign("whsec_test", now.getEpochSecond(), PAYLOAD) + ",v0=ignored";
+
+        // Act & Assert
+        assertThatCode(() -> verifier.verify(PAYLOAD, header)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void verify_rejectsTamperedPayload() throws Exception {
+        // Arrange
+        String header = header("whsec_test", now.getEpochSecond(), PAYLOAD);
+
+        // Act & Assert
+        assertThatThrownBy(() -> verifier().verify(PAYLOAD.replace("succeeded", "canceled"), header))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid webhook signature");
+    }
+
+    @Test
+    void verify_rejectsTimestampOutsideTolerance() throws Exception {
+        // Arrange
+        long signedAt = now.minus(Duration.ofMinutes(6)).getEpochSecond();
+        String header = header("whsec_test", signedAt, PAYLOAD);
+
+        // Act & Assert
+        assertThatThrownBy(() -> verifier().verify(PAYLOAD, header))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tolerance");
+    }
+
+    @Test
+    void verify_rejectsMalformedHeaders() {
+        StripeWebhookVerifier verifier = verifier();
+
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, "garbage")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, "t=abc,v1=00"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> verifier.verify(PAYLOAD, "t=" + now.getEpochSecond() + ",v1=not-hex"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void signatureHeader_producesHeaderStripeWouldSend() throws Exception {
+        // Act
+        String header = StripeWebhookVerifier.signatureHeader("whsec_test", PAYLOAD, now.getEpochSecond());
+
+        // Assert
+        assertThat(header).isEqualTo(header("whsec_test", now.getEpochSecond(), PAYLOAD));
+        assertThatCode(() -> verifier().verify(PAYLOAD, header)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void constructor_requiresASecret() {
+        assertThatThrownBy(() -> new StripeWebhookVerifier(List.of(" "), Duration.ofMinutes(5), clock))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private StripeWebhookVerifier verifier() {
+        return new StripeWebhookVerifier(List.of("whsec_test"), Duration.ofMinutes(5), clock);
+    }
+
+    static String header(String secret, long timestamp, String payload) throws Exception {
+        return "t=" + timestamp + ",v1=" + sign(secret, timestamp, payload);
+    }
+
+    static String sign(String secret, long timestamp, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,242 @@
+package com.nelani.demo.quota;
+
+import com.nelani.demo.config.QuotaConfig;
+import com.nelani.demo.exception.ProviderQuotaExceededException;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.ProviderQuotaBucket;
+import com.nelani.demo.repository.ProviderQuotaBucketRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Each DatabaseProviderQuota instance stands for one application node; they only share the database
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class DatabaseProviderQuotaTest {
+
+        private static final double RATE = 20;
+        private static final int BURST = 10;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private ProviderQuotaBucketRepository repository;
+
+        private SimpleMeterRegistry meterRegistry;
+
+        @BeforeEach
+        void setUp() {
+                repository = new ProviderQuotaBucketRepository(jdbcTemplate);
+                jdbcTemplate.update("DELETE FROM provider_quota");
+                meterRegistry = new SimpleMeterRegistry();
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Acquire_HoldsClusterToConfiguredRate() throws Exception {
+                // Arrange: three nodes with four callers each, far more than the quota allows
+                List<DatabaseProviderQuota> nodes = List.of(node(Duration.ofMillis(50)), node(Duration.ofMillis(50)),
+                                node(Duration.ofMillis(50)));
+                AtomicInteger granted = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                Duration run = Duration.ofMillis(1500);
+
+                // Act
+                ExecutorService callers = Executors.newFixedThreadPool(12);
+                long start = System.nanoTime();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 12; i++) {
+                        DatabaseProviderQuota node = nodes.get(i % nodes.size());
+                        futures.add(callers.submit(() -> {
+                                while (System.nanoTime() - start < run.toNanos()) {
+                                        try {
+                                                node.acquire(PaymentProviderType.STRIPE, "acme", 1);
+                                                granted.incrementAndGet();
+                                        } catch (ProviderQuotaExceededException e) {
+                                                rejected.incrementAndGet();
+                                        }
+                                }
+                        }));
+                }
+                for (Future<?> future : futures) {
+                        future.get(30, TimeUnit.SECONDS);
+                }
+                double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+                callers.shutdown();
+
+                // Assert: never more than the burst plus what accrued, and the quota is actually used
+                Assertions.assertThat(granted.get()).isLessThanOrEqualTo((int) (BURST + RATE * elapsedSeconds) + 1);
+                Assertions.assertThat(granted.get()).isGreaterThanOrEqualTo((int) (RATE * run.toMillis() / 1000 / 2));
+                Assertions.assertThat(rejected.get()).isPositive();
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Acquire_TakesPermitsInBatches() {
+                // Arrange
+                DatabaseProviderQuota node = node(Duration.ofSeconds(1));
+
+                // Act: the burst of ten in two database round trips of five
+                for (int i = 0; i < BURST; i++) {
+                        node.acquire(PaymentProviderType.STRIPE, "acme", 1);
+                }
+
+                // Assert
+                Assertions.assertThat(meterRegistry.counter("payments.quota.grants", "provider", "STRIPE").count())
+                                .isEqualTo(2);
+                Assertions.assertThat(bucket("acme").getTokens()).isLessThan(1);
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_RateLimited_SlowsDownEveryNode() {
+                // Arrange
+                DatabaseProviderQuota reporting = node(Duration.ZERO);
+                DatabaseProviderQuota other = node(Duration.ZERO);
+                other.acquire(PaymentProviderType.STRIPE, "acme", 1);
+
+                // Act: a 429 on one node, and the same burst's 429 on another
+                reporting.rateLimited(PaymentProviderType.STRIPE, "acme", Duration.ofSeconds(30));
+                other.rateLimited(PaymentProviderType.STRIPE, "acme", Duration.ofSeconds(30));
+
+                // Assert: the other node's permits are gone too, and the rate is halved only once
+                Assertions.assertThatThrownBy(() -> other.acquire(PaymentProviderType.STRIPE, "acme", 1))
+                                .isInstanceOfSatisfying(ProviderQuotaExceededException.class,
+                                                e -> Assertions.assertThat(e.getRetryAfter())
+                                                                .isGreaterThan(Duration.ofSeconds(25)));
+                Assertions.assertThat(bucket("acme").getRatePerSecond()).isEqualTo(RATE / 2);
+                Assertions.assertThat(meterRegistry.counter("payments.quota.throttled", "provider", "STRIPE").count())
+                                .isEqualTo(2);
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Acquire_KeepsAccountsAndUnlimitedProvidersApart() {
+                // Arrange
+                DatabaseProviderQuota node = node(Duration.ZERO);
+                node.rateLimited(PaymentProviderType.STRIPE, "acme", Duration.ofSeconds(30));
+
+                // Act & Assert: another account and a provider without a limit are unaffected
+                node.acquire(PaymentProviderType.STRIPE, "globex", 1);
+                for (int i = 0; i < 100; i++) {
+                        node.acquire(PaymentProviderType.PAYPAL, "acme", 1);
+                }
+                Assertions.assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM provider_quota", Long.class))
+                                .isEqualTo(2);
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Acquire_TakesPermitsWhilePaymentPoolIsSaturated() throws Exception {
+                // Arrange: a payments pool whose only connection is held by the calling transaction
+                DataSourceProperties dataSourceProperties = dataSourceProperties();
+                DatabaseProviderQuota quota = quotaWithOwnPool(dataSourceProperties);
+                HikariDataSource payments = dataSourceProperties.initializeDataSourceBuilder()
+                                .type(HikariDataSource.class).build();
+                payments.setMaximumPoolSize(1);
+                payments.setConnectionTimeout(250);
+
+                // Act
+                try (quota; payments) {
+                        new TransactionTemplate(new DataSourceTransactionManager(payments)).executeWithoutResult(
+                                        status -> quota.acquire(PaymentProviderType.STRIPE, "acme", 1));
+                }
+
+                // Assert: the permit came from the bucket, not from failing open
+                Assertions.assertThat(meterRegistry.counter("payments.quota.grants", "provider", "STRIPE").count())
+                                .isEqualTo(1);
+                Assertions.assertThat(meterRegistry.counter("payments.quota.errors", "provider", "STRIPE").count())
+                                .isZero();
+                Assertions.assertThat(bucket("acme").getTokens()).isCloseTo(BURST - 5, Assertions.within(0.5));
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Close_ClosesItsPool() throws Exception {
+                // Arrange
+                DatabaseProviderQuota quota = quotaWithOwnPool(dataSourceProperties());
+
+                // Act
+                quota.close();
+                quota.acquire(PaymentProviderType.STRIPE, "acme", 1);
+
+                // Assert: no connection left to take permits with
+                Assertions.assertThat(meterRegistry.counter("payments.quota.errors", "provider", "STRIPE").count())
+                                .isEqualTo(1);
+        }
+
+        @Test
+        public void DatabaseProviderQuotaTest_Properties_BindLimitsByProviderName() {
+                // Arrange
+                MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.of(
+                                "payments.quota.providers.stripe.rate-per-second", "25",
+                                "payments.quota.providers.stripe.burst", "30"));
+
+                // Act
+                ProviderQuotaProperties properties = new Binder(source)
+                                .bind("payments.quota", ProviderQuotaProperties.class).get();
+
+                // Assert
+                Assertions.assertThat(properties.enabled()).isTrue();
+                Assertions.assertThat(properties.grantSize()).isEqualTo(5);
+                Assertions.assertThat(properties.providers())
+                                .containsExactly(Map.entry(PaymentProviderType.STRIPE,
+                                                new ProviderQuotaProperties.Limit(25, 30, 1)));
+        }
+
+        private DatabaseProviderQuota node(Duration maxWait) {
+                return new DatabaseProviderQuota(repository,
+                                new DataSourceTransactionManager(jdbcTemplate.getDataSource()), properties(maxWait),
+                                Clock.systemUTC(), meterRegistry, () -> {
+                                });
+        }
+
+        private DatabaseProviderQuota quotaWithOwnPool(DataSourceProperties dataSourceProperties) {
+                return (DatabaseProviderQuota) new QuotaConfig().providerQuota(properties(Duration.ofSeconds(1)),
+                                dataSourceProperties, meterRegistry);
+        }
+
+        // The test database, as spring.datasource would name it
+        private DataSourceProperties dataSourceProperties() {
+                String url = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData()
+                                .getURL());
+                DataSourceProperties dataSourceProperties = new DataSourceProperties();
+                dataSourceProperties.setUrl(url);
+                dataSourceProperties.setUsername("sa");
+                dataSourceProperties.setPassword("");
+                return dataSourceProperties;
+        }
+
+        private ProviderQuotaProperties properties(Duration maxWait) {
+                return new ProviderQuotaProperties(true, 5, Duration.ofSeconds(1), maxWait, Duration.ofMinutes(1),
+                                Duration.ofSeconds(1), 2,
+                                Map.of(PaymentProviderType.STRIPE, new ProviderQuotaProperties.Limit(RATE, BURST, 1)));
+        }
+
+        private ProviderQuotaBucket bucket(String tenantId) {
+                return repository.findForUpdate(PaymentProviderType.STRIPE, tenantId).orElseThrow();
+        }
+}
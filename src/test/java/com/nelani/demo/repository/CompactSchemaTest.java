@@ -0,0 +1,209 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.config.CompactSchemaConfig;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
+import com.nelani.demo.model.RollupGranularity;
+import com.nelani.demo.model.converter.EpochMicrosConverter;
+import com.nelani.demo.service.impl.PaymentArchiveServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The application's repositories and native SQL on the compact schema
+ * (schema-compact profile).
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles({ "test", "schema-compact" })
+@Import(CompactSchemaConfig.class)
+public class CompactSchemaTest {
+
+        private static final OffsetDateTime OLD = OffsetDateTime.now().minusDays(60).truncatedTo(ChronoUnit.HOURS);
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                jdbcTemplate.update("DELETE FROM payments_archive");
+                jdbcTemplate.update("DELETE FROM payments");
+        }
+
+        @Test
+        public void CompactSchemaTest_Migration_StoresCodesAndEpochMicros() {
+                // Act
+                Map<String, String> types = Map.of(
+                                "STATUS", columnType("PAYMENTS", "STATUS"),
+                                "PROVIDER", columnType("PAYMENTS", "PROVIDER"),
+                                "CREATED_AT", columnType("PAYMENTS", "CREATED_AT"),
+                                "ARCHIVED_AT", columnType("PAYMENTS_ARCHIVE", "ARCHIVED_AT"));
+
+                // Assert
+                Assertions.assertThat(types).containsEntry("STATUS", "SMALLINT")
+                                .containsEntry("PROVIDER", "SMALLINT")
+                                .containsEntry("CREATED_AT", "BIGINT")
+                                .containsEntry("ARCHIVED_AT", "BIGINT");
+        }
+
+        @Test
+        public void CompactSchemaTest_Save_RoundTripsThroughConverters() {
+                // Arrange
+                Payment saved = transactionTemplate.execute(status -> paymentRepository.save(
+                                new Payment("order-1", new BigDecimal("99.90"), PaymentStatus.INITIATING,
+                                                PaymentProviderType.STRIPE)));
+
+                // Act
+                Map<String, Object> row = jdbcTemplate.queryForMap(
+                                "SELECT status, provider, created_at FROM payments WHERE order_id = 'order-1'");
+                Payment loaded = paymentRepository.findByOrderId("order-1").orElseThrow();
+                List<PaymentSummary> found = paymentRepository.search(new PaymentSearchCriteria(
+                                PaymentStatus.INITIATING, PaymentProviderType.STRIPE, saved.getCreatedAt().minusMinutes(1),
+                                saved.getCreatedAt().plusMinutes(1), null, null, null, null),
+                                PageRequest.of(0, 10, Sort.by("status"))).getContent();
+
+                // Assert
+                Assertions.assertThat(((Number) row.get("STATUS")).shortValue()).isEqualTo(PaymentStatus.INITIATING.code());
+                Assertions.assertThat(((Number) row.get("PROVIDER")).shortValue()).isEqualTo(PaymentProviderType.STRIPE.code());
+                Assertions.assertThat(((Number) row.get("CREATED_AT")).longValue())
+                                .isEqualTo(EpochMicrosConverter.toEpochMicros(saved.getCreatedAt().toInstant()
+                                                .truncatedTo(ChronoUnit.MICROS)));
+                Assertions.assertThat(loaded.getStatus()).isEqualTo(PaymentStatus.INITIATING);
+                Assertions.assertThat(loaded.getCreatedAt().toInstant())
+                                .isEqualTo(saved.getCreatedAt().toInstant().truncatedTo(ChronoUnit.MICROS));
+                Assertions.assertThat(found).extracting(PaymentSummary::orderId).containsExactly("order-1");
+        }
+
+        @Test
+        public void CompactSchemaTest_ArchiveAndAggregates_DecodeColumns() {
+                // Arrange
+                insert("old-success", OLD, PaymentStatus.SUCCESS, "30.00");
+                insert("old-failed", OLD.plusMinutes(1), PaymentStatus.FAILED, "10.00");
+                insert("old-pending", OLD.plusMinutes(2), PaymentStatus.PENDING, "20.00");
+                PaymentArchiveServiceImpl archiveService = new PaymentArchiveServiceImpl(paymentRepository,
+                                archivedPaymentRepository, transactionManager, new SimpleMeterRegistry(),
+                                JobCoordinator.SINGLE_NODE, PaymentShards.SINGLE, true, Duration.ofDays(30), 10);
+                PaymentRollupRepository rollups = new PaymentRollupRepository(jdbcTemplate,
+                                PaymentStorageSchema.COMPACT);
+
+                // Act
+                List<UUID> archivable = transactionTemplate.execute(status -> paymentRepository.lockArchivable(
+                                List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED), OLD.plusDays(1), Limit.of(10)));
+                int moved = archiveService.archive();
+                List<PaymentStatsRow> stats = paymentRepository.aggregateStats();
+                List<PaymentRollupDTO> hourly = rollups.aggregateRaw(RollupGranularity.HOURLY, OLD,
+                                OLD.plusHours(1));
+
+                // Assert
+                Assertions.assertThat(archivable).hasSize(2);
+                Assertions.assertThat(moved).isEqualTo(2);
+                Assertions.assertThat(archivedPaymentRepository.findByOrderId("old-failed")).get()
+                                .satisfies(archived -> {
+                                        Assertions.assertThat(archived.getStatus()).isEqualTo(PaymentStatus.FAILED);
+                                        Assertions.assertThat(archived.getCreatedAt().toInstant())
+                                                        .isEqualTo(OLD.plusMinutes(1).toInstant());
+                                });
+                Assertions.assertThat(stats).extracting(PaymentStatsRow::getStatus)
+                                .containsExactlyInAnyOrder("SUCCESS", "FAILED", "PENDING");
+                Assertions.assertThat(stats).extracting(PaymentStatsRow::getCreatedDay)
+                                .containsOnly(OLD.atZoneSameInstant(ZoneOffset.UTC).toLocalDate());
+                Assertions.assertThat(hourly).singleElement().satisfies(bucket -> {
+                        Assertions.assertThat(bucket.provider()).isEqualTo(PaymentProviderType.STRIPE);
+                        Assertions.assertThat(bucket.payments()).isEqualTo(3);
+                        Assertions.assertThat(bucket.succeeded()).isEqualTo(1);
+                        Assertions.assertThat(bucket.bucketStart().toInstant()).isEqualTo(OLD.toInstant());
+                });
+        }
+
+        @Test
+        public void CompactSchemaTest_Migration_RefusesDatabaseAlreadyPastV8() {
+                // Arrange
+                DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                                "jdbc:h2:mem:compact-from-v11;DB_CLOSE_DELAY=-1", "sa", "");
+                Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").target("11").load()
+                                .migrate();
+                JdbcTemplate v11 = new JdbcTemplate(dataSource);
+                v11.update("""
+                                INSERT INTO payments (id, tenant_id, order_id, amount, currency, status, provider, created_at, expires_at)
+                                VALUES (?, 'acme', 'order-1', 10.00, 'ZAR', 'PENDING', 'STRIPE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+                                """, UUID.randomUUID());
+                Flyway compact = Flyway.configure().dataSource(dataSource)
+                                .locations("classpath:db/migration", "classpath:db/compact")
+                                .callbacks(new CompactSchemaConfig.CompactConversionGuard())
+                                .load();
+
+                // Act & Assert
+                Assertions.assertThatThrownBy(compact::migrate)
+                                .isInstanceOf(FlywayException.class)
+                                .hasMessageContaining("V11");
+                Assertions.assertThat(v11.queryForObject("""
+                                SELECT data_type FROM information_schema.columns
+                                WHERE table_name = 'PAYMENTS' AND column_name = 'STATUS'
+                                """, String.class)).isEqualTo("CHARACTER VARYING");
+                Assertions.assertThat(v11.queryForObject("SELECT tenant_id FROM payments WHERE order_id = 'order-1'",
+                                String.class)).isEqualTo("acme");
+        }
+
+        private String columnType(String table, String column) {
+                return jdbcTemplate.queryForObject("""
+                                SELECT data_type FROM information_schema.columns
+                                WHERE table_name = ? AND column_name = ?
+                                """, String.class, table, column);
+        }
+
+        private void insert(String orderId, OffsetDateTime createdAt, PaymentStatus status, String amount) {
+                jdbcTemplate.update("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at)
+                                VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?)
+                                """, UUID.randomUUID(), orderId, new BigDecimal(amount), status.code(),
+                                PaymentProviderType.STRIPE.code(), EpochMicrosConverter.toEpochMicros(createdAt.toInstant()),
+                                EpochMicrosConverter.toEpochMicros(createdAt.plusDays(1).toInstant()));
+        }
+}
@@ -2,9 +2,13 @@ package com.nelani.demo.repository;
 
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
 import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
+import jakarta.persistence.EntityManager;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
@@ -27,6 +31,9 @@ public class PaymentRepositoryTest {
         @Autowired
         private PaymentRepository paymentRepository;
 
+        @Autowired
+        private EntityManager entityManager;
+
         @Test
         public void PaymentServiceTest_FindAll_ReturnsPaymentsPage_OrderedByAmount() {
                 // Arrange
@@ -254,4 +261,88 @@ public class PaymentRepositoryTest {
                 Assertions.assertThat(result.get().getStatus()).isEqualTo(payment2.getStatus());
         }
 
+        @Test
+        public void PaymentServiceTest_FindAllSummaries_ReturnsUnmanagedRows_OrderedByAmount() {
+                // Arrange
+                final Payment payment1 = new Payment(
+                                "order1",
+                                BigDecimal.valueOf(100L),
+                                PaymentStatus.INITIATING,
+                                PaymentProviderType.PAYPAL);
+                final Payment payment2 = new Payment(
+                                "order2",
+                                BigDecimal.valueOf(10L),
+                                PaymentStatus.PENDING,
+                                PaymentProviderType.STRIPE);
+
+                paymentRepository.saveAll(List.of(payment1, payment2));
+                entityManager.flush();
+                entityManager.clear();
+
+                Pageable pageable = PageRequest.of(0, 10,
+                                Sort.by(Sort.Direction.ASC, PaymentSortField.AMOUNT.fieldName()));
+
+                // Act
+                var resultsPage = paymentRepository.findAllSummaries(pageable);
+                List<PaymentSummary> resultsList = resultsPage.getContent();
+
+                // Assert
+                Assertions.assertThat(resultsPage.getTotalElements()).isEqualTo(2);
+                Assertions.assertThat(resultsList).extracting(PaymentSummary::orderId)
+                                .containsExactly(payment2.getOrderId(), payment1.getOrderId());
+                Assertions.assertThat(resultsList).extracting(PaymentSummary::amount)
+                                .usingElementComparator(BigDecimal::compareTo)
+                                .containsExactly(payment2.getAmount(), payment1.getAmount());
+                Assertions.assertThat(resultsList).extracting(PaymentSummary::status)
+                                .containsExactly(payment2.getStatus(), payment1.getStatus());
+
+                // Nothing was attached to the persistence context
+                Assertions.assertThat(entityManager.contains(payment1)).isFalse();
+                Assertions.assertThat(entityManager.unwrap(Session.class)
+                                .getStatistics().getEntityCount()).isZero();
+        }
+
+        @Test
+        public void PaymentServiceTest_Search_AppliesOnlyGivenFilters() {
+                // Arrange
+                final Payment payment1 = new Payment(
+                                "order1",
+                                BigDecimal.valueOf(100L),
+                                PaymentStatus.PENDING,
+                                PaymentProviderType.PAYPAL);
+                final Payment payment2 = new Payment(
+                                "order2",
+                                BigDecimal.valueOf(10L),
+                                PaymentStatus.PENDING,
+                                PaymentProviderType.STRIPE);
+                final Payment payment3 = new Payment(
+                                "order3",
+                                BigDecimal.valueOf(50L),
+                                PaymentStatus.FAILED,
+                                PaymentProviderType.STRIPE);
+
+                paymentRepository.saveAll(List.of(payment1, payment2, payment3));
+
+                Pageable pageable = PageRequest.of(0, 10,
+                                Sort.by(Sort.Direction.ASC, PaymentSortField.AMOUNT.fieldName()));
+
+                // Act
+                var byStatus = paymentRepository.search(new PaymentSearchCriteria(PaymentStatus.PENDING, null,
+                                null, null, null, null, null, null), pageable);
+                var byProviderAndAmount = paymentRepository.search(new PaymentSearchCriteria(null,
+                                PaymentProviderType.STRIPE, null, null, null, null, BigDecimal.valueOf(20L),
+                                BigDecimal.valueOf(60L)), pageable);
+                var byCreatedRange = paymentRepository.search(new PaymentSearchCriteria(null, null,
+                                OffsetDateTime.now().plusHours(1), null, null, null, null, null), pageable);
+                var unfiltered = paymentRepository.search(PaymentSearchCriteria.none(), pageable);
+
+                // Assert
+                Assertions.assertThat(byStatus.getContent()).extracting(PaymentSummary::orderId)
+                                .containsExactly(payment2.getOrderId(), payment1.getOrderId());
+                Assertions.assertThat(byProviderAndAmount.getContent()).extracting(PaymentSummary::orderId)
+                                .containsExactly(payment3.getOrderId());
+                Assertions.assertThat(byCreatedRange.getTotalElements()).isZero();
+                Assertions.assertThat(unfiltered.getTotalElements()).isEqualTo(3);
+        }
+
 }
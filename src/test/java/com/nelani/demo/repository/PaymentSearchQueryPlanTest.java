@@ -0,0 +1,153 @@
+package com.nelani.demo.repository;
+
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
+import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import org.assertj.core.api.Assertions;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL that Hibernate generates for the search
+ * query and checks that each filter combination is served by its composite
+ * index instead of a table scan. The plans are printed for review.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.nelani.demo.repository.PaymentSearchQueryPlanTest$CapturingInspector")
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+public class PaymentSearchQueryPlanTest {
+
+        private static final int ROWS = 2_000;
+        private static final int PAGE_SIZE = 20;
+        private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @BeforeEach
+        void seed() {
+                PaymentStatus[] statuses = PaymentStatus.values();
+                PaymentProviderType[] providers = PaymentProviderType.values();
+                List<Object[]> rows = new ArrayList<>(ROWS);
+                for (int i = 0; i < ROWS; i++) {
+                        PaymentStatus status = statuses[i % statuses.length];
+                        rows.add(new Object[] { UUID.randomUUID(), "plan-" + i, BigDecimal.valueOf(100 + i, 2),
+                                        status.name(), providers[i % providers.length].name(),
+                                        Timestamp.from(NOW.minusMinutes(i).toInstant()),
+                                        Timestamp.from(NOW.plusDays(1).toInstant()),
+                                        status == PaymentStatus.SUCCESS
+                                                        ? Timestamp.from(NOW.minusMinutes(i).toInstant())
+                                                        : null });
+                }
+                jdbcTemplate.batchUpdate("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at,
+                                                      expires_at, completed_at)
+                                VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?, ?)
+                                """, rows);
+        }
+
+        @Test
+        public void PaymentSearchQueryPlanTest_StatusAndCreatedRange_UsesStatusCreatedIndex() {
+                var criteria = new PaymentSearchCriteria(PaymentStatus.PENDING, null, NOW.minusDays(1), NOW,
+                                null, null, null, null);
+
+                String plan = explain(criteria, PaymentStatus.PENDING.name(), NOW.minusDays(1), NOW);
+
+                Assertions.assertThat(plan).containsIgnoringCase("IDX_PAYMENT_STATUS_CREATED");
+        }
+
+        @Test
+        public void PaymentSearchQueryPlanTest_ProviderAndCreatedRange_UsesProviderCreatedIndex() {
+                var criteria = new PaymentSearchCriteria(null, PaymentProviderType.STRIPE, NOW.minusDays(1), NOW,
+                                null, null, null, null);
+
+                String plan = explain(criteria, PaymentProviderType.STRIPE.name(), NOW.minusDays(1), NOW);
+
+                Assertions.assertThat(plan).containsIgnoringCase("IDX_PAYMENT_PROVIDER_CREATED");
+        }
+
+        @Test
+        public void PaymentSearchQueryPlanTest_StatusAndCompletedRange_UsesStatusCompletedIndex() {
+                var criteria = new PaymentSearchCriteria(PaymentStatus.SUCCESS, null, null, null,
+                                NOW.minusDays(1), NOW, null, null);
+
+                String plan = explain(criteria, PaymentStatus.SUCCESS.name(), NOW.minusDays(1), NOW);
+
+                Assertions.assertThat(plan).containsIgnoringCase("IDX_PAYMENT_STATUS_COMPLETED");
+        }
+
+        @Test
+        public void PaymentSearchQueryPlanTest_CreatedRangeOnly_UsesCreatedIndex() {
+                var criteria = new PaymentSearchCriteria(null, null, NOW.minusHours(1), NOW,
+                                null, null, null, null);
+
+                String plan = explain(criteria, NOW.minusHours(1), NOW);
+
+                Assertions.assertThat(plan).containsIgnoringCase("IDX_PAYMENT_CREATED");
+        }
+
+        /**
+         * Executes the search, then explains the captured page query with the
+         * same bind values (filters in predicate order, followed by the limit).
+         */
+        private String explain(PaymentSearchCriteria criteria, Object... filterValues) {
+                Pageable pageable = PageRequest.of(0, PAGE_SIZE,
+                                Sort.by(Sort.Direction.DESC, PaymentSortField.CREATED_AT.fieldName()));
+
+                CapturingInspector.STATEMENTS.clear();
+                var results = paymentRepository.search(criteria, pageable);
+                Assertions.assertThat(results.getContent()).isNotEmpty();
+
+                String sql = CapturingInspector.STATEMENTS.stream()
+                                .filter(statement -> !statement.contains("count("))
+                                .findFirst()
+                                .orElseThrow();
+
+                List<Object> args = new ArrayList<>();
+                for (Object value : filterValues) {
+                        args.add(value instanceof OffsetDateTime time ? Timestamp.from(time.toInstant()) : value);
+                }
+                args.add(PAGE_SIZE);
+
+                String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class,
+                                args.toArray()));
+                System.out.printf("%n%s%n%s%n", criteria, plan);
+                return plan;
+        }
+
+        public static class CapturingInspector implements StatementInspector {
+
+                static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+                @Override
+                public String inspect(String sql) {
+                        if (sql.contains("payments")) {
+                                STATEMENTS.add(sql);
+                        }
+                        return sql;
+                }
+        }
+}
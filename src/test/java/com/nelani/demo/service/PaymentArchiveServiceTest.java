@@ -0,0 +1,163 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentSearchCriteria;
+import com.nelani.demo.model.PaymentSortField;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.PaymentStatsRow;
+import com.nelani.demo.service.impl.PaymentArchiveServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class PaymentArchiveServiceTest {
+
+        private static final OffsetDateTime OLD = OffsetDateTime.now().minusDays(60);
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+        private SimpleMeterRegistry meterRegistry;
+        private PaymentArchiveServiceImpl archiveService;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                jdbcTemplate.update("DELETE FROM payments_archive");
+                jdbcTemplate.update("DELETE FROM payments");
+                meterRegistry = new SimpleMeterRegistry();
+                // Batches of two, so three archivable payments take two batches
+                archiveService = new PaymentArchiveServiceImpl(paymentRepository, archivedPaymentRepository,
+                                transactionManager, meterRegistry, JobCoordinator.SINGLE_NODE, PaymentShards.SINGLE,
+                                true, Duration.ofDays(30), 2);
+        }
+
+        @Test
+        public void PaymentArchiveServiceTest_Archive_MovesOnlyOldTerminalPayments() {
+                // Arrange
+                insert("old-success", OLD, "SUCCESS", "30.00");
+                insert("old-failed", OLD.plusMinutes(1), "FAILED", "10.00");
+                insert("old-expired", OLD.plusMinutes(2), "EXPIRED", "50.00");
+                insert("old-pending", OLD.plusMinutes(3), "PENDING", "20.00");
+                insert("new-success", OffsetDateTime.now().minusDays(1), "SUCCESS", "40.00");
+
+                // Act
+                int moved = archiveService.archive();
+
+                // Assert
+                Assertions.assertThat(moved).isEqualTo(3);
+                Assertions.assertThat(paymentRepository.findAll()).extracting(Payment::getOrderId)
+                                .containsExactlyInAnyOrder("old-pending", "new-success");
+                Assertions.assertThat(archivedPaymentRepository.findByOrderId("old-failed")).get()
+                                .satisfies(archived -> {
+                                        Assertions.assertThat(archived.getStatus()).isEqualTo(PaymentStatus.FAILED);
+                                        Assertions.assertThat(archived.getArchivedAt()).isNotNull();
+                                });
+                Assertions.assertThat(meterRegistry.counter("payments.archive.moved").count()).isEqualTo(3);
+                Assertions.assertThat(meterRegistry.get("payments.rows").tag("tier", "hot").gauge().value())
+                                .isEqualTo(2);
+                Assertions.assertThat(meterRegistry.get("payments.rows").tag("tier", "archive").gauge().value())
+                                .isEqualTo(3);
+
+                // A second pass finds nothing left to move
+                Assertions.assertThat(archiveService.archive()).isZero();
+        }
+
+        @Test
+        public void PaymentArchiveServiceTest_Search_FallsThroughToArchive_InSortOrder() {
+                // Arrange
+                insert("old-success", OLD, "SUCCESS", "30.00");
+                insert("old-failed", OLD.plusMinutes(1), "FAILED", "10.00");
+                insert("old-expired", OLD.plusMinutes(2), "EXPIRED", "50.00");
+                insert("old-pending", OLD.plusMinutes(3), "PENDING", "20.00");
+                insert("new-success", OffsetDateTime.now().minusDays(1), "SUCCESS", "40.00");
+                archiveService.archive();
+                Sort byAmount = Sort.by(Sort.Direction.ASC, PaymentSortField.AMOUNT.fieldName());
+
+                // Act
+                Page<PaymentSummary> first = paymentRepository.search(PaymentSearchCriteria.none(),
+                                PageRequest.of(0, 2, byAmount));
+                Page<PaymentSummary> second = paymentRepository.search(PaymentSearchCriteria.none(),
+                                PageRequest.of(1, 2, byAmount));
+                Page<PaymentSummary> succeeded = paymentRepository.search(new PaymentSearchCriteria(
+                                PaymentStatus.SUCCESS, null, null, null, null, null, null, null),
+                                PageRequest.of(0, 10, byAmount.descending()));
+                List<PaymentStatsRow> stats = paymentRepository.aggregateStats();
+
+                // Assert
+                Assertions.assertThat(first.getContent()).extracting(PaymentSummary::orderId)
+                                .containsExactly("old-failed", "old-pending");
+                Assertions.assertThat(second.getContent()).extracting(PaymentSummary::orderId)
+                                .containsExactly("old-success", "new-success");
+                Assertions.assertThat(first.getTotalElements()).isEqualTo(5);
+                Assertions.assertThat(succeeded.getContent()).extracting(PaymentSummary::orderId)
+                                .containsExactly("new-success", "old-success");
+                Assertions.assertThat(stats.stream().mapToLong(PaymentStatsRow::getPayments).sum()).isEqualTo(5);
+        }
+
+        @Test
+        public void PaymentArchiveServiceTest_Restore_MovesArchivedOrderBack() {
+                // Arrange
+                insert("old-failed", OLD, "FAILED", "10.00");
+                archiveService.archive();
+
+                // Act
+                Integer restored = transactionTemplate.execute(status -> archiveService.restore(
+                                List.of("old-failed", "unknown")));
+
+                // Assert
+                Assertions.assertThat(restored).isEqualTo(1);
+                Assertions.assertThat(paymentRepository.findByOrderId("old-failed")).get()
+                                .satisfies(payment -> Assertions.assertThat(payment.getStatus())
+                                                .isEqualTo(PaymentStatus.FAILED));
+                Assertions.assertThat(archivedPaymentRepository.count()).isZero();
+                Assertions.assertThat(meterRegistry.counter("payments.archive.restored").count()).isEqualTo(1);
+        }
+
+        private void insert(String orderId, OffsetDateTime createdAt, String status, String amount) {
+                jdbcTemplate.update("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at)
+                                VALUES (?, ?, ?, 'ZAR', ?, 'STRIPE', ?, ?)
+                                """, UUID.randomUUID(), orderId, new BigDecimal(amount), status, createdAt,
+                                createdAt.plusDays(1));
+        }
+}
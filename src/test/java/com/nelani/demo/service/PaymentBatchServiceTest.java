@@ -0,0 +1,160 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.BatchPaymentRequestDTO;
+import com.nelani.demo.dto.PaymentRequestDTO;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.impl.PaymentBatchServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentBatchServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentProviderFactory factory;
+
+    @Mock
+    private PaymentProvider provider;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private PaymentArchiveService archiveService;
+
+    private PaymentBatchServiceImpl paymentBatchService;
+
+    @BeforeEach
+    void setUp() {
+        // Direct executor keeps provider calls on the test thread
+        paymentBatchService = new PaymentBatchServiceImpl(paymentRepository, archiveService, factory, transactionManager,
+                Runnable::run, PaymentShards.SINGLE);
+    }
+
+    @Test
+    void initializePayments_returnsPerItemResults_andSavesInBatches() {
+        // Arrange
+        final Payment paid = new Payment("order-paid", BigDecimal.TEN, PaymentStatus.SUCCESS, PaymentProviderType.STRIPE);
+        final BatchPaymentRequestDTO request = new BatchPaymentRequestDTO(List.of(
+                new PaymentRequestDTO("order-1", BigDecimal.valueOf(100), PaymentProviderType.STRIPE),
+                new PaymentRequestDTO("order-paid", BigDecimal.TEN, PaymentProviderType.STRIPE),
+                new PaymentRequestDTO("order-1", BigDecimal.valueOf(100), PaymentProviderType.STRIPE)));
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of(paid));
+        when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
+        when(provider.createPayment(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            return new PaymentResponseDTO(payment.getOrderId(), "pi_1", "secret_1", payment.getAmount(),
+                    payment.getCurrency(), PaymentProviderType.STRIPE, null, null, null, null);
+        });
+
+        // Act
+        var response = paymentBatchService.initializePayments(request);
+
+        // Assert
+        Assertions.assertThat(response.succeeded()).isEqualTo(1);
+        Assertions.assertThat(response.failed()).isEqualTo(2);
+        Assertions.assertThat(response.results().get(0).payment().clientId()).isEqualTo("pi_1");
+        Assertions.assertThat(response.results().get(1).error()).isEqualTo("Order already paid.");
+        Assertions.assertThat(response.results().get(2).error()).isEqualTo("Duplicate order ID in batch.");
+
+        // One IN lookup per phase and one batched save per phase, never per-item queries
+        verify(paymentRepository, times(1)).findByOrderIdIn(anyCollection());
+        verify(paymentRepository, times(1)).findAllById(any());
+        verify(paymentRepository, never()).findByOrderId(any());
+        verify(paymentRepository, times(2)).saveAll(anyCollection());
+    }
+
+    @Test
+    void initializePayments_marksItemFailed_whenProviderFails() {
+        // Arrange
+        final BatchPaymentRequestDTO request = new BatchPaymentRequestDTO(List.of(
+                new PaymentRequestDTO("order-1", BigDecimal.valueOf(100), PaymentProviderType.PAYPAL)));
+        final Payment reloaded = new Payment("order-1", BigDecimal.valueOf(100), PaymentStatus.INITIATING,
+                PaymentProviderType.PAYPAL);
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of());
+        when(factory.get(PaymentProviderType.PAYPAL)).thenReturn(provider);
+        when(provider.createPayment(any(Payment.class)))
+                .thenThrow(new PaymentProviderTemporaryException("PayPal unavailable"));
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(reloaded));
+
+        // Act
+        var response = paymentBatchService.initializePayments(request);
+
+        // Assert
+        Assertions.assertThat(response.succeeded()).isZero();
+        Assertions.assertThat(response.results().get(0).success()).isFalse();
+        Assertions.assertThat(response.results().get(0).error()).isEqualTo("PayPal unavailable");
+        Assertions.assertThat(reloaded.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(paymentRepository, times(2)).saveAll(anyCollection());
+    }
+
+    @Test
+    void initializePayments_keepsOutcome_whenWebhookSettledPaymentMeanwhile() {
+        // Arrange
+        final BatchPaymentRequestDTO request = new BatchPaymentRequestDTO(List.of(
+                new PaymentRequestDTO("order-1", BigDecimal.valueOf(100), PaymentProviderType.PAYPAL),
+                new PaymentRequestDTO("order-2", BigDecimal.valueOf(100), PaymentProviderType.PAYPAL)));
+        final Payment settled = new Payment("order-1", BigDecimal.valueOf(100), PaymentStatus.SUCCESS,
+                PaymentProviderType.PAYPAL);
+        final Payment other = new Payment("order-2", BigDecimal.valueOf(100), PaymentStatus.INITIATING,
+                PaymentProviderType.PAYPAL);
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of());
+        when(factory.get(PaymentProviderType.PAYPAL)).thenReturn(provider);
+        when(provider.createPayment(any(Payment.class)))
+                .thenThrow(new PaymentProviderTemporaryException("PayPal unavailable"));
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(settled, other));
+
+        // Act
+        var response = paymentBatchService.initializePayments(request);
+
+        // Assert
+        Assertions.assertThat(response.failed()).isEqualTo(2);
+        Assertions.assertThat(settled.getStatus()).isEqualTo(PaymentStatus.SUCCESS);
+        Assertions.assertThat(other.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(paymentRepository, times(2)).saveAll(anyCollection());
+    }
+
+    @Test
+    void initializePayments_skipsProviders_whenEveryItemIsRejected() {
+        // Arrange
+        final Payment pending = new Payment("order-1", BigDecimal.TEN, PaymentStatus.PENDING, PaymentProviderType.STRIPE);
+        final BatchPaymentRequestDTO request = new BatchPaymentRequestDTO(List.of(
+                new PaymentRequestDTO("order-1", BigDecimal.TEN, PaymentProviderType.STRIPE)));
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of(pending));
+
+        // Act
+        var response = paymentBatchService.initializePayments(request);
+
+        // Assert
+        Assertions.assertThat(response.results().get(0).error()).isEqualTo("Resume payment.");
+        verify(factory, never()).get(any());
+        verify(paymentRepository, never()).findAllById(any());
+        Assertions.assertThat(pending.getStatus()).isEqualTo(PaymentStatus.PENDING);
+    }
+}
@@ -0,0 +1,179 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.controller.PaymentController;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentStatusChangedEvent;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.impl.PaymentEventStreamServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+public class PaymentEventStreamServiceTest {
+
+        @Mock
+        private PaymentRepository paymentRepository;
+
+        @Mock
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        @Mock
+        private PaymentService paymentService;
+
+        @Mock
+        private PaymentBatchService paymentBatchService;
+
+        @Mock
+        private PaymentStatsService paymentStatsService;
+
+        @Test
+        public void PaymentEventStreamServiceTest_Subscribe_SendsSnapshotThenChanges_AndCompletesOnFinalStatus()
+                        throws Exception {
+                // Arrange
+                stubPayment("order1", PaymentStatus.PENDING);
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(1),
+                                10);
+                MockMvc mockMvc = mockMvc(streamService);
+
+                // Act
+                MvcResult result = mockMvc.perform(get("/api/payments/order1/events"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                streamService.onStatusChanged(event("order2", PaymentStatus.SUCCESS));
+                streamService.onStatusChanged(event("order1", PaymentStatus.SUCCESS));
+
+                // Assert
+                String body = result.getResponse().getContentAsString();
+                Assertions.assertThat(body).contains("event:status");
+                Assertions.assertThat(body.indexOf("\"status\":\"PENDING\""))
+                                .isNotNegative()
+                                .isLessThan(body.indexOf("\"status\":\"SUCCESS\""));
+                Assertions.assertThat(body).doesNotContain("order2");
+                Assertions.assertThat(streamService.subscriberCount()).isZero();
+        }
+
+        @Test
+        public void PaymentEventStreamServiceTest_SlowSubscriber_OnlyReceivesLatestStatus() throws Exception {
+                // Arrange: sends are queued until the test runs them, like a client that cannot keep up
+                stubPayment("order1", PaymentStatus.INITIATING);
+                Queue<Runnable> pending = new ArrayDeque<>();
+                Executor queued = pending::add;
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, queued, Duration.ofMinutes(1), 10);
+                MockMvc mockMvc = mockMvc(streamService);
+
+                // Act
+                MvcResult result = mockMvc.perform(get("/api/payments/order1/events")).andReturn();
+                streamService.onStatusChanged(event("order1", PaymentStatus.PENDING));
+                streamService.onStatusChanged(event("order1", PaymentStatus.FAILED));
+                while (!pending.isEmpty()) {
+                        pending.poll().run();
+                }
+
+                // Assert: the snapshot and PENDING were superseded before they could be written
+                String body = result.getResponse().getContentAsString();
+                Assertions.assertThat(body).contains("\"status\":\"FAILED\"")
+                                .doesNotContain("\"status\":\"PENDING\"")
+                                .doesNotContain("\"status\":\"INITIATING\"");
+        }
+
+        @Test
+        public void PaymentEventStreamServiceTest_Subscribe_RejectsWhenFull() {
+                // Arrange
+                stubPayment("order1", PaymentStatus.PENDING);
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, task -> {
+                                }, Duration.ofMinutes(1), 1);
+                streamService.subscribe("order1");
+
+                // Act & Assert
+                assertThatThrownBy(() -> streamService.subscribe("order1"))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("Too many open payment streams");
+                Assertions.assertThat(streamService.subscriberCount()).isEqualTo(1);
+        }
+
+        @Test
+        public void PaymentEventStreamServiceTest_Subscribe_ReturnsNotFound_WhenPaymentMissing() {
+                // Arrange
+                when(paymentRepository.findByOrderId(anyString())).thenReturn(Optional.empty());
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(1),
+                                10);
+
+                // Act & Assert
+                assertThatThrownBy(() -> streamService.subscribe("missing"))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("Payment not found.");
+                Assertions.assertThat(streamService.subscriberCount()).isZero();
+        }
+
+        @Test
+        public void PaymentEventStreamServiceTest_Subscribe_DeliversChangeCommittedWhileSnapshotIsRead()
+                        throws Exception {
+                // Arrange: SUCCESS commits and is published after the read saw the payment as PENDING
+                PaymentEventStreamServiceImpl streamService = new PaymentEventStreamServiceImpl(paymentRepository,
+                                archivedPaymentRepository, PaymentShards.SINGLE, Runnable::run, Duration.ofMinutes(1),
+                                10);
+                Payment payment = new Payment("order1", BigDecimal.TEN, PaymentStatus.PENDING,
+                                PaymentProviderType.STRIPE);
+                when(paymentRepository.findByOrderId("order1")).thenAnswer(invocation -> {
+                        streamService.onStatusChanged(event("order1", PaymentStatus.SUCCESS));
+                        return Optional.of(payment);
+                });
+                MockMvc mockMvc = mockMvc(streamService);
+
+                // Act
+                MvcResult result = mockMvc.perform(get("/api/payments/order1/events")).andReturn();
+
+                // Assert: the stale snapshot is dropped and the final status closes the stream
+                String body = result.getResponse().getContentAsString();
+                Assertions.assertThat(body).contains("\"status\":\"SUCCESS\"")
+                                .doesNotContain("\"status\":\"PENDING\"");
+                Assertions.assertThat(streamService.subscriberCount()).isZero();
+        }
+
+        private MockMvc mockMvc(PaymentEventStreamService streamService) {
+                return MockMvcBuilders
+                                .standaloneSetup(new PaymentController(paymentService, paymentBatchService,
+                                                streamService, paymentStatsService))
+                                .build();
+        }
+
+        private void stubPayment(String orderId, PaymentStatus status) {
+                when(paymentRepository.findByOrderId(orderId)).thenReturn(Optional.of(
+                                new Payment(orderId, BigDecimal.TEN, status, PaymentProviderType.STRIPE)));
+        }
+
+        private static PaymentStatusChangedEvent event(String orderId, PaymentStatus status) {
+                return new PaymentStatusChangedEvent(orderId, status, null, PaymentProviderType.STRIPE, null,
+                                BigDecimal.TEN, CurrencyCode.ZAR, OffsetDateTime.now(), OffsetDateTime.now());
+        }
+}
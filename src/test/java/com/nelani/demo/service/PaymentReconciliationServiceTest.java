@@ -0,0 +1,298 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.coordination.ClusterProperties;
+import com.nelani.demo.coordination.DatabaseJobCoordinator;
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.dto.ReconciliationResult;
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.exception.PaymentProviderTemporaryException;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.ReconciliationCheckpoint;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.ClusterNodeRepository;
+import com.nelani.demo.repository.JobLeaseRepository;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.ReconciliationCheckpointRepository;
+import com.nelani.demo.service.impl.PaymentReconciliationServiceImpl;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class PaymentReconciliationServiceTest {
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private ReconciliationCheckpointRepository checkpointRepository;
+
+        @Autowired
+        private JobLeaseRepository jobLeaseRepository;
+
+        @Autowired
+        private ClusterNodeRepository clusterNodeRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private StubProvider stripe;
+        private StubProvider paypal;
+        private SimpleMeterRegistry meterRegistry;
+
+        @BeforeEach
+        void setUp() {
+                jdbcTemplate.update("DELETE FROM payment_reconciliation_checkpoint");
+                jdbcTemplate.update("DELETE FROM payments");
+                jdbcTemplate.update("DELETE FROM job_lease");
+                jdbcTemplate.update("DELETE FROM cluster_node");
+                stripe = new StubProvider(PaymentProviderType.STRIPE, 3);
+                paypal = new StubProvider(PaymentProviderType.PAYPAL, 1);
+                meterRegistry = new SimpleMeterRegistry();
+        }
+
+        @Test
+        public void PaymentReconciliationServiceTest_Reconcile_AppliesProviderOutcomesInChunks() {
+                // Arrange: seven stale payments, one recent one that must not be looked up
+                for (int i = 0; i < 5; i++) {
+                        insert("stripe" + i, PaymentProviderType.STRIPE, PaymentStatus.PENDING, 120 - i);
+                }
+                insert("paypal0", PaymentProviderType.PAYPAL, PaymentStatus.PENDING, 90);
+                insert("paypal1", PaymentProviderType.PAYPAL, PaymentStatus.PENDING, 80);
+                insert("fresh", PaymentProviderType.STRIPE, PaymentStatus.PENDING, 1);
+                insert("settled", PaymentProviderType.STRIPE, PaymentStatus.SUCCESS, 200);
+                stripe.settle("stripe0", PaymentStatus.SUCCESS);
+                stripe.settle("stripe3", PaymentStatus.FAILED);
+                paypal.settle("paypal1", PaymentStatus.SUCCESS);
+
+                // Act
+                ReconciliationResult result = service(4).reconcile();
+
+                // Assert
+                Assertions.assertThat(result).isEqualTo(new ReconciliationResult(7, 3, 0));
+                Assertions.assertThat(status("stripe0")).isEqualTo(PaymentStatus.SUCCESS);
+                Assertions.assertThat(status("stripe3")).isEqualTo(PaymentStatus.FAILED);
+                Assertions.assertThat(status("paypal1")).isEqualTo(PaymentStatus.SUCCESS);
+                Assertions.assertThat(status("stripe1")).isEqualTo(PaymentStatus.PENDING);
+                Assertions.assertThat(paymentRepository.findByOrderId("stripe0").orElseThrow().getCompletedAt())
+                                .isNotNull();
+
+                // Lookups honour each provider's batch size and never include fresh or settled payments
+                Assertions.assertThat(stripe.batches).allSatisfy(batch -> Assertions.assertThat(batch).hasSizeBetween(1, 3));
+                Assertions.assertThat(paypal.batches).allSatisfy(batch -> Assertions.assertThat(batch).hasSize(1));
+                Assertions.assertThat(stripe.lookedUp()).containsExactlyInAnyOrder("stripe0", "stripe1", "stripe2",
+                                "stripe3", "stripe4");
+                Assertions.assertThat(checkpointRepository.findById("stale-pending-payments").orElseThrow()
+                                .isInProgress()).isFalse();
+                Assertions.assertThat(meterRegistry.get("payments.reconciliation.corrections")
+                                .tag("status", "SUCCESS").counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        public void PaymentReconciliationServiceTest_Reconcile_ResumesFromCheckpointAfterRestart() {
+                // Arrange: a previous pass stopped after handling stripe0 and stripe1
+                for (int i = 0; i < 4; i++) {
+                        insert("stripe" + i, PaymentProviderType.STRIPE, PaymentStatus.PENDING, 120 - i);
+                }
+                ReconciliationCheckpoint checkpoint = new ReconciliationCheckpoint("stale-pending-payments");
+                checkpoint.start(OffsetDateTime.now().minusMinutes(30));
+                checkpoint.advance(paymentRepository.findByOrderId("stripe1").orElseThrow());
+                checkpointRepository.save(checkpoint);
+
+                // Act
+                ReconciliationResult result = service(2).reconcile();
+
+                // Assert: only the rest of the interrupted pass was looked up, then the pass closed
+                Assertions.assertThat(stripe.lookedUp()).containsExactlyInAnyOrder("stripe2", "stripe3");
+                Assertions.assertThat(result.checked()).isEqualTo(2);
+                Assertions.assertThat(checkpointRepository.findById("stale-pending-payments").orElseThrow()
+                                .isInProgress()).isFalse();
+
+                // The next pass starts from the beginning again
+                Assertions.assertThat(service(2).reconcile().checked()).isEqualTo(4);
+        }
+
+        @Test
+        public void PaymentReconciliationServiceTest_Reconcile_LeavesPaymentsPending_WhenLookupFails() {
+                // Arrange
+                insert("stripe0", PaymentProviderType.STRIPE, PaymentStatus.PENDING, 120);
+                insert("paypal0", PaymentProviderType.PAYPAL, PaymentStatus.PENDING, 120);
+                stripe.settle("stripe0", PaymentStatus.SUCCESS);
+                paypal.settle("paypal0", PaymentStatus.SUCCESS);
+                stripe.fail("stripe0", new PaymentProviderTemporaryException("Stripe unavailable"));
+
+                // Act
+                ReconciliationResult result = service(10).reconcile();
+
+                // Assert: PayPal is still corrected, the Stripe payment waits for the next pass
+                Assertions.assertThat(result).isEqualTo(new ReconciliationResult(2, 1, 1));
+                Assertions.assertThat(status("stripe0")).isEqualTo(PaymentStatus.PENDING);
+                Assertions.assertThat(status("paypal0")).isEqualTo(PaymentStatus.SUCCESS);
+                Assertions.assertThat(meterRegistry.get("payments.reconciliation.lookup.failures")
+                                .tag("provider", "STRIPE").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        public void PaymentReconciliationServiceTest_Reconcile_SharesPartitionsBetweenNodes() {
+                // Arrange: forty stale payments and two nodes splitting them into three partitions
+                for (int i = 0; i < 40; i++) {
+                        insert("stripe" + i, PaymentProviderType.STRIPE, PaymentStatus.PENDING, 120);
+                        stripe.settle("stripe" + i, PaymentStatus.SUCCESS);
+                }
+                DatabaseJobCoordinator first = coordinator();
+                DatabaseJobCoordinator second = coordinator();
+                // Both nodes have joined and seen each other
+                first.heartbeat();
+                second.heartbeat();
+                first.heartbeat();
+
+                // Act
+                ReconciliationResult firstResult = service(first, 3, 10).reconcile();
+                ReconciliationResult secondResult = service(second, 3, 10).reconcile();
+
+                // Assert: both nodes took partitions, and every payment was looked up exactly once
+                Assertions.assertThat(firstResult.checked()).isPositive();
+                Assertions.assertThat(secondResult.checked()).isPositive();
+                Assertions.assertThat(firstResult.checked() + secondResult.checked()).isEqualTo(40);
+                Assertions.assertThat(stripe.lookedUp()).hasSize(40).doesNotHaveDuplicates();
+                Assertions.assertThat(checkpointRepository.findAll())
+                                .extracting(ReconciliationCheckpoint::getJob)
+                                .containsExactlyInAnyOrder("stale-pending-payments#0", "stale-pending-payments#1",
+                                                "stale-pending-payments#2");
+        }
+
+        private PaymentReconciliationService service(int chunkSize) {
+                return service(JobCoordinator.SINGLE_NODE, 1, chunkSize);
+        }
+
+        private PaymentReconciliationService service(JobCoordinator coordinator, int partitions, int chunkSize) {
+                return new PaymentReconciliationServiceImpl(paymentRepository, checkpointRepository,
+                                new PaymentProviderFactory(List.of(stripe, paypal)), transactionManager,
+                                RateLimiterRegistry.ofDefaults(), Executors.newFixedThreadPool(2), meterRegistry,
+                                coordinator, PaymentShards.SINGLE, partitions, chunkSize, Duration.ofMinutes(30));
+        }
+
+        private DatabaseJobCoordinator coordinator() {
+                return new DatabaseJobCoordinator(jobLeaseRepository, clusterNodeRepository, transactionManager,
+                                PaymentShards.SINGLE,
+                                new ClusterProperties(true, "node", Duration.ofSeconds(30), Duration.ofSeconds(10)),
+                                Clock.systemUTC(), meterRegistry);
+        }
+
+        private PaymentStatus status(String orderId) {
+                return paymentRepository.findByOrderId(orderId).orElseThrow().getStatus();
+        }
+
+        // Created (and expired) long ago, as if the webhook never arrived
+        private void insert(String orderId, PaymentProviderType provider, PaymentStatus status, int minutesAgo) {
+                OffsetDateTime createdAt = OffsetDateTime.now().minusMinutes(minutesAgo);
+                jdbcTemplate.update("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at,
+                                                      provider_reference)
+                                VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?, ?)
+                                """, UUID.randomUUID(), orderId, BigDecimal.TEN, status.name(), provider.name(),
+                                createdAt, createdAt.plusMinutes(30), "ref-" + orderId);
+        }
+
+        static class StubProvider implements PaymentProvider {
+
+                private final PaymentProviderType type;
+                private final int batchSize;
+                private final Map<String, PaymentStatus> settled = new HashMap<>();
+                private final Map<String, RuntimeException> failures = new HashMap<>();
+                final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+                StubProvider(PaymentProviderType type, int batchSize) {
+                        this.type = type;
+                        this.batchSize = batchSize;
+                }
+
+                void settle(String orderId, PaymentStatus status) {
+                        settled.put(orderId, status);
+                }
+
+                void fail(String orderId, RuntimeException failure) {
+                        failures.put(orderId, failure);
+                }
+
+                List<String> lookedUp() {
+                        return batches.stream().flatMap(List::stream).toList();
+                }
+
+                @Override
+                public PaymentProviderType getType() {
+                        return type;
+                }
+
+                @Override
+                public int reconciliationBatchSize() {
+                        return batchSize;
+                }
+
+                @Override
+                public Map<UUID, PaymentStatus> fetchOutcomes(List<Payment> payments) {
+                        batches.add(payments.stream().map(Payment::getOrderId).toList());
+                        Map<UUID, PaymentStatus> outcomes = new HashMap<>();
+                        for (Payment payment : payments) {
+                                RuntimeException failure = failures.get(payment.getOrderId());
+                                if (failure != null) {
+                                        throw failure;
+                                }
+                                PaymentStatus status = settled.get(payment.getOrderId());
+                                if (status != null) {
+                                        outcomes.put(payment.getId(), status);
+                                }
+                        }
+                        return outcomes;
+                }
+
+                @Override
+                public PaymentResponseDTO createPayment(Payment payment) {
+                        throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PaymentResponseDTO resumePayment(Payment payment) {
+                        throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public WebhookResult handleWebhook(String tenantId, String payload, HttpHeaders headers) {
+                        throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public WebhookResult parseWebhook(String tenantId, String payload) {
+                        throw new UnsupportedOperationException();
+                }
+        }
+}
@@ -0,0 +1,233 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentRollupDTO;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.RollupGranularity;
+import com.nelani.demo.outbox.OutboxRecorder;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.PaymentRollupRepository;
+import com.nelani.demo.repository.PaymentStorageSchema;
+import com.nelani.demo.service.impl.PaymentRollupServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import({ PaymentRollupServiceImpl.class, PaymentRollupRepository.class, OutboxRecorder.class,
+                PaymentRollupServiceTest.SingleNode.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class PaymentRollupServiceTest {
+
+        private static final OffsetDateTime DAY = OffsetDateTime.of(2025, 1, 6, 0, 0, 0, 0, ZoneOffset.UTC);
+
+        @Autowired
+        private PaymentRollupService paymentRollupService;
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                jdbcTemplate.update("DELETE FROM payment_outbox");
+                jdbcTemplate.update("DELETE FROM payments");
+                jdbcTemplate.update("DELETE FROM payment_rollup_hourly");
+                jdbcTemplate.update("DELETE FROM payment_rollup_daily");
+                jdbcTemplate.update("DELETE FROM payment_rollup_rebuild");
+        }
+
+        @Test
+        public void PaymentRollupServiceTest_Refresh_RebuildsAllBuckets_OnFirstRun() {
+                // Arrange: created at 10:15 and 10:45 (one completed after 60s), 11:10 and the next day
+                insert("order1", DAY.plusMinutes(615), "SUCCESS", "STRIPE", "10.00", 60);
+                insert("order2", DAY.plusMinutes(645), "FAILED", "STRIPE", "5.00", null);
+                insert("order3", DAY.plusMinutes(670), "SUCCESS", "STRIPE", "20.00", 120);
+                insert("order4", DAY.plusMinutes(645), "SUCCESS", "PAYPAL", "1.00", 30);
+                insert("order5", DAY.plusDays(1).plusMinutes(5), "EXPIRED", "STRIPE", "7.00", null);
+
+                // Act
+                paymentRollupService.refresh();
+                List<PaymentRollupDTO> hourly = paymentRollupService.getRollups(RollupGranularity.HOURLY, DAY,
+                                DAY.plusDays(1), PaymentProviderType.STRIPE);
+                List<PaymentRollupDTO> daily = paymentRollupService.getRollups(RollupGranularity.DAILY, DAY,
+                                DAY.plusDays(2), null);
+
+                // Assert
+                Assertions.assertThat(hourly).extracting(rollup -> rollup.bucketStart().toInstant())
+                                .containsExactly(DAY.plusHours(10).toInstant(), DAY.plusHours(11).toInstant());
+                PaymentRollupDTO tenOClock = hourly.getFirst();
+                Assertions.assertThat(tenOClock.payments()).isEqualTo(2);
+                Assertions.assertThat(tenOClock.successRate()).isEqualTo(0.5);
+                Assertions.assertThat(tenOClock.amount()).isEqualByComparingTo("15.00");
+                Assertions.assertThat(tenOClock.succeededAmount()).isEqualByComparingTo("10.00");
+                Assertions.assertThat(tenOClock.averageCompletionSeconds()).isEqualTo(60.0);
+
+                Assertions.assertThat(daily).extracting(rollup -> rollup.provider() + ":" + rollup.payments())
+                                .containsExactly("PAYPAL:1", "STRIPE:3", "STRIPE:1");
+                Assertions.assertThat(daily.get(1).averageCompletionSeconds()).isEqualTo(90.0);
+                Assertions.assertThat(daily.get(2).expired()).isEqualTo(1);
+                Assertions.assertThat(daily.get(2).averageCompletionSeconds()).isNull();
+                Assertions.assertThat(daily).usingRecursiveComparison()
+                                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                                .isEqualTo(rollupRepository().aggregateRaw(RollupGranularity.DAILY, DAY,
+                                                DAY.plusDays(2)));
+        }
+
+        @Test
+        public void PaymentRollupServiceTest_Refresh_ReaggregatesOnlyBucketsTouchedByLateUpdates() {
+                // Arrange
+                insert("order1", DAY.plusMinutes(615), "PENDING", "STRIPE", "10.00", null);
+                insert("order2", DAY.plusMinutes(670), "SUCCESS", "STRIPE", "20.00", 5);
+                paymentRollupService.refresh();
+
+                // A change the outbox never saw, then a late status change on the 10:00 payment
+                jdbcTemplate.update("UPDATE payments SET status = 'FAILED' WHERE order_id = 'order2'");
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order1").orElseThrow();
+                        payment.markFailed();
+                        paymentRepository.save(payment);
+                });
+
+                // Act
+                paymentRollupService.refresh();
+                List<PaymentRollupDTO> hourly = paymentRollupService.getRollups(RollupGranularity.HOURLY, DAY,
+                                DAY.plusDays(1), null);
+
+                // Assert: 10:00 picked up the failure, 11:00 was not recomputed
+                Assertions.assertThat(hourly).extracting(PaymentRollupDTO::failed).containsExactly(1L, 0L);
+                Assertions.assertThat(hourly).extracting(PaymentRollupDTO::succeeded).containsExactly(0L, 1L);
+                Assertions.assertThat(paymentRollupService.getRollups(RollupGranularity.DAILY, DAY, DAY.plusDays(1),
+                                null).getFirst().failed()).isEqualTo(1);
+        }
+
+        @Test
+        public void PaymentRollupServiceTest_Refresh_PicksUpChangeCommittedWithLowerOutboxId() {
+                // Arrange: order2's change is recorded after order1's and rolled up
+                insert("order1", DAY.plusMinutes(615), "PENDING", "STRIPE", "10.00", null);
+                insert("order2", DAY.plusMinutes(670), "PENDING", "STRIPE", "20.00", null);
+                paymentRollupService.refresh();
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order2").orElseThrow();
+                        payment.markFailed();
+                        paymentRepository.save(payment);
+                });
+                paymentRollupService.refresh();
+
+                // A slower transaction commits order1's change with an id from before order2's
+                Long lowerId = jdbcTemplate.queryForObject("SELECT MIN(id) - 1 FROM payment_outbox", Long.class);
+                transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update("UPDATE payments SET status = 'FAILED' WHERE order_id = 'order1'");
+                        jdbcTemplate.update("""
+                                        INSERT INTO payment_outbox (id, order_id, status, provider, amount, occurred_at)
+                                        VALUES (?, 'order1', 'FAILED', 'STRIPE', 10.00, ?)
+                                        """, lowerId, OffsetDateTime.now());
+                });
+
+                // Act
+                paymentRollupService.refresh();
+
+                // Assert
+                Assertions.assertThat(paymentRollupService.getRollups(RollupGranularity.HOURLY, DAY, DAY.plusDays(1),
+                                null)).extracting(PaymentRollupDTO::failed).containsExactly(1L, 1L);
+        }
+
+        @Test
+        public void PaymentRollupServiceTest_Refresh_KeepsEachCurrencyInItsOwnBucket() {
+                // Arrange: one provider and hour, three currencies
+                insert("order1", DAY.plusMinutes(615), "SUCCESS", "STRIPE", "ZAR", "10.00", 60);
+                insert("order2", DAY.plusMinutes(620), "SUCCESS", "STRIPE", "JPY", "1500", 30);
+                insert("order3", DAY.plusMinutes(625), "FAILED", "STRIPE", "JPY", "250", null);
+                insert("order4", DAY.plusMinutes(630), "SUCCESS", "STRIPE", "EUR", "5.50", 90);
+
+                // Act
+                paymentRollupService.refresh();
+                List<PaymentRollupDTO> hourly = paymentRollupService.getRollups(RollupGranularity.HOURLY, DAY,
+                                DAY.plusDays(1), null);
+
+                // Assert: amounts in the currency's own decimal places, never added across currencies
+                Assertions.assertThat(hourly).extracting(PaymentRollupDTO::currency)
+                                .containsExactly(CurrencyCode.EUR, CurrencyCode.JPY, CurrencyCode.ZAR);
+                Assertions.assertThat(hourly).extracting(PaymentRollupDTO::amount)
+                                .containsExactly(new BigDecimal("5.50"), new BigDecimal("1750"), new BigDecimal("10.00"));
+                Assertions.assertThat(hourly.get(1).succeededAmount()).isEqualTo(new BigDecimal("1500"));
+                Assertions.assertThat(hourly.get(1).successRate()).isEqualTo(0.5);
+                Assertions.assertThat(paymentRollupService.getRollups(RollupGranularity.DAILY, DAY, DAY.plusDays(1),
+                                null)).extracting(PaymentRollupDTO::payments).containsExactly(1L, 2L, 1L);
+        }
+
+        @Test
+        public void PaymentRollupServiceTest_GetRollups_ReturnsBadRequest_WhenRangeInverted() {
+                assertThatThrownBy(() -> paymentRollupService.getRollups(RollupGranularity.DAILY, DAY.plusDays(1),
+                                DAY, null))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("from must not be after to.");
+        }
+
+        private PaymentRollupRepository rollupRepository() {
+                return new PaymentRollupRepository(jdbcTemplate, PaymentStorageSchema.STANDARD);
+        }
+
+        private void insert(String orderId, OffsetDateTime createdAt, String status, String provider, String amount,
+                        Integer completedAfterSeconds) {
+                insert(orderId, createdAt, status, provider, "ZAR", amount, completedAfterSeconds);
+        }
+
+        private void insert(String orderId, OffsetDateTime createdAt, String status, String provider, String currency,
+                        String amount, Integer completedAfterSeconds) {
+                jdbcTemplate.update("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at,
+                                                      completed_at)
+                                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                                """, UUID.randomUUID(), orderId, new BigDecimal(amount), currency, status, provider,
+                                createdAt, OffsetDateTime.now().plusDays(1),
+                                completedAfterSeconds == null ? null : createdAt.plusSeconds(completedAfterSeconds));
+        }
+
+        static class SingleNode {
+
+                @Bean
+                JobCoordinator jobCoordinator() {
+                        return JobCoordinator.SINGLE_NODE;
+                }
+
+                @Bean
+                PaymentShards paymentShards() {
+                        return PaymentShards.SINGLE;
+                }
+        }
+}
@@ -1,12 +1,18 @@
 package com.nelani.demo.service;
 
+import com.nelani.demo.datasource.PaymentShards;
 import com.nelani.demo.dto.PaymentRequestDTO;
 import com.nelani.demo.dto.PaymentResponseDTO;
+import com.nelani.demo.model.ArchivedPayment;
+import com.nelani.demo.model.CurrencyCode;
 import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentSearchCriteria;
 import com.nelani.demo.model.PaymentSortField;
 import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.model.PaymentSummary;
 import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.ArchivedPaymentRepository;
 import com.nelani.demo.repository.PaymentRepository;
 import com.nelani.demo.service.impl.PaymentServiceImpl;
 import org.assertj.core.api.Assertions;
@@ -14,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
@@ -26,6 +33,10 @@ import java.util.Optional;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,12 +46,21 @@ public class PaymentServiceTest {
         @Mock
         private PaymentRepository paymentRepository;
 
+        @Mock
+        private ArchivedPaymentRepository archivedPaymentRepository;
+
+        @Mock
+        private PaymentArchiveService archiveService;
+
         @Mock
         private PaymentProviderFactory factory;
 
         @Mock
         private PaymentProvider provider;
 
+        @Spy
+        private PaymentShards shards = PaymentShards.SINGLE;
+
         @InjectMocks
         private PaymentServiceImpl paymentService;
 
@@ -57,23 +77,24 @@ public class PaymentServiceTest {
                                 BigDecimal.valueOf(10L),
                                 PaymentStatus.PENDING,
                                 PaymentProviderType.STRIPE);
-                final Page<Payment> resultsList = new PageImpl<>(List.of(payment1, payment), PageRequest.of(0, 10), 1);
+                final Page<PaymentSummary> resultsList = new PageImpl<>(
+                                List.of(summaryOf(payment1), summaryOf(payment)), PageRequest.of(0, 10), 1);
 
                 // Stub
-                when(paymentRepository.findAll((Pageable) any()))
+                when(paymentRepository.search(any(), any()))
                                 .thenReturn(resultsList);
 
                 // Act & Assert
                 var results = paymentService.getAllPayments(PaymentSortField.AMOUNT, Sort.Direction.DESC, 0, 10);
                 Assertions.assertThat(results.getTotalElements()).isEqualTo(resultsList.getTotalElements());
-                Assertions.assertThat(results.stream().findFirst().get().getAmount()).isEqualTo(payment1.getAmount());
-                Assertions.assertThat(results).extracting(PaymentResponseDTO::getOrderId).contains(payment.getOrderId(),
+                Assertions.assertThat(results.stream().findFirst().get().amount()).isEqualTo(payment1.getAmount());
+                Assertions.assertThat(results).extracting(PaymentResponseDTO::orderId).contains(payment.getOrderId(),
                                 payment1.getOrderId());
-                Assertions.assertThat(results).extracting(PaymentResponseDTO::getProvider).contains(payment.getProvider(),
+                Assertions.assertThat(results).extracting(PaymentResponseDTO::provider).contains(payment.getProvider(),
                                 payment1.getProvider());
-                Assertions.assertThat(results).extracting(PaymentResponseDTO::getCreatedAt)
+                Assertions.assertThat(results).extracting(PaymentResponseDTO::createdAt)
                                 .contains(payment.getCreatedAt(), payment1.getCreatedAt());
-                Assertions.assertThat(results).extracting(PaymentResponseDTO::getExpiresAt)
+                Assertions.assertThat(results).extracting(PaymentResponseDTO::expiresAt)
                                 .contains(payment.getExpiresAt(), payment1.getExpiresAt());
         }
 
@@ -132,6 +153,7 @@ public class PaymentServiceTest {
                         "clientId",
                         "clientSecret",
                         payment.getAmount(),
+                        payment.getCurrency(),
                         payment.getProvider(),
                         null,
                         null,
@@ -150,11 +172,11 @@ public class PaymentServiceTest {
                 // Assert
                 var result = paymentService.initializePayment(request);
                 Assertions.assertThat(result).isNotNull();
-                Assertions.assertThat(result.getOrderId()).isEqualTo(responseDTO.getOrderId());
-                Assertions.assertThat(result.getClientId()).isEqualTo(responseDTO.getClientId());
-                Assertions.assertThat(result.getClientSecret()).isEqualTo(responseDTO.getClientSecret());
-                Assertions.assertThat(result.getAmount()).isEqualTo(responseDTO.getAmount());
-                Assertions.assertThat(result.getProvider()).isEqualTo(responseDTO.getProvider());
+                Assertions.assertThat(result.orderId()).isEqualTo(responseDTO.orderId());
+                Assertions.assertThat(result.clientId()).isEqualTo(responseDTO.clientId());
+                Assertions.assertThat(result.clientSecret()).isEqualTo(responseDTO.clientSecret());
+                Assertions.assertThat(result.amount()).isEqualTo(responseDTO.amount());
+                Assertions.assertThat(result.provider()).isEqualTo(responseDTO.provider());
         }
 
         @Test
@@ -172,6 +194,7 @@ public class PaymentServiceTest {
                         "clientId",
                         "clientSecret",
                         payment.getAmount(),
+                        payment.getCurrency(),
                         payment.getProvider(),
                         null,
                         null,
@@ -190,11 +213,11 @@ public class PaymentServiceTest {
                 // Assert
                 var result = paymentService.initializePayment(request);
                 Assertions.assertThat(result).isNotNull();
-                Assertions.assertThat(result.getOrderId()).isEqualTo(responseDTO.getOrderId());
-                Assertions.assertThat(result.getClientId()).isEqualTo(responseDTO.getClientId());
-                Assertions.assertThat(result.getClientSecret()).isEqualTo(responseDTO.getClientSecret());
-                Assertions.assertThat(result.getAmount()).isEqualTo(responseDTO.getAmount());
-                Assertions.assertThat(result.getProvider()).isEqualTo(responseDTO.getProvider());
+                Assertions.assertThat(result.orderId()).isEqualTo(responseDTO.orderId());
+                Assertions.assertThat(result.clientId()).isEqualTo(responseDTO.clientId());
+                Assertions.assertThat(result.clientSecret()).isEqualTo(responseDTO.clientSecret());
+                Assertions.assertThat(result.amount()).isEqualTo(responseDTO.amount());
+                Assertions.assertThat(result.provider()).isEqualTo(responseDTO.provider());
         }
 
         @Test
@@ -212,6 +235,7 @@ public class PaymentServiceTest {
                         "clientId",
                         "clientSecret",
                         payment.getAmount(),
+                        payment.getCurrency(),
                         payment.getProvider(),
                         null,
                         null,
@@ -230,11 +254,11 @@ public class PaymentServiceTest {
                 // Assert
                 var result = paymentService.initializePayment(request);
                 Assertions.assertThat(result).isNotNull();
-                Assertions.assertThat(result.getOrderId()).isEqualTo(responseDTO.getOrderId());
-                Assertions.assertThat(result.getClientId()).isEqualTo(responseDTO.getClientId());
-                Assertions.assertThat(result.getClientSecret()).isEqualTo(responseDTO.getClientSecret());
-                Assertions.assertThat(result.getAmount()).isEqualTo(responseDTO.getAmount());
-                Assertions.assertThat(result.getProvider()).isEqualTo(responseDTO.getProvider());
+                Assertions.assertThat(result.orderId()).isEqualTo(responseDTO.orderId());
+                Assertions.assertThat(result.clientId()).isEqualTo(responseDTO.clientId());
+                Assertions.assertThat(result.clientSecret()).isEqualTo(responseDTO.clientSecret());
+                Assertions.assertThat(result.amount()).isEqualTo(responseDTO.amount());
+                Assertions.assertThat(result.provider()).isEqualTo(responseDTO.provider());
         }
 
         @Test
@@ -252,6 +276,7 @@ public class PaymentServiceTest {
                         "clientId",
                         "clientSecret",
                         payment.getAmount(),
+                        payment.getCurrency(),
                         payment.getProvider(),
                         null,
                         null,
@@ -270,11 +295,26 @@ public class PaymentServiceTest {
                 // Assert
                 var result = paymentService.initializePayment(request);
                 Assertions.assertThat(result).isNotNull();
-                Assertions.assertThat(result.getOrderId()).isEqualTo(responseDTO.getOrderId());
-                Assertions.assertThat(result.getClientId()).isEqualTo(responseDTO.getClientId());
-                Assertions.assertThat(result.getClientSecret()).isEqualTo(responseDTO.getClientSecret());
-                Assertions.assertThat(result.getAmount()).isEqualTo(responseDTO.getAmount());
-                Assertions.assertThat(result.getProvider()).isEqualTo(responseDTO.getProvider());
+                Assertions.assertThat(result.orderId()).isEqualTo(responseDTO.orderId());
+                Assertions.assertThat(result.clientId()).isEqualTo(responseDTO.clientId());
+                Assertions.assertThat(result.clientSecret()).isEqualTo(responseDTO.clientSecret());
+                Assertions.assertThat(result.amount()).isEqualTo(responseDTO.amount());
+                Assertions.assertThat(result.provider()).isEqualTo(responseDTO.provider());
+        }
+
+        @Test
+        public void PaymentServiceTest_InitializePayment_RejectsCurrencyTheProviderDoesNotTake() {
+                // Arrange
+                final PaymentRequestDTO request = new PaymentRequestDTO("order1", BigDecimal.valueOf(100L),
+                                PaymentProviderType.PAYPAL, CurrencyCode.ZAR);
+                when(paymentRepository.findByOrderId(request.orderId())).thenReturn(Optional.empty());
+
+                // Act & Assert: a 400 before anything is stored or sent to PayPal
+                assertThatThrownBy(() -> paymentService.initializePayment(request))
+                                .isInstanceOf(IllegalArgumentException.class)
+                                .hasMessageContaining("PAYPAL does not support ZAR payments");
+                verify(paymentRepository, never()).save(any());
+                verifyNoInteractions(factory);
         }
 
         @Test
@@ -290,6 +330,7 @@ public class PaymentServiceTest {
                         "clientId",
                         "clientSecret",
                         payment.getAmount(),
+                        payment.getCurrency(),
                         payment.getProvider(),
                         null,
                         null,
@@ -309,11 +350,11 @@ public class PaymentServiceTest {
                 // Assert
                 var result = paymentService.resumePayment(payment.getOrderId());
                 Assertions.assertThat(result).isNotNull();
-                Assertions.assertThat(result.getOrderId()).isEqualTo(responseDTO.getOrderId());
-                Assertions.assertThat(result.getClientId()).isEqualTo(responseDTO.getClientId());
-                Assertions.assertThat(result.getClientSecret()).isEqualTo(responseDTO.getClientSecret());
-                Assertions.assertThat(result.getAmount()).isEqualTo(responseDTO.getAmount());
-                Assertions.assertThat(result.getProvider()).isEqualTo(responseDTO.getProvider());
+                Assertions.assertThat(result.orderId()).isEqualTo(responseDTO.orderId());
+                Assertions.assertThat(result.clientId()).isEqualTo(responseDTO.clientId());
+                Assertions.assertThat(result.clientSecret()).isEqualTo(responseDTO.clientSecret());
+                Assertions.assertThat(result.amount()).isEqualTo(responseDTO.amount());
+                Assertions.assertThat(result.provider()).isEqualTo(responseDTO.provider());
         }
 
         @Test
@@ -366,4 +407,103 @@ public class PaymentServiceTest {
         }
 
 
+
+        @Test
+        public void PaymentServiceTest_ResumePayment_ReturnsConflict_WhenArchived() {
+                // Arrange
+                final ArchivedPayment archived = mock(ArchivedPayment.class);
+                when(archived.getStatus()).thenReturn(PaymentStatus.SUCCESS);
+
+                // Stub
+                when(paymentRepository.findByOrderId(anyString()))
+                                .thenReturn(Optional.empty());
+                when(archivedPaymentRepository.findByOrderId(anyString()))
+                                .thenReturn(Optional.of(archived));
+
+                // Act & Assert
+                assertThatThrownBy(() -> paymentService.resumePayment("order1"))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("Payment cannot be resumed. Current status: SUCCESS");
+        }
+
+        @Test
+        public void PaymentServiceTest_GetPayment_ReturnsStatusWithoutSession() {
+                // Arrange
+                final Payment payment = new Payment(
+                                "order1",
+                                BigDecimal.valueOf(100L),
+                                PaymentStatus.PENDING,
+                                PaymentProviderType.STRIPE);
+                payment.setProviderReference("pi_123");
+
+                // Stub
+                when(paymentRepository.findByOrderId("order1"))
+                                .thenReturn(Optional.of(payment));
+
+                // Act
+                final PaymentResponseDTO result = paymentService.getPayment("order1");
+
+                // Assert
+                Assertions.assertThat(result.status()).isEqualTo("PENDING");
+                Assertions.assertThat(result.provider()).isEqualTo(PaymentProviderType.STRIPE);
+                Assertions.assertThat(result.clientId()).isNull();
+                Assertions.assertThat(result.clientSecret()).isNull();
+        }
+
+        @Test
+        public void PaymentServiceTest_GetPayment_ReturnsArchivedPayment() {
+                // Arrange
+                final ArchivedPayment archived = mock(ArchivedPayment.class);
+                when(archived.getOrderId()).thenReturn("order1");
+                when(archived.getStatus()).thenReturn(PaymentStatus.SUCCESS);
+
+                // Stub
+                when(paymentRepository.findByOrderId("order1"))
+                                .thenReturn(Optional.empty());
+                when(archivedPaymentRepository.findByOrderId("order1"))
+                                .thenReturn(Optional.of(archived));
+
+                // Act
+                final PaymentResponseDTO result = paymentService.getPayment("order1");
+
+                // Assert
+                Assertions.assertThat(result.orderId()).isEqualTo("order1");
+                Assertions.assertThat(result.status()).isEqualTo("SUCCESS");
+        }
+
+        @Test
+        public void PaymentServiceTest_GetPayment_ReturnsError_WhenPaymentNotFound() {
+                assertThatThrownBy(() -> paymentService.getPayment("order1"))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("Payment not found.");
+        }
+
+        @Test
+        public void PaymentServiceTest_SearchPayments_ReturnsBadRequest_WhenRangeInverted() {
+                // Arrange
+                final PaymentSearchCriteria criteria = new PaymentSearchCriteria(null, null, null, null, null, null,
+                                BigDecimal.valueOf(100L), BigDecimal.TEN);
+
+                // Act & Assert
+                assertThatThrownBy(() -> paymentService.searchPayments(criteria, PaymentSortField.AMOUNT,
+                                Sort.Direction.ASC, 0, 10))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("minAmount must not be greater than maxAmount.");
+        }
+
+        @Test
+        public void PaymentServiceTest_SearchPayments_ReturnsBadRequest_WhenPageTooDeep() {
+                // Act & Assert: refused before any tier is read
+                assertThatThrownBy(() -> paymentService.searchPayments(PaymentSearchCriteria.none(),
+                                PaymentSortField.AMOUNT, Sort.Direction.ASC, 20_000_000, 10))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("Pages must end within the first 10000 results");
+                verifyNoInteractions(paymentRepository);
+        }
+
+        private static PaymentSummary summaryOf(Payment payment) {
+                return new PaymentSummary(payment.getOrderId(), payment.getAmount(), payment.getCurrency(),
+                                payment.getStatus(), payment.getProvider(), payment.getCreatedAt(), payment.getExpiresAt(),
+                                payment.getCompletedAt());
+        }
 }
@@ -0,0 +1,187 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.PaymentStatsDTO;
+import com.nelani.demo.dto.PaymentStatsEntry;
+import com.nelani.demo.dto.PaymentStatsTotal;
+import com.nelani.demo.model.CurrencyCode;
+import com.nelani.demo.model.Money;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.impl.PaymentStatsServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import({ PaymentStatsServiceImpl.class, PaymentStatsServiceTest.SingleShard.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class PaymentStatsServiceTest {
+
+        @Autowired
+        private PaymentStatsService paymentStatsService;
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                jdbcTemplate.update("DELETE FROM payments");
+                paymentStatsService.reconcile();
+        }
+
+        @Test
+        public void PaymentStatsServiceTest_Transitions_MoveCountsAndAmountsBetweenStatuses() {
+                // Arrange
+                save(new Payment("order1", new BigDecimal("100.10"), PaymentStatus.INITIATING,
+                                PaymentProviderType.STRIPE));
+                save(new Payment("order2", new BigDecimal("0.05"), PaymentStatus.INITIATING,
+                                PaymentProviderType.PAYPAL));
+
+                // Act
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order1").orElseThrow();
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        payment.markSuccess();
+                        paymentRepository.save(payment);
+                });
+                transactionTemplate.executeWithoutResult(status -> {
+                        Payment payment = paymentRepository.findByOrderId("order2").orElseThrow();
+                        payment.markFailed();
+                        paymentRepository.save(payment);
+                        status.setRollbackOnly(); // Rolled back changes must not be counted
+                });
+                PaymentStatsDTO stats = paymentStatsService.getStats(null, null);
+
+                // Assert
+                Assertions.assertThat(stats.total().count()).isEqualTo(2);
+                Assertions.assertThat(stats.total().amounts()).containsOnlyKeys(CurrencyCode.ZAR, CurrencyCode.USD);
+                Assertions.assertThat(stats.total().amounts().get(CurrencyCode.ZAR)).isEqualByComparingTo("100.10");
+                Assertions.assertThat(stats.total().amounts().get(CurrencyCode.USD)).isEqualByComparingTo("0.05");
+                Assertions.assertThat(stats.byStatus()).containsOnlyKeys(PaymentStatus.SUCCESS,
+                                PaymentStatus.INITIATING);
+                Assertions.assertThat(stats.byStatus().get(PaymentStatus.SUCCESS).amounts().get(CurrencyCode.ZAR))
+                                .isEqualByComparingTo("100.10");
+                Assertions.assertThat(stats.byProvider().get(PaymentProviderType.PAYPAL).count()).isEqualTo(1);
+                Assertions.assertThat(stats.entries()).hasSize(2)
+                                .allSatisfy(entry -> Assertions.assertThat(entry.day())
+                                                .isEqualTo(LocalDate.now(ZoneOffset.UTC)));
+
+                // Reconciliation agrees with the incrementally maintained counters
+                paymentStatsService.reconcile();
+                Assertions.assertThat(paymentStatsService.getStats(null, null).entries())
+                                .isEqualTo(stats.entries());
+        }
+
+        @Test
+        public void PaymentStatsServiceTest_Reconcile_PicksUpRowsWrittenOutsideTheApplication() {
+                // Arrange: a row the counters never saw
+                OffsetDateTime createdAt = OffsetDateTime.of(2025, 1, 6, 23, 30, 0, 0, ZoneOffset.ofHours(-2));
+                jdbcTemplate.update("""
+                                INSERT INTO payments (id, order_id, amount, currency, status, provider, created_at, expires_at)
+                                VALUES (?, ?, ?, 'ZAR', ?, ?, ?, ?)
+                                """, UUID.randomUUID(), "imported", new BigDecimal("25.00"), "SUCCESS", "STRIPE",
+                                createdAt, createdAt.plusDays(1));
+                Assertions.assertThat(paymentStatsService.getStats(null, null).total().count()).isZero();
+
+                // Act
+                paymentStatsService.reconcile();
+                PaymentStatsDTO stats = paymentStatsService.getStats(LocalDate.of(2025, 1, 7),
+                                LocalDate.of(2025, 1, 7));
+
+                // Assert: bucketed by UTC day
+                Assertions.assertThat(stats.total().count()).isEqualTo(1);
+                Assertions.assertThat(stats.total().amounts().get(CurrencyCode.ZAR)).isEqualByComparingTo("25.00");
+                Assertions.assertThat(stats.reconciledAt()).isNotNull();
+                Assertions.assertThat(paymentStatsService.getStats(LocalDate.of(2025, 1, 6),
+                                LocalDate.of(2025, 1, 6)).total().count()).isZero();
+        }
+
+        @Test
+        public void PaymentStatsServiceTest_Amounts_AreSummedPerCurrency() {
+                // Arrange: one provider, three currencies, JPY without minor units
+                save(new Payment("default", "order1", Money.of(new BigDecimal("1500"), CurrencyCode.JPY),
+                                PaymentStatus.INITIATING, PaymentProviderType.STRIPE));
+                save(new Payment("default", "order2", Money.of(new BigDecimal("250"), CurrencyCode.JPY),
+                                PaymentStatus.INITIATING, PaymentProviderType.STRIPE));
+                save(new Payment("default", "order3", Money.of(new BigDecimal("10.50"), CurrencyCode.EUR),
+                                PaymentStatus.INITIATING, PaymentProviderType.STRIPE));
+                save(new Payment("default", "order4", Money.of(new BigDecimal("99.99"), CurrencyCode.ZAR),
+                                PaymentStatus.INITIATING, PaymentProviderType.STRIPE));
+
+                // Act
+                PaymentStatsDTO stats = paymentStatsService.getStats(null, null);
+
+                // Assert
+                PaymentStatsTotal stripe = stats.byProvider().get(PaymentProviderType.STRIPE);
+                Assertions.assertThat(stripe.count()).isEqualTo(4);
+                Assertions.assertThat(stripe.amounts()).containsOnly(
+                                Map.entry(CurrencyCode.JPY, new BigDecimal("1750")),
+                                Map.entry(CurrencyCode.EUR, new BigDecimal("10.50")),
+                                Map.entry(CurrencyCode.ZAR, new BigDecimal("99.99")));
+                Assertions.assertThat(stats.entries()).extracting(PaymentStatsEntry::currency)
+                                .containsExactly(CurrencyCode.EUR, CurrencyCode.JPY, CurrencyCode.ZAR);
+
+                // Reconciliation reads the same per-currency sums back from the database
+                paymentStatsService.reconcile();
+                Assertions.assertThat(paymentStatsService.getStats(null, null).entries())
+                                .usingRecursiveFieldByFieldElementComparator()
+                                .isEqualTo(stats.entries());
+        }
+
+        @Test
+        public void PaymentStatsServiceTest_GetStats_ReturnsBadRequest_WhenRangeInverted() {
+                assertThatThrownBy(() -> paymentStatsService.getStats(LocalDate.of(2025, 2, 1),
+                                LocalDate.of(2025, 1, 1)))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("from must not be after to.");
+        }
+
+        private void save(Payment payment) {
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.save(payment));
+        }
+
+        static class SingleShard {
+
+                @Bean
+                PaymentShards paymentShards() {
+                        return PaymentShards.SINGLE;
+                }
+        }
+}
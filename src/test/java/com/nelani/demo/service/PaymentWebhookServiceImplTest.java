@@ -1,103 +1,93 @@
 package com.nelani.demo.service;
 
 import com.nelani.demo.dto.WebhookResult;
-import com.nelani.demo.model.Payment;
 import com.nelani.demo.model.PaymentProviderType;
 import com.nelani.demo.provider.PaymentProvider;
-import com.nelani.demo.repository.PaymentRepository;
 import com.nelani.demo.service.impl.PaymentWebhookServiceImpl;
+import com.nelani.demo.webhook.WebhookArchive;
+import com.nelani.demo.webhook.WebhookInbox;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.http.HttpHeaders;
 
-import java.math.BigDecimal;
-import java.util.Optional;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class PaymentWebhookServiceImplTest {
 
-    @Mock
-    private PaymentRepository paymentRepository;
-
     @Mock
     private PaymentProviderFactory factory;
 
     @Mock
     private PaymentProvider provider;
 
+    @Mock
+    private WebhookInbox webhookInbox;
+
+    @Mock
+    private WebhookArchive webhookArchive;
+
     @InjectMocks
     private PaymentWebhookServiceImpl paymentWebhookService;
 
+    private final HttpHeaders headers = new HttpHeaders();
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
     }
 
     @Test
-    void handleStripeWebhook_updatesPaymentToSuccess_whenWebhookIsRelevantAndSuccessful() {
+    void handleWebhook_queuesEvent_whenWebhookIsRelevantAndSuccessful() {
         // Arrange
-        UUID paymentId = UUID.randomUUID();
-        Payment payment = new Payment(
-                "order-1",
-                BigDecimal.valueOf(100),
-                com.nelani.demo.model.PaymentStatus.PENDING,
-                PaymentProviderType.STRIPE
-        );
-
         WebhookResult webhookResult = new WebhookResult(
-                paymentId,
+                UUID.randomUUID(),
                 true,
-                true
+                true,
+                "evt_1"
         );
 
         when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
-        when(provider.handleWebhook(any(), any())).thenReturn(webhookResult);
-        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(provider.handleWebhook(anyString(), anyString(), any(HttpHeaders.class))).thenReturn(webhookResult);
 
         // Act
-        paymentWebhookService.handleStripeWebhook("payload", "signature");
+        paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, "default", "payload", headers);
 
         // Assert
-        verify(paymentRepository).save(payment);
+        verify(webhookArchive).append(PaymentProviderType.STRIPE, "default", "evt_1", "payload");
+        verify(webhookInbox).accept(PaymentProviderType.STRIPE, "default", webhookResult);
     }
 
     @Test
-    void handleStripeWebhook_updatesPaymentToFailed_whenWebhookIsRelevantAndFailed() {
+    void handleWebhook_queuesEvent_whenWebhookIsRelevantAndFailed() {
         // Arrange
-        UUID paymentId = UUID.randomUUID();
-        Payment payment = new Payment(
-                "order-1",
-                BigDecimal.valueOf(100),
-                com.nelani.demo.model.PaymentStatus.PENDING,
-                PaymentProviderType.STRIPE
-        );
-
         WebhookResult webhookResult = new WebhookResult(
-                paymentId,
+                UUID.randomUUID(),
+                false,
                 true,
-                true
+                "evt_2"
         );
 
         when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
-        when(provider.handleWebhook(any(), any())).thenReturn(webhookResult);
-        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(provider.handleWebhook(anyString(), anyString(), any(HttpHeaders.class))).thenReturn(webhookResult);
 
         // Act
-        paymentWebhookService.handleStripeWebhook("payload", "signature");
+        paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, "default", "payload", headers);
 
         // Assert
-        verify(paymentRepository).save(payment);
+        verify(webhookInbox).accept(PaymentProviderType.STRIPE, "default", webhookResult);
     }
 
     @Test
-    void handleStripeWebhook_doesNothing_whenWebhookIsNotRelevant() {
+    void handleWebhook_doesNothing_whenWebhookIsNotRelevant() {
         // Arrange
         WebhookResult webhookResult = new WebhookResult(
                 UUID.randomUUID(),
@@ -109,19 +99,19 @@ class PaymentWebhookServiceImplTest {
         when(factory.get(PaymentProviderType.STRIPE))
                 .thenReturn(provider);
 
-        when(provider.handleWebhook(any(), any()))
+        when(provider.handleWebhook(anyString(), anyString(), any(HttpHeaders.class)))
                 .thenReturn(webhookResult);
 
         // Act
-        paymentWebhookService.handleStripeWebhook("payload", "signature");
+        paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, "default", "payload", headers);
 
         // Assert
-        verify(paymentRepository, never()).findById(any());
-        verify(paymentRepository, never()).save(any());
+        verify(webhookInbox, never()).accept(any(), any(), any());
+        verify(webhookArchive).append(PaymentProviderType.STRIPE, "default", null, "payload");
     }
 
     @Test
-    void handleStripeWebhook_doesNothing_whenPaymentIdIsNull() {
+    void handleWebhook_doesNothing_whenPaymentIdIsNull() {
         // Arrange
         WebhookResult webhookResult = new WebhookResult(
                 null,
@@ -130,35 +120,73 @@ class PaymentWebhookServiceImplTest {
         );
 
         when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
-        when(provider.handleWebhook(any(), any())).thenReturn(webhookResult);
+        when(provider.handleWebhook(anyString(), anyString(), any(HttpHeaders.class))).thenReturn(webhookResult);
 
         // Act
-        paymentWebhookService.handleStripeWebhook("payload", "signature");
+        paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, "default", "payload", headers);
 
         // Assert
-        verify(paymentRepository, never()).save(any());
-        verify(paymentRepository, never()).findById(any());
+        verify(webhookInbox, never()).accept(any(), any(), any());
+    }
+
+    @Test
+    void handleWebhook_propagatesInvalidSignature_withoutQueueing() {
+        // Arrange
+        when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
+        when(provider.handleWebhook(anyString(), anyString(), any(HttpHeaders.class)))
+                .thenThrow(new IllegalArgumentException("Invalid webhook signature"));
+
+        // Act & Assert
+        assertThatThrownBy(() ->
+                paymentWebhookService.handleWebhook(PaymentProviderType.STRIPE, "default", "payload", headers)
+        ).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(webhookInbox, webhookArchive);
     }
 
     @Test
-    void handleStripeWebhook_throwsNotFound_whenPaymentDoesNotExist() {
+    void handleWebhook_passesPayPalHeaders_andQueuesEvent() {
         // Arrange
-        UUID paymentId = UUID.randomUUID();
+        headers.add("PAYPAL-TRANSMISSION-ID", "tx-1");
+        WebhookResult webhookResult = new WebhookResult(
+                UUID.randomUUID(),
+                true,
+                true,
+                "WH-1"
+        );
+
+        when(factory.get(PaymentProviderType.PAYPAL)).thenReturn(provider);
+        when(provider.handleWebhook("default", "payload", headers)).thenReturn(webhookResult);
+
+        // Act
+        paymentWebhookService.handleWebhook(PaymentProviderType.PAYPAL, "default", "payload", headers);
 
+        // Assert
+        verify(webhookArchive).append(PaymentProviderType.PAYPAL, "default", "WH-1", "payload");
+        verify(webhookInbox).accept(PaymentProviderType.PAYPAL, "default", webhookResult);
+    }
+
+    @Test
+    void replayWebhook_parsesWithoutVerifying_andReportsDuplicates() {
+        // Arrange
         WebhookResult webhookResult = new WebhookResult(
-                paymentId,
+                UUID.randomUUID(),
                 true,
-                true
+                true,
+                "evt_9"
         );
 
         when(factory.get(PaymentProviderType.STRIPE)).thenReturn(provider);
-        when(provider.handleWebhook(any(), any())).thenReturn(webhookResult);
-        when(paymentRepository.findById(paymentId)).thenReturn(Optional.empty());
+        when(provider.parseWebhook("default", "payload")).thenReturn(webhookResult);
+        when(webhookInbox.accept(PaymentProviderType.STRIPE, "default", webhookResult)).thenReturn(true, false);
 
-        // Act & Assert
-        assertThatThrownBy(() ->
-                paymentWebhookService.handleStripeWebhook("payload", "signature")
-        ).isInstanceOf(ResponseStatusException.class)
-                .hasMessageContaining("Payment not found");
+        // Act
+        boolean first = paymentWebhookService.replayWebhook(PaymentProviderType.STRIPE, "default", "payload");
+        boolean second = paymentWebhookService.replayWebhook(PaymentProviderType.STRIPE, "default", "payload");
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        verify(provider, never()).handleWebhook(anyString(), anyString(), any(HttpHeaders.class));
+        verifyNoInteractions(webhookArchive);
     }
 }
@@ -0,0 +1,118 @@
+package com.nelani.demo.service;
+
+import com.nelani.demo.dto.WebhookReplayResult;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.service.impl.WebhookReplayServiceImpl;
+import com.nelani.demo.webhook.WebhookArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WebhookReplayServiceTest {
+
+        @TempDir
+        Path directory;
+
+        @Mock
+        private PaymentWebhookService paymentWebhookService;
+
+        private WebhookArchive archive;
+        private WebhookReplayService replayService;
+
+        @BeforeEach
+        void setUp() {
+                archive = new WebhookArchive(true, directory, DataSize.ofMegabytes(1), Duration.ofHours(1),
+                                new SimpleMeterRegistry());
+                replayService = new WebhookReplayServiceImpl(archive, paymentWebhookService);
+        }
+
+        @AfterEach
+        void tearDown() {
+                archive.close();
+        }
+
+        @Test
+        public void WebhookReplayServiceTest_Replay_FeedsRangeThroughWebhookService() {
+                // Arrange
+                OffsetDateTime from = OffsetDateTime.now().minusSeconds(1);
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_1", "payload-1");
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_2", "payload-2");
+                archive.append(PaymentProviderType.PAYPAL, "default", "WH-3", "payload-3");
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_4", "payload-4");
+                OffsetDateTime to = OffsetDateTime.now().plusSeconds(1);
+
+                when(paymentWebhookService.replayWebhook(eq(PaymentProviderType.STRIPE), eq("default"), anyString()))
+                                .thenAnswer(invocation -> switch (invocation.<String>getArgument(2)) {
+                                        case "payload-1" -> true;
+                                        case "payload-2" -> false; // accepted before
+                                        default -> throw new IllegalStateException("boom");
+                                });
+
+                // Act
+                WebhookReplayResult result = replayService.replay(from, to, PaymentProviderType.STRIPE, 1000, 2);
+
+                // Assert
+                Assertions.assertThat(result).isEqualTo(new WebhookReplayResult(3, 1, 1, 1));
+                verify(paymentWebhookService, times(3))
+                                .replayWebhook(eq(PaymentProviderType.STRIPE), eq("default"), anyString());
+                verify(paymentWebhookService, never())
+                                .replayWebhook(PaymentProviderType.PAYPAL, "default", "payload-3");
+        }
+
+        @Test
+        public void WebhookReplayServiceTest_Replay_IsPacedByRate() {
+                // Arrange: 3 events at 1 per second need at least two refresh periods
+                OffsetDateTime from = OffsetDateTime.now().minusSeconds(1);
+                for (int i = 0; i < 3; i++) {
+                        archive.append(PaymentProviderType.STRIPE, "default", "evt_" + i, "payload");
+                }
+                OffsetDateTime to = OffsetDateTime.now().plusSeconds(1);
+                when(paymentWebhookService.replayWebhook(PaymentProviderType.STRIPE, "default", "payload"))
+                                .thenReturn(true);
+
+                // Act
+                long start = System.nanoTime();
+                WebhookReplayResult result = replayService.replay(from, to, null, 1, 4);
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+                // Assert
+                Assertions.assertThat(result.queued()).isEqualTo(3);
+                Assertions.assertThat(elapsed).isGreaterThan(Duration.ofMillis(1500));
+        }
+
+        @Test
+        public void WebhookReplayServiceTest_Replay_RejectsInvalidArguments() {
+                OffsetDateTime now = OffsetDateTime.now();
+
+                assertThatThrownBy(() -> replayService.replay(now, now, null, 10, 1))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("from must be before to.");
+                assertThatThrownBy(() -> replayService.replay(now, now.plusHours(1), null, 0, 1))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("rate must be between");
+                assertThatThrownBy(() -> replayService.replay(now, now.plusHours(1), null, 10, 100))
+                                .isInstanceOf(ResponseStatusException.class)
+                                .hasMessageContaining("workers must be between");
+        }
+}
@@ -0,0 +1,148 @@
+package com.nelani.demo.tenant;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantClientCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> closed = new ArrayList<>();
+
+    @Test
+    void get_reusesClientOfSameTenant() {
+        // Arrange
+        TenantClientCache<TestClient> cache = cache(4);
+
+        // Act
+        TestClient first = cache.get("acme");
+        TestClient second = cache.get("acme");
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("payments.tenants.clients.created", "provider", "STRIPE").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void get_closesLeastRecentlyUsedClient_beyondMaxClients() {
+        // Arrange
+        TenantClientCache<TestClient> cache = cache(2);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+
+        // Act
+        cache.get("c");
+
+        // Assert: b was used least recently
+        assertThat(closed).containsExactly("b");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("payments.tenants.clients").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void get_closesIdleClients() {
+        // Arrange
+        TenantClientCache<TestClient> cache = cache(4);
+        TestClient idle = cache.get("a");
+        clock.advance(Duration.ofMinutes(20));
+        cache.get("b");
+        clock.advance(Duration.ofMinutes(15));
+
+        // Act
+        cache.get("b");
+
+        // Assert: a has been idle for 35 minutes, b was just used
+        assertThat(closed).containsExactly("a");
+        assertThat(cache.get("a")).isNotSameAs(idle);
+        assertThat(meterRegistry.counter("payments.tenants.clients.evicted", "provider", "STRIPE").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void get_propagatesUnknownTenant_withoutCaching() {
+        // Arrange
+        TenantClientCache<TestClient> cache = cache(4);
+
+        // Act & Assert
+        assertThatThrownBy(() -> cache.get("unknown"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void clear_closesEveryClient() {
+        // Arrange
+        TenantClientCache<TestClient> cache = cache(4);
+        cache.get("a");
+        cache.get("b");
+
+        // Act
+        cache.clear();
+
+        // Assert
+        assertThat(closed).containsExactlyInAnyOrder("a", "b");
+        assertThat(cache.size()).isZero();
+    }
+
+    private TenantClientCache<TestClient> cache(int maxClients) {
+        return new TenantClientCache<>("STRIPE", tenantId -> {
+            if (tenantId.equals("unknown")) {
+                throw new IllegalArgumentException("Unknown merchant account: " + tenantId);
+            }
+            return new TestClient(tenantId);
+        }, maxClients, Duration.ofMinutes(30), clock, meterRegistry);
+    }
+
+    private final class TestClient implements AutoCloseable {
+
+        private final String tenantId;
+
+        private TestClient(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        @Override
+        public void close() {
+            closed.add(tenantId);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.ofEpochSecond(1_700_000_000L);
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.nelani.demo.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.provider.PaymentProvider;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.service.PaymentProviderFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentWarmUpTest {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private PaymentProvider provider;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(provider.getType()).thenReturn(PaymentProviderType.STRIPE);
+    }
+
+    @Test
+    void warmUp_runsLaterSteps_whenStepFails() {
+        // Arrange
+        doThrow(new IllegalStateException("Stripe unreachable")).when(provider).preconnect("default");
+        doThrow(new IllegalStateException("Broken signature")).when(provider).warmUpWebhooks(anyInt());
+        when(paymentRepository.findRecentOrderIds(any(), any())).thenReturn(List.of("order-1"));
+
+        // Act
+        warmUp(Duration.ofSeconds(30)).warmUp();
+
+        // Assert: every step ran and was timed, the failing ones included
+        verify(provider).warmUpWebhooks(10);
+        verify(paymentRepository).findByOrderId("order-1");
+        Assertions.assertThat(meterRegistry.find("payments.warmup").timers())
+                .extracting(timer -> timer.getId().getTag("step"))
+                .containsExactlyInAnyOrder("connections", "mapping", "webhooks", "orders", "total");
+    }
+
+    @Test
+    void warmUp_skipsPendingSteps_whenTimeoutReached() {
+        // Arrange: the first step outlasts the timeout
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(provider).preconnect("default");
+
+        // Act
+        warmUp(Duration.ofMillis(20)).warmUp();
+
+        // Assert
+        verify(provider, never()).warmUpWebhooks(anyInt());
+        verifyNoInteractions(paymentRepository);
+        Assertions.assertThat(meterRegistry.find("payments.warmup").timers())
+                .extracting(timer -> timer.getId().getTag("step"))
+                .containsExactlyInAnyOrder("connections", "total");
+    }
+
+    @Test
+    void warmUp_doesNothing_whenDisabled() {
+        // Arrange
+        PaymentWarmUp warmUp = new PaymentWarmUp(new PaymentProviderFactory(List.of(provider)), paymentRepository,
+                PaymentShards.SINGLE, transactionManager, objectMapper(), VALIDATOR,
+                new WarmUpProperties(false, List.of("default"), 10, 5, Duration.ofSeconds(30)), meterRegistry);
+
+        // Act
+        warmUp.warmUp();
+
+        // Assert
+        verify(provider, never()).preconnect(any());
+        verifyNoInteractions(paymentRepository);
+        Assertions.assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void warmUp_holdsBackReadiness_untilDone() {
+        // Arrange: record the readiness the node reports while the warm-up runs
+        AtomicReference<ConfigurableApplicationContext> starting = new AtomicReference<>();
+        List<ReadinessState> duringWarmUp = new ArrayList<>();
+        doAnswer(invocation -> {
+            duringWarmUp.add(starting.get().getBean(ApplicationAvailability.class).getReadinessState());
+            return null;
+        }).when(provider).preconnect("default");
+        PaymentWarmUp warmUp = warmUp(Duration.ofSeconds(30));
+
+        // Act
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ReadinessContext.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .initializers(applicationContext -> {
+                    starting.set(applicationContext);
+                    GenericApplicationContext registry = (GenericApplicationContext) applicationContext;
+                    registry.registerBean(ApplicationAvailabilityBean.class);
+                    registry.registerBean(PaymentWarmUp.class, () -> warmUp);
+                })
+                .run()) {
+
+            // Assert
+            Assertions.assertThat(duringWarmUp).containsExactly(ReadinessState.REFUSING_TRAFFIC);
+            Assertions.assertThat(context.getBean(ApplicationAvailability.class).getReadinessState())
+                    .isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private PaymentWarmUp warmUp(Duration timeout) {
+        return new PaymentWarmUp(new PaymentProviderFactory(List.of(provider)), paymentRepository,
+                PaymentShards.SINGLE, transactionManager, objectMapper(), VALIDATOR,
+                new WarmUpProperties(true, List.of("default"), 10, 5, timeout), meterRegistry);
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class ReadinessContext {
+    }
+}
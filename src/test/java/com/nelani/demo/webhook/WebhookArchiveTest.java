@@ -0,0 +1,125 @@
+package com.nelani.demo.webhook;
+
+import com.nelani.demo.model.PaymentProviderType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class WebhookArchiveTest {
+
+        @TempDir
+        Path directory;
+
+        private WebhookArchive archive;
+
+        @AfterEach
+        void tearDown() {
+                if (archive != null) {
+                        archive.close();
+                }
+        }
+
+        @Test
+        public void WebhookArchiveTest_Scan_ReturnsRangeInArrivalOrder_AcrossSegments() throws Exception {
+                // Arrange: a zero age limit starts a new segment for every record
+                archive = archive(Duration.ZERO);
+                OffsetDateTime from = OffsetDateTime.now().minusSeconds(1);
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_1", payload(1));
+                archive.append(PaymentProviderType.PAYPAL, "default", "WH-2", payload(2));
+                archive.append(PaymentProviderType.STRIPE, "default", null, payload(3));
+                OffsetDateTime to = OffsetDateTime.now().plusSeconds(1);
+
+                // Act
+                List<WebhookArchive.ArchivedWebhook> all = new ArrayList<>();
+                int count = archive.scan(from, to, null, all::add);
+                List<WebhookArchive.ArchivedWebhook> stripe = new ArrayList<>();
+                archive.scan(from, to, PaymentProviderType.STRIPE, stripe::add);
+
+                // Assert
+                Assertions.assertThat(count).isEqualTo(3);
+                Assertions.assertThat(all).extracting(WebhookArchive.ArchivedWebhook::payload)
+                                .containsExactly(payload(1), payload(2), payload(3));
+                Assertions.assertThat(stripe).extracting(WebhookArchive.ArchivedWebhook::eventId)
+                                .containsExactly("evt_1", null);
+                try (Stream<Path> files = Files.list(directory)) {
+                        Assertions.assertThat(files.filter(file -> file.toString().endsWith(".seg"))).hasSize(3);
+                }
+                Assertions.assertThat(archive.scan(to, to.plusHours(1), null, webhook -> {
+                })).isZero();
+        }
+
+        @Test
+        public void WebhookArchiveTest_Find_ReadsBackByEventId_AfterRestart() {
+                // Arrange
+                archive = archive(Duration.ofHours(1));
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_1", payload(1));
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_2", payload(2));
+                archive.close();
+
+                // Act: a new instance starts its own segment and still sees the old one
+                archive = archive(Duration.ofHours(1));
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_3", payload(3));
+
+                // Assert
+                Assertions.assertThat(archive.find(PaymentProviderType.STRIPE, "evt_2"))
+                                .hasValueSatisfying(webhook -> Assertions.assertThat(webhook.payload())
+                                                .isEqualTo(payload(2)));
+                Assertions.assertThat(archive.find(PaymentProviderType.STRIPE, "evt_3")).isPresent();
+                Assertions.assertThat(archive.find(PaymentProviderType.PAYPAL, "evt_1")).isEmpty();
+        }
+
+        @Test
+        public void WebhookArchiveTest_Scan_SkipsTornIndexLine() throws Exception {
+                // Arrange
+                archive = archive(Duration.ofHours(1));
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_1", payload(1));
+                archive.close();
+                Path index;
+                try (Stream<Path> files = Files.list(directory)) {
+                        index = files.filter(file -> file.toString().endsWith(".idx")).findFirst().orElseThrow();
+                }
+                Files.writeString(index, "17000000\tSTR", StandardOpenOption.APPEND);
+
+                // Act
+                List<WebhookArchive.ArchivedWebhook> all = new ArrayList<>();
+                archive.scan(OffsetDateTime.now().minusHours(1), OffsetDateTime.now().plusHours(1), null, all::add);
+
+                // Assert
+                Assertions.assertThat(all).extracting(WebhookArchive.ArchivedWebhook::eventId)
+                                .containsExactly("evt_1");
+        }
+
+        @Test
+        public void WebhookArchiveTest_Disabled_WritesNothing() {
+                // Arrange
+                archive = new WebhookArchive(false, directory, DataSize.ofMegabytes(1), Duration.ofHours(1),
+                                new SimpleMeterRegistry());
+
+                // Act
+                archive.append(PaymentProviderType.STRIPE, "default", "evt_1", payload(1));
+
+                // Assert
+                Assertions.assertThat(directory.toFile().list()).isEmpty();
+        }
+
+        private WebhookArchive archive(Duration segmentAge) {
+                return new WebhookArchive(true, directory, DataSize.ofMegabytes(1), segmentAge,
+                                new SimpleMeterRegistry());
+        }
+
+        private static String payload(int n) {
+                return "{\"id\":\"evt_" + n + "\",\"type\":\"payment_intent.succeeded\",\"data\":{}}";
+        }
+}
@@ -0,0 +1,177 @@
+package com.nelani.demo.webhook;
+
+import com.nelani.demo.coordination.JobCoordinator;
+import com.nelani.demo.datasource.PaymentShards;
+import com.nelani.demo.dto.WebhookResult;
+import com.nelani.demo.model.Payment;
+import com.nelani.demo.model.PaymentProviderType;
+import com.nelani.demo.model.PaymentStatus;
+import com.nelani.demo.repository.PaymentRepository;
+import com.nelani.demo.repository.WebhookInboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+public class WebhookInboxTest {
+
+        @Autowired
+        private PaymentRepository paymentRepository;
+
+        @Autowired
+        private WebhookInboxRepository webhookInboxRepository;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        private TransactionTemplate transactionTemplate;
+        private SimpleMeterRegistry meterRegistry;
+
+        @BeforeEach
+        void setUp() {
+                transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.executeWithoutResult(status -> {
+                        webhookInboxRepository.deleteAllInBatch();
+                        paymentRepository.deleteAllInBatch();
+                });
+                meterRegistry = new SimpleMeterRegistry();
+        }
+
+        @Test
+        public void WebhookInboxTest_Accept_DropsRedeliveredEvents() {
+                // Arrange: drains are left queued so only ingestion is exercised
+                WebhookInbox inbox = inbox(task -> {
+                }, 10);
+                UUID paymentId = pendingPayment("order1").getId();
+
+                // Act
+                boolean first = inbox.accept(PaymentProviderType.STRIPE, "default",
+                                new WebhookResult(paymentId, true, true, "evt_1"));
+                boolean redelivery = inbox.accept(PaymentProviderType.STRIPE, "default",
+                                new WebhookResult(paymentId, true, true, "evt_1"));
+                boolean otherProvider = inbox.accept(PaymentProviderType.PAYPAL, "default",
+                                new WebhookResult(paymentId, true, true, "evt_1"));
+
+                // Assert
+                Assertions.assertThat(first).isTrue();
+                Assertions.assertThat(redelivery).isFalse();
+                Assertions.assertThat(otherProvider).isTrue();
+                Assertions.assertThat(webhookInboxRepository.countByProcessedAtIsNull()).isEqualTo(2);
+                Assertions.assertThat(meterRegistry.counter("payments.webhooks.duplicates", "provider", "STRIPE")
+                                .count()).isEqualTo(1);
+                Assertions.assertThat(meterRegistry.get("payments.webhooks.pending").gauge().value()).isEqualTo(2);
+        }
+
+        @Test
+        public void WebhookInboxTest_Accept_AppliesEventsInArrivalOrder() {
+                // Arrange
+                WebhookInbox inbox = inbox(Runnable::run, 10);
+                UUID paymentId = pendingPayment("order1").getId();
+
+                // Act: a failed attempt followed by a successful retry
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(paymentId, false, true, "evt_1"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(paymentId, true, true, "evt_2"));
+
+                // Assert
+                Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+                Assertions.assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCESS);
+                Assertions.assertThat(payment.getCompletedAt()).isNotNull();
+                Assertions.assertThat(webhookInboxRepository.countByProcessedAtIsNull()).isZero();
+        }
+
+        @Test
+        public void WebhookInboxTest_Drain_NeverDowngradesSuccess_AndProcessesInBatches() {
+                // Arrange
+                WebhookInbox inbox = inbox(task -> {
+                }, 2);
+                UUID paid = pendingPayment("order1").getId();
+                UUID failed = pendingPayment("order2").getId();
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(paid, true, true, "evt_1"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(paid, false, true, "evt_2"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(failed, false, true, "evt_3"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(failed, false, true, "evt_4"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(failed, false, true, "evt_5"));
+
+                // Act
+                int processed = inbox.drain();
+
+                // Assert
+                Assertions.assertThat(processed).isEqualTo(5);
+                Assertions.assertThat(paymentRepository.findById(paid).orElseThrow().getStatus())
+                                .isEqualTo(PaymentStatus.SUCCESS);
+                Assertions.assertThat(paymentRepository.findById(failed).orElseThrow().getStatus())
+                                .isEqualTo(PaymentStatus.FAILED);
+                Assertions.assertThat(inbox.drain()).isZero();
+        }
+
+        @Test
+        public void WebhookInboxTest_Drain_SkipsUnknownPayments() {
+                // Arrange
+                WebhookInbox inbox = inbox(task -> {
+                }, 10);
+                UUID paymentId = pendingPayment("order1").getId();
+                inbox.accept(PaymentProviderType.STRIPE, "default",
+                                new WebhookResult(UUID.randomUUID(), true, true, "evt_1"));
+                inbox.accept(PaymentProviderType.STRIPE, "default", new WebhookResult(paymentId, true, true, "evt_2"));
+
+                // Act
+                int processed = inbox.drain();
+
+                // Assert: the unknown event does not hold up the rest of the batch
+                Assertions.assertThat(processed).isEqualTo(2);
+                Assertions.assertThat(webhookInboxRepository.countByProcessedAtIsNull()).isZero();
+                Assertions.assertThat(paymentRepository.findById(paymentId).orElseThrow().getStatus())
+                                .isEqualTo(PaymentStatus.SUCCESS);
+        }
+
+        @Test
+        public void WebhookInboxTest_Drain_SkipsEventsFromAnotherTenant() {
+                // Arrange: a webhook on acme's endpoint naming a payment of the default account
+                WebhookInbox inbox = inbox(task -> {
+                }, 10);
+                UUID paymentId = pendingPayment("order1").getId();
+                inbox.accept(PaymentProviderType.STRIPE, "acme", new WebhookResult(paymentId, true, true, "evt_1"));
+
+                // Act
+                int processed = inbox.drain();
+
+                // Assert: the event is consumed without touching the payment
+                Assertions.assertThat(processed).isEqualTo(1);
+                Assertions.assertThat(webhookInboxRepository.countByProcessedAtIsNull()).isZero();
+                Assertions.assertThat(paymentRepository.findById(paymentId).orElseThrow().getStatus())
+                                .isEqualTo(PaymentStatus.PENDING);
+        }
+
+        private WebhookInbox inbox(Executor executor, int batchSize) {
+                return new WebhookInbox(webhookInboxRepository, paymentRepository, transactionManager, executor,
+                                meterRegistry, JobCoordinator.SINGLE_NODE, PaymentShards.SINGLE, batchSize,
+                                Duration.ofDays(7));
+        }
+
+        private Payment pendingPayment(String orderId) {
+                return transactionTemplate.execute(status -> {
+                        Payment payment = new Payment(orderId, BigDecimal.TEN, PaymentStatus.INITIATING,
+                                        PaymentProviderType.STRIPE);
+                        payment.markPending(PaymentProviderType.STRIPE);
+                        return paymentRepository.save(payment);
+                });
+        }
+}